@@ -1,10 +1,31 @@
 package dat;
 
 import dat.config.ApplicationConfig;
+import dat.config.ConfigManager;
 import dat.config.HibernateConfig;
 import dat.mockdatabase.BulkCustomerMigration;
+import dat.events.ActivityLogEventPublisher;
+import dat.events.CustomerEventBus;
+import dat.migrations.ActivityLogPartitionMigration;
+import dat.migrations.ActivityLogSessionMigration;
+import dat.migrations.MetadataIndexMigration;
+import dat.migrations.SessionTokenHashMigration;
+import dat.migrations.SmsLedgerMigration;
+import dat.migrations.SubscriptionActiveIndexMigration;
 import dat.mockdatabase.SerialLinkMigration;
+import dat.security.services.PasswordHashingService;
+import dat.services.ActivityAggregateService;
+import dat.services.ActivityArchiveService;
+import dat.services.ActivityLogPartitionService;
+import dat.services.ActivityLogWriter;
+import dat.services.AnalyticsService;
+import dat.services.BillingCalendarService;
+import dat.services.DunningService;
+import dat.services.SessionActivityTracker;
 import dat.services.SessionCleanupService;
+import dat.services.SmsBalanceAlertService;
+import dat.services.SmsCreditReservationService;
+import dat.services.SmsLedgerService;
 import io.javalin.Javalin;
 import jakarta.persistence.EntityManagerFactory;
 
@@ -16,7 +37,18 @@ import jakarta.persistence.EntityManagerFactory;
 public class Main {
     public static void main(String[] args) {
         System.out.println("Initializing NotionPay Backend...\n");
+
+        // Watch config.properties (or CONFIG_FILE) so keys can be rotated without a restart
+        ConfigManager.getInstance().startWatching();
         
+        // Schema migrations that hbm2ddl cannot do on its own
+        SessionTokenHashMigration.migrate();
+        ActivityLogPartitionMigration.migrate();
+        MetadataIndexMigration.migrate();
+        SmsLedgerMigration.migrate();
+        ActivityLogSessionMigration.migrate();
+        SubscriptionActiveIndexMigration.migrate();
+
         // Step 1: Populate basic test data (Plans, SerialLinks for Alice, Bob, etc.)
         System.out.println("Step 1: Populating basic test data...");
         SerialLinkMigration.populateSerialLinksAndPlans();
@@ -30,12 +62,37 @@ public class Main {
         
         System.out.println("\nDatabase migration completed.\n");
 
-        // Step 4: Start Session Cleanup Service
+        // Step 4: Start session activity tracking and cleanup
         System.out.println("\nStep 4: Starting session cleanup service...");
         EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        SessionActivityTracker activityTracker = SessionActivityTracker.getInstance(emf);
+        activityTracker.start();
         SessionCleanupService cleanupService = SessionCleanupService.getInstance(emf);
         cleanupService.startPeriodicCleanup();
-        System.out.println("Session cleanup service started (runs every 60 minutes)");
+        System.out.println("Session cleanup service started (expired and idle sessions)");
+        ActivityLogPartitionService partitionService = ActivityLogPartitionService.getInstance(emf);
+        partitionService.startPeriodicMaintenance();
+        ActivityAggregateService aggregateService = ActivityAggregateService.getInstance(emf);
+        aggregateService.start();
+        ActivityLogEventPublisher.register(emf);  // live activity events for SSE streams
+        ActivityArchiveService archiveService = ActivityArchiveService.getInstance(emf);
+        archiveService.startPeriodicArchiving();
+        SmsCreditReservationService smsReservations = SmsCreditReservationService.isEnabled()
+                ? SmsCreditReservationService.getInstance(emf)
+                : null;
+        if (smsReservations != null) {
+            smsReservations.start();  // also returns credits of leases left by crashed nodes
+        }
+        SmsBalanceAlertService smsAlertService = SmsBalanceAlertService.getInstance(emf);
+        smsAlertService.register();  // low-balance alerts on every SMS credit change
+        SmsLedgerService smsLedgerService = SmsLedgerService.getInstance(emf);
+        smsLedgerService.startPeriodicSnapshots();
+        BillingCalendarService billingCalendar = BillingCalendarService.getInstance(emf);
+        billingCalendar.start();  // subscriptions due in the next days, kept in memory
+        DunningService dunningService = DunningService.getInstance(emf);
+        dunningService.start();  // retries of failed renewals
+        AnalyticsService analyticsService = AnalyticsService.getInstance(emf);
+        analyticsService.start();  // payment_daily_summary upkeep
         
         // Step 5: Start server
         System.out.println("\nStep 5: Starting Javalin server on port 7070...");
@@ -48,7 +105,23 @@ public class Main {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("\nShutting down NotionPay...");
             cleanupService.shutdown();
+            partitionService.shutdown();
+            archiveService.shutdown();
+            smsLedgerService.shutdown();
+            billingCalendar.shutdown();
+            dunningService.shutdown();
+            activityTracker.shutdown();
+            CustomerEventBus.getInstance().closeAll();  // end SSE streams
             app.stop();
+            analyticsService.shutdown();  // after app.stop, so the last payments are summarized
+            if (smsReservations != null) {
+                smsReservations.shutdown();  // after app.stop, so no debit races the release
+            }
+            smsAlertService.shutdown();  // finish pending alerts before their activity logs are drained
+            ActivityLogWriter.getInstance(emf).shutdown();  // drain buffered activity logs
+            aggregateService.shutdown();  // after the drain, so drained logs are counted
+            PasswordHashingService.getInstance().shutdown();
+            ConfigManager.getInstance().stopWatching();
             System.out.println("Shutdown complete. Goodbye!");
         }));
     }
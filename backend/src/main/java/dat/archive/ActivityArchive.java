@@ -0,0 +1,104 @@
+package dat.archive;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A directory of activity segments (activity-000001.seg, activity-000002.seg, ...)
+ *
+ * Segments are opened (memory-mapped) on first use and kept open; new segments
+ * written by the archiving job are picked up on the next query. A row that
+ * ended up in two segments (archiving crashed after writing a segment but before
+ * the database delete committed) is returned once.
+ */
+public final class ActivityArchive implements AutoCloseable {
+    private static final String PREFIX = "activity-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final Map<Path, ActivitySegmentReader> readers = new ConcurrentHashMap<>();
+    private final ReentrantLock openLock = new ReentrantLock();  // opening does file I/O: a monitor would pin virtual threads
+
+    public ActivityArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Archived rows of a customer with fromMicros <= timestamp < toMicros, newest first
+     */
+    public List<ArchivedActivity> find(long customerId, long fromMicros, long toMicros) throws IOException {
+        Map<Long, ArchivedActivity> byId = new LinkedHashMap<>();
+        for (Path segment : listSegments()) {
+            ActivitySegmentReader reader = open(segment);
+            if (reader.overlaps(fromMicros, toMicros)) {
+                for (ArchivedActivity activity : reader.find(customerId, fromMicros, toMicros)) {
+                    byId.putIfAbsent(activity.id(), activity);
+                }
+            }
+        }
+        List<ArchivedActivity> result = new ArrayList<>(byId.values());
+        result.sort(Comparator.comparingLong(ArchivedActivity::timestampMicros)
+                .thenComparingLong(ArchivedActivity::id)
+                .reversed());
+        return result;
+    }
+
+    /**
+     * Path for the next segment to write (sequence after the highest existing one)
+     */
+    public Path nextSegmentPath() throws IOException {
+        Files.createDirectories(directory);
+        int sequence = 0;
+        for (Path segment : listSegments()) {
+            String name = segment.getFileName().toString();
+            sequence = Math.max(sequence, Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+        }
+        return directory.resolve(String.format("%s%06d%s", PREFIX, sequence + 1, SUFFIX));
+    }
+
+    public List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "[0-9]*" + SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(Comparator.naturalOrder());
+        return segments;
+    }
+
+    public ActivitySegmentReader open(Path segment) throws IOException {
+        ActivitySegmentReader reader = readers.get(segment);
+        if (reader == null) {
+            openLock.lock();
+            try {
+                reader = readers.get(segment);
+                if (reader == null) {
+                    reader = new ActivitySegmentReader(segment);
+                    readers.put(segment, reader);
+                }
+            } finally {
+                openLock.unlock();
+            }
+        }
+        return reader;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ActivitySegmentReader reader : readers.values()) {
+            reader.close();
+        }
+        readers.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package dat.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of an activity archive segment (immutable, one file per archiving batch)
+ *
+ * <pre>
+ * header    magic "NPAS", version, rowCount, customerCount, min/max timestamp (micros),
+ *           type dictionary, status dictionary, absolute start of every column
+ * index     one fixed-width entry per customer, sorted by customer id:
+ *           customerId, firstRow, rowCount and the customer's byte offset in each varint column
+ * type      1 byte per row (dictionary code)
+ * status    1 byte per row (dictionary code)
+ * timestamp zigzag varint delta to the previous row of the same customer
+ * id        zigzag varint delta to the previous row of the same customer
+ * session   varint, 0 = no session, otherwise sessionId + 1
+ * metadata  varint length + 1 (0 = null) followed by UTF-8 JSON
+ * </pre>
+ *
+ * Rows are sorted by (customer, timestamp, id) and deltas restart at every
+ * customer, so a reader can binary-search the index and decode one customer's
+ * rows without touching the rest of the file.
+ */
+final class ActivitySegmentFormat {
+    static final int MAGIC = 0x4E504153; // "NPAS"
+    static final short VERSION = 1;
+    static final int INDEX_ENTRY_BYTES = 8 + 4 + 4 + 4 * 4;
+
+    private ActivitySegmentFormat() {
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void putVarLong(Buffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Read a varint at the buffer's position and advance it
+     */
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in activity segment");
+    }
+
+    /**
+     * Growable byte buffer used to build one column in memory
+     */
+    static final class Buffer {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        void put(byte value) {
+            ensure(1);
+            bytes[size++] = value;
+        }
+
+        void put(byte[] values) {
+            ensure(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                int capacity = bytes.length;
+                while (capacity < size + extra) {
+                    capacity *= 2;
+                }
+                byte[] grown = new byte[capacity];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+        }
+    }
+}
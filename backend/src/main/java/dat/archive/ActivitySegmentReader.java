@@ -0,0 +1,181 @@
+package dat.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static dat.archive.ActivitySegmentFormat.*;
+
+/**
+ * Reads an activity segment through a read-only memory mapping
+ *
+ * Only the header is parsed up front. A customer lookup is a binary search in
+ * the fixed-width index followed by decoding that customer's slice of each
+ * column; the OS pages in just those parts of the file. Thread-safe: every
+ * lookup works on its own duplicate of the mapping.
+ */
+public final class ActivitySegmentReader implements AutoCloseable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int rowCount;
+    private final int customerCount;
+    private final long minMicros;
+    private final long maxMicros;
+    private final String[] types;
+    private final String[] statuses;
+    private final int indexStart;
+    private final int typeStart;
+    private final int statusStart;
+    private final int timestampStart;
+    private final int idStart;
+    private final int sessionStart;
+    private final int metadataStart;
+
+    public ActivitySegmentReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer header = mapped.duplicate();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an activity segment: " + path);
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported activity segment version " + version + ": " + path);
+            }
+            this.rowCount = header.getInt();
+            this.customerCount = header.getInt();
+            this.minMicros = header.getLong();
+            this.maxMicros = header.getLong();
+            this.types = readDictionary(header);
+            this.statuses = readDictionary(header);
+            this.indexStart = (int) header.getLong();
+            this.typeStart = (int) header.getLong();
+            this.statusStart = (int) header.getLong();
+            this.timestampStart = (int) header.getLong();
+            this.idStart = (int) header.getLong();
+            this.sessionStart = (int) header.getLong();
+            this.metadataStart = (int) header.getLong();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Whether any row of this segment falls within [fromMicros, toMicros)
+     */
+    public boolean overlaps(long fromMicros, long toMicros) {
+        return minMicros < toMicros && maxMicros >= fromMicros;
+    }
+
+    /**
+     * A customer's rows with fromMicros <= timestamp < toMicros, oldest first
+     */
+    public List<ArchivedActivity> find(long customerId, long fromMicros, long toMicros) {
+        List<ArchivedActivity> result = new ArrayList<>();
+        if (!overlaps(fromMicros, toMicros)) {
+            return result;
+        }
+        int entry = findIndexEntry(customerId);
+        if (entry < 0) {
+            return result;
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        int entryStart = indexStart + entry * INDEX_ENTRY_BYTES;
+        int firstRow = buffer.getInt(entryStart + 8);
+        int count = buffer.getInt(entryStart + 12);
+
+        ByteBuffer timestamps = slice(timestampStart + buffer.getInt(entryStart + 16));
+        ByteBuffer ids = slice(idStart + buffer.getInt(entryStart + 20));
+        ByteBuffer sessions = slice(sessionStart + buffer.getInt(entryStart + 24));
+        ByteBuffer metadata = slice(metadataStart + buffer.getInt(entryStart + 28));
+
+        long micros = 0;
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            micros += unzigzag(getVarLong(timestamps));
+            id += unzigzag(getVarLong(ids));
+            long session = getVarLong(sessions);
+            int metadataLength = (int) getVarLong(metadata);
+            if (micros >= toMicros) {
+                break; // rows are in timestamp order within a customer
+            }
+            if (micros < fromMicros) {
+                metadata.position(metadata.position() + Math.max(0, metadataLength - 1));
+                continue;
+            }
+            String json = null;
+            if (metadataLength > 0) {
+                byte[] bytes = new byte[metadataLength - 1];
+                metadata.get(bytes);
+                json = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int row = firstRow + i;
+            result.add(new ArchivedActivity(id, customerId, session == 0 ? null : session - 1,
+                    types[buffer.get(typeStart + row) & 0xFF], statuses[buffer.get(statusStart + row) & 0xFF],
+                    micros, json));
+        }
+        return result;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int customerCount() {
+        return customerCount;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when it becomes unreachable
+        channel.close();
+    }
+
+    private int findIndexEntry(long customerId) {
+        int low = 0;
+        int high = customerCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long candidate = mapped.getLong(indexStart + middle * INDEX_ENTRY_BYTES);
+            if (candidate < customerId) {
+                low = middle + 1;
+            } else if (candidate > customerId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private ByteBuffer slice(int position) {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(position);
+        return buffer;
+    }
+
+    private static String[] readDictionary(ByteBuffer header) {
+        String[] values = new String[header.get() & 0xFF];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[((header.get() & 0xFF) << 8) | (header.get() & 0xFF)];
+            header.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,164 @@
+package dat.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dat.archive.ActivitySegmentFormat.*;
+
+/**
+ * Writes activity rows to an immutable columnar segment file (see ActivitySegmentFormat)
+ *
+ * The file is written next to the target, fsynced and then atomically renamed,
+ * so a segment is either complete or absent.
+ */
+public final class ActivitySegmentWriter {
+
+    private ActivitySegmentWriter() {
+    }
+
+    /**
+     * @param rows Rows in any order (they are sorted by customer, timestamp, id)
+     * @throws IllegalArgumentException if rows is empty or holds more than 255 distinct types/statuses
+     */
+    public static void write(Path target, List<ArchivedActivity> rows) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("An activity segment needs at least one row");
+        }
+        List<ArchivedActivity> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingLong(ArchivedActivity::customerId)
+                .thenComparingLong(ArchivedActivity::timestampMicros)
+                .thenComparingLong(ArchivedActivity::id));
+
+        Map<String, Integer> types = new LinkedHashMap<>();
+        Map<String, Integer> statuses = new LinkedHashMap<>();
+        Buffer index = new Buffer();
+        Buffer typeColumn = new Buffer();
+        Buffer statusColumn = new Buffer();
+        Buffer timestampColumn = new Buffer();
+        Buffer idColumn = new Buffer();
+        Buffer sessionColumn = new Buffer();
+        Buffer metadataColumn = new Buffer();
+
+        long minMicros = Long.MAX_VALUE;
+        long maxMicros = Long.MIN_VALUE;
+        int customerCount = 0;
+        int row = 0;
+        while (row < sorted.size()) {
+            long customerId = sorted.get(row).customerId();
+            int firstRow = row;
+            int timestampOffset = timestampColumn.size();
+            int idOffset = idColumn.size();
+            int sessionOffset = sessionColumn.size();
+            int metadataOffset = metadataColumn.size();
+            long previousMicros = 0;
+            long previousId = 0;
+
+            for (; row < sorted.size() && sorted.get(row).customerId() == customerId; row++) {
+                ArchivedActivity activity = sorted.get(row);
+                typeColumn.put((byte) code(types, activity.type()));
+                statusColumn.put((byte) code(statuses, activity.status()));
+                putVarLong(timestampColumn, zigzag(activity.timestampMicros() - previousMicros));
+                putVarLong(idColumn, zigzag(activity.id() - previousId));
+                putVarLong(sessionColumn, activity.sessionId() == null ? 0 : activity.sessionId() + 1);
+                if (activity.metadataJson() == null) {
+                    putVarLong(metadataColumn, 0);
+                } else {
+                    byte[] json = activity.metadataJson().getBytes(StandardCharsets.UTF_8);
+                    putVarLong(metadataColumn, json.length + 1L);
+                    metadataColumn.put(json);
+                }
+                previousMicros = activity.timestampMicros();
+                previousId = activity.id();
+                minMicros = Math.min(minMicros, activity.timestampMicros());
+                maxMicros = Math.max(maxMicros, activity.timestampMicros());
+            }
+
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES)
+                    .putLong(customerId)
+                    .putInt(firstRow)
+                    .putInt(row - firstRow)
+                    .putInt(timestampOffset)
+                    .putInt(idOffset)
+                    .putInt(sessionOffset)
+                    .putInt(metadataOffset);
+            index.put(entry.array());
+            customerCount++;
+        }
+
+        byte[] typeDictionary = dictionary(types);
+        byte[] statusDictionary = dictionary(statuses);
+        int headerBytes = 4 + 2 + 4 + 4 + 8 + 8 + typeDictionary.length + statusDictionary.length + 7 * 8;
+
+        Buffer[] columns = {index, typeColumn, statusColumn, timestampColumn, idColumn, sessionColumn, metadataColumn};
+        ByteBuffer header = ByteBuffer.allocate(headerBytes)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putInt(sorted.size())
+                .putInt(customerCount)
+                .putLong(minMicros)
+                .putLong(maxMicros)
+                .put(typeDictionary)
+                .put(statusDictionary);
+        long start = headerBytes;
+        for (Buffer column : columns) {
+            header.putLong(start);
+            start += column.size();
+        }
+        header.flip();
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (Buffer column : columns) {
+                writeFully(channel, column.asByteBuffer());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int code(Map<String, Integer> dictionary, String value) {
+        Integer code = dictionary.get(value);
+        if (code == null) {
+            if (dictionary.size() == 255) {
+                throw new IllegalArgumentException("More than 255 distinct values in a dictionary column");
+            }
+            code = dictionary.size();
+            dictionary.put(value, code);
+        }
+        return code;
+    }
+
+    private static byte[] dictionary(Map<String, Integer> dictionary) {
+        Buffer out = new Buffer();
+        out.put((byte) dictionary.size());
+        for (String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.put((byte) (bytes.length >>> 8));
+            out.put((byte) bytes.length);
+            out.put(bytes);
+        }
+        ByteBuffer buffer = out.asByteBuffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package dat.archive;
+
+/**
+ * One activity log row as stored in an archive segment
+ *
+ * @param timestampMicros Microseconds since the epoch (PostgreSQL timestamp precision)
+ * @param sessionId Null when the activity had no session
+ * @param metadataJson Raw jsonb text, null when the row had no metadata
+ */
+public record ArchivedActivity(long id, long customerId, Long sessionId, String type, String status,
+                               long timestampMicros, String metadataJson) {
+}
@@ -0,0 +1,176 @@
+package dat.billing;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Upcoming billing dates bucketed by minute
+ *
+ * A sorted map of minute buckets (epoch minute -> subscription ids) plus a reverse
+ * index (subscription id -> minute), so moving or removing a subscription touches
+ * one bucket and taking what is due is a head-map walk over the minutes up to now.
+ * Only dates before the horizon are kept; the owner reloads the calendar from the
+ * database to move the horizon forward.
+ *
+ * A reload races with live updates: ids touched between beginReload() and
+ * finishReload() keep their live state instead of the (older) loaded one.
+ *
+ * Thread-safe; all methods synchronize on the calendar.
+ */
+public class BillingCalendar {
+    private final TreeMap<Long, Set<Long>> buckets = new TreeMap<>();
+    private final Map<Long, Long> minuteBySubscription = new HashMap<>();
+    private Instant horizon;
+    private Set<Long> touchedDuringReload;
+
+    public BillingCalendar(Instant horizon) {
+        this.horizon = horizon;
+    }
+
+    /**
+     * Put a subscription in the bucket of its billing minute (moving it if already scheduled)
+     * Dates at or after the horizon drop the subscription until the next reload.
+     */
+    public synchronized void schedule(long subscriptionId, Instant dueAt) {
+        touch(subscriptionId);
+        unlink(subscriptionId);
+        if (dueAt.isBefore(horizon)) {
+            link(subscriptionId, minuteOf(dueAt));
+        }
+    }
+
+    /**
+     * @return true if the subscription was scheduled
+     */
+    public synchronized boolean remove(long subscriptionId) {
+        touch(subscriptionId);
+        return unlink(subscriptionId);
+    }
+
+    /**
+     * Remove and return every subscription due at or before the minute of now (overdue first)
+     */
+    public synchronized List<Long> takeDue(Instant now) {
+        List<Long> due = new ArrayList<>();
+        Iterator<Map.Entry<Long, Set<Long>>> it = buckets.headMap(minuteOf(now), true).entrySet().iterator();
+        while (it.hasNext()) {
+            for (Long subscriptionId : it.next().getValue()) {
+                touch(subscriptionId);  // a reload in flight must not put it back
+                minuteBySubscription.remove(subscriptionId);
+                due.add(subscriptionId);
+            }
+            it.remove();
+        }
+        return due;
+    }
+
+    /**
+     * Subscriptions due at or before the minute of now, without removing them
+     */
+    public synchronized List<Long> peekDue(Instant now) {
+        List<Long> due = new ArrayList<>();
+        for (Set<Long> bucket : buckets.headMap(minuteOf(now), true).values()) {
+            due.addAll(bucket);
+        }
+        return due;
+    }
+
+    /**
+     * Number of subscriptions due on each of the next days, in the given zone
+     * Day 0 is today and also counts overdue subscriptions; days past the horizon are 0.
+     */
+    public synchronized Map<LocalDate, Integer> forecast(Instant now, int days, ZoneId zone) {
+        Map<LocalDate, Integer> histogram = new LinkedHashMap<>();
+        LocalDate today = LocalDate.ofInstant(now, zone);
+        for (int day = 0; day < days; day++) {
+            histogram.put(today.plusDays(day), 0);
+        }
+        long end = minuteOf(today.plusDays(days).atStartOfDay(zone).toInstant());
+        for (Map.Entry<Long, Set<Long>> bucket : buckets.headMap(end, false).entrySet()) {
+            LocalDate date = LocalDate.ofInstant(Instant.ofEpochSecond(bucket.getKey() * 60), zone);
+            histogram.merge(date.isBefore(today) ? today : date, bucket.getValue().size(), Integer::sum);
+        }
+        return histogram;
+    }
+
+    public synchronized int size() {
+        return minuteBySubscription.size();
+    }
+
+    public synchronized Instant getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Start recording live updates, so finishReload() does not overwrite them
+     */
+    public synchronized void beginReload() {
+        touchedDuringReload = new HashSet<>();
+    }
+
+    /**
+     * Replace the calendar with billing dates loaded from the database
+     * @param loaded Billing date per subscription, all before the new horizon
+     */
+    public synchronized void finishReload(Map<Long, Instant> loaded, Instant newHorizon) {
+        Set<Long> touched = touchedDuringReload == null ? Set.of() : touchedDuringReload;
+        touchedDuringReload = null;
+
+        Map<Long, Long> live = new HashMap<>();
+        for (Long subscriptionId : touched) {
+            Long minute = minuteBySubscription.get(subscriptionId);
+            if (minute != null) {
+                live.put(subscriptionId, minute);
+            }
+        }
+        buckets.clear();
+        minuteBySubscription.clear();
+        horizon = newHorizon;
+
+        for (Map.Entry<Long, Instant> entry : loaded.entrySet()) {
+            if (!touched.contains(entry.getKey()) && entry.getValue().isBefore(newHorizon)) {
+                link(entry.getKey(), minuteOf(entry.getValue()));
+            }
+        }
+        live.forEach(this::link);
+    }
+
+    static long minuteOf(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), 60);
+    }
+
+    private void link(long subscriptionId, long minute) {
+        buckets.computeIfAbsent(minute, m -> new LinkedHashSet<>()).add(subscriptionId);
+        minuteBySubscription.put(subscriptionId, minute);
+    }
+
+    private boolean unlink(long subscriptionId) {
+        Long minute = minuteBySubscription.remove(subscriptionId);
+        if (minute == null) {
+            return false;
+        }
+        Set<Long> bucket = buckets.get(minute);
+        bucket.remove(subscriptionId);
+        if (bucket.isEmpty()) {
+            buckets.remove(minute);
+        }
+        return true;
+    }
+
+    private void touch(long subscriptionId) {
+        if (touchedDuringReload != null) {
+            touchedDuringReload.add(subscriptionId);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package dat.billing;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Delay before the next renewal retry
+ *
+ * Exponential: base, 2x base, 4x base ... capped at max. The jitter takes up to
+ * jitterPercent off each delay, so subscriptions that failed together (e.g. in a
+ * processor outage) come back spread out instead of all in the same minute.
+ */
+public final class DunningBackoff {
+
+    private DunningBackoff() {
+    }
+
+    /**
+     * @param attempt Failed attempts so far (1 = first failure)
+     * @return Delay in seconds, between (1 - jitterPercent/100) * delay and delay
+     */
+    public static long delaySeconds(int attempt, long baseSeconds, long maxSeconds, int jitterPercent,
+                                    RandomGenerator random) {
+        int doublings = Math.min(Math.max(attempt, 1) - 1, 30);
+        long delay = Math.min(maxSeconds, baseSeconds << doublings);
+        double jitter = Math.min(Math.max(jitterPercent, 0), 100) / 100.0;
+        return Math.max(1, Math.round(delay * (1 - jitter * random.nextDouble())));
+    }
+}
@@ -3,11 +3,15 @@ package dat.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dat.exceptions.ApiException;
 import dat.routes.Routes;
+import dat.security.authorization.RoutePolicies;
 import dat.security.controllers.AccessController;
 import dat.security.controllers.SecurityController;
 import dat.security.enums.Role;
 import dat.security.exceptions.NotAuthorizedException;
+import dat.security.ratelimit.RateLimitHandler;
 import dat.security.routes.SecurityRoutes;
+import dat.utils.Metrics;
+import dat.utils.PinnedThreadMonitor;
 import dat.utils.Utils;
 import io.javalin.Javalin;
 import io.javalin.config.JavalinConfig;
@@ -15,6 +19,9 @@ import io.javalin.http.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ApplicationConfig {
 
     private static Routes routes = new
@@ -22,11 +29,13 @@ public class ApplicationConfig {
     private static ObjectMapper jsonMapper = new Utils().getObjectMapper();
     private static SecurityController securityController = SecurityController.getInstance();
     private static AccessController accessController = new AccessController();
+    private static RateLimitHandler rateLimitHandler = new RateLimitHandler();
     private static Logger logger = LoggerFactory.getLogger(ApplicationConfig.class);
-    private static int count = 1;
+    private static final AtomicLong count = new AtomicLong();
 
     public static void configuration(JavalinConfig config) {
         config.showJavalinBanner = false;
+        configureExecution(config);
         config.bundledPlugins.enableRouteOverview("/routes", Role.ANYONE);
         
         // Enable CORS to allow frontend access
@@ -39,15 +48,49 @@ public class ApplicationConfig {
         });
         
         config.router.contextPath = "/api"; // base path for all endpoints
+        // Compile each route's role requirement to a bitmask once, at router build time
+        config.events.handlerAdded(handlerMetaInfo -> RoutePolicies.register(handlerMetaInfo.getRoles()));
         config.router.apiBuilder(routes.getRoutes());
         config.router.apiBuilder(SecurityRoutes.getSecuredRoutes());
         config.router.apiBuilder(SecurityRoutes.getSecurityRoutes());
     }
 
+    /**
+     * Request execution mode (SERVER_EXECUTION_MODE):
+     * - platform (default): Jetty's pool of platform threads
+     * - virtual: one virtual thread per request, so requests blocked on JDBC or
+     *   Stripe no longer hold a pool thread; the HikariCP pool (DB_POOL_SIZE)
+     *   becomes the limit, and requests above it wait for a connection for up to
+     *   DB_CONNECTION_TIMEOUT_MS instead of failing.
+     *   Blocking while pinned (synchronized sections in drivers or libraries) is
+     *   reported by PinnedThreadMonitor (SERVER_PINNING_MONITOR, blocks of at
+     *   least SERVER_PINNING_THRESHOLD_MS).
+     */
+    private static void configureExecution(JavalinConfig config) {
+        ConfigSnapshot settings = ConfigManager.current();
+        String mode = settings.get("SERVER_EXECUTION_MODE", "platform").trim().toLowerCase();
+        if (!mode.equals("virtual") && !mode.equals("platform")) {
+            logger.warn("Unknown SERVER_EXECUTION_MODE '{}', using platform threads", mode);
+            mode = "platform";
+        }
+        boolean virtual = mode.equals("virtual");
+        config.useVirtualThreads = virtual;
+        Metrics.gauge("server.virtual.threads", () -> virtual ? 1 : 0);
+        logger.info("Request execution mode: {} threads", mode);
+
+        if (virtual && settings.getBoolean("SERVER_PINNING_MONITOR", true)) {
+            long thresholdMs = Math.max(1, settings.getLong("SERVER_PINNING_THRESHOLD_MS", 20));
+            config.events.serverStarted(() -> PinnedThreadMonitor.start(Duration.ofMillis(thresholdMs)));
+            config.events.serverStopped(PinnedThreadMonitor::stop);
+        }
+    }
+
     public static Javalin startServer(int port) {
         Javalin app = Javalin.create(ApplicationConfig::configuration);
 
+        app.beforeMatched(rateLimitHandler::beforeAccess);
         app.beforeMatched(accessController::accessHandler);
+        app.beforeMatched(rateLimitHandler::afterAccess);
         app.after(ApplicationConfig::afterRequest);
         app.exception(ApiException.class, ApplicationConfig::apiExceptionHandler);
         app.exception(dat.security.exceptions.ApiException.class, ApplicationConfig::apiSecurityExceptionHandler);
@@ -60,7 +103,7 @@ public class ApplicationConfig {
 
     public static void afterRequest(Context ctx) {
         String requestInfo = ctx.req().getMethod() + " " + ctx.req().getRequestURI();
-        logger.info(" Request {} - {} was handled with status code {}", count++, requestInfo, ctx.status());
+        logger.info(" Request {} - {} was handled with status code {}", count.incrementAndGet(), requestInfo, ctx.status());
     }
 
     public static void stopServer(Javalin app) {
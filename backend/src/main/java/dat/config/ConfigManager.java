@@ -0,0 +1,216 @@
+package dat.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Holds the current {@link ConfigSnapshot} and swaps in a new one when
+ * config.properties changes on disk.
+ *
+ * Reads are a single volatile load ({@link #current()}), so callers on the
+ * request path never touch the file system. A background watcher reloads the
+ * file on modification and atomically replaces the snapshot; if the new file
+ * cannot be parsed the previous snapshot is kept. Components that cache
+ * derived state (e.g. the Stripe API key) can register a listener.
+ *
+ * Packaged in a jar, the classpath config.properties cannot change, and
+ * environment variables are fixed for the life of the process. To hot reload
+ * in production, point the CONFIG_FILE environment variable at a properties
+ * file on disk: its values override the classpath ones and it is watched
+ * like the local file. (With DEPLOYED set, environment variables still win
+ * over both files, so keys meant to be reloaded belong in CONFIG_FILE only.)
+ *
+ * @author NotionPay Team
+ */
+public class ConfigManager {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigManager.class);
+    private static final String RESOURCE_NAME = "config.properties";
+    private static final ConfigManager instance = new ConfigManager(externalConfigFile());
+
+    private final AtomicReference<ConfigSnapshot> current = new AtomicReference<>();
+    private final List<Consumer<ConfigSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final Path resourceFile;  // classpath config.properties, null when packaged in a jar
+    private final Path externalFile;  // CONFIG_FILE, overrides the classpath values
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    ConfigManager(Path externalFile) {
+        this.resourceFile = resolveResourceFile();
+        this.externalFile = externalFile;
+        this.current.set(load());
+    }
+
+    public static ConfigManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Current configuration snapshot (hot path, no I/O)
+     */
+    public static ConfigSnapshot current() {
+        return instance.current.get();
+    }
+
+    /**
+     * Register a callback invoked after a new snapshot has been swapped in
+     */
+    public void addListener(Consumer<ConfigSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reload configuration now and swap in the new snapshot
+     * @return The snapshot in effect after the reload
+     */
+    public ConfigSnapshot reload() {
+        try {
+            ConfigSnapshot snapshot = load();
+            current.set(snapshot);
+            logger.info("Configuration reloaded: {}", snapshot);
+            for (Consumer<ConfigSnapshot> listener : listeners) {
+                try {
+                    listener.accept(snapshot);
+                } catch (Exception e) {
+                    logger.error("Configuration listener failed", e);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Configuration reload failed, keeping previous snapshot", e);
+        }
+        return current.get();
+    }
+
+    /**
+     * Start watching CONFIG_FILE and the local config.properties for changes
+     * Logs that hot reload is off when neither can be watched (packaged in a jar, no CONFIG_FILE)
+     */
+    public synchronized void startWatching() {
+        if (watcherThread != null) {
+            return;
+        }
+        List<Path> files = watchedFiles();
+        if (files.isEmpty()) {
+            logger.warn("{} is packaged in the jar and CONFIG_FILE is not set, configuration hot reload is off", RESOURCE_NAME);
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path file : files) {
+                file.getParent().register(watchService,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            }
+        } catch (IOException e) {
+            logger.error("Could not watch {}, configuration hot reload is off", files, e);
+            return;
+        }
+
+        watcherThread = new Thread(() -> watchLoop(files), "config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.info("Watching {} for configuration changes", files);
+    }
+
+    /**
+     * Stop the file watcher
+     */
+    public synchronized void stopWatching() {
+        if (watcherThread == null) {
+            return;
+        }
+        watcherThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Could not close config watcher: {}", e.getMessage());
+        }
+        watcherThread = null;
+        logger.info("Configuration watcher stopped");
+    }
+
+    private List<Path> watchedFiles() {
+        List<Path> files = new ArrayList<>();
+        if (externalFile != null) {
+            files.add(externalFile);
+        }
+        if (resourceFile != null) {
+            files.add(resourceFile);
+        }
+        return files;
+    }
+
+    private void watchLoop(List<Path> files) {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            boolean changed = key.pollEvents().stream()
+                    .anyMatch(event -> event.context() instanceof Path name && files.contains(directory.resolve(name)));
+            key.reset();
+            if (changed) {
+                reload();
+            }
+        }
+    }
+
+    private ConfigSnapshot load() {
+        return ConfigSnapshot.of(readProperties(), System.getenv());
+    }
+
+    private Properties readProperties() {
+        Properties properties = new Properties();
+        try (InputStream is = resourceFile != null
+                ? Files.newInputStream(resourceFile)
+                : ConfigManager.class.getClassLoader().getResourceAsStream(RESOURCE_NAME)) {
+            if (is != null) {
+                properties.load(is);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + RESOURCE_NAME, e);
+        }
+        if (externalFile != null) {
+            if (!Files.exists(externalFile)) {
+                logger.warn("CONFIG_FILE {} does not exist, using {} only", externalFile, RESOURCE_NAME);
+                return properties;
+            }
+            try (InputStream is = Files.newInputStream(externalFile)) {
+                properties.load(is);  // later keys replace the classpath values
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read " + externalFile, e);
+            }
+        }
+        return properties;
+    }
+
+    private static Path externalConfigFile() {
+        String value = System.getenv("CONFIG_FILE");
+        return value == null || value.isBlank() ? null : Paths.get(value.trim()).toAbsolutePath();
+    }
+
+    private static Path resolveResourceFile() {
+        URL url = ConfigManager.class.getClassLoader().getResource(RESOURCE_NAME);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package dat.config;
+
+import dat.security.exceptions.ApiException;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable view of the application configuration at one point in time.
+ *
+ * Values are resolved once from environment variables and config.properties
+ * when the snapshot is built. When DEPLOYED is set, environment variables win
+ * over the properties file; otherwise the properties file wins and the
+ * environment is only used as a fallback.
+ *
+ * Hot paths (token signing/verification, Stripe, Hibernate bootstrap) read the
+ * typed fields directly, so no resource I/O happens per request.
+ *
+ * @author NotionPay Team
+ */
+public final class ConfigSnapshot {
+
+    private final boolean deployed;
+    private final Map<String, String> values;
+    private final Instant loadedAt;
+
+    // Typed hot-path values
+    private final String secretKey;
+    private final String issuer;
+    private final long tokenExpireTimeMillis;
+    private final String dbName;
+    private final String connectionStr;
+    private final String dbUsername;
+    private final String dbPassword;
+    private final String stripeSecretKey;
+
+    private ConfigSnapshot(boolean deployed, Map<String, String> values) {
+        this.deployed = deployed;
+        this.values = Collections.unmodifiableMap(values);
+        this.loadedAt = Instant.now();
+
+        this.secretKey = values.get("SECRET_KEY");
+        this.issuer = values.get("ISSUER");
+        this.tokenExpireTimeMillis = parseLong("TOKEN_EXPIRE_TIME", values.get("TOKEN_EXPIRE_TIME"), 1_800_000L);
+        this.dbName = values.get("DB_NAME");
+        this.connectionStr = values.get("CONNECTION_STR");
+        this.dbUsername = values.get("DB_USERNAME");
+        this.dbPassword = values.get("DB_PASSWORD");
+        this.stripeSecretKey = values.get("STRIPE_SECRET_KEY");
+    }
+
+    /**
+     * Build a snapshot from a properties file and an environment map
+     *
+     * @param fileProperties Properties read from config.properties (may be empty)
+     * @param environment Environment variables (usually System.getenv())
+     * @return New immutable snapshot
+     */
+    public static ConfigSnapshot of(Properties fileProperties, Map<String, String> environment) {
+        boolean deployed = environment.get("DEPLOYED") != null;
+        Map<String, String> merged = new HashMap<>();
+
+        if (deployed) {
+            fileProperties.stringPropertyNames().forEach(key -> merged.put(key, fileProperties.getProperty(key).trim()));
+            environment.forEach((key, value) -> merged.put(key, value.trim()));
+        } else {
+            environment.forEach((key, value) -> merged.put(key, value.trim()));
+            fileProperties.stringPropertyNames().forEach(key -> merged.put(key, fileProperties.getProperty(key).trim()));
+        }
+        return new ConfigSnapshot(deployed, merged);
+    }
+
+    // ==================== Typed accessors ====================
+
+    public boolean isDeployed() {
+        return deployed;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * JWT signing key
+     * @throws ApiException (500) if SECRET_KEY is not configured, so signing never runs with a null key
+     */
+    public String getSecretKey() {
+        if (secretKey == null || secretKey.isEmpty()) {
+            throw new ApiException(500, "Property SECRET_KEY not found in configuration");
+        }
+        return secretKey;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public long getTokenExpireTimeMillis() {
+        return tokenExpireTimeMillis;
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public String getConnectionStr() {
+        return connectionStr;
+    }
+
+    public String getDbUsername() {
+        return dbUsername;
+    }
+
+    public String getDbPassword() {
+        return dbPassword;
+    }
+
+    public String getStripeSecretKey() {
+        return stripeSecretKey;
+    }
+
+    // ==================== Generic accessors ====================
+
+    /**
+     * Get a raw configuration value
+     * @return The value, or null if not configured
+     */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = values.get(key);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return (int) parseLong(key, values.get(key), defaultValue);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        return parseLong(key, values.get(key), defaultValue);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Get a required value
+     * @throws IllegalStateException if the key is missing
+     */
+    public String require(String key) {
+        String value = values.get(key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalStateException(key + " not found in configuration");
+        }
+        return value;
+    }
+
+    private static long parseLong(String key, String value, long defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Configuration value " + key + " is not a number: " + value, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSnapshot{deployed=" + deployed + ", keys=" + values.keySet() + ", loadedAt=" + loadedAt + "}";
+    }
+}
@@ -2,7 +2,6 @@ package dat.config;
 
 import dat.security.entities.Role;
 import dat.security.entities.User;
-import dat.utils.Utils;
 import jakarta.persistence.EntityManagerFactory;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
@@ -53,6 +52,13 @@ public class HibernateConfig {
         // Product entities
         configuration.addAnnotatedClass(dat.entities.Product.class);
         configuration.addAnnotatedClass(dat.entities.SmsBalance.class);
+        configuration.addAnnotatedClass(dat.entities.SmsCreditLease.class);
+        configuration.addAnnotatedClass(dat.entities.SmsCreditSuspense.class);
+        configuration.addAnnotatedClass(dat.entities.SmsLedgerEntry.class);
+        configuration.addAnnotatedClass(dat.entities.SmsLedgerSnapshot.class);
+        configuration.addAnnotatedClass(dat.entities.SmsAlertState.class);
+        configuration.addAnnotatedClass(dat.entities.SubscriptionDunning.class);
+        configuration.addAnnotatedClass(dat.entities.PaymentDailySummary.class);
         
         // Payment entities
         configuration.addAnnotatedClass(dat.entities.PaymentMethod.class);
@@ -62,6 +68,7 @@ public class HibernateConfig {
         // Session and logging
         configuration.addAnnotatedClass(dat.entities.Session.class);
         configuration.addAnnotatedClass(dat.entities.ActivityLog.class);
+        configuration.addAnnotatedClass(dat.entities.ActivityDailyAggregate.class);
     }
 
     private static EntityManagerFactory createEMF(boolean forTest) {
@@ -72,7 +79,7 @@ public class HibernateConfig {
             setBaseProperties(props);
             if (forTest) {
                 props = setTestProperties(props);
-            } else if (System.getenv("DEPLOYED") != null) {
+            } else if (ConfigManager.current().isDeployed()) {
                 setDeployedProperties(props);
             } else {
                 props = setDevProperties(props);
@@ -101,20 +108,30 @@ public class HibernateConfig {
         props.put("hibernate.show_sql", "true");
         props.put("hibernate.format_sql", "true");
         props.put("hibernate.use_sql_comments", "true");
+        props.put("hibernate.jdbc.batch_size", "50");  // Batch inserts (registration, onboarding, activity logs)
+        props.put("hibernate.order_inserts", "true");
+        props.put("hibernate.order_updates", "true");
+        // HikariCP bounds concurrent transactions: callers beyond DB_POOL_SIZE wait up to
+        // DB_CONNECTION_TIMEOUT_MS for a connection, so with virtual request threads a burst queues instead of failing
+        ConfigSnapshot config = ConfigManager.current();
+        props.put("hibernate.connection.provider_class", "org.hibernate.hikaricp.internal.HikariCPConnectionProvider");
+        props.put("hibernate.hikari.maximumPoolSize", String.valueOf(Math.max(1, config.getInt("DB_POOL_SIZE", 20))));
+        props.put("hibernate.hikari.connectionTimeout", String.valueOf(Math.max(250, config.getLong("DB_CONNECTION_TIMEOUT_MS", 30000))));
+        props.put("hibernate.hikari.poolName", "notionpay-db");
         return props;
     }
 
     private static Properties setDeployedProperties(Properties props) {
-        String DBName = System.getenv("DB_NAME");
-        props.setProperty("hibernate.connection.url", System.getenv("CONNECTION_STR") + DBName);
-        props.setProperty("hibernate.connection.username", System.getenv("DB_USERNAME"));
-        props.setProperty("hibernate.connection.password", System.getenv("DB_PASSWORD"));
+        ConfigSnapshot config = ConfigManager.current();
+        props.setProperty("hibernate.connection.url", config.getConnectionStr() + config.getDbName());
+        props.setProperty("hibernate.connection.username", config.getDbUsername());
+        props.setProperty("hibernate.connection.password", config.getDbPassword());
         return props;
     }
 
 
     private static Properties setDevProperties(Properties props) {
-        String DBName = Utils.getPropertyValue("DB_NAME", "config.properties");
+        String DBName = ConfigManager.current().getDbName();
         props.put("hibernate.connection.url", "jdbc:postgresql://localhost:5432/" + DBName);
         props.put("hibernate.connection.username", "postgres");
         props.put("hibernate.connection.password", "postgres");
@@ -2,24 +2,41 @@ package dat.controllers.impl;
 
 import dat.controllers.IController;
 import dat.daos.impl.ActivityLogDAO;
+import dat.dtos.ActivityFeedDTO;
 import dat.dtos.ActivityLogDTO;
+import dat.dtos.ActivitySummaryDTO;
 import dat.entities.ActivityLog;
+import dat.enums.ActivityLogType;
+import dat.services.ActivityAggregateService;
+import dat.services.ActivityArchiveService;
+import dat.utils.ActivityFeedCursor;
+import dat.utils.DateTimeUtil;
 import dat.utils.ErrorResponse;
 import io.javalin.http.Context;
 import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 public class ActivityLogController implements IController<ActivityLogDTO> {
     private static final Logger logger = LoggerFactory.getLogger(ActivityLogController.class);
+    private static final int DEFAULT_FEED_LIMIT = 20;
+    private static final int MAX_FEED_LIMIT = 100;
+    private static final int MAX_SUMMARY_DAYS = 731;
     private final ActivityLogDAO activityLogDAO;
+    private final ActivityAggregateService activityAggregateService;
+    private final ActivityArchiveService activityArchiveService;
 
     public ActivityLogController(EntityManagerFactory emf) {
         this.activityLogDAO = ActivityLogDAO.getInstance(emf);
+        this.activityAggregateService = ActivityAggregateService.getInstance(emf);
+        this.activityArchiveService = ActivityArchiveService.getInstance(emf);
     }
 
     @Override
@@ -49,20 +66,13 @@ public class ActivityLogController implements IController<ActivityLogDTO> {
 
     /**
      * GET /api/customers/{customerId}/activities
-     * Get all activity logs for a customer
+     * Get the 20 most recent activity logs for a customer
      */
     public void getCustomerActivities(Context ctx) {
         try {
             Long customerId = Long.parseLong(ctx.pathParam("customerId"));
             
-            Set<ActivityLog> activities = activityLogDAO.getByCustomerId(customerId);
-            
-            // Convert to DTOs and sort by timestamp descending
-            List<ActivityLogDTO> dtos = activities.stream()
-                    .map(this::convertToDTO)
-                    .sorted((a, b) -> b.timestamp.compareTo(a.timestamp))
-                    .limit(20) // Limit to last 20 activities
-                    .collect(Collectors.toList());
+            List<ActivityLogDTO> dtos = activityLogDAO.getFeed(customerId, null, null, null, null, DEFAULT_FEED_LIMIT);
             
             ctx.status(200).json(dtos);
             logger.info("Retrieved {} activities for customer ID: {}", dtos.size(), customerId);
@@ -74,6 +84,112 @@ public class ActivityLogController implements IController<ActivityLogDTO> {
         }
     }
 
+    /**
+     * GET /api/customers/{customerId}/activities/feed?types=LOGIN,PAYMENT&from=...&to=...&limit=20&cursor=...
+     * Paginated activity feed, newest first
+     * from/to are ISO-8601 timestamps ([from, to)), limit is 1-100 (default 20),
+     * cursor is the nextCursor of the previous page.
+     */
+    public void getActivityFeed(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("customerId"));
+            
+            List<ActivityLogType> types = parseTypes(ctx.queryParam("types"));
+            OffsetDateTime from = parseTimestamp(ctx.queryParam("from"));
+            OffsetDateTime to = parseTimestamp(ctx.queryParam("to"));
+            String cursorParam = ctx.queryParam("cursor");
+            ActivityFeedCursor cursor = cursorParam == null || cursorParam.isBlank() ? null : ActivityFeedCursor.decode(cursorParam);
+            int limit = ctx.queryParam("limit") == null ? DEFAULT_FEED_LIMIT : Integer.parseInt(ctx.queryParam("limit"));
+            if (limit < 1 || limit > MAX_FEED_LIMIT) {
+                ErrorResponse.badRequest(ctx, "limit must be between 1 and " + MAX_FEED_LIMIT);
+                return;
+            }
+            
+            // Fetch one extra row to know whether another page exists
+            List<ActivityLogDTO> rows = activityLogDAO.getFeed(customerId, types, from, to, cursor, limit + 1);
+            List<ActivityLogDTO> items = rows.size() > limit ? rows.subList(0, limit) : rows;
+            String nextCursor = null;
+            if (rows.size() > limit) {
+                ActivityLogDTO last = items.get(items.size() - 1);
+                nextCursor = new ActivityFeedCursor(last.timestamp, last.id).encode();
+            }
+            
+            ctx.status(200).json(new ActivityFeedDTO(items, nextCursor));
+            logger.info("Retrieved feed page of {} activities for customer ID: {}", items.size(), customerId);
+            
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID or limit format");
+        } catch (DateTimeParseException e) {
+            ErrorResponse.badRequest(ctx, "Invalid timestamp, use ISO-8601 (e.g. 2025-01-31T00:00:00Z)");
+        } catch (IllegalArgumentException e) {
+            ErrorResponse.badRequest(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error retrieving activity feed", logger, e);
+        }
+    }
+
+    /**
+     * GET /api/customers/{customerId}/activities/archive?from=...&to=...
+     * Archived (cold) activity logs for a customer, newest first
+     * Served from the local archive segments, not the database.
+     * from/to are ISO-8601 timestamps ([from, to)), defaulting to everything up to now.
+     */
+    public void getArchivedActivities(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("customerId"));
+            OffsetDateTime from = parseTimestamp(ctx.queryParam("from"));
+            OffsetDateTime to = parseTimestamp(ctx.queryParam("to"));
+            
+            List<ActivityLogDTO> dtos = activityArchiveService.findArchived(customerId,
+                    from != null ? from : OffsetDateTime.parse("1970-01-01T00:00:00Z"),
+                    to != null ? to : DateTimeUtil.now());
+            
+            ctx.status(200).json(dtos);
+            logger.info("Retrieved {} archived activities for customer ID: {}", dtos.size(), customerId);
+            
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID format");
+        } catch (DateTimeParseException e) {
+            ErrorResponse.badRequest(ctx, "Invalid timestamp, use ISO-8601 (e.g. 2025-01-31T00:00:00Z)");
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error retrieving archived activities", logger, e);
+        }
+    }
+
+    /**
+     * GET /api/customers/{id}/activities/summary?from=2025-01-01&to=2025-01-31&granularity=day|month
+     * Activity counts per period, type and status, read from the maintained aggregates
+     * from/to are inclusive dates (default: the last 30 days), granularity defaults to day.
+     */
+    public void getActivitySummary(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("id"));
+            
+            LocalDate to = ctx.queryParam("to") == null ? DateTimeUtil.now().toLocalDate() : LocalDate.parse(ctx.queryParam("to"));
+            LocalDate from = ctx.queryParam("from") == null ? to.minusDays(29) : LocalDate.parse(ctx.queryParam("from"));
+            String granularity = ctx.queryParam("granularity") == null ? "day" : ctx.queryParam("granularity").toLowerCase();
+            if (!granularity.equals("day") && !granularity.equals("month")) {
+                ErrorResponse.badRequest(ctx, "granularity must be day or month");
+                return;
+            }
+            if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_SUMMARY_DAYS) {
+                ErrorResponse.badRequest(ctx, "from must be before to and the range at most " + MAX_SUMMARY_DAYS + " days");
+                return;
+            }
+            
+            ActivitySummaryDTO summary = activityAggregateService.getSummary(customerId, from, to, granularity.equals("month"));
+            ctx.status(200).json(summary);
+            logger.info("Retrieved activity summary for customer ID: {} ({} .. {})", customerId, from, to);
+            
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID format");
+        } catch (DateTimeParseException e) {
+            ErrorResponse.badRequest(ctx, "Invalid date, use yyyy-MM-dd");
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error retrieving activity summary", logger, e);
+        }
+    }
+
     @Override
     public void create(Context ctx) {
         ErrorResponse.notImplemented(ctx, "Activity logs are created automatically by the system");
@@ -89,6 +205,25 @@ public class ActivityLogController implements IController<ActivityLogDTO> {
         ErrorResponse.notImplemented(ctx, "Activity logs cannot be deleted");
     }
 
+    private static List<ActivityLogType> parseTypes(String types) {
+        if (types == null || types.isBlank()) {
+            return null;
+        }
+        List<ActivityLogType> parsed = new ArrayList<>();
+        for (String type : types.split(",")) {
+            try {
+                parsed.add(ActivityLogType.valueOf(type.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown activity type: " + type.trim());
+            }
+        }
+        return parsed;
+    }
+
+    private static OffsetDateTime parseTimestamp(String value) {
+        return value == null || value.isBlank() ? null : OffsetDateTime.parse(value);
+    }
+
     private ActivityLogDTO convertToDTO(ActivityLog activityLog) {
         ActivityLogDTO dto = new ActivityLogDTO();
         dto.id = activityLog.getId();
@@ -0,0 +1,301 @@
+package dat.controllers.impl;
+
+import dat.dtos.OnboardingResultDTO;
+import dat.dtos.RegisterRequest;
+import dat.services.ActivityAggregateService;
+import dat.services.AnalyticsService;
+import dat.services.BillingCalendarService;
+import dat.services.MetadataSearchService;
+import dat.services.RegistrationService;
+import dat.services.SmsCreditService;
+import dat.services.SmsLedgerService;
+import dat.utils.DateTimeUtil;
+import dat.utils.ErrorResponse;
+import dat.utils.Metrics;
+import io.javalin.http.Context;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Operational endpoints for administrators
+ */
+public class AdminController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+    private static final int MAX_ONBOARDING_ROWS = 10_000;
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    private static final int MAX_SEARCH_LIMIT = 500;
+
+    // ✅ ONLY Services (no DAOs)
+    private final RegistrationService registrationService;
+    private final ActivityAggregateService activityAggregateService;
+    private final MetadataSearchService metadataSearchService;
+    private final SmsLedgerService smsLedgerService;
+    private final BillingCalendarService billingCalendarService;
+    private final AnalyticsService analyticsService;
+
+    public AdminController(EntityManagerFactory emf) {
+        this.registrationService = RegistrationService.getInstance(emf);
+        this.activityAggregateService = ActivityAggregateService.getInstance(emf);
+        this.metadataSearchService = MetadataSearchService.getInstance(emf);
+        this.smsLedgerService = SmsLedgerService.getInstance(emf);
+        this.billingCalendarService = BillingCalendarService.getInstance(emf);
+        this.analyticsService = AnalyticsService.getInstance(emf);
+    }
+
+    /**
+     * GET /api/admin/metrics
+     * Snapshot of in-process counters, gauges and timers
+     */
+    public void getMetrics(Context ctx) {
+        try {
+            ctx.status(200).json(Metrics.snapshot());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error reading metrics", logger, e);
+        }
+    }
+
+    /**
+     * POST /api/admin/customers/onboard
+     * Bulk-register serial-linked customers (e.g. a migrated reseller)
+     * Body: [ { email, password, companyName, serialNumber }, ... ]
+     * Response: summary counts plus one result per row, in input order
+     */
+    public void onboardCustomers(Context ctx) {
+        try {
+            List<RegisterRequest> requests = Arrays.asList(ctx.bodyAsClass(RegisterRequest[].class));
+            if (requests.isEmpty()) {
+                ErrorResponse.badRequest(ctx, "At least one customer is required");
+                return;
+            }
+            if (requests.size() > MAX_ONBOARDING_ROWS) {
+                ErrorResponse.badRequest(ctx, "At most " + MAX_ONBOARDING_ROWS + " customers per request");
+                return;
+            }
+
+            List<OnboardingResultDTO> results = registrationService.onboard(requests);
+            long created = results.stream().filter(r -> r.success).count();
+
+            ctx.status(200).json(Map.of(
+                    "requested", requests.size(),
+                    "created", created,
+                    "failed", requests.size() - created,
+                    "results", results
+            ));
+            logger.info("Bulk onboarding: {} of {} customers created", created, requests.size());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ErrorResponse.internalError(ctx, "Onboarding was interrupted", logger, e);
+        } catch (dat.security.exceptions.ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error onboarding customers", logger, e);
+        }
+    }
+
+    /**
+     * POST /api/admin/activity-aggregates/rebuild?from=2025-01-01&to=2025-01-31
+     * Recompute activity aggregates from the activity log (backfill/repair)
+     * from/to are inclusive dates; omit both to rebuild everything still in
+     * activitylog (a from before archived or retention-dropped days is refused)
+     */
+    public void rebuildActivityAggregates(Context ctx) {
+        try {
+            LocalDate from = ctx.queryParam("from") == null ? null : LocalDate.parse(ctx.queryParam("from"));
+            LocalDate to = ctx.queryParam("to") == null ? null : LocalDate.parse(ctx.queryParam("to"));
+            if (from != null && to != null && from.isAfter(to)) {
+                ErrorResponse.badRequest(ctx, "from must not be after to");
+                return;
+            }
+
+            int rows = activityAggregateService.rebuild(from, to);
+            ctx.status(200).json(Map.of("rows", rows));
+
+        } catch (DateTimeParseException e) {
+            ErrorResponse.badRequest(ctx, "Invalid date, use yyyy-MM-dd");
+        } catch (IllegalArgumentException e) {
+            ErrorResponse.badRequest(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error rebuilding activity aggregates", logger, e);
+        }
+    }
+
+    /**
+     * POST /api/admin/activities/search
+     * Activity logs whose metadata contains the given keys/values, newest first
+     * Body: { "metadata": { "paymentId": 123 }, "limit": 50 }
+     */
+    public void searchActivityLogs(Context ctx) {
+        searchMetadata(ctx, "activity logs", metadataSearchService::searchActivityLogs);
+    }
+
+    /**
+     * POST /api/admin/receipts/search
+     * Receipts whose metadata contains the given keys/values, newest first
+     * Body: { "metadata": { "subscriptionId": 45 }, "limit": 50 }
+     */
+    public void searchReceipts(Context ctx) {
+        searchMetadata(ctx, "receipts", metadataSearchService::searchReceipts);
+    }
+
+    /**
+     * GET /api/admin/sms/{customerId}/reconcile
+     * Compare a customer's SMS ledger balance with the balance counter and leased credits
+     */
+    public void reconcileSmsCredits(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("customerId"));
+            ctx.status(200).json(smsLedgerService.reconcile(customerId));
+
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID format");
+        } catch (SmsCreditService.SmsCreditException e) {
+            ErrorResponse.notFound(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error reconciling SMS credits", logger, e);
+        }
+    }
+
+    /**
+     * POST /api/admin/sms/{customerId}/provider-sync
+     * Set a customer's SMS credits to the balance reported by the SMS provider
+     * (one PROVIDER_SYNC ledger entry for the difference)
+     * Body: { "balance": 1200 }
+     */
+    @SuppressWarnings("unchecked")
+    public void syncSmsCreditsWithProvider(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("customerId"));
+            Map<String, Object> body = ctx.bodyAsClass(Map.class);
+            if (!(body.get("balance") instanceof Number balance) || balance.longValue() < 0) {
+                ErrorResponse.badRequest(ctx, "balance must be a non-negative number");
+                return;
+            }
+            ctx.status(200).json(smsLedgerService.syncWithProvider(customerId, balance.longValue()));
+
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID format");
+        } catch (SmsCreditService.SmsCreditException e) {
+            ErrorResponse.notFound(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error syncing SMS credits with provider", logger, e);
+        }
+    }
+
+    /**
+     * GET /api/admin/billing/forecast?days=7
+     * Subscriptions due for billing per day (Danish time), from the in-memory billing calendar
+     * days is capped at the calendar horizon (BILLING_CALENDAR_HORIZON_DAYS)
+     */
+    public void getBillingForecast(Context ctx) {
+        try {
+            int days = ctx.queryParam("days") == null ? 7 : Integer.parseInt(ctx.queryParam("days"));
+            if (days < 1) {
+                ErrorResponse.badRequest(ctx, "days must be at least 1");
+                return;
+            }
+            ctx.status(200).json(billingCalendarService.forecast(days));
+
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid days format");
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error reading billing forecast", logger, e);
+        }
+    }
+
+    /**
+     * GET /api/admin/analytics/mrr
+     * MRR and ARR per plan and currency (cached for ANALYTICS_CACHE_SECONDS)
+     */
+    public void getMrr(Context ctx) {
+        try {
+            ctx.status(200).json(analyticsService.getMrr());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error computing MRR", logger, e);
+        }
+    }
+
+    /**
+     * GET /api/admin/analytics/forecast?days=90&granularity=week
+     * Expected renewals per period, plan and currency, starting today
+     * granularity is day, week or month (default day)
+     */
+    public void getRevenueForecast(Context ctx) {
+        try {
+            int days = ctx.queryParam("days") == null ? 90 : Integer.parseInt(ctx.queryParam("days"));
+            ctx.status(200).json(analyticsService.getForecast(days, ctx.queryParam("granularity")));
+
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException included
+            ErrorResponse.badRequest(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error computing billing forecast", logger, e);
+        }
+    }
+
+    /**
+     * GET /api/admin/analytics/revenue?from=2025-01-01&to=2025-03-31&granularity=month
+     * Completed payments per period, plan and currency; from/to are inclusive
+     * dates and default to the last 30 days
+     */
+    public void getRevenue(Context ctx) {
+        try {
+            LocalDate today = DateTimeUtil.now().toLocalDate();
+            LocalDate from = ctx.queryParam("from") == null ? today.minusDays(29) : LocalDate.parse(ctx.queryParam("from"));
+            LocalDate to = ctx.queryParam("to") == null ? today : LocalDate.parse(ctx.queryParam("to"));
+            ctx.status(200).json(analyticsService.getRevenue(from, to, ctx.queryParam("granularity")));
+
+        } catch (DateTimeParseException e) {
+            ErrorResponse.badRequest(ctx, "Invalid date, use yyyy-MM-dd");
+        } catch (IllegalArgumentException e) {
+            ErrorResponse.badRequest(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error computing revenue", logger, e);
+        }
+    }
+
+    /**
+     * POST /api/admin/analytics/payment-summary/rebuild
+     * Recompute payment_daily_summary from the payment table (backfill/repair)
+     */
+    public void rebuildPaymentSummary(Context ctx) {
+        try {
+            ctx.status(200).json(Map.of("rows", analyticsService.rebuildPaymentSummary()));
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error rebuilding payment summary", logger, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void searchMetadata(Context ctx, String target, BiFunction<Map<String, Object>, Integer, List<?>> search) {
+        try {
+            Map<String, Object> body = ctx.bodyAsClass(Map.class);
+            if (!(body.get("metadata") instanceof Map<?, ?> metadata)) {
+                ErrorResponse.badRequest(ctx, "metadata must be a JSON object, e.g. {\"paymentId\": 123}");
+                return;
+            }
+            int limit = body.get("limit") instanceof Number number ? number.intValue() : DEFAULT_SEARCH_LIMIT;
+            if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+                ErrorResponse.badRequest(ctx, "limit must be between 1 and " + MAX_SEARCH_LIMIT);
+                return;
+            }
+
+            List<?> results = search.apply((Map<String, Object>) metadata, limit);
+            ctx.status(200).json(results);
+            logger.info("Metadata search over {} {} matched {}", target, metadata, results.size());
+
+        } catch (IllegalArgumentException e) {
+            ErrorResponse.badRequest(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error searching " + target, logger, e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dat.controllers.impl;
+
+import dat.config.ConfigManager;
+import dat.events.CustomerEvent;
+import dat.events.CustomerEventBus;
+import dat.events.CustomerEventSubscription;
+import dat.utils.Metrics;
+import io.javalin.http.sse.SseClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live customer events over Server-Sent Events
+ *
+ * Each connected client gets a subscription on the CustomerEventBus and one
+ * virtual thread that waits on the subscription's buffer and writes events
+ * (or a heartbeat comment every CUSTOMER_EVENTS_HEARTBEAT_SECONDS, default 15,
+ * to keep proxies from closing idle connections). Blocking in a virtual thread
+ * costs no platform thread, so thousands of idle dashboards are cheap.
+ *
+ * Slow clients whose buffer overflowed get an "overflow" event and are
+ * disconnected; they should reconnect and reload their state.
+ */
+public class CustomerEventController {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerEventController.class);
+
+    private final CustomerEventBus eventBus;
+
+    public CustomerEventController() {
+        this.eventBus = CustomerEventBus.getInstance();
+    }
+
+    /**
+     * SSE /api/customers/{id}/events
+     * Streams activity, payment and sms-balance events for a customer
+     */
+    public void stream(SseClient client) {
+        long customerId;
+        try {
+            customerId = Long.parseLong(client.ctx().pathParam("id"));
+        } catch (NumberFormatException e) {
+            client.sendEvent("error", Map.of("msg", "Invalid customer ID format"));
+            return; // not kept alive: the response ends here
+        }
+
+        CustomerEventSubscription subscription = eventBus.subscribe(customerId);
+        if (subscription == null) {
+            client.sendEvent("error", Map.of("msg", "Too many open event streams for this customer"));
+            return;
+        }
+
+        client.keepAlive();
+        client.onClose(() -> eventBus.unsubscribe(subscription));
+        client.sendEvent("connected", Map.of("customerId", customerId));
+        Thread.ofVirtual()
+                .name("sse-customer-" + customerId)
+                .start(() -> pump(client, subscription));
+        logger.info("Event stream opened for customer ID: {}", customerId);
+    }
+
+    private void pump(SseClient client, CustomerEventSubscription subscription) {
+        long heartbeatSeconds = Math.max(1, ConfigManager.current().getLong("CUSTOMER_EVENTS_HEARTBEAT_SECONDS", 15));
+        try {
+            while (!client.terminated() && !subscription.isClosed()) {
+                CustomerEvent event = subscription.poll(heartbeatSeconds, TimeUnit.SECONDS);
+                if (event != null) {
+                    client.sendEvent(event.type(), event.payload(), String.valueOf(event.sequence()));
+                    Metrics.increment("events.delivered");
+                } else if (!subscription.isClosed()) {
+                    client.sendComment("heartbeat");
+                }
+            }
+            if (subscription.isOverflowed() && !client.terminated()) {
+                client.sendEvent("overflow", Map.of("msg", "Too many pending events, reconnect and reload"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.debug("Event stream for customer {} ended: {}", subscription.getCustomerId(), e.getMessage());
+        } finally {
+            eventBus.unsubscribe(subscription);
+            client.close();
+        }
+    }
+}
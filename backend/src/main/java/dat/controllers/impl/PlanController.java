@@ -1,18 +1,20 @@
 package dat.controllers.impl;
 
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
 import dat.controllers.IController;
 import dat.dtos.PlanDTO;
 import dat.entities.Plan;
 import dat.services.PlanService;
 import dat.utils.ErrorResponse;
+import dat.utils.HttpCache;
 import io.javalin.http.Context;
 import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Comparator;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Controller for Plan endpoints
@@ -25,6 +27,7 @@ public class PlanController implements IController<PlanDTO> {
     
     // ✅ ONLY Services (no DAOs)
     private final PlanService planService;
+    private final HttpCache.CachedJson activePlans = new HttpCache.CachedJson();
 
     public PlanController(EntityManagerFactory emf) {
         this.planService = PlanService.getInstance(emf);
@@ -55,19 +58,27 @@ public class PlanController implements IController<PlanDTO> {
         }
     }
 
+    /**
+     * GET /api/plans
+     * Active plans, served from a representation refreshed every HTTP_CACHE_CATALOG_SECONDS;
+     * If-None-Match is answered with 304 without a query
+     */
     @Override
     public void readAll(Context ctx) {
         try {
-            // Get all ACTIVE plans only
-            Set<Plan> plans = planService.getAllActivePlans();
+            ConfigSnapshot config = ConfigManager.current();
+            String cacheControl = "public, max-age=" + config.getLong("HTTP_CACHE_CATALOG_MAX_AGE_SECONDS", 60);
+            HttpCache.Representation plans = activePlans.get(ctx,
+                    config.getLong("HTTP_CACHE_CATALOG_SECONDS", 60) * 1000,
+                    // Sorted, so the same plans always give the same body and ETag
+                    () -> planService.getAllActivePlans().stream()
+                            .map(this::convertToDto)
+                            .sorted(Comparator.comparing(dto -> dto.id))
+                            .toList());
             
-            // Convert Set<Plan> → Set<PlanDTO>
-            Set<PlanDTO> plansDTO = plans.stream()
-                    .map(this::convertToDto)
-                    .collect(Collectors.toSet());
-            
-            ctx.status(200);
-            ctx.json(plansDTO);
+            if (!HttpCache.notModified(ctx, plans, cacheControl)) {
+                HttpCache.send(ctx, plans, cacheControl);
+            }
             
         } catch (Exception e) {
             ErrorResponse.internalError(ctx, "Error fetching plans", logger, e);
@@ -1,18 +1,20 @@
 package dat.controllers.impl;
 
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
 import dat.controllers.IController;
 import dat.dtos.ProductDTO;
 import dat.entities.Product;
 import dat.services.ProductService;
 import dat.utils.ErrorResponse;
+import dat.utils.HttpCache;
 import io.javalin.http.Context;
 import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Comparator;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Controller for Product endpoints
@@ -24,6 +26,7 @@ public class ProductController implements IController<ProductDTO> {
     
     // ✅ ONLY Services (no DAOs)
     private final ProductService productService;
+    private final HttpCache.CachedJson allProducts = new HttpCache.CachedJson();
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
     
     public ProductController(EntityManagerFactory emf) {
@@ -57,19 +60,25 @@ public class ProductController implements IController<ProductDTO> {
 
     /**
      * GET /api/products
-     * Get all products (SMS bundles)
+     * Get all products (SMS bundles), served from a representation refreshed every
+     * HTTP_CACHE_CATALOG_SECONDS; If-None-Match is answered with 304 without a query
      */
     @Override
     public void readAll(Context ctx) {
         try {
-            Set<Product> products = productService.getAll();
+            ConfigSnapshot config = ConfigManager.current();
+            String cacheControl = "public, max-age=" + config.getLong("HTTP_CACHE_CATALOG_MAX_AGE_SECONDS", 60);
+            HttpCache.Representation products = allProducts.get(ctx,
+                    config.getLong("HTTP_CACHE_CATALOG_SECONDS", 60) * 1000,
+                    // Sorted, so the same products always give the same body and ETag
+                    () -> productService.getAll().stream()
+                            .map(this::convertToDto)
+                            .sorted(Comparator.comparing(dto -> dto.id))
+                            .toList());
             
-            Set<ProductDTO> productsDTO = products.stream()
-                    .map(this::convertToDto)
-                    .collect(Collectors.toSet());
-            
-            ctx.status(200).json(productsDTO);
-            logger.info("Retrieved {} products", productsDTO.size());
+            if (!HttpCache.notModified(ctx, products, cacheControl)) {
+                HttpCache.send(ctx, products, cacheControl);
+            }
             
         } catch (Exception e) {
             ErrorResponse.internalError(ctx, "Error fetching products", logger, e);
@@ -1,10 +1,12 @@
 package dat.controllers.impl;
 
+import dat.config.ConfigManager;
 import dat.controllers.IController;
 import dat.dtos.ReceiptDTO;
 import dat.entities.Receipt;
 import dat.services.ReceiptService;
 import dat.utils.ErrorResponse;
+import dat.utils.HttpCache;
 import io.javalin.http.Context;
 import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
@@ -13,6 +15,7 @@ import org.slf4j.LoggerFactory;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +30,10 @@ public class ReceiptController implements IController<ReceiptDTO> {
     
     // ✅ ONLY Services (no DAOs)
     private final ReceiptService receiptService;
+    
+    // Receipts never change once created, so a sent representation stays valid.
+    // Bounded: cleared when full (receipts are simply loaded again).
+    private final ConcurrentHashMap<String, HttpCache.Representation> sentReceipts = new ConcurrentHashMap<>();
 
     public ReceiptController(EntityManagerFactory emf) {
         this.receiptService = ReceiptService.getInstance(emf);
@@ -40,6 +47,9 @@ public class ReceiptController implements IController<ReceiptDTO> {
     public void read(Context ctx) {
         try {
             Long id = Long.parseLong(ctx.pathParam("id"));
+            if (sendCached(ctx, "id:" + id)) {
+                return;
+            }
             Optional<Receipt> receipt = receiptService.getById(id);
             
             if (receipt.isEmpty()) {
@@ -47,8 +57,7 @@ public class ReceiptController implements IController<ReceiptDTO> {
                 return;
             }
             
-            ReceiptDTO dto = convertToDTO(receipt.get());
-            ctx.status(200).json(dto);
+            send(ctx, "id:" + id, convertToDTO(receipt.get()));
             logger.info("Retrieved receipt ID: {}", id);
             
         } catch (NumberFormatException e) {
@@ -90,6 +99,9 @@ public class ReceiptController implements IController<ReceiptDTO> {
     public void getByReceiptNumber(Context ctx) {
         try {
             String receiptNumber = ctx.pathParam("receiptNumber");
+            if (sendCached(ctx, "number:" + receiptNumber)) {
+                return;
+            }
             Optional<Receipt> receipt = receiptService.getByReceiptNumber(receiptNumber);
             
             if (receipt.isEmpty()) {
@@ -97,8 +109,7 @@ public class ReceiptController implements IController<ReceiptDTO> {
                 return;
             }
             
-            ReceiptDTO dto = convertToDTO(receipt.get());
-            ctx.status(200).json(dto);
+            send(ctx, "number:" + receiptNumber, convertToDTO(receipt.get()));
             logger.info("Retrieved receipt by number: {}", receiptNumber);
             
         } catch (Exception e) {
@@ -109,23 +120,42 @@ public class ReceiptController implements IController<ReceiptDTO> {
     // ==================== Helper Methods ====================
 
     private ReceiptDTO convertToDTO(Receipt receipt) {
-        ReceiptDTO dto = new ReceiptDTO();
-        dto.id = receipt.getId();
-        dto.paymentId = receipt.getPayment().getId();
-        dto.receiptNumber = receipt.getReceiptNumber();
-        dto.priceCents = receipt.getPriceCents();
-        dto.paidAt = receipt.getPaidAt();
-        dto.status = receipt.getStatus();
-        dto.processorReceiptUrl = receipt.getProcessorReceiptUrl();
-        dto.customerEmail = receipt.getCustomerEmail();
-        dto.companyName = receipt.getCompanyName();
-        dto.pmBrand = receipt.getPmBrand();
-        dto.pmLast4 = receipt.getPmLast4();
-        dto.pmExpYear = receipt.getPmExpYear();
-        dto.processorIntentId = receipt.getProcessorIntentId();
-        dto.metadata = receipt.getMetadata();
-        dto.createdAt = receipt.getCreatedAt();
-        return dto;
+        return ReceiptDTO.fromEntity(receipt);
+    }
+
+    /**
+     * Answer from a representation sent before (304 if the client has it), without a query
+     * @return true if the response was completed
+     */
+    private boolean sendCached(Context ctx, String key) {
+        HttpCache.Representation sent = sentReceipts.get(key);
+        if (sent == null) {
+            return false;
+        }
+        if (!HttpCache.notModified(ctx, sent, receiptCacheControl())) {
+            HttpCache.send(ctx, sent, receiptCacheControl());
+        }
+        return true;
+    }
+
+    private void send(Context ctx, String key, ReceiptDTO dto) {
+        HttpCache.Representation representation = HttpCache.json(ctx, dto);
+        int maxEntries = ConfigManager.current().getInt("HTTP_CACHE_RECEIPT_ENTRIES", 5_000);
+        if (sentReceipts.size() >= maxEntries) {
+            sentReceipts.clear();
+        }
+        if (maxEntries > 0) {
+            sentReceipts.put(key, representation);
+        }
+        if (!HttpCache.notModified(ctx, representation, receiptCacheControl())) {
+            HttpCache.send(ctx, representation, receiptCacheControl());
+        }
+    }
+
+    // Per user (requires a token), never changes: no revalidation within max-age
+    private static String receiptCacheControl() {
+        return "private, max-age=" + ConfigManager.current().getLong("HTTP_CACHE_RECEIPT_MAX_AGE_SECONDS", 86_400)
+                + ", immutable";
     }
 
     // ==================== IController Interface ====================
@@ -0,0 +1,227 @@
+package dat.controllers.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dat.config.ConfigManager;
+import dat.entities.Session;
+import dat.services.SessionService;
+import dat.services.SmsBalanceAlertService;
+import dat.services.SmsBatchService;
+import dat.services.SmsCreditService;
+import dat.services.SmsLedgerService;
+import dat.sms.SmsSendResult;
+import dat.utils.ErrorResponse;
+import dat.utils.Utils;
+import io.javalin.http.Context;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SMS credit endpoints (sending side)
+ */
+public class SmsController {
+    private static final Logger logger = LoggerFactory.getLogger(SmsController.class);
+    private static final int MAX_DEBIT = 10_000;
+    private static final int MAX_MESSAGE_LENGTH = 1_600;
+    private static final int FLUSH_EVERY = 100;
+    private static final int DEFAULT_LEDGER_LIMIT = 50;
+    private static final int MAX_LEDGER_LIMIT = 500;
+
+    // ✅ ONLY Services (no DAOs)
+    private final SmsCreditService smsCreditService;
+    private final SmsBatchService smsBatchService;
+    private final SmsLedgerService smsLedgerService;
+    private final SmsBalanceAlertService smsBalanceAlertService;
+    private final SessionService sessionService;
+    private final ObjectMapper objectMapper = new Utils().getObjectMapper();
+
+    public SmsController(EntityManagerFactory emf) {
+        this.smsCreditService = SmsCreditService.getInstance(emf);
+        this.smsBatchService = SmsBatchService.getInstance(emf);
+        this.smsLedgerService = SmsLedgerService.getInstance(emf);
+        this.smsBalanceAlertService = SmsBalanceAlertService.getInstance(emf);
+        this.sessionService = SessionService.getInstance(emf);
+    }
+
+    /**
+     * POST /api/customers/{id}/sms/debit
+     * Debit SMS credits atomically (fails without changes if credits are insufficient)
+     * Body: { "count": 1 }
+     * Response: { customerId, debited, remainingSms } (remainingSms omitted with SMS reservations)
+     */
+    public void debit(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("id"));
+            DebitRequest request = ctx.bodyAsClass(DebitRequest.class);
+            if (request == null || request.count == null || request.count < 1 || request.count > MAX_DEBIT) {
+                ErrorResponse.badRequest(ctx, "count must be between 1 and " + MAX_DEBIT);
+                return;
+            }
+
+            Integer remaining = smsCreditService.debit(customerId, request.count);
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("customerId", customerId);
+            response.put("debited", request.count);
+            if (remaining != null) {  // not known when debited from leased credits
+                response.put("remainingSms", remaining);
+            }
+            ctx.status(200).json(response);
+
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID format");
+        } catch (SmsCreditService.SmsCreditException e) {
+            if (e.getReason() == SmsCreditService.SmsCreditException.Reason.INSUFFICIENT_CREDITS) {
+                ErrorResponse.conflict(ctx, e.getMessage());
+            } else {
+                ErrorResponse.notFound(ctx, e.getMessage());
+            }
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error debiting SMS credits", logger, e);
+        }
+    }
+
+    /**
+     * POST /api/customers/{id}/sms/send-batch
+     * Send one message to many recipients, debiting credits once for the batch
+     * Body: { "recipients": ["+4512345678", ...], "message": "..." }
+     * Response (application/x-ndjson): one line per recipient
+     *   { recipient, sent, providerMessageId, error }
+     * in completion order, then a final { "summary": { batchId, requested, sent, failed, rejected, refunded, durationMs } }
+     * Insufficient credits: 409 before anything is sent
+     */
+    public void sendBatch(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("id"));
+            SendBatchRequest request = ctx.bodyAsClass(SendBatchRequest.class);
+            int maxRecipients = ConfigManager.current().getInt("SMS_BATCH_MAX_RECIPIENTS", 100_000);
+            if (request == null || request.recipients == null || request.recipients.isEmpty()
+                    || request.recipients.size() > maxRecipients) {
+                ErrorResponse.badRequest(ctx, "recipients must contain between 1 and " + maxRecipients + " phone numbers");
+                return;
+            }
+            if (request.message == null || request.message.isBlank() || request.message.length() > MAX_MESSAGE_LENGTH) {
+                ErrorResponse.badRequest(ctx, "message must be between 1 and " + MAX_MESSAGE_LENGTH + " characters");
+                return;
+            }
+
+            Session session = sessionService.getFromAuthHeader(ctx.header("Authorization")).orElse(null);
+            ctx.status(200).contentType("application/x-ndjson");
+            OutputStream out = ctx.outputStream();
+            int[] written = {0};
+
+            SmsBatchService.BatchSummary summary = smsBatchService.sendBatch(
+                    customerId, request.recipients, request.message, session, result -> {
+                        writeLine(out, result);
+                        if (++written[0] % FLUSH_EVERY == 0) {
+                            flush(out);
+                        }
+                    });
+            writeLine(out, Map.of("summary", summary));
+            flush(out);
+
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID format");
+        } catch (SmsCreditService.SmsCreditException e) {
+            if (e.getReason() == SmsCreditService.SmsCreditException.Reason.INSUFFICIENT_CREDITS) {
+                ErrorResponse.conflict(ctx, e.getMessage());
+            } else {
+                ErrorResponse.notFound(ctx, e.getMessage());
+            }
+        } catch (Exception e) {
+            if (ctx.res().isCommitted()) {  // results already streamed, the status cannot change
+                logger.warn("Could not finish send-batch response: {}", e.getMessage());
+            } else {
+                ErrorResponse.internalError(ctx, "Error sending SMS batch", logger, e);
+            }
+        }
+    }
+
+    /**
+     * GET /api/customers/{id}/sms/ledger?limit=50
+     * Ledger balance and the latest SMS credit movements, newest first
+     */
+    public void getLedger(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("id"));
+            String limitParam = ctx.queryParam("limit");
+            int limit = limitParam == null ? DEFAULT_LEDGER_LIMIT : Integer.parseInt(limitParam);
+            if (limit < 1 || limit > MAX_LEDGER_LIMIT) {
+                ErrorResponse.badRequest(ctx, "limit must be between 1 and " + MAX_LEDGER_LIMIT);
+                return;
+            }
+            ctx.status(200).json(smsLedgerService.getLedger(customerId, limit));
+
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID or limit format");
+        } catch (SmsCreditService.SmsCreditException e) {
+            ErrorResponse.notFound(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error retrieving SMS ledger", logger, e);
+        }
+    }
+
+    /**
+     * PUT /api/customers/{id}/sms/alert-thresholds
+     * Set the balances at which the customer is alerted (empty list = defaults)
+     * Body: { "thresholds": [500, 100, 0] }
+     * Response: { customerId, thresholds }
+     */
+    public void setAlertThresholds(Context ctx) {
+        try {
+            Long customerId = Long.parseLong(ctx.pathParam("id"));
+            AlertThresholdsRequest request = ctx.bodyAsClass(AlertThresholdsRequest.class);
+            if (request == null || request.thresholds == null) {
+                ErrorResponse.badRequest(ctx, "thresholds is required");
+                return;
+            }
+            int[] thresholds = smsBalanceAlertService.setThresholds(customerId, request.thresholds);
+            ctx.status(200).json(Map.of("customerId", customerId, "thresholds", thresholds));
+
+        } catch (NumberFormatException e) {
+            ErrorResponse.badRequest(ctx, "Invalid customer ID or threshold format");
+        } catch (IllegalArgumentException e) {
+            ErrorResponse.badRequest(ctx, e.getMessage());
+        } catch (SmsCreditService.SmsCreditException e) {
+            ErrorResponse.notFound(ctx, e.getMessage());
+        } catch (Exception e) {
+            ErrorResponse.internalError(ctx, "Error setting SMS alert thresholds", logger, e);
+        }
+    }
+
+    private void writeLine(OutputStream out, Object line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class AlertThresholdsRequest {
+        public List<Integer> thresholds;
+    }
+
+    public static class SendBatchRequest {
+        public List<String> recipients;
+        public String message;
+    }
+
+    public static class DebitRequest {
+        public Integer count;
+    }
+}
@@ -47,7 +47,7 @@ public class SubscriptionController implements IController<SubscriptionDTO> {
                 return;
             }
             
-            SubscriptionDTO dto = convertToDto(subscription.get());
+            SubscriptionDTO dto = SubscriptionDTO.fromEntity(subscription.get());
             ctx.status(200).json(dto);
             logger.info("Retrieved subscription ID: {}", id);
             
@@ -60,20 +60,19 @@ public class SubscriptionController implements IController<SubscriptionDTO> {
 
     /**
      * GET /api/customers/{customerId}/subscription
-     * Get active subscription for a customer
+     * Get the current subscription for a customer (active, or past due while a renewal is retried)
      */
     public void getCustomerSubscription(Context ctx) {
         try {
             Long customerId = Long.parseLong(ctx.pathParam("customerId"));
-            Optional<Subscription> subscription = subscriptionService.getActiveSubscriptionForCustomer(customerId);
+            Optional<SubscriptionDTO> subscription = subscriptionService.getActiveSubscriptionView(customerId);
             
             if (subscription.isEmpty()) {
                 ErrorResponse.notFound(ctx, "No active subscription found for customer ID: " + customerId);
                 return;
             }
             
-            SubscriptionDTO dto = convertToDto(subscription.get());
-            ctx.status(200).json(dto);
+            ctx.status(200).json(subscription.get());
             logger.info("Retrieved subscription for customer ID: {}", customerId);
             
         } catch (NumberFormatException e) {
@@ -97,7 +96,7 @@ public class SubscriptionController implements IController<SubscriptionDTO> {
             // Delegate to service
             Subscription subscription = subscriptionService.cancelSubscription(id, session);
             
-            SubscriptionDTO dto = convertToDto(subscription);
+            SubscriptionDTO dto = SubscriptionDTO.fromEntity(subscription);
             ctx.status(200).json(dto);
             logger.info("Canceled subscription ID: {}", id);
             
@@ -130,24 +129,6 @@ public class SubscriptionController implements IController<SubscriptionDTO> {
         ErrorResponse.notImplemented(ctx, "Subscriptions cannot be deleted, only canceled");
     }
 
-    /**
-     * Convert Subscription entity to DTO
-     */
-    private SubscriptionDTO convertToDto(Subscription subscription) {
-        SubscriptionDTO dto = new SubscriptionDTO();
-        dto.id = subscription.getId();
-        dto.customerId = subscription.getCustomer().getId();
-        dto.customerEmail = subscription.getCustomer().getUser().getEmail();
-        dto.planId = subscription.getPlan().getId();
-        dto.planName = subscription.getPlan().getName();
-        dto.status = subscription.getStatus();
-        dto.startDate = subscription.getStartDate();
-        dto.endDate = subscription.getEndDate();
-        dto.nextBillingDate = subscription.getNextBillingDate();
-        dto.anchorPolicy = subscription.getAnchorPolicy();
-        return dto;
-    }
-
     /**
      * Helper method to get session from JWT token in context
      */
@@ -0,0 +1,167 @@
+package dat.daos.impl;
+
+import dat.entities.ActivityDailyAggregate;
+import dat.utils.DateTimeUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * DAO for ActivityDailyAggregate (activity_daily_aggregate)
+ * Not an IDAO: rows are keyed by (customer, day, type, status) and only ever
+ * incremented or rebuilt, never created or deleted one by one.
+ */
+public class ActivityAggregateDAO {
+    private static ActivityAggregateDAO instance;
+    private static EntityManagerFactory emf;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO activity_daily_aggregate (customer_id, activity_day, type, status, event_count) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (customer_id, activity_day, type, status) " +
+            "DO UPDATE SET event_count = activity_daily_aggregate.event_count + EXCLUDED.event_count";
+
+    public static ActivityAggregateDAO getInstance(EntityManagerFactory _emf) {
+        if (instance == null) {
+            emf = _emf;
+            instance = new ActivityAggregateDAO();
+        }
+        return instance;
+    }
+
+    private ActivityAggregateDAO() {
+    }
+
+    /**
+     * Add count deltas to their rows, creating missing rows (one batched upsert)
+     */
+    public void addCounts(Collection<ActivityDailyAggregate> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                em.unwrap(org.hibernate.Session.class).doWork(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(UPSERT_SQL)) {
+                        for (ActivityDailyAggregate delta : deltas) {
+                            ps.setLong(1, delta.getId().getCustomerId());
+                            ps.setDate(2, Date.valueOf(delta.getId().getDay()));
+                            ps.setString(3, delta.getId().getType().name());
+                            ps.setString(4, delta.getId().getStatus().name());
+                            ps.setLong(5, delta.getCount());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                });
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Aggregate rows for a customer within [from, to] (inclusive days)
+     */
+    public List<ActivityDailyAggregate> getByCustomerBetween(Long customerId, LocalDate from, LocalDate to) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery(
+                    "SELECT a FROM ActivityDailyAggregate a WHERE a.id.customerId = :customerId " +
+                    "AND a.id.day >= :from AND a.id.day <= :to ORDER BY a.id.day",
+                    ActivityDailyAggregate.class)
+                    .setParameter("customerId", customerId)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList();
+        }
+    }
+
+    /**
+     * @param rows Aggregate rows written
+     * @param countedActivityLogIds Checked activity log ids the rebuild counted
+     */
+    public record Rebuild(int rows, Set<Long> countedActivityLogIds) {
+    }
+
+    /**
+     * Recompute aggregates from activitylog for the days [from, to] (nulls = everything)
+     * in one REPEATABLE READ transaction, replacing the affected rows, and report which of the given activity logs it counted, i.e. were visible in
+     * its snapshot. activityLogIdsToCheck is called after the rebuild, before commit.
+     *
+     * Days are turned into a timestamp range (Europe/Copenhagen midnights), so the
+     * timestamp index is used and monthly activitylog partitions outside it are pruned.
+     */
+    public Rebuild rebuild(LocalDate from, LocalDate to, Supplier<Collection<Long>> activityLogIdsToCheck) {
+        String day = "CAST(timezone('" + DateTimeUtil.DANISH_ZONE.getId() + "', a.timestamp) AS DATE)";
+        String timestampFilter = (from != null ? " AND a.timestamp >= :fromTimestamp" : "") +
+                (to != null ? " AND a.timestamp < :toTimestamp" : "");
+        String aggregateFilter = (from != null ? " AND activity_day >= :from" : "") + (to != null ? " AND activity_day <= :to" : "");
+
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                // One snapshot for the rebuild and the visibility check below
+                em.createNativeQuery("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ").executeUpdate();
+                Query delete = em.createNativeQuery("DELETE FROM activity_daily_aggregate WHERE 1 = 1" + aggregateFilter);
+                Query insert = em.createNativeQuery(
+                        "INSERT INTO activity_daily_aggregate (customer_id, activity_day, type, status, event_count) " +
+                        "SELECT a.customer_id, " + day + ", a.type, a.status, COUNT(*) FROM activitylog a " +
+                        "WHERE 1 = 1" + timestampFilter + " GROUP BY 1, 2, 3, 4");
+                if (from != null) {
+                    delete.setParameter("from", from);
+                    insert.setParameter("fromTimestamp", from.atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime());
+                }
+                if (to != null) {
+                    delete.setParameter("to", to);
+                    insert.setParameter("toTimestamp", to.plusDays(1).atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime());
+                }
+                delete.executeUpdate();
+                int rows = insert.executeUpdate();
+
+                Set<Long> counted = new HashSet<>();
+                List<Long> ids = new ArrayList<>(activityLogIdsToCheck.get());
+                for (int i = 0; i < ids.size(); i += 1000) {
+                    List<?> visible = em.createNativeQuery(
+                            "SELECT activity_log_id FROM activitylog WHERE activity_log_id IN (:ids)")
+                            .setParameter("ids", ids.subList(i, Math.min(ids.size(), i + 1000)))
+                            .getResultList();
+                    visible.forEach(id -> counted.add(((Number) id).longValue()));
+                }
+                em.getTransaction().commit();
+                return new Rebuild(rows, counted);
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Whether no aggregates exist yet (fresh table, backfill needed)
+     */
+    public boolean isEmpty() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT a.id.customerId FROM ActivityDailyAggregate a", Long.class)
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package dat.daos.impl;
 
 import dat.daos.IDAO;
+import dat.dtos.ActivityLogDTO;
 import dat.entities.ActivityLog;
 import dat.entities.Customer;
+import dat.enums.ActivityLogType;
+import dat.utils.ActivityFeedCursor;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
 
+import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -41,6 +47,27 @@ public class ActivityLogDAO implements IDAO<ActivityLog> {
 
     }
 
+    /**
+     * Persist many activity logs in one transaction
+     * Inserts go out as JDBC batches (hibernate.jdbc.batch_size)
+     */
+    public void createBatch(Collection<ActivityLog> activityLogs) {
+        try(EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                for (ActivityLog activityLog : activityLogs) {
+                    em.persist(activityLog);
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
     @Override
     public Optional<ActivityLog> getById(Long id) {
        try(EntityManager em = emf.createEntityManager()) {
@@ -114,5 +141,90 @@ public class ActivityLogDAO implements IDAO<ActivityLog> {
                     .collect(Collectors.toSet());
         }
     }
-}
 
+    /**
+     * One page of a customer's activity feed, newest first, projected straight to DTOs
+     *
+     * Keyset pagination on (timestamp DESC, activity_log_id DESC), served by the
+     * ix_activitylog_customer_feed index: the database reads at most maxResults
+     * rows after the cursor, however long the customer's history is. No entities
+     * or associations are loaded.
+     * The from/to bounds also let PostgreSQL prune monthly partitions when
+     * activitylog is partitioned (see ActivityLogPartitionMigration).
+     *
+     * @param types Only these types (null or empty = all)
+     * @param from Inclusive lower bound on timestamp (nullable)
+     * @param to Exclusive upper bound on timestamp (nullable)
+     * @param cursor Continue after this position (null = first page)
+     */
+    public List<ActivityLogDTO> getFeed(Long customerId, Collection<ActivityLogType> types,
+                                        OffsetDateTime from, OffsetDateTime to,
+                                        ActivityFeedCursor cursor, int maxResults) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new dat.dtos.ActivityLogDTO(a.id, a.customer.id, s.id, a.type, a.status, a.timestamp, a.metadata) " +
+                "FROM ActivityLog a LEFT JOIN a.session s WHERE a.customer.id = :customerId");
+        if (types != null && !types.isEmpty()) {
+            jpql.append(" AND a.type IN :types");
+        }
+        if (from != null) {
+            jpql.append(" AND a.timestamp >= :from");
+        }
+        if (to != null) {
+            jpql.append(" AND a.timestamp < :to");
+        }
+        if (cursor != null) {
+            jpql.append(" AND (a.timestamp, a.id) < (:cursorTimestamp, :cursorId)");
+        }
+        jpql.append(" ORDER BY a.timestamp DESC, a.id DESC");
+
+        try(EntityManager em = emf.createEntityManager()) {
+            TypedQuery<ActivityLogDTO> query = em.createQuery(jpql.toString(), ActivityLogDTO.class)
+                    .setParameter("customerId", customerId)
+                    .setMaxResults(maxResults);
+            if (types != null && !types.isEmpty()) {
+                query.setParameter("types", types);
+            }
+            if (from != null) {
+                query.setParameter("from", from);
+            }
+            if (to != null) {
+                query.setParameter("to", to);
+            }
+            if (cursor != null) {
+                query.setParameter("cursorTimestamp", cursor.timestamp());
+                query.setParameter("cursorId", cursor.id());
+            }
+            return query.getResultList();
+        }
+    }
+
+    /**
+     * Activity logs whose metadata contains the given JSON (metadata @> filter), newest first
+     * The containment check is served by ix_activitylog_metadata_gin (see MetadataIndexMigration);
+     * only the matching page is then loaded as DTOs.
+     * @param filterJson JSON object, e.g. {"paymentId": 123}
+     */
+    @SuppressWarnings("unchecked")
+    public List<ActivityLogDTO> findByMetadataContaining(String filterJson, int limit) {
+        try(EntityManager em = emf.createEntityManager()) {
+            List<Long> ids = ((List<Number>) em.createNativeQuery(
+                    "SELECT activity_log_id FROM activitylog WHERE metadata @> CAST(:filter AS jsonb) " +
+                    "ORDER BY timestamp DESC, activity_log_id DESC LIMIT :limit")
+                    .setParameter("filter", filterJson)
+                    .setParameter("limit", limit)
+                    .getResultList())
+                    .stream()
+                    .map(Number::longValue)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            return em.createQuery(
+                    "SELECT new dat.dtos.ActivityLogDTO(a.id, a.customer.id, s.id, a.type, a.status, a.timestamp, a.metadata) " +
+                    "FROM ActivityLog a LEFT JOIN a.session s WHERE a.id IN :ids ORDER BY a.timestamp DESC, a.id DESC",
+                    ActivityLogDTO.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package dat.daos.impl;
+
+import dat.dtos.RevenueReportDTO;
+import dat.entities.PaymentDailySummary;
+import dat.enums.Currency;
+import dat.utils.DateTimeUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-only revenue aggregation for finance dashboards, plus payment_daily_summary upkeep
+ *
+ * Every query aggregates in the database (GROUP BY plan, currency and date bucket)
+ * and returns one row per group; no subscription or payment entity is loaded.
+ * Date buckets are Europe/Copenhagen days truncated to the granularity
+ * ("day", "week" or "month", validated by the caller).
+ */
+public class AnalyticsDAO {
+    private static AnalyticsDAO instance;
+    private static EntityManagerFactory emf;
+
+    private static final String ZONE = DateTimeUtil.DANISH_ZONE.getId();
+
+    private static final String UPSERT_SUMMARY_SQL =
+            "INSERT INTO payment_daily_summary (summary_day, plan_id, currency, payment_count, amount_cents) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (summary_day, plan_id, currency) DO UPDATE SET " +
+            "payment_count = payment_daily_summary.payment_count + EXCLUDED.payment_count, " +
+            "amount_cents = payment_daily_summary.amount_cents + EXCLUDED.amount_cents";
+
+    public static AnalyticsDAO getInstance(EntityManagerFactory _emf) {
+        if (instance == null) {
+            emf = _emf;
+            instance = new AnalyticsDAO();
+        }
+        return instance;
+    }
+
+    private AnalyticsDAO() {
+    }
+
+    /**
+     * Subscriptions per plan and status, for ACTIVE and PAST_DUE
+     * @return Rows of [planId, planName, Period, Currency, SubscriptionStatus, count, plan priceCents]
+     */
+    public List<Object[]> getSubscriptionCountsByPlan() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery(
+                    "SELECT p.id, p.name, p.period, p.currency, s.status, COUNT(s), p.priceCents " +
+                    "FROM Subscription s JOIN s.plan p " +
+                    "WHERE s.status IN (dat.enums.SubscriptionStatus.ACTIVE, dat.enums.SubscriptionStatus.PAST_DUE) " +
+                    "GROUP BY p.id, p.name, p.period, p.currency, s.status, p.priceCents " +
+                    "ORDER BY p.id",
+                    Object[].class)
+                    .getResultList();
+        }
+    }
+
+    /**
+     * Renewals expected in [from, to) if every ACTIVE subscription keeps renewing
+     * Billing dates step by the plan period from next_billing_date (served by
+     * ix_subscription_status_next_billing); an overdue subscription counts once,
+     * in the first bucket. Anchor-policy day adjustments are not applied.
+     */
+    public List<RevenueReportDTO.Bucket> getRenewalForecast(OffsetDateTime from, OffsetDateTime to, String granularity) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return toBuckets(em.createNativeQuery(
+                    "SELECT CAST(date_trunc(:granularity, timezone('" + ZONE + "', GREATEST(d.billing_at, :from))) AS DATE), " +
+                    "  pl.id, pl.name, pl.currency, COUNT(*), SUM(pl.priceCents) " +
+                    "FROM subscription s " +
+                    "JOIN plan pl ON pl.id = s.plan_id " +
+                    "CROSS JOIN LATERAL generate_series(s.next_billing_date, CAST(:to AS timestamptz), " +
+                    "  CASE pl.period WHEN 'YEARLY' THEN interval '1 year' ELSE interval '1 month' END) AS d(billing_at) " +
+                    "WHERE s.status = 'ACTIVE' AND s.next_billing_date < :to AND d.billing_at < :to " +
+                    "  AND (d.billing_at >= :from OR d.billing_at = s.next_billing_date) " +
+                    "GROUP BY 1, 2, 3, 4 ORDER BY 1, 2")
+                    .setParameter("granularity", granularity)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList());
+        }
+    }
+
+    /**
+     * Completed payments in [from, to], aggregated straight from the payment table
+     * (range scan on ix_payment_created_at)
+     */
+    public List<RevenueReportDTO.Bucket> getRevenueFromPayments(LocalDate from, LocalDate to, String granularity) {
+        String day = "CAST(timezone('" + ZONE + "', p.created_at) AS DATE)";
+        try (EntityManager em = emf.createEntityManager()) {
+            return toBuckets(em.createNativeQuery(
+                    "SELECT CAST(date_trunc(:granularity, CAST(" + day + " AS timestamp)) AS DATE), " +
+                    "  COALESCE(s.plan_id, 0), pl.name, p.currency, COUNT(*), SUM(p.price_cents) " +
+                    "FROM payment p " +
+                    "LEFT JOIN subscription s ON s.subscription_id = p.subscription_id " +
+                    "LEFT JOIN plan pl ON pl.id = s.plan_id " +
+                    "WHERE p.status = 'COMPLETED' AND p.created_at >= :from AND p.created_at < :to " +
+                    "GROUP BY 1, 2, 3, 4 ORDER BY 1, 2")
+                    .setParameter("granularity", granularity)
+                    .setParameter("from", from.atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime())
+                    .setParameter("to", to.plusDays(1).atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime())
+                    .getResultList());
+        }
+    }
+
+    /**
+     * Completed payments in [from, to] from payment_daily_summary (one row per day, plan and currency)
+     */
+    public List<RevenueReportDTO.Bucket> getRevenueFromSummary(LocalDate from, LocalDate to, String granularity) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return toBuckets(em.createNativeQuery(
+                    "SELECT CAST(date_trunc(:granularity, CAST(d.summary_day AS timestamp)) AS DATE), " +
+                    "  d.plan_id, pl.name, d.currency, SUM(d.payment_count), SUM(d.amount_cents) " +
+                    "FROM payment_daily_summary d " +
+                    "LEFT JOIN plan pl ON pl.id = d.plan_id " +
+                    "WHERE d.summary_day >= :from AND d.summary_day <= :to " +
+                    "GROUP BY 1, 2, 3, 4 ORDER BY 1, 2")
+                    .setParameter("granularity", granularity)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList());
+        }
+    }
+
+    /**
+     * Add payment deltas to their summary rows, creating missing rows (one batched upsert)
+     */
+    public void addPaymentTotals(Collection<PaymentDailySummary> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        inTransaction(em -> {
+            em.unwrap(org.hibernate.Session.class).doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(UPSERT_SUMMARY_SQL)) {
+                    for (PaymentDailySummary delta : deltas) {
+                        ps.setDate(1, Date.valueOf(delta.getId().getDay()));
+                        ps.setLong(2, delta.getId().getPlanId());
+                        ps.setString(3, delta.getId().getCurrency().name());
+                        ps.setLong(4, delta.getPaymentCount());
+                        ps.setLong(5, delta.getAmountCents());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            });
+            return null;
+        });
+    }
+
+    /**
+     * @param rows Summary rows written
+     * @param countedPaymentIds Checked payment ids the rebuild counted
+     */
+    public record Rebuild(int rows, Set<Long> countedPaymentIds) {
+    }
+
+    /**
+     * Recompute payment_daily_summary from the payment table (backfill or repair)
+     * @return Number of summary rows written
+     */
+    public int rebuildPaymentSummary() {
+        return rebuildPaymentSummary(List::of).rows();
+    }
+
+    /**
+     * Recompute payment_daily_summary in one REPEATABLE READ transaction and report
+     * which of the given payments it counted, i.e. were visible in its snapshot.
+     * paymentIdsToCheck is called after the rebuild, before commit.
+     */
+    public Rebuild rebuildPaymentSummary(Supplier<Collection<Long>> paymentIdsToCheck) {
+        return inTransaction(em -> {
+            // One snapshot for the rebuild and the visibility check below
+            em.createNativeQuery("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ").executeUpdate();
+            em.createNativeQuery("DELETE FROM payment_daily_summary").executeUpdate();
+            int rows = em.createNativeQuery(
+                    "INSERT INTO payment_daily_summary (summary_day, plan_id, currency, payment_count, amount_cents) " +
+                    "SELECT CAST(timezone('" + ZONE + "', p.created_at) AS DATE), COALESCE(s.plan_id, 0), p.currency, " +
+                    "  COUNT(*), SUM(p.price_cents) " +
+                    "FROM payment p LEFT JOIN subscription s ON s.subscription_id = p.subscription_id " +
+                    "WHERE p.status = 'COMPLETED' AND p.created_at IS NOT NULL " +
+                    "GROUP BY 1, 2, 3")
+                    .executeUpdate();
+
+            Set<Long> counted = new HashSet<>();
+            List<Long> ids = new ArrayList<>(paymentIdsToCheck.get());
+            for (int from = 0; from < ids.size(); from += 1000) {
+                List<?> visible = em.createNativeQuery(
+                        "SELECT payment_id FROM payment WHERE payment_id IN (:ids) " +
+                        "AND status = 'COMPLETED' AND created_at IS NOT NULL")
+                        .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + 1000)))
+                        .getResultList();
+                visible.forEach(id -> counted.add(((Number) id).longValue()));
+            }
+            return new Rebuild(rows, counted);
+        });
+    }
+
+    /**
+     * Whether the summary has no rows yet (fresh table, backfill needed)
+     */
+    public boolean isPaymentSummaryEmpty() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT d.id.planId FROM PaymentDailySummary d", Long.class)
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<RevenueReportDTO.Bucket> toBuckets(List<?> rows) {
+        return ((List<Object[]>) rows).stream()
+                .map(row -> new RevenueReportDTO.Bucket(
+                        toLocalDate(row[0]),
+                        ((Number) row[1]).longValue(),
+                        (String) row[2],
+                        Currency.valueOf(row[3].toString()),
+                        ((Number) row[4]).longValue(),
+                        Math.round(((Number) row[5]).doubleValue())))
+                .toList();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private <T> T inTransaction(Function<EntityManager, T> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                T result = work.apply(em);
+                em.getTransaction().commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
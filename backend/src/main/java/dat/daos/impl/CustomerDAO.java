@@ -174,4 +174,23 @@ public class CustomerDAO implements IDAO<Customer> {
             return Optional.empty();
         }
     }
+
+    /**
+     * Get Customer by external customer id (SMS provider account)
+     * @param externalCustomerId The external customer id
+     * @return Optional containing the Customer, or empty if not found
+     */
+    public Optional<Customer> getByExternalCustomerId(String externalCustomerId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            Customer customer = em.createQuery(
+                "SELECT c FROM Customer c WHERE c.externalCustomerId = :externalId", 
+                Customer.class
+            )
+            .setParameter("externalId", externalCustomerId)
+            .getSingleResult();
+            return Optional.of(customer);
+        } catch (NoResultException e) {
+            return Optional.empty();
+        }
+    }
 }
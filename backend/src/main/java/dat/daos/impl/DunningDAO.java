@@ -0,0 +1,118 @@
+package dat.daos.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntToLongFunction;
+
+/**
+ * DAO for renewal retry state (subscription_dunning)
+ * Times come from the database clock, so every node schedules and claims
+ * retries against the same time.
+ */
+public class DunningDAO {
+    private static DunningDAO instance;
+    private static EntityManagerFactory emf;
+
+    public static DunningDAO getInstance(EntityManagerFactory _emf) {
+        if (instance == null) {
+            emf = _emf;
+            instance = new DunningDAO();
+        }
+        return instance;
+    }
+
+    private DunningDAO() {
+    }
+
+    /**
+     * Count a failed renewal and schedule the next attempt
+     * @param delaySeconds Delay before the next attempt, given the attempt count so far
+     * @return Failed attempts including this one
+     */
+    public int recordFailure(Long subscriptionId, String error, IntToLongFunction delaySeconds) {
+        String lastError = error == null ? null : error.substring(0, Math.min(error.length(), 500));
+        return inTransaction(em -> {
+            int attempts = ((Number) em.createNativeQuery(
+                    "INSERT INTO subscription_dunning " +
+                    "  (subscription_id, attempts, next_attempt_at, first_failed_at, last_failed_at, last_error) " +
+                    "VALUES (:id, 1, now(), now(), now(), :error) " +
+                    "ON CONFLICT (subscription_id) DO UPDATE SET attempts = subscription_dunning.attempts + 1, " +
+                    "  last_failed_at = now(), last_error = EXCLUDED.last_error " +
+                    "RETURNING attempts")
+                    .setParameter("id", subscriptionId)
+                    .setParameter("error", lastError)
+                    .getSingleResult()).intValue();
+            em.createNativeQuery(
+                    "UPDATE subscription_dunning SET next_attempt_at = now() + make_interval(secs => :delay) " +
+                    "WHERE subscription_id = :id")
+                    .setParameter("delay", delaySeconds.applyAsLong(attempts))
+                    .setParameter("id", subscriptionId)
+                    .executeUpdate();
+            return attempts;
+        });
+    }
+
+    /**
+     * Claim up to limit retries that are due, earliest first
+     * Claimed rows move claimSeconds into the future: a node that dies mid-retry
+     * leaves them to be claimed again then, and concurrent nodes skip locked rows.
+     * @return Claimed subscription ids
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> claimDue(int limit, long claimSeconds) {
+        return inTransaction(em -> ((List<Number>) em.createNativeQuery(
+                "UPDATE subscription_dunning SET next_attempt_at = now() + make_interval(secs => :claim) " +
+                "WHERE subscription_id IN (" +
+                "  SELECT subscription_id FROM subscription_dunning WHERE next_attempt_at <= now() " +
+                "  ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                "RETURNING subscription_id")
+                .setParameter("claim", claimSeconds)
+                .setParameter("limit", limit)
+                .getResultList())
+                .stream()
+                .map(Number::longValue)
+                .toList());
+    }
+
+    /**
+     * Move the next attempt without counting a failure (the last charge is still pending)
+     */
+    public void postpone(Long subscriptionId, long delaySeconds) {
+        inTransaction(em -> em.createNativeQuery(
+                "UPDATE subscription_dunning SET next_attempt_at = now() + make_interval(secs => :delay) " +
+                "WHERE subscription_id = :id")
+                .setParameter("delay", delaySeconds)
+                .setParameter("id", subscriptionId)
+                .executeUpdate());
+    }
+
+    /**
+     * End dunning for a subscription (paid, canceled or out of retries)
+     * @return true if it was in dunning
+     */
+    public boolean delete(Long subscriptionId) {
+        return inTransaction(em -> em.createNativeQuery(
+                "DELETE FROM subscription_dunning WHERE subscription_id = :id")
+                .setParameter("id", subscriptionId)
+                .executeUpdate() > 0);
+    }
+
+    private <T> T inTransaction(Function<EntityManager, T> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                T result = work.apply(em);
+                em.getTransaction().commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
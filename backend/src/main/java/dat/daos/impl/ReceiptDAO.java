@@ -7,6 +7,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.NoResultException;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -199,4 +200,32 @@ public class ReceiptDAO implements IDAO<Receipt> {
             .collect(Collectors.toSet());
         }
     }
+
+    /**
+     * Receipts whose metadata contains the given JSON (metadata @> filter), newest first
+     * The containment check is served by ix_receipt_metadata_gin (see MetadataIndexMigration).
+     * @param filterJson JSON object, e.g. {"paymentId": 123}
+     */
+    @SuppressWarnings("unchecked")
+    public List<Receipt> findByMetadataContaining(String filterJson, int limit) {
+        try (EntityManager em = emf.createEntityManager()) {
+            List<Long> ids = ((List<Number>) em.createNativeQuery(
+                    "SELECT receipt_id FROM receipt WHERE metadata @> CAST(:filter AS jsonb) " +
+                    "ORDER BY created_at DESC, receipt_id DESC LIMIT :limit")
+                    .setParameter("filter", filterJson)
+                    .setParameter("limit", limit)
+                    .getResultList())
+                    .stream()
+                    .map(Number::longValue)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            return em.createQuery(
+                    "SELECT r FROM Receipt r JOIN FETCH r.payment WHERE r.id IN :ids ORDER BY r.createdAt DESC, r.id DESC",
+                    Receipt.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        }
+    }
 }
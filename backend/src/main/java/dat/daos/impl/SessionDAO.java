@@ -3,8 +3,16 @@ package dat.daos.impl;
 import dat.daos.IDAO;
 
 import dat.entities.Session;
+import dat.utils.TokenDigest;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -81,10 +89,17 @@ public class SessionDAO implements IDAO<Session> {
 
     // Need to add more methods for the Séssion entity or business methods:
     public  Optional<Session> findByToken(String token) {
+        return findByTokenHash(TokenDigest.sha256(token));
+    }
+
+    /**
+     * Look up a session by the SHA-256 digest of its token (unique index on token_hash)
+     */
+    public Optional<Session> findByTokenHash(byte[] tokenHash) {
 
         try(EntityManager em = emf.createEntityManager()){
-            var query = em.createQuery(" SELECT s FROM Session s WHERE s.token = :token", Session.class);
-            query.setParameter("token", token);
+            var query = em.createQuery(" SELECT s FROM Session s WHERE s.tokenHash = :tokenHash", Session.class);
+            query.setParameter("tokenHash", tokenHash);
 
 
             return query.getResultList()
@@ -94,5 +109,69 @@ public class SessionDAO implements IDAO<Session> {
         }
     }
 
+    /**
+     * Write coalesced last-seen times in one JDBC batch
+     * Only active sessions are touched; rows that were deactivated meanwhile are skipped
+     * @param lastSeenByTokenHash Latest request time per token digest (hex encoded)
+     * @return Number of rows updated
+     */
+    public int updateLastSeen(Map<String, Instant> lastSeenByTokenHash) {
+        if (lastSeenByTokenHash.isEmpty()) {
+            return 0;
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            int[] updated = {0};
+            em.unwrap(org.hibernate.Session.class).doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "UPDATE session SET last_seen_at = ? WHERE token_hash = ? AND active = true AND (last_seen_at IS NULL OR last_seen_at < ?)")) {
+                    HexFormat hex = HexFormat.of();
+                    for (Map.Entry<String, Instant> entry : lastSeenByTokenHash.entrySet()) {
+                        Timestamp seenAt = Timestamp.from(entry.getValue());
+                        ps.setTimestamp(1, seenAt);
+                        ps.setBytes(2, hex.parseHex(entry.getKey()));
+                        ps.setTimestamp(3, seenAt);
+                        ps.addBatch();
+                    }
+                    for (int count : ps.executeBatch()) {
+                        updated[0] += Math.max(count, 0);
+                    }
+                }
+            });
+            em.getTransaction().commit();
+            return updated[0];
+        }
+    }
 
+    /**
+     * Deactivate sessions past their expiry time in a single statement
+     * @return Number of sessions deactivated
+     */
+    public int deactivateExpired(OffsetDateTime now) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            int count = em.createQuery(
+                    "UPDATE Session s SET s.active = false WHERE s.active = true AND s.expiresAt < :now")
+                    .setParameter("now", now)
+                    .executeUpdate();
+            em.getTransaction().commit();
+            return count;
+        }
+    }
+
+    /**
+     * Deactivate sessions that have not been seen since the cutoff
+     * @return Number of sessions deactivated
+     */
+    public int deactivateIdle(OffsetDateTime idleCutoff) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            int count = em.createQuery(
+                    "UPDATE Session s SET s.active = false WHERE s.active = true AND s.lastSeenAt < :cutoff")
+                    .setParameter("cutoff", idleCutoff)
+                    .executeUpdate();
+            em.getTransaction().commit();
+            return count;
+        }
+    }
 }
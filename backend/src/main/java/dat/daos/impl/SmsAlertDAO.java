@@ -0,0 +1,73 @@
+package dat.daos.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.function.Function;
+
+/**
+ * DAO for SMS balance alert state (sms_alert_state)
+ * Both operations are a single conditional statement, so concurrent nodes
+ * seeing the same crossing agree on exactly one alert.
+ */
+public class SmsAlertDAO {
+    private static SmsAlertDAO instance;
+    private static EntityManagerFactory emf;
+
+    public static SmsAlertDAO getInstance(EntityManagerFactory _emf) {
+        if (instance == null) {
+            emf = _emf;
+            instance = new SmsAlertDAO();
+        }
+        return instance;
+    }
+
+    private SmsAlertDAO() {
+    }
+
+    /**
+     * Disarm a threshold
+     * @return true if it was armed (or had no state yet), i.e. this caller should alert
+     */
+    public boolean trigger(String externalCustomerId, int threshold) {
+        return inTransaction(em -> !em.createNativeQuery(
+                "INSERT INTO sms_alert_state (external_customer_id, threshold, armed, last_triggered_at) " +
+                "VALUES (:externalId, :threshold, false, now()) " +
+                "ON CONFLICT (external_customer_id, threshold) DO UPDATE " +
+                "SET armed = false, last_triggered_at = now() WHERE sms_alert_state.armed " +
+                "RETURNING id")
+                .setParameter("externalId", externalCustomerId)
+                .setParameter("threshold", threshold)
+                .getResultList()
+                .isEmpty());
+    }
+
+    /**
+     * Re-arm a threshold after the balance recovered
+     * @return true if it was disarmed
+     */
+    public boolean rearm(String externalCustomerId, int threshold) {
+        return inTransaction(em -> em.createNativeQuery(
+                "UPDATE sms_alert_state SET armed = true " +
+                "WHERE external_customer_id = :externalId AND threshold = :threshold AND NOT armed")
+                .setParameter("externalId", externalCustomerId)
+                .setParameter("threshold", threshold)
+                .executeUpdate() > 0);
+    }
+
+    private <T> T inTransaction(Function<EntityManager, T> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                T result = work.apply(em);
+                em.getTransaction().commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
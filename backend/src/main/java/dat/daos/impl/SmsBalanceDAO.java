@@ -2,12 +2,21 @@ package dat.daos.impl;
 
 import dat.daos.IDAO;
 import dat.entities.SmsBalance;
+import dat.entities.SmsLedgerEntry;
+import dat.enums.SmsLedgerReason;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.NoResultException;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.hibernate.Session;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -16,6 +25,10 @@ import java.util.stream.Collectors;
  * Follows singleton pattern with getInstance()
  */
 public class SmsBalanceDAO implements IDAO<SmsBalance> {
+    // Credits of the customer held in leases (SmsCreditLeaseDAO), for a row aliased c
+    static final String LEASED_CREDITS =
+            "(SELECT COALESCE(SUM(l.reserved), 0) FROM sms_credit_lease l WHERE l.external_customer_id = c.external_customer_id)";
+    private static final List<BalanceListener> balanceListeners = new CopyOnWriteArrayList<>();
     private static SmsBalanceDAO instance;
     private static EntityManagerFactory emf;
 
@@ -32,11 +45,16 @@ public class SmsBalanceDAO implements IDAO<SmsBalance> {
         // Private constructor for singleton
     }
 
+    /**
+     * Persist a new balance together with its OPENING ledger entry
+     */
     @Override
     public SmsBalance create(SmsBalance smsBalance) {
         try (EntityManager em = emf.createEntityManager()) {
             em.getTransaction().begin();
             em.persist(smsBalance);
+            em.persist(new SmsLedgerEntry(smsBalance.getExternalCustomerId(), smsBalance.getRemainingSms(),
+                    SmsLedgerReason.OPENING, null));
             em.getTransaction().commit();
             return smsBalance;
         }
@@ -103,42 +121,158 @@ public class SmsBalanceDAO implements IDAO<SmsBalance> {
         }
     }
 
+    /**
+     * Atomically debit SMS credits in a single conditional UPDATE
+     *
+     * The balance check and the decrement happen in one statement, so concurrent
+     * debits can neither lose updates nor overdraw, and the row lock is held only
+     * for that statement (no read-modify-write round trips while locked). The same
+     * statement appends the movement to sms_credit_ledger.
+     *
+     * @return Remaining credits after the debit, or empty if the balance does not
+     *         exist or has fewer than count credits (nothing is changed then)
+     */
+    public OptionalInt debitSmsCredits(String externalCustomerId, int count) {
+        return debitSmsCredits(externalCustomerId, count, SmsLedgerReason.DEBIT, null);
+    }
+
+    public OptionalInt debitSmsCredits(String externalCustomerId, int count, SmsLedgerReason reason, String reference) {
+        return inTransaction(em -> applyDelta(em, externalCustomerId, -count, true, reason, reference));
+    }
+
+    /**
+     * Atomically add SMS credits in a single UPDATE (recorded in the ledger as a purchase)
+     * @return Remaining credits after the recharge, or empty if the balance does not exist
+     */
+    public OptionalInt creditSmsCredits(String externalCustomerId, int credits) {
+        return creditSmsCredits(externalCustomerId, credits, SmsLedgerReason.PURCHASE, null);
+    }
+
+    public OptionalInt creditSmsCredits(String externalCustomerId, int credits, SmsLedgerReason reason, String reference) {
+        return inTransaction(em -> applyDelta(em, externalCustomerId, credits, false, reason, reference));
+    }
+
+    /**
+     * Add or remove SMS credits within the caller's transaction (e.g. a payment)
+     * The balance may go below zero when delta is negative (provider corrections).
+     * @return Remaining credits after the change, or empty if the balance does not exist
+     */
+    public OptionalInt adjustSmsCredits(EntityManager em, String externalCustomerId, int delta,
+                                        SmsLedgerReason reason, String reference) {
+        return applyDelta(em, externalCustomerId, delta, false, reason, reference);
+    }
+
     /**
      * Use SMS credits for a customer
      */
     public boolean useSmsCredits(String externalCustomerId, int count) {
-        try (EntityManager em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            Optional<SmsBalance> balanceOpt = getByExternalCustomerId(externalCustomerId);
-            
-            if (balanceOpt.isPresent()) {
-                SmsBalance balance = balanceOpt.get();
-                boolean success = balance.useSms(count);
-                if (success) {
-                    em.merge(balance);
-                    em.getTransaction().commit();
-                    return true;
-                }
-            }
-            em.getTransaction().rollback();
-            return false;
-        }
+        return debitSmsCredits(externalCustomerId, count).isPresent();
     }
 
     /**
      * Recharge SMS credits for a customer
      */
     public void rechargeSmsCredits(String externalCustomerId, int credits) {
+        creditSmsCredits(externalCustomerId, credits);
+    }
+
+    /**
+     * One statement: change sms_balance and append the ledger entry for it
+     * @param guarded Only apply when the balance stays non-negative
+     */
+    private OptionalInt applyDelta(EntityManager em, String externalCustomerId, int delta, boolean guarded,
+                                   SmsLedgerReason reason, String reference) {
+        List<?> rows = em.createNativeQuery(
+                "WITH changed AS (" +
+                "  UPDATE sms_balance SET remaining_sms = remaining_sms + :delta " +
+                "  WHERE external_customer_id = :externalId" + (guarded ? " AND remaining_sms + :delta >= 0" : "") +
+                "  RETURNING external_customer_id, remaining_sms, alert_thresholds), " +
+                "entry AS (" +
+                "  INSERT INTO sms_credit_ledger (external_customer_id, delta, reason, reference, created_at) " +
+                "  SELECT external_customer_id, :delta, :reason, CAST(:reference AS VARCHAR), now() FROM changed) " +
+                "SELECT c.remaining_sms, c.remaining_sms + " + LEASED_CREDITS + ", c.alert_thresholds FROM changed c")
+                .setParameter("delta", delta)
+                .setParameter("externalId", externalCustomerId)
+                .setParameter("reason", reason.name())
+                .setParameter("reference", reference)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return OptionalInt.empty();
+        }
+        Object[] row = (Object[]) rows.get(0);
+        int balance = ((Number) row[1]).intValue();
+        notifyAfterCommit(em, externalCustomerId, balance - delta, balance, (String) row[2]);
+        return OptionalInt.of(((Number) row[0]).intValue());
+    }
+
+    /**
+     * Set a customer's alert thresholds (null = defaults)
+     * @return false if the balance does not exist
+     */
+    public boolean updateAlertThresholds(String externalCustomerId, String alertThresholds) {
         try (EntityManager em = emf.createEntityManager()) {
             em.getTransaction().begin();
-            Optional<SmsBalance> balanceOpt = getByExternalCustomerId(externalCustomerId);
-            
-            if (balanceOpt.isPresent()) {
-                SmsBalance balance = balanceOpt.get();
-                balance.recharge(credits);
-                em.merge(balance);
-            }
+            int updated = em.createNativeQuery(
+                    "UPDATE sms_balance SET alert_thresholds = CAST(:thresholds AS VARCHAR) WHERE external_customer_id = :externalId")
+                    .setParameter("thresholds", alertThresholds)
+                    .setParameter("externalId", externalCustomerId)
+                    .executeUpdate();
             em.getTransaction().commit();
+            return updated > 0;
+        }
+    }
+
+    /**
+     * Called after every committed change of a customer's SMS credits
+     * (balance = remaining_sms + credits held in leases)
+     */
+    @FunctionalInterface
+    public interface BalanceListener {
+        void onBalanceChanged(String externalCustomerId, int previousBalance, int balance, String alertThresholds);
+    }
+
+    public static void addBalanceListener(BalanceListener listener) {
+        balanceListeners.add(listener);
+    }
+
+    /**
+     * Tell the listeners about a balance change once the surrounding transaction commits
+     * (nothing is reported for rolled back changes)
+     */
+    static void notifyAfterCommit(EntityManager em, String externalCustomerId, int previousBalance, int balance,
+                                  String alertThresholds) {
+        if (balanceListeners.isEmpty() || previousBalance == balance) {
+            return;
+        }
+        em.unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    for (BalanceListener listener : balanceListeners) {
+                        listener.onBalanceChanged(externalCustomerId, previousBalance, balance, alertThresholds);
+                    }
+                }
+            }
+        });
+    }
+
+    private OptionalInt inTransaction(Function<EntityManager, OptionalInt> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                OptionalInt result = work.apply(em);
+                em.getTransaction().commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
         }
     }
 }
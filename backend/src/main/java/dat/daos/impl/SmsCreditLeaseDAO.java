@@ -0,0 +1,274 @@
+package dat.daos.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.function.Function;
+
+/**
+ * DAO for SMS credit leases (sms_credit_lease) and reclaimed lease credits (sms_credit_suspense)
+ * Every method is one short transaction that moves credits between
+ * sms_balance and a lease, so the total never changes (see SmsCreditLease).
+ * Only settled usage changes the customer's credits and is appended to
+ * sms_credit_ledger (USAGE, reference lease:<id>) by the same statement.
+ * Reclaimed leases are the exception: their credits leave the balance into
+ * suspense (SmsCreditSuspense) until their usage is known.
+ */
+public class SmsCreditLeaseDAO {
+    // Appends the settled usage of the lease returned by the named CTE (needs :used and :id)
+    private static final String USAGE_ENTRY =
+            "usage AS (INSERT INTO sms_credit_ledger (external_customer_id, delta, reason, reference, created_at) " +
+            "  SELECT external_customer_id, 0 - :used, 'USAGE', 'lease:' || CAST(:id AS VARCHAR), now() " +
+            "  FROM %s WHERE :used <> 0) ";
+    private static SmsCreditLeaseDAO instance;
+    private static EntityManagerFactory emf;
+
+    public static SmsCreditLeaseDAO getInstance(EntityManagerFactory _emf) {
+        if (instance == null) {
+            emf = _emf;
+            instance = new SmsCreditLeaseDAO();
+        }
+        return instance;
+    }
+
+    private SmsCreditLeaseDAO() {
+    }
+
+    /**
+     * @param leaseId Lease row id
+     * @param granted Credits moved into the lease by this call
+     * @param reserved Credits now reserved by the lease in total
+     */
+    public record Grant(long leaseId, int granted, int reserved) {
+    }
+
+    /**
+     * Move up to amount credits from the balance into this node's lease (created if missing)
+     * @return The grant, or null if the balance is empty or does not exist
+     */
+    public Grant grant(String nodeId, String externalCustomerId, int amount, int ttlSeconds) {
+        return inTransaction(em -> {
+            List<?> granted = em.createNativeQuery(
+                    "WITH available AS (" +
+                    "  SELECT id, LEAST(remaining_sms, :amount) AS amount FROM sms_balance " +
+                    "  WHERE external_customer_id = :externalId AND remaining_sms > 0 FOR UPDATE) " +
+                    "UPDATE sms_balance b SET remaining_sms = b.remaining_sms - a.amount " +
+                    "FROM available a WHERE b.id = a.id RETURNING a.amount")
+                    .setParameter("amount", amount)
+                    .setParameter("externalId", externalCustomerId)
+                    .getResultList();
+            if (granted.isEmpty()) {
+                return null;
+            }
+            int credits = ((Number) granted.get(0)).intValue();
+            Object[] lease = (Object[]) em.createNativeQuery(
+                    "INSERT INTO sms_credit_lease (node_id, external_customer_id, reserved, expires_at) " +
+                    "VALUES (:nodeId, :externalId, :credits, now() + make_interval(secs => :ttl)) " +
+                    "ON CONFLICT (node_id, external_customer_id) DO UPDATE " +
+                    "SET reserved = sms_credit_lease.reserved + EXCLUDED.reserved, expires_at = EXCLUDED.expires_at " +
+                    "RETURNING id, reserved")
+                    .setParameter("nodeId", nodeId)
+                    .setParameter("externalId", externalCustomerId)
+                    .setParameter("credits", credits)
+                    .setParameter("ttl", ttlSeconds)
+                    .getSingleResult();
+            return new Grant(((Number) lease[0]).longValue(), credits, ((Number) lease[1]).intValue());
+        });
+    }
+
+    /**
+     * Record used credits as spent and extend the lease
+     * @return Credits still reserved, or empty if the lease no longer exists (reclaimed)
+     */
+    public OptionalInt settle(long leaseId, int used, int ttlSeconds) {
+        return inTransaction(em -> {
+            List<?> reserved = em.createNativeQuery(
+                    "WITH settled AS (UPDATE sms_credit_lease SET reserved = reserved - :used, " +
+                    "  expires_at = now() + make_interval(secs => :ttl) WHERE id = :id " +
+                    "  RETURNING external_customer_id, reserved), " +
+                    USAGE_ENTRY.formatted("settled") +
+                    // Subqueries see the leases as before this statement, hence "- :used"
+                    "SELECT c.reserved, b.remaining_sms + " + SmsBalanceDAO.LEASED_CREDITS + " - :used, b.alert_thresholds, c.external_customer_id " +
+                    "FROM settled c JOIN sms_balance b ON b.external_customer_id = c.external_customer_id")
+                    .setParameter("used", used)
+                    .setParameter("ttl", ttlSeconds)
+                    .setParameter("id", leaseId)
+                    .getResultList();
+            if (reserved.isEmpty()) {
+                return OptionalInt.empty();
+            }
+            Object[] row = (Object[]) reserved.get(0);
+            notifyUsage(em, (String) row[3], ((Number) row[1]).intValue(), used, (String) row[2]);
+            return OptionalInt.of(((Number) row[0]).intValue());
+        });
+    }
+
+    /**
+     * Delete a lease and return its unused credits (reserved - used) to the balance
+     * @return Credits returned, or empty if the lease no longer exists (reclaimed)
+     */
+    public OptionalInt release(long leaseId, int used) {
+        return inTransaction(em -> {
+            List<?> returned = em.createNativeQuery(
+                    "WITH released AS (DELETE FROM sms_credit_lease WHERE id = :id " +
+                    "  RETURNING external_customer_id, reserved - :used AS unused), " +
+                    USAGE_ENTRY.formatted("released") +
+                    "UPDATE sms_balance b SET remaining_sms = b.remaining_sms + c.unused " +
+                    "FROM released c WHERE b.external_customer_id = c.external_customer_id " +
+                    "RETURNING c.unused, b.remaining_sms + " + SmsBalanceDAO.LEASED_CREDITS + " - c.unused - :used, b.alert_thresholds, c.external_customer_id")
+                    .setParameter("id", leaseId)
+                    .setParameter("used", used)
+                    .getResultList();
+            if (returned.isEmpty()) {
+                return OptionalInt.empty();
+            }
+            Object[] row = (Object[]) returned.get(0);
+            notifyUsage(em, (String) row[3], ((Number) row[1]).intValue(), used, (String) row[2]);
+            return OptionalInt.of(((Number) row[0]).intValue());
+        });
+    }
+
+    /**
+     * Move the credits of expired leases (nodes that died) into suspense
+     * @return Number of leases put in suspense
+     */
+    public int reclaimExpired() {
+        return reclaim("expires_at < now()", null);
+    }
+
+    /**
+     * Move the credits of every lease held by a node into suspense (restart with a stable SMS_NODE_ID)
+     * @return Number of leases put in suspense
+     */
+    public int reclaimNode(String nodeId) {
+        return reclaim("node_id = :nodeId", nodeId);
+    }
+
+    /**
+     * Resolve the suspense of a reclaimed lease with the usage its node still knew about
+     * Records used as USAGE and returns the rest of the suspended credits to the balance.
+     * @return Credits returned, or empty if there is no suspense for the lease (already
+     *         resolved by a provider sync, which accounts for the usage itself)
+     */
+    public OptionalInt resolveSuspense(long leaseId, int used) {
+        return inTransaction(em -> {
+            // Same lock order as reclaim and the provider sync: balance row first
+            if (em.createNativeQuery(
+                    "SELECT b.id FROM sms_balance b JOIN sms_credit_suspense s ON s.external_customer_id = b.external_customer_id " +
+                    "WHERE s.lease_id = :id FOR UPDATE OF b")
+                    .setParameter("id", leaseId)
+                    .getResultList()
+                    .isEmpty()) {
+                return OptionalInt.empty();
+            }
+            List<?> returned = em.createNativeQuery(
+                    "WITH resolved AS (DELETE FROM sms_credit_suspense WHERE lease_id = :id " +
+                    "  RETURNING external_customer_id, credits), " +
+                    "release AS (INSERT INTO sms_credit_ledger (external_customer_id, delta, reason, reference, created_at) " +
+                    "  SELECT external_customer_id, credits, 'SUSPENSE_RELEASE', 'lease:' || CAST(:id AS VARCHAR), now() FROM resolved), " +
+                    USAGE_ENTRY.formatted("resolved") +
+                    "UPDATE sms_balance b SET remaining_sms = b.remaining_sms + c.credits - :used " +
+                    "FROM resolved c WHERE b.external_customer_id = c.external_customer_id " +
+                    "RETURNING c.credits - :used, b.remaining_sms + " + SmsBalanceDAO.LEASED_CREDITS + ", " +
+                    "b.alert_thresholds, c.external_customer_id")
+                    .setParameter("id", leaseId)
+                    .setParameter("used", used)
+                    .getResultList();
+            if (returned.isEmpty()) {
+                return OptionalInt.empty();
+            }
+            Object[] row = (Object[]) returned.get(0);
+            int credits = ((Number) row[0]).intValue();
+            int balance = ((Number) row[1]).intValue();
+            SmsBalanceDAO.notifyAfterCommit(em, (String) row[3], balance - credits, balance, (String) row[2]);
+            return OptionalInt.of(credits);
+        });
+    }
+
+    /**
+     * Drop a customer's suspense within the caller's transaction (a provider sync
+     * replaces it with the provider's balance); the caller holds the balance row lock
+     * @return Credits that were in suspense
+     */
+    public int clearSuspense(EntityManager em, String externalCustomerId) {
+        List<?> cleared = em.createNativeQuery(
+                "DELETE FROM sms_credit_suspense WHERE external_customer_id = :externalId RETURNING credits")
+                .setParameter("externalId", externalCustomerId)
+                .getResultList();
+        return cleared.stream().mapToInt(credits -> ((Number) credits).intValue()).sum();
+    }
+
+    /**
+     * Credits of reclaimed leases still in suspense for a customer
+     */
+    public int getSuspendedCredits(String externalCustomerId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return ((Number) em.createNativeQuery(
+                    "SELECT COALESCE(SUM(credits), 0) FROM sms_credit_suspense WHERE external_customer_id = :externalId")
+                    .setParameter("externalId", externalCustomerId)
+                    .getSingleResult()).intValue();
+        }
+    }
+
+    /**
+     * Credits currently reserved by leases for a customer (all nodes)
+     */
+    public int getReservedCredits(String externalCustomerId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return ((Number) em.createNativeQuery(
+                    "SELECT COALESCE(SUM(reserved), 0) FROM sms_credit_lease WHERE external_customer_id = :externalId")
+                    .setParameter("externalId", externalCustomerId)
+                    .getSingleResult()).intValue();
+        }
+    }
+
+    // Settled usage lowers the customer's balance; lease moves alone do not
+    private static void notifyUsage(EntityManager em, String externalCustomerId, int balance, int used,
+                                    String alertThresholds) {
+        if (used != 0) {
+            SmsBalanceDAO.notifyAfterCommit(em, externalCustomerId, balance + used, balance, alertThresholds);
+        }
+    }
+
+    // The lease's node may have spent part of its reserved credits since its last
+    // settle, so they are not returned to the balance but held in suspense
+    private int reclaim(String condition, String nodeId) {
+        return inTransaction(em -> {
+            Query query = em.createNativeQuery(
+                    // Balance rows are locked first (in id order) so a provider sync never sees half a reclaim
+                    "WITH locked AS (SELECT external_customer_id FROM sms_balance WHERE external_customer_id IN (" +
+                    "  SELECT external_customer_id FROM sms_credit_lease WHERE " + condition + ") ORDER BY id FOR UPDATE), " +
+                    "reclaimed AS (DELETE FROM sms_credit_lease WHERE " + condition +
+                    "  AND external_customer_id IN (SELECT external_customer_id FROM locked) " +
+                    "  RETURNING id, external_customer_id, reserved), " +
+                    "suspense AS (INSERT INTO sms_credit_ledger (external_customer_id, delta, reason, reference, created_at) " +
+                    "  SELECT external_customer_id, 0 - reserved, 'SUSPENSE', 'lease:' || CAST(id AS VARCHAR), now() " +
+                    "  FROM reclaimed WHERE reserved <> 0) " +
+                    "INSERT INTO sms_credit_suspense (lease_id, external_customer_id, credits, created_at) " +
+                    "SELECT id, external_customer_id, reserved, now() FROM reclaimed WHERE reserved <> 0");
+            if (nodeId != null) {
+                query.setParameter("nodeId", nodeId);
+            }
+            return query.executeUpdate();
+        });
+    }
+
+    private <T> T inTransaction(Function<EntityManager, T> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                T result = work.apply(em);
+                em.getTransaction().commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package dat.daos.impl;
+
+import dat.entities.SmsLedgerEntry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.List;
+
+/**
+ * DAO for the SMS credit ledger (sms_credit_ledger) and its snapshots (sms_credit_snapshot)
+ * Entries are appended by SmsBalanceDAO and SmsCreditLeaseDAO together with the
+ * balance change they record; this DAO only reads and rolls snapshots forward.
+ */
+public class SmsLedgerDAO {
+    private static SmsLedgerDAO instance;
+    private static EntityManagerFactory emf;
+
+    public static SmsLedgerDAO getInstance(EntityManagerFactory _emf) {
+        if (instance == null) {
+            emf = _emf;
+            instance = new SmsLedgerDAO();
+        }
+        return instance;
+    }
+
+    private SmsLedgerDAO() {
+    }
+
+    /**
+     * Ledger balance: snapshot + entries after it (reads only the entries since the last snapshot)
+     */
+    public long getBalance(String externalCustomerId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return getBalance(em, externalCustomerId);
+        }
+    }
+
+    /**
+     * Ledger balance, read within the caller's transaction
+     */
+    public long getBalance(EntityManager em, String externalCustomerId) {
+        return ((Number) em.createNativeQuery(
+                "SELECT COALESCE(s.balance, 0) + COALESCE((" +
+                "  SELECT SUM(l.delta) FROM sms_credit_ledger l " +
+                "  WHERE l.external_customer_id = :externalId AND l.txid >= COALESCE(s.horizon, CAST('0' AS xid8))), 0) " +
+                "FROM (SELECT 1) one " +
+                "LEFT JOIN sms_credit_snapshot s ON s.external_customer_id = :externalId")
+                .setParameter("externalId", externalCustomerId)
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * Most recent ledger entries of a customer, newest first
+     */
+    public List<SmsLedgerEntry> getEntries(String externalCustomerId, int limit) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery(
+                    "SELECT l FROM SmsLedgerEntry l WHERE l.externalCustomerId = :externalId ORDER BY l.id DESC",
+                    SmsLedgerEntry.class)
+                    .setParameter("externalId", externalCustomerId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+    }
+
+    /**
+     * Fold entries into the snapshots, up to the oldest transaction still running
+     *
+     * Ids and created_at are assigned before commit, so neither bounds what may
+     * still appear: an open transaction can hold an id below newer committed ones.
+     * The horizon is pg_snapshot_xmin of the statement's snapshot instead: every
+     * transaction below it has committed or aborted, so entries with a lower txid
+     * are final, and any entry committed later has a txid at or above it.
+     *
+     * Rolls are serialized with an EXCLUSIVE lock on sms_credit_snapshot (readers
+     * are not blocked). Two overlapping rolls, e.g. one per node, would otherwise
+     * both fold the entries after the same old horizon, and the second upsert would
+     * add them again on top of the first. The roll statement runs after the lock is
+     * granted, so it sees the horizon the previous roll committed.
+     *
+     * @return Number of customers whose snapshot moved
+     */
+    public int rollSnapshots() {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                em.createNativeQuery("LOCK TABLE sms_credit_snapshot IN EXCLUSIVE MODE").executeUpdate();
+                int rolled = em.createNativeQuery(
+                        "WITH bound AS (SELECT pg_snapshot_xmin(pg_current_snapshot()) AS horizon), " +
+                        "deltas AS (" +
+                        "  SELECT l.external_customer_id, SUM(l.delta) AS delta " +
+                        "  FROM sms_credit_ledger l " +
+                        "  LEFT JOIN sms_credit_snapshot s ON s.external_customer_id = l.external_customer_id " +
+                        "  CROSS JOIN bound " +
+                        "  WHERE l.txid >= COALESCE(s.horizon, CAST('0' AS xid8)) AND l.txid < bound.horizon " +
+                        "  GROUP BY l.external_customer_id) " +
+                        "INSERT INTO sms_credit_snapshot (external_customer_id, balance, horizon, taken_at) " +
+                        "SELECT d.external_customer_id, d.delta, bound.horizon, now() FROM deltas d CROSS JOIN bound " +
+                        "ON CONFLICT (external_customer_id) DO UPDATE " +
+                        "SET balance = sms_credit_snapshot.balance + EXCLUDED.balance, " +
+                        "horizon = EXCLUDED.horizon, taken_at = EXCLUDED.taken_at")
+                        .executeUpdate();
+                em.getTransaction().commit();
+                return rolled;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -2,10 +2,14 @@ package dat.daos.impl;
 
 import dat.daos.IDAO;
 import dat.entities.Subscription;
+import dat.enums.SubscriptionStatus;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.NoResultException;
 
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -83,15 +87,109 @@ public class SubscriptionDAO implements IDAO<Subscription> {
      */
     public Optional<Subscription> getActiveSubscriptionForCustomer(Long customerId) {
         try (EntityManager em = emf.createEntityManager()) {
-            Subscription subscription = em.createQuery(
-                "SELECT s FROM Subscription s WHERE s.customer.id = :customerId AND s.status = 'ACTIVE'",
+            // ux_subscription_active_customer allows one ACTIVE or PAST_DUE row; newest first in case of legacy duplicates
+            return em.createQuery(
+                "SELECT s FROM Subscription s JOIN FETCH s.customer c JOIN FETCH c.user JOIN FETCH s.plan " +
+                "WHERE c.id = :customerId AND s.status = dat.enums.SubscriptionStatus.ACTIVE " +
+                "ORDER BY s.id DESC",
                 Subscription.class
             )
             .setParameter("customerId", customerId)
-            .getSingleResult();
-            return Optional.of(subscription);
-        } catch (NoResultException e) {
-            return Optional.empty();
+            .setMaxResults(1)
+            .getResultStream()
+            .findFirst();
+        }
+    }
+
+    /**
+     * Current subscription of a customer as shown on the dashboard: ACTIVE, or
+     * PAST_DUE while a renewal is in dunning (the customer must see that a payment is due)
+     */
+    public Optional<Subscription> getCurrentSubscriptionForCustomer(Long customerId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery(
+                "SELECT s FROM Subscription s JOIN FETCH s.customer c JOIN FETCH c.user JOIN FETCH s.plan " +
+                "WHERE c.id = :customerId " +
+                "AND s.status IN (dat.enums.SubscriptionStatus.ACTIVE, dat.enums.SubscriptionStatus.PAST_DUE) " +
+                "ORDER BY s.id DESC",
+                Subscription.class
+            )
+            .setParameter("customerId", customerId)
+            .setMaxResults(1)
+            .getResultStream()
+            .findFirst();
+        }
+    }
+
+    /**
+     * Active subscriptions whose next billing date is at or before the given time
+     * (index range scan on ix_subscription_status_next_billing)
+     */
+    public List<Subscription> getDueBefore(OffsetDateTime until) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery(
+                "SELECT s FROM Subscription s WHERE s.status = 'ACTIVE' AND s.nextBillingDate <= :until " +
+                "ORDER BY s.nextBillingDate",
+                Subscription.class
+            )
+            .setParameter("until", until)
+            .getResultList();
+        }
+    }
+
+    /**
+     * Next billing date of every active subscription due before the given time,
+     * earliest first, without loading the entities
+     */
+    public Map<Long, OffsetDateTime> getBillingDatesBefore(OffsetDateTime until) {
+        try (EntityManager em = emf.createEntityManager()) {
+            Map<Long, OffsetDateTime> dates = new LinkedHashMap<>();
+            em.createQuery(
+                "SELECT s.id, s.nextBillingDate FROM Subscription s " +
+                "WHERE s.status = 'ACTIVE' AND s.nextBillingDate < :until ORDER BY s.nextBillingDate",
+                Object[].class
+            )
+            .setParameter("until", until)
+            .getResultList()
+            .forEach(row -> dates.put((Long) row[0], (OffsetDateTime) row[1]));
+            return dates;
+        }
+    }
+
+    /**
+     * Renew a paid subscription within the caller's transaction: set the next
+     * billing date and make it ACTIVE, only if it is still ACTIVE or PAST_DUE
+     * (a concurrent cancel is never undone)
+     * @return true if the subscription was renewed
+     */
+    public boolean renew(EntityManager em, Long id, OffsetDateTime nextBillingDate) {
+        return em.createQuery(
+            "UPDATE Subscription s SET s.status = dat.enums.SubscriptionStatus.ACTIVE, s.nextBillingDate = :nextBillingDate " +
+            "WHERE s.id = :id AND s.status IN (dat.enums.SubscriptionStatus.ACTIVE, dat.enums.SubscriptionStatus.PAST_DUE)"
+        )
+        .setParameter("nextBillingDate", nextBillingDate)
+        .setParameter("id", id)
+        .executeUpdate() > 0;
+    }
+
+    /**
+     * Change the status only if it is still the expected one
+     * @return true if the subscription was updated
+     */
+    public boolean updateStatus(Long id, SubscriptionStatus expected, SubscriptionStatus status, OffsetDateTime endDate) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            int updated = em.createQuery(
+                "UPDATE Subscription s SET s.status = :status, s.endDate = :endDate " +
+                "WHERE s.id = :id AND s.status = :expected"
+            )
+            .setParameter("status", status)
+            .setParameter("endDate", endDate)
+            .setParameter("id", id)
+            .setParameter("expected", expected)
+            .executeUpdate();
+            em.getTransaction().commit();
+            return updated > 0;
         }
     }
 }
@@ -0,0 +1,17 @@
+package dat.dtos;
+
+import java.util.List;
+
+/**
+ * One page of a customer's activity feed
+ * nextCursor is null when there are no older activities
+ */
+public class ActivityFeedDTO {
+    public List<ActivityLogDTO> items;
+    public String nextCursor;
+
+    public ActivityFeedDTO(List<ActivityLogDTO> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
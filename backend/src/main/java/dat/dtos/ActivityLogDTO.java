@@ -14,5 +14,22 @@ public class ActivityLogDTO {
     public ActivityLogStatus status;
     public OffsetDateTime timestamp;
     public Map<String, Object> metadata;
+
+    public ActivityLogDTO() {
+    }
+
+    /**
+     * Used by JPQL constructor expressions (SELECT new dat.dtos.ActivityLogDTO(...))
+     */
+    public ActivityLogDTO(Long id, Long customerId, Long sessionId, ActivityLogType type,
+                          ActivityLogStatus status, OffsetDateTime timestamp, Map<String, Object> metadata) {
+        this.id = id;
+        this.customerId = customerId;
+        this.sessionId = sessionId;
+        this.type = type;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.metadata = metadata;
+    }
 }
 
@@ -0,0 +1,34 @@
+package dat.dtos;
+
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Activity counts for one customer, bucketed per day or per month
+ */
+public class ActivitySummaryDTO {
+    public Long customerId;
+    public LocalDate from;
+    public LocalDate to;
+    public String granularity;
+    public List<Bucket> buckets;
+    public Map<ActivityLogType, Long> totals;
+
+    public static class Bucket {
+        public String period;   // 2025-01-31 (day) or 2025-01 (month)
+        public ActivityLogType type;
+        public ActivityLogStatus status;
+        public long count;
+
+        public Bucket(String period, ActivityLogType type, ActivityLogStatus status, long count) {
+            this.period = period;
+            this.type = type;
+            this.status = status;
+            this.count = count;
+        }
+    }
+}
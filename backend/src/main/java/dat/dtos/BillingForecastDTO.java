@@ -0,0 +1,35 @@
+package dat.dtos;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Subscriptions due for billing per day, from the in-memory billing calendar
+ * The first day also counts overdue subscriptions; horizon is the end of the
+ * window the calendar holds (days after it read 0).
+ */
+public class BillingForecastDTO {
+    public List<Day> days;
+    public int total;
+    public OffsetDateTime horizon;
+
+    public BillingForecastDTO(Map<LocalDate, Integer> histogram, OffsetDateTime horizon) {
+        this.days = new ArrayList<>();
+        histogram.forEach((date, count) -> days.add(new Day(date, count)));
+        this.total = days.stream().mapToInt(day -> day.count).sum();
+        this.horizon = horizon;
+    }
+
+    public static class Day {
+        public LocalDate date;
+        public int count;
+
+        public Day(LocalDate date, int count) {
+            this.date = date;
+            this.count = count;
+        }
+    }
+}
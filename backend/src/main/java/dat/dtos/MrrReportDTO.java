@@ -0,0 +1,51 @@
+package dat.dtos;
+
+import dat.enums.Currency;
+import dat.enums.Period;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recurring revenue per plan and currency
+ * MRR counts ACTIVE subscriptions (yearly plans at price / 12); ARR is MRR x 12.
+ * PAST_DUE subscriptions are reported apart as atRiskMrrCents (in dunning, not yet lost)
+ */
+public class MrrReportDTO {
+    public OffsetDateTime generatedAt;
+    public List<PlanRevenue> plans;
+    public Map<Currency, Totals> totals;
+
+    public MrrReportDTO(OffsetDateTime generatedAt, List<PlanRevenue> plans, Map<Currency, Totals> totals) {
+        this.generatedAt = generatedAt;
+        this.plans = plans;
+        this.totals = totals;
+    }
+
+    public static class PlanRevenue {
+        public Long planId;
+        public String planName;
+        public Period period;
+        public Currency currency;
+        public long activeSubscriptions;
+        public long pastDueSubscriptions;
+        public long mrrCents;
+        public long arrCents;
+        public long atRiskMrrCents;
+
+        public PlanRevenue(Long planId, String planName, Period period, Currency currency) {
+            this.planId = planId;
+            this.planName = planName;
+            this.period = period;
+            this.currency = currency;
+        }
+    }
+
+    public static class Totals {
+        public long activeSubscriptions;
+        public long mrrCents;
+        public long arrCents;
+        public long atRiskMrrCents;
+    }
+}
@@ -0,0 +1,28 @@
+package dat.dtos;
+
+/**
+ * Per-row outcome of bulk onboarding (POST /api/admin/customers/onboard)
+ */
+public class OnboardingResultDTO {
+    public Integer serialNumber;
+    public String email;
+    public boolean success;
+    public Long customerId;
+    public String error;
+
+    public OnboardingResultDTO(Integer serialNumber, String email, boolean success, Long customerId, String error) {
+        this.serialNumber = serialNumber;
+        this.email = email;
+        this.success = success;
+        this.customerId = customerId;
+        this.error = error;
+    }
+
+    public static OnboardingResultDTO created(RegisterRequest request, Long customerId) {
+        return new OnboardingResultDTO(request.serialNumber, request.email, true, customerId, null);
+    }
+
+    public static OnboardingResultDTO failed(RegisterRequest request, String error) {
+        return new OnboardingResultDTO(request.serialNumber, request.email, false, null, error);
+    }
+}
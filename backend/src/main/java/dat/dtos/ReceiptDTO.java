@@ -1,5 +1,6 @@
 package dat.dtos;
 
+import dat.entities.Receipt;
 import dat.enums.ReceiptStatus;
 
 import java.time.OffsetDateTime;
@@ -21,5 +22,25 @@ public class ReceiptDTO {
     public String processorIntentId;
     public Map<String, Object> metadata;
     public OffsetDateTime createdAt;
+
+    public static ReceiptDTO fromEntity(Receipt receipt) {
+        ReceiptDTO dto = new ReceiptDTO();
+        dto.id = receipt.getId();
+        dto.paymentId = receipt.getPayment().getId();
+        dto.receiptNumber = receipt.getReceiptNumber();
+        dto.priceCents = receipt.getPriceCents();
+        dto.paidAt = receipt.getPaidAt();
+        dto.status = receipt.getStatus();
+        dto.processorReceiptUrl = receipt.getProcessorReceiptUrl();
+        dto.customerEmail = receipt.getCustomerEmail();
+        dto.companyName = receipt.getCompanyName();
+        dto.pmBrand = receipt.getPmBrand();
+        dto.pmLast4 = receipt.getPmLast4();
+        dto.pmExpYear = receipt.getPmExpYear();
+        dto.processorIntentId = receipt.getProcessorIntentId();
+        dto.metadata = receipt.getMetadata();
+        dto.createdAt = receipt.getCreatedAt();
+        return dto;
+    }
 }
 
@@ -0,0 +1,52 @@
+package dat.dtos;
+
+import dat.enums.Currency;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Amounts per period, plan and currency: collected payments or forecast renewals
+ * source is "forecast", "summary" (payment_daily_summary) or "payments" (payment table).
+ * planId 0 / planName null = payments not tied to a subscription
+ */
+public class RevenueReportDTO {
+    public LocalDate from;
+    public LocalDate to;
+    public String granularity;
+    public String source;
+    public List<Bucket> buckets;
+    public Map<Currency, Long> totals;
+
+    public RevenueReportDTO(LocalDate from, LocalDate to, String granularity, String source, List<Bucket> buckets) {
+        this.from = from;
+        this.to = to;
+        this.granularity = granularity;
+        this.source = source;
+        this.buckets = buckets;
+        this.totals = new EnumMap<>(Currency.class);
+        for (Bucket bucket : buckets) {
+            totals.merge(bucket.currency, bucket.amountCents, Long::sum);
+        }
+    }
+
+    public static class Bucket {
+        public LocalDate period;
+        public Long planId;
+        public String planName;
+        public Currency currency;
+        public long count;
+        public long amountCents;
+
+        public Bucket(LocalDate period, Long planId, String planName, Currency currency, long count, long amountCents) {
+            this.period = period;
+            this.planId = planId;
+            this.planName = planName;
+            this.currency = currency;
+            this.count = count;
+            this.amountCents = amountCents;
+        }
+    }
+}
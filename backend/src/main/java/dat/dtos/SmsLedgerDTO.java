@@ -0,0 +1,40 @@
+package dat.dtos;
+
+import dat.entities.SmsLedgerEntry;
+import dat.enums.SmsLedgerReason;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * A customer's SMS credit ledger: current ledger balance and the latest movements
+ */
+public class SmsLedgerDTO {
+    public Long customerId;
+    public long balance;
+    public List<Entry> entries;
+
+    public SmsLedgerDTO(Long customerId, long balance, List<Entry> entries) {
+        this.customerId = customerId;
+        this.balance = balance;
+        this.entries = entries;
+    }
+
+    public static class Entry {
+        public Long id;
+        public int delta;
+        public SmsLedgerReason reason;
+        public String reference;
+        public OffsetDateTime createdAt;
+
+        public static Entry fromEntity(SmsLedgerEntry entry) {
+            Entry dto = new Entry();
+            dto.id = entry.getId();
+            dto.delta = entry.getDelta();
+            dto.reason = entry.getReason();
+            dto.reference = entry.getReference();
+            dto.createdAt = entry.getCreatedAt();
+            return dto;
+        }
+    }
+}
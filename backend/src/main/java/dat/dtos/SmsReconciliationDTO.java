@@ -0,0 +1,30 @@
+package dat.dtos;
+
+/**
+ * SMS credits of a customer as seen by the ledger and by the balance counter
+ * ledgerBalance should equal remainingSms + leasedSms; difference is
+ * ledgerBalance - (remainingSms + leasedSms) and is 0 when they agree
+ * (leased credits used in the last settle interval show up as a small positive difference)
+ * suspendedSms are credits of reclaimed leases awaiting a provider sync; they
+ * are in none of the three (the ledger holds them as a SUSPENSE entry)
+ */
+public class SmsReconciliationDTO {
+    public Long customerId;
+    public String externalCustomerId;
+    public long ledgerBalance;
+    public int remainingSms;
+    public int leasedSms;
+    public int suspendedSms;
+    public long difference;
+
+    public SmsReconciliationDTO(Long customerId, String externalCustomerId, long ledgerBalance,
+                                int remainingSms, int leasedSms, int suspendedSms) {
+        this.customerId = customerId;
+        this.externalCustomerId = externalCustomerId;
+        this.ledgerBalance = ledgerBalance;
+        this.remainingSms = remainingSms;
+        this.leasedSms = leasedSms;
+        this.suspendedSms = suspendedSms;
+        this.difference = ledgerBalance - remainingSms - leasedSms;
+    }
+}
@@ -1,5 +1,6 @@
 package dat.dtos;
 
+import dat.entities.Subscription;
 import dat.enums.AnchorPolicy;
 import dat.enums.SubscriptionStatus;
 
@@ -16,5 +17,20 @@ public class SubscriptionDTO {
     public OffsetDateTime endDate;
     public OffsetDateTime nextBillingDate;
     public AnchorPolicy anchorPolicy;
+
+    public static SubscriptionDTO fromEntity(Subscription subscription) {
+        SubscriptionDTO dto = new SubscriptionDTO();
+        dto.id = subscription.getId();
+        dto.customerId = subscription.getCustomer().getId();
+        dto.customerEmail = subscription.getCustomer().getUser().getEmail();
+        dto.planId = subscription.getPlan().getId();
+        dto.planName = subscription.getPlan().getName();
+        dto.status = subscription.getStatus();
+        dto.startDate = subscription.getStartDate();
+        dto.endDate = subscription.getEndDate();
+        dto.nextBillingDate = subscription.getNextBillingDate();
+        dto.anchorPolicy = subscription.getAnchorPolicy();
+        return dto;
+    }
 }
 
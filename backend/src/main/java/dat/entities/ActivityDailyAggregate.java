@@ -0,0 +1,61 @@
+package dat.entities;
+
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Number of activity logs per customer, day (Europe/Copenhagen), type and status
+ * Maintained incrementally by ActivityAggregateService, never written by request code
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "activity_daily_aggregate")
+public class ActivityDailyAggregate {
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "event_count", nullable = false)
+    private long count;
+
+    public ActivityDailyAggregate(Long customerId, LocalDate day, ActivityLogType type, ActivityLogStatus status, long count) {
+        this.id = new Key(customerId, day, type, status);
+        this.count = count;
+    }
+
+    @Embeddable
+    @Getter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        @Column(name = "customer_id", nullable = false)
+        private Long customerId;
+
+        @Column(name = "activity_day", nullable = false)
+        private LocalDate day;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false)
+        private ActivityLogType type;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false)
+        private ActivityLogStatus status;
+
+        public Key(Long customerId, LocalDate day, ActivityLogType type, ActivityLogStatus status) {
+            this.customerId = customerId;
+            this.day = day;
+            this.type = type;
+            this.status = status;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import java.time.OffsetDateTime;
 import java.util.Map;
 
 @Entity
+@Table(indexes = @Index(name = "ix_activitylog_customer_feed", columnList = "customer_id, timestamp DESC, activity_log_id DESC"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,9 +28,9 @@ public class ActivityLog {
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
 
-    @ManyToOne(optional = false)
-    @JoinColumn(name = "session_id", nullable = false)
-    private Session session;
+    @ManyToOne
+    @JoinColumn(name = "session_id")
+    private Session session;  // null for system events (see ActivityLogSessionMigration)
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -14,6 +14,10 @@ import java.time.OffsetDateTime;
 @Getter
 @Setter
 @NoArgsConstructor
+@Table(indexes = {
+    // Revenue by date (AnalyticsDAO, and the payment_daily_summary rebuild)
+    @Index(name = "ix_payment_created_at", columnList = "created_at")
+})
 public class Payment {
     @Id
     @GeneratedValue
@@ -0,0 +1,60 @@
+package dat.entities;
+
+import dat.enums.Currency;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Completed payments per day (Europe/Copenhagen), plan and currency
+ * planId 0 = payments not tied to a subscription (e.g. SMS packages).
+ * Maintained incrementally by AnalyticsService, never written by request code
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "payment_daily_summary")
+public class PaymentDailySummary {
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "payment_count", nullable = false)
+    private long paymentCount;
+
+    @Column(name = "amount_cents", nullable = false)
+    private long amountCents;
+
+    public PaymentDailySummary(LocalDate day, Long planId, Currency currency, long paymentCount, long amountCents) {
+        this.id = new Key(day, planId, currency);
+        this.paymentCount = paymentCount;
+        this.amountCents = amountCents;
+    }
+
+    @Embeddable
+    @Getter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        @Column(name = "summary_day", nullable = false)
+        private LocalDate day;
+
+        @Column(name = "plan_id", nullable = false)
+        private Long planId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false)
+        private Currency currency;
+
+        public Key(LocalDate day, Long planId, Currency currency) {
+            this.day = day;
+            this.planId = planId;
+            this.currency = currency;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package dat.entities;
 
 import dat.utils.DateTimeUtil;
+import dat.utils.TokenDigest;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,7 @@ import lombok.Setter;
 import java.time.OffsetDateTime;
 
 @Entity
+@Table(indexes = @Index(name = "ux_session_token_hash", columnList = "token_hash", unique = true))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,8 +24,9 @@ public class Session {
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
 
-    @Column(nullable = false, unique = true)
-    private String token; // store JWT or a derived token
+    // SHA-256 of the JWT; the token itself is never persisted
+    @Column(name = "token_hash", nullable = false, length = 32)
+    private byte[] tokenHash;
 
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
@@ -48,7 +51,7 @@ public class Session {
                    String ip,
                    String customerAgent) {
         this.customer = customer;
-        this.token = token;
+        setToken(token);
         this.createdAt = DateTimeUtil.now();
         this.expiresAt = expiresAt;
         this.lastSeenAt = DateTimeUtil.now();
@@ -57,5 +60,11 @@ public class Session {
         this.active = true;
     }
 
-}
+    /**
+     * Set the session token; only its digest is stored
+     */
+    public void setToken(String token) {
+        this.tokenHash = TokenDigest.sha256(token);
+    }
 
+}
@@ -0,0 +1,41 @@
+package dat.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Alert state of one SMS balance threshold for one customer
+ *
+ * armed = false after the alert fired; the threshold re-arms only once the
+ * balance climbs back above threshold + hysteresis (see SmsBalanceAlertService),
+ * so a balance hovering around the threshold alerts once. Rows are created on
+ * the first alert; no row means armed. Written with native SQL by SmsAlertDAO.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "sms_alert_state",
+        uniqueConstraints = @UniqueConstraint(name = "ux_sms_alert_state_customer_threshold",
+                columnNames = {"external_customer_id", "threshold"}))
+public class SmsAlertState {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "external_customer_id", nullable = false)
+    private String externalCustomerId;
+
+    @Column(nullable = false)
+    private Integer threshold;
+
+    @Column(nullable = false)
+    private Boolean armed;
+
+    @Column(name = "last_triggered_at")
+    private OffsetDateTime lastTriggeredAt;
+}
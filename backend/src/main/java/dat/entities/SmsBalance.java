@@ -23,6 +23,9 @@ public class SmsBalance {
     @Column(name = "remaining_sms", nullable = false)
     private Integer remainingSms;
 
+    @Column(name = "alert_thresholds")
+    private String alertThresholds;  // e.g. "500,100,0"; null = SMS_ALERT_THRESHOLDS
+
     public SmsBalance(String externalCustomerId, Integer remainingSms) {
         this.externalCustomerId = externalCustomerId;
         this.remainingSms = remainingSms;
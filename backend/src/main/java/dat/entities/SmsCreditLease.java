@@ -0,0 +1,45 @@
+package dat.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * SMS credits reserved by one application node for one customer
+ *
+ * Credits are moved out of sms_balance into the lease when it is granted, so
+ * sms_balance.remaining_sms + SUM(reserved) is the customer's real balance and
+ * two nodes can never spend the same credit. reserved shrinks as the node
+ * settles usage; the rest goes back to sms_balance when the lease is released.
+ * If the node died, the lease is reclaimed once expires_at has passed and
+ * reserved moves into suspense (SmsCreditSuspense) until its usage is known.
+ * Written with native SQL by SmsCreditLeaseDAO.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "sms_credit_lease",
+        uniqueConstraints = @UniqueConstraint(name = "ux_sms_credit_lease_node_customer",
+                columnNames = {"node_id", "external_customer_id"}),
+        indexes = @Index(name = "ix_sms_credit_lease_customer", columnList = "external_customer_id"))
+public class SmsCreditLease {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(name = "external_customer_id", nullable = false)
+    private String externalCustomerId;
+
+    @Column(nullable = false)
+    private Integer reserved;
+
+    @Column(name = "expires_at", nullable = false)
+    private OffsetDateTime expiresAt;
+}
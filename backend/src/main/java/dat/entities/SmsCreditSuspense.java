@@ -0,0 +1,43 @@
+package dat.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Credits of a reclaimed SMS credit lease whose usage is not known yet
+ *
+ * The node that held the lease may have spent part of them after its last
+ * settlement, so they are neither in sms_balance nor in a lease (the ledger
+ * records them as a SUSPENSE entry). The row is resolved exactly once: by the
+ * node itself if it is still alive (used credits recorded, the rest returned),
+ * or by the next provider sync, which sets the balance to the provider's.
+ * Written with native SQL by SmsCreditLeaseDAO.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "sms_credit_suspense",
+        uniqueConstraints = @UniqueConstraint(name = "ux_sms_credit_suspense_lease", columnNames = "lease_id"),
+        indexes = @Index(name = "ix_sms_credit_suspense_customer", columnList = "external_customer_id"))
+public class SmsCreditSuspense {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "lease_id", nullable = false)
+    private Long leaseId;
+
+    @Column(name = "external_customer_id", nullable = false)
+    private String externalCustomerId;
+
+    @Column(nullable = false)
+    private Integer credits;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+}
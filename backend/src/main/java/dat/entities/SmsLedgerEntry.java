@@ -0,0 +1,61 @@
+package dat.entities;
+
+import dat.enums.SmsLedgerReason;
+import dat.utils.DateTimeUtil;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * One SMS credit movement (append-only, never updated or deleted)
+ *
+ * A customer's balance is their sms_credit_snapshot row plus the delta of every
+ * entry written by a transaction at or after the snapshot's horizon (txid is the
+ * writing transaction's id, set by the database). Most entries are appended by the
+ * same statement that changes sms_balance (SmsBalanceDAO, SmsCreditLeaseDAO), so
+ * the ledger and the counter cannot drift apart.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "sms_credit_ledger",
+        indexes = {
+                @Index(name = "ix_sms_credit_ledger_customer", columnList = "external_customer_id, id"),
+                @Index(name = "ix_sms_credit_ledger_customer_txid", columnList = "external_customer_id, txid")
+        })
+public class SmsLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "external_customer_id", nullable = false)
+    private String externalCustomerId;
+
+    @Column(nullable = false)
+    private Integer delta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SmsLedgerReason reason;
+
+    private String reference;  // paymentId, batchId, lease id, ...
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "txid", insertable = false, updatable = false,
+            columnDefinition = "xid8 NOT NULL DEFAULT pg_current_xact_id()")
+    private String txid;
+
+    public SmsLedgerEntry(String externalCustomerId, int delta, SmsLedgerReason reason, String reference) {
+        this.externalCustomerId = externalCustomerId;
+        this.delta = delta;
+        this.reason = reason;
+        this.reference = reference;
+        this.createdAt = DateTimeUtil.now();
+    }
+}
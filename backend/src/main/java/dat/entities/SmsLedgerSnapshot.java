@@ -0,0 +1,34 @@
+package dat.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A customer's ledger balance from every entry written by a transaction before horizon
+ * Rolled forward periodically by SmsLedgerService, so reading a balance only
+ * sums the entries appended since.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "sms_credit_snapshot")
+public class SmsLedgerSnapshot {
+    @Id
+    @Column(name = "external_customer_id")
+    private String externalCustomerId;
+
+    @Column(nullable = false)
+    private Long balance;
+
+    // Transaction id (xid8): every transaction below it had finished when the snapshot was taken
+    @Column(name = "horizon", nullable = false, columnDefinition = "xid8")
+    private String horizon;
+
+    @Column(name = "taken_at", nullable = false)
+    private OffsetDateTime takenAt;
+}
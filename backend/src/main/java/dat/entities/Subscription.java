@@ -13,6 +13,10 @@ import java.time.OffsetDateTime;
 @Getter
 @Setter
 @NoArgsConstructor
+@Table(indexes = {
+    // Due-for-billing range scans (SubscriptionDAO.getDueBefore / getBillingDatesBefore)
+    @Index(name = "ix_subscription_status_next_billing", columnList = "status, next_billing_date")
+})
 public class Subscription {
     
     @Id
@@ -0,0 +1,43 @@
+package dat.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Retry state of a subscription whose renewal payment failed
+ *
+ * One row per subscription in dunning, created by the first failed renewal and
+ * removed when a payment succeeds or the subscription ends. next_attempt_at is
+ * also pushed forward while a node is retrying, so other nodes skip the row.
+ * Written with native SQL by DunningDAO.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "subscription_dunning",
+        indexes = @Index(name = "ix_subscription_dunning_next_attempt", columnList = "next_attempt_at"))
+public class SubscriptionDunning {
+    @Id
+    @Column(name = "subscription_id")
+    private Long subscriptionId;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "first_failed_at", nullable = false)
+    private OffsetDateTime firstFailedAt;
+
+    @Column(name = "last_failed_at", nullable = false)
+    private OffsetDateTime lastFailedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
@@ -21,6 +21,7 @@ public enum ActivityLogType {
     
     // SMS
     SMS_SENT,
-    SMS_PURCHASE
+    SMS_PURCHASE,
+    SMS_LOW_BALANCE     // system event, no session
 }
 
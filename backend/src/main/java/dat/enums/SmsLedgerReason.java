@@ -0,0 +1,19 @@
+package dat.enums;
+
+public enum SmsLedgerReason {
+    // Balance when the ledger started (registration or existing balances)
+    OPENING,
+
+    // Credits in
+    PURCHASE,
+    REFUND,
+    SUSPENSE_RELEASE,   // suspense of a reclaimed lease resolved by its node (usage follows as USAGE)
+
+    // Credits out
+    DEBIT,
+    USAGE,      // settled from an SMS credit lease
+    SUSPENSE,   // reserved by a reclaimed lease, usage not known yet (SmsCreditSuspense)
+
+    // Correction to match the SMS provider
+    PROVIDER_SYNC
+}
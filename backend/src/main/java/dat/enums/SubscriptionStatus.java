@@ -5,5 +5,19 @@ public enum SubscriptionStatus {
     ACTIVE,
     PAST_DUE,
     CANCELED,
-    EXPIRED
+    EXPIRED;
+
+    /**
+     * Allowed lifecycle moves
+     * A failed renewal moves ACTIVE to PAST_DUE; a later payment brings it back to
+     * ACTIVE, running out of retries ends it as CANCELED. CANCELED and EXPIRED are final.
+     */
+    public boolean canTransitionTo(SubscriptionStatus next) {
+        return switch (this) {
+            case TRIALING -> next != TRIALING;
+            case ACTIVE -> next == PAST_DUE || next == CANCELED || next == EXPIRED;
+            case PAST_DUE -> next == ACTIVE || next == CANCELED || next == EXPIRED;
+            case CANCELED, EXPIRED -> false;
+        };
+    }
 }
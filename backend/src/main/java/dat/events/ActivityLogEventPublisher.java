@@ -0,0 +1,56 @@
+package dat.events;
+
+import dat.dtos.ActivityLogDTO;
+import dat.entities.ActivityLog;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Publishes every committed ActivityLog insert to the CustomerEventBus
+ *
+ * Hooked into Hibernate's post-commit insert events, so activity logged by any
+ * write path (async writer, payments, registration...) reaches live streams,
+ * and rolled-back activity never does.
+ */
+public class ActivityLogEventPublisher implements PostCommitInsertEventListener {
+
+    private final CustomerEventBus eventBus;
+
+    private ActivityLogEventPublisher(CustomerEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    public static void register(EntityManagerFactory emf) {
+        emf.unwrap(SessionFactoryImplementor.class)
+                .getEventListenerRegistry()
+                .appendListeners(EventType.POST_COMMIT_INSERT, new ActivityLogEventPublisher(CustomerEventBus.getInstance()));
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof ActivityLog activityLog && activityLog.getCustomer() != null) {
+            eventBus.publish(activityLog.getCustomer().getId(), CustomerEvent.ACTIVITY, new ActivityLogDTO(
+                    activityLog.getId(),
+                    activityLog.getCustomer().getId(),
+                    activityLog.getSession() != null ? activityLog.getSession().getId() : null,
+                    activityLog.getType(),
+                    activityLog.getStatus(),
+                    activityLog.getTimestamp(),
+                    activityLog.getMetadata()));
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Rolled back, nothing happened
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return ActivityLog.class.equals(persister.getMappedClass());
+    }
+}
@@ -0,0 +1,16 @@
+package dat.events;
+
+import java.time.Instant;
+
+/**
+ * Something that changed for a customer (activity logged, payment made, SMS balance changed)
+ *
+ * @param sequence Process-wide, increasing id (used as the SSE event id)
+ * @param type activity, payment or sms-balance
+ * @param payload Serialized as JSON to subscribers
+ */
+public record CustomerEvent(long sequence, long customerId, String type, Object payload, Instant at) {
+    public static final String ACTIVITY = "activity";
+    public static final String PAYMENT = "payment";
+    public static final String SMS_BALANCE = "sms-balance";
+}
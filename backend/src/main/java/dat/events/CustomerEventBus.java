@@ -0,0 +1,107 @@
+package dat.events;
+
+import dat.config.ConfigManager;
+import dat.utils.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process publish/subscribe of customer events
+ *
+ * Write paths publish after their transaction committed; SSE streams subscribe
+ * per customer. Each customer has its own subscriber registry, so publishing
+ * only touches that customer's subscribers and is a non-blocking offer to each
+ * bounded buffer (CUSTOMER_EVENTS_BUFFER_SIZE, default 64). A subscriber whose
+ * buffer is full is dropped (slow consumer) rather than slowing down the writer.
+ *
+ * At most CUSTOMER_EVENTS_MAX_STREAMS_PER_CUSTOMER (default 5) subscriptions per customer.
+ *
+ * @author NotionPay Team
+ */
+public class CustomerEventBus {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerEventBus.class);
+    private static CustomerEventBus instance;
+
+    private final ConcurrentHashMap<Long, Set<CustomerEventSubscription>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong subscriptionCount = new AtomicLong();
+
+    private CustomerEventBus() {
+        Metrics.gauge("events.subscribers", subscriptionCount::get);
+    }
+
+    public static synchronized CustomerEventBus getInstance() {
+        if (instance == null) {
+            instance = new CustomerEventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribe to a customer's events
+     * @return The subscription, or null if the customer already has the maximum number of streams
+     */
+    public CustomerEventSubscription subscribe(long customerId) {
+        int capacity = Math.max(1, ConfigManager.current().getInt("CUSTOMER_EVENTS_BUFFER_SIZE", 64));
+        int maxStreams = Math.max(1, ConfigManager.current().getInt("CUSTOMER_EVENTS_MAX_STREAMS_PER_CUSTOMER", 5));
+        CustomerEventSubscription subscription = new CustomerEventSubscription(customerId, capacity);
+
+        boolean[] added = new boolean[1];
+        subscribers.compute(customerId, (id, registry) -> {
+            Set<CustomerEventSubscription> set = registry != null ? registry : ConcurrentHashMap.newKeySet();
+            if (set.size() < maxStreams) {
+                added[0] = set.add(subscription);
+            }
+            return set.isEmpty() ? null : set;
+        });
+        if (!added[0]) {
+            Metrics.increment("events.rejected");
+            return null;
+        }
+        subscriptionCount.incrementAndGet();
+        return subscription;
+    }
+
+    public void unsubscribe(CustomerEventSubscription subscription) {
+        subscription.close();
+        subscribers.computeIfPresent(subscription.getCustomerId(), (id, registry) -> {
+            if (registry.remove(subscription)) {
+                subscriptionCount.decrementAndGet();
+            }
+            return registry.isEmpty() ? null : registry;
+        });
+    }
+
+    /**
+     * Deliver an event to the customer's subscribers (non-blocking)
+     */
+    public void publish(long customerId, String type, Object payload) {
+        Set<CustomerEventSubscription> registry = subscribers.get(customerId);
+        if (registry == null) {
+            return;
+        }
+        CustomerEvent event = new CustomerEvent(sequence.incrementAndGet(), customerId, type, payload, Instant.now());
+        for (CustomerEventSubscription subscription : registry) {
+            if (!subscription.offer(event) && subscription.isOverflowed()) {
+                Metrics.increment("events.slow_consumer_disconnects");
+                logger.warn("Dropping slow event subscriber for customer {}", customerId);
+                unsubscribe(subscription);
+            }
+        }
+        Metrics.increment("events.published");
+    }
+
+    /**
+     * Close every subscription (server shutdown)
+     */
+    public void closeAll() {
+        subscribers.values().forEach(registry -> registry.forEach(CustomerEventSubscription::close));
+        subscribers.clear();
+        subscriptionCount.set(0);
+    }
+}
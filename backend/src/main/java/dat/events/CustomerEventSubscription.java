@@ -0,0 +1,66 @@
+package dat.events;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One subscriber's bounded event buffer
+ *
+ * Publishers never block: when the buffer is full the subscription is marked
+ * as overflowed and closed, and the consumer disconnects the client, which
+ * is expected to reconnect and reload its state.
+ */
+public class CustomerEventSubscription {
+    private final long customerId;
+    private final BlockingQueue<CustomerEvent> buffer;
+    private volatile boolean overflowed;
+    private volatile boolean closed;
+
+    CustomerEventSubscription(long customerId, int capacity) {
+        this.customerId = customerId;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @return false if the subscriber is too slow (buffer full) or already closed
+     */
+    boolean offer(CustomerEvent event) {
+        if (closed) {
+            return false;
+        }
+        if (!buffer.offer(event)) {
+            overflowed = true;
+            closed = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wait up to the timeout for the next event
+     * @return The event, or null on timeout or when the subscription was closed
+     */
+    public CustomerEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (closed) {
+            return null;
+        }
+        return buffer.poll(timeout, unit);
+    }
+
+    public long getCustomerId() {
+        return customerId;
+    }
+
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+    }
+}
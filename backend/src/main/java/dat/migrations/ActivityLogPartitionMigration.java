@@ -0,0 +1,85 @@
+package dat.migrations;
+
+import dat.config.ConfigManager;
+import dat.config.HibernateConfig;
+import dat.services.ActivityLogPartitionService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Schema migration: convert activitylog to monthly range partitions on timestamp
+ *
+ * Opt-in via ACTIVITY_LOG_PARTITIONING_ENABLED=true. In one transaction the
+ * existing table is renamed, a partitioned table with the same columns is
+ * created (primary key becomes (activity_log_id, timestamp), as PostgreSQL
+ * requires the partition key in unique constraints), partitions are created
+ * from the oldest row's month up to a few months ahead plus a DEFAULT partition
+ * (activitylog_default) for rows outside those ranges, the rows are copied
+ * over and the old table is dropped. Does nothing once activitylog is partitioned.
+ *
+ * Expect a write pause proportional to the table size while rows are copied.
+ */
+public class ActivityLogPartitionMigration {
+
+    public static void migrate() {
+        if (!ConfigManager.current().getBoolean("ACTIVITY_LOG_PARTITIONING_ENABLED", false)) {
+            return;
+        }
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+
+            if (ActivityLogPartitionService.isPartitioned(em)) {
+                em.getTransaction().commit();
+                return;
+            }
+
+            em.createNativeQuery("ALTER TABLE activitylog RENAME TO activitylog_unpartitioned").executeUpdate();
+            em.createNativeQuery(
+                    "CREATE TABLE activitylog (LIKE activitylog_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS) " +
+                    "PARTITION BY RANGE (timestamp)").executeUpdate();
+            em.createNativeQuery("ALTER TABLE activitylog ADD PRIMARY KEY (activity_log_id, timestamp)").executeUpdate();
+            em.createNativeQuery(
+                    "ALTER TABLE activitylog ADD FOREIGN KEY (customer_id) REFERENCES customer (customer_id)").executeUpdate();
+            em.createNativeQuery(
+                    "ALTER TABLE activitylog ADD FOREIGN KEY (session_id) REFERENCES session (session_id)").executeUpdate();
+
+            // Partitions from the oldest existing row to a few months ahead
+            OffsetDateTime oldest = (OffsetDateTime) em.createNativeQuery(
+                    "SELECT MIN(timestamp) FROM activitylog_unpartitioned", OffsetDateTime.class)
+                    .getSingleResult();
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            YearMonth month = oldest == null ? current : YearMonth.from(oldest.withOffsetSameInstant(ZoneOffset.UTC));
+            int monthsAhead = Math.max(1, ConfigManager.current().getInt("ACTIVITY_LOG_PARTITIONS_AHEAD", 3));
+            int partitions = 0;
+            while (!month.isAfter(current.plusMonths(monthsAhead))) {
+                ActivityLogPartitionService.createMonthlyPartition(em, month);
+                month = month.plusMonths(1);
+                partitions++;
+            }
+            ActivityLogPartitionService.createDefaultPartition(em);
+
+            int copied = em.createNativeQuery(
+                    "INSERT INTO activitylog SELECT * FROM activitylog_unpartitioned").executeUpdate();
+            em.createNativeQuery("DROP TABLE activitylog_unpartitioned").executeUpdate();
+
+            em.getTransaction().commit();
+            System.out.println("Activity log partitioned by month: " + partitions + " partitions, " + copied + " rows copied");
+
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            System.err.println("Activity log partition migration failed: " + e.getMessage());
+            throw new RuntimeException("Activity log partition migration failed", e);
+        } finally {
+            em.close();
+        }
+    }
+}
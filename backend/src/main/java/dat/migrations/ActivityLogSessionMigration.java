@@ -0,0 +1,35 @@
+package dat.migrations;
+
+import dat.config.HibernateConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Schema migration: allow activity logs without a session
+ *
+ * System events (e.g. SMS_LOW_BALANCE) are not caused by a logged-in user.
+ * hbm2ddl=update never relaxes an existing NOT NULL, so it is dropped here.
+ * Safe to run on every startup.
+ */
+public class ActivityLogSessionMigration {
+
+    public static void migrate() {
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery("ALTER TABLE activitylog ALTER COLUMN session_id DROP NOT NULL").executeUpdate();
+            em.getTransaction().commit();
+
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            System.err.println("Activity log session migration failed: " + e.getMessage());
+            throw new RuntimeException("Activity log session migration failed", e);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package dat.migrations;
+
+import dat.config.HibernateConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Schema migration: GIN indexes on activitylog.metadata and receipt.metadata
+ *
+ * jsonb_path_ops indexes support containment (metadata @> '{"paymentId": 123}')
+ * and are smaller and faster than the default jsonb_ops, which we don't need
+ * (no key-existence operators are used). On a partitioned activitylog the
+ * index is created on every partition, including partitions created later.
+ * Safe to run on every startup.
+ */
+public class MetadataIndexMigration {
+
+    public static void migrate() {
+        migrate(HibernateConfig.getEntityManagerFactory());
+    }
+
+    public static void migrate(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery(
+                    "CREATE INDEX IF NOT EXISTS ix_activitylog_metadata_gin ON activitylog USING GIN (metadata jsonb_path_ops)")
+                    .executeUpdate();
+            em.createNativeQuery(
+                    "CREATE INDEX IF NOT EXISTS ix_receipt_metadata_gin ON receipt USING GIN (metadata jsonb_path_ops)")
+                    .executeUpdate();
+            em.getTransaction().commit();
+
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            System.err.println("Metadata index migration failed: " + e.getMessage());
+            throw new RuntimeException("Metadata index migration failed", e);
+        } finally {
+            em.close();
+        }
+    }
+}
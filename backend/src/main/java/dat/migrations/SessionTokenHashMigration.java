@@ -0,0 +1,53 @@
+package dat.migrations;
+
+import dat.config.HibernateConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Schema migration: session.token (full JWT) → session.token_hash (SHA-256, 32 bytes)
+ *
+ * Existing rows are backfilled in the database with sha256(token), then the
+ * plaintext column is dropped. Safe to run on every startup: each step is
+ * skipped once it has been applied.
+ */
+public class SessionTokenHashMigration {
+
+    public static void migrate() {
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+
+            em.createNativeQuery("ALTER TABLE session ADD COLUMN IF NOT EXISTS token_hash BYTEA").executeUpdate();
+
+            boolean hasPlaintextColumn = ((Number) em.createNativeQuery(
+                    "SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_schema = current_schema() AND table_name = 'session' AND column_name = 'token'")
+                    .getSingleResult()).intValue() > 0;
+
+            if (hasPlaintextColumn) {
+                int backfilled = em.createNativeQuery(
+                        "UPDATE session SET token_hash = sha256(convert_to(token, 'UTF8')) WHERE token_hash IS NULL")
+                        .executeUpdate();
+                em.createNativeQuery("ALTER TABLE session DROP COLUMN token").executeUpdate();
+                System.out.println("Session tokens migrated to SHA-256 digests (" + backfilled + " rows)");
+            }
+
+            em.createNativeQuery("ALTER TABLE session ALTER COLUMN token_hash SET NOT NULL").executeUpdate();
+            em.createNativeQuery("CREATE UNIQUE INDEX IF NOT EXISTS ux_session_token_hash ON session (token_hash)").executeUpdate();
+
+            em.getTransaction().commit();
+
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            System.err.println("Session token hash migration failed: " + e.getMessage());
+            throw new RuntimeException("Session token hash migration failed", e);
+        } finally {
+            em.close();
+        }
+    }
+}
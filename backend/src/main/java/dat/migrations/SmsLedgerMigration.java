@@ -0,0 +1,45 @@
+package dat.migrations;
+
+import dat.config.HibernateConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Data migration: open the SMS credit ledger for balances that predate it
+ *
+ * Every sms_balance without ledger entries gets one OPENING entry for its
+ * current credits (remaining_sms plus credits held in leases). New balances
+ * get their OPENING entry when they are created, so this only does work once.
+ */
+public class SmsLedgerMigration {
+
+    public static void migrate() {
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            int opened = em.createNativeQuery(
+                    "INSERT INTO sms_credit_ledger (external_customer_id, delta, reason, reference, created_at) " +
+                    "SELECT b.external_customer_id, b.remaining_sms + COALESCE((" +
+                    "  SELECT SUM(l.reserved) FROM sms_credit_lease l WHERE l.external_customer_id = b.external_customer_id), 0), " +
+                    "  'OPENING', 'migration', now() " +
+                    "FROM sms_balance b " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM sms_credit_ledger e WHERE e.external_customer_id = b.external_customer_id)")
+                    .executeUpdate();
+            em.getTransaction().commit();
+            if (opened > 0) {
+                System.out.println("SMS credit ledger opened for " + opened + " existing balances");
+            }
+
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            System.err.println("SMS ledger migration failed: " + e.getMessage());
+            throw new RuntimeException("SMS ledger migration failed", e);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dat.migrations;
+
+import dat.config.HibernateConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.List;
+
+/**
+ * Schema migration: at most one current (ACTIVE or PAST_DUE) subscription per customer
+ *
+ * Creates the partial unique index ux_subscription_active_customer on
+ * subscription (customer_id) WHERE status IN ('ACTIVE', 'PAST_DUE'). It also
+ * serves the dashboard lookup of a customer's current subscription. An older
+ * index covering ACTIVE only is replaced. If customers already have several
+ * current subscriptions the index is not created; they are listed so they can
+ * be cleaned up, and the migration runs again on the next startup.
+ * Safe to run on every startup.
+ */
+public class SubscriptionActiveIndexMigration {
+
+    public static void migrate() {
+        migrate(HibernateConfig.getEntityManagerFactory());
+    }
+
+    private static final String CURRENT_STATUSES = "status IN ('ACTIVE', 'PAST_DUE')";
+
+    public static void migrate(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            @SuppressWarnings("unchecked")
+            List<Object> duplicates = em.createNativeQuery(
+                    "SELECT customer_id FROM subscription WHERE " + CURRENT_STATUSES + " " +
+                    "GROUP BY customer_id HAVING COUNT(*) > 1 ORDER BY customer_id LIMIT 20")
+                    .getResultList();
+            if (!duplicates.isEmpty()) {
+                em.getTransaction().rollback();
+                System.err.println("Subscription active index skipped: customers with several ACTIVE/PAST_DUE subscriptions: "
+                        + duplicates);
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            List<Object> existing = em.createNativeQuery(
+                    "SELECT indexdef FROM pg_indexes " +
+                    "WHERE schemaname = current_schema() AND indexname = 'ux_subscription_active_customer'")
+                    .getResultList();
+            if (!existing.isEmpty() && !String.valueOf(existing.get(0)).contains("PAST_DUE")) {
+                // Created before PAST_DUE counted as current
+                em.createNativeQuery("DROP INDEX ux_subscription_active_customer").executeUpdate();
+                System.out.println("Subscription active index: replacing the ACTIVE-only index");
+            }
+            em.createNativeQuery(
+                    "CREATE UNIQUE INDEX IF NOT EXISTS ux_subscription_active_customer " +
+                    "ON subscription (customer_id) WHERE " + CURRENT_STATUSES)
+                    .executeUpdate();
+            em.getTransaction().commit();
+
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            System.err.println("Subscription active index migration failed: " + e.getMessage());
+            throw new RuntimeException("Subscription active index migration failed", e);
+        } finally {
+            em.close();
+        }
+    }
+}
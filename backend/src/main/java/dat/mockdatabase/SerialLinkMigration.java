@@ -93,9 +93,14 @@ public class SerialLinkMigration {
         
         try {
             em.getTransaction().begin();
+            em.createQuery("DELETE FROM SubscriptionDunning").executeUpdate();
+            em.createQuery("DELETE FROM PaymentDailySummary").executeUpdate();
             em.createQuery("DELETE FROM Subscription").executeUpdate();
             em.createQuery("DELETE FROM Customer").executeUpdate();
             em.createQuery("DELETE FROM SmsBalance").executeUpdate();
+            em.createQuery("DELETE FROM SmsCreditLease").executeUpdate();
+            em.createQuery("DELETE FROM SmsLedgerEntry").executeUpdate();
+            em.createQuery("DELETE FROM SmsLedgerSnapshot").executeUpdate();
             em.createQuery("DELETE FROM SerialLink").executeUpdate();
             em.createQuery("DELETE FROM Plan").executeUpdate();
             em.createQuery("DELETE FROM Product").executeUpdate();
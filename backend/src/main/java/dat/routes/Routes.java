@@ -19,6 +19,9 @@ public class Routes {
     private static final PaymentController paymentController = new PaymentController(emf);
     private static final ReceiptController receiptController = new ReceiptController(emf);
     private static final ActivityLogController activityLogController = new ActivityLogController(emf);
+    private static final AdminController adminController = new AdminController(emf);
+    private static final CustomerEventController customerEventController = new CustomerEventController();
+    private static final SmsController smsController = new SmsController(emf);
 
     public EndpointGroup getRoutes() {
         return () -> {
@@ -27,10 +30,18 @@ public class Routes {
                 get("/", customerController::readAll, Role.USER);     // Get all customers
                 get("/{id}", customerController::read, Role.USER);    // Get one customer
                 get("/{id}/sms-balance", customerController::getSmsBalance, Role.USER);  // Get SMS balance
+                post("/{id}/sms/debit", smsController::debit, Role.USER);  // Atomically debit SMS credits
+                post("/{id}/sms/send-batch", smsController::sendBatch, Role.USER);  // Bulk SMS send (NDJSON results)
+                get("/{id}/sms/ledger", smsController::getLedger, Role.USER);  // SMS credit movements and ledger balance
+                put("/{id}/sms/alert-thresholds", smsController::setAlertThresholds, Role.USER);  // Low SMS balance alert levels
+                get("/{id}/activities/summary", activityLogController::getActivitySummary, Role.USER);  // Activity counts per day/month
+                sse("/{id}/events", customerEventController::stream, Role.USER);  // Live activity/payment/SMS balance events (SSE)
                 get("/{customerId}/subscription", subscriptionController::getCustomerSubscription, Role.USER);  // Get customer's subscription
                 get("/{customerId}/receipts", receiptController::getCustomerReceipts, Role.USER);  // Get customer's receipts
                 get("/{customerId}/payment-methods", paymentController::getCustomerPaymentMethods, Role.USER);  // Get customer's payment methods
                 get("/{customerId}/activities", activityLogController::getCustomerActivities, Role.USER);  // Get customer's activities
+                get("/{customerId}/activities/feed", activityLogController::getActivityFeed, Role.USER);  // Paginated, filtered activity feed
+                get("/{customerId}/activities/archive", activityLogController::getArchivedActivities, Role.USER);  // Archived (cold) activities
                 put("/{id}", customerController::update, Role.USER);  // Update customer
                 delete("/{id}", customerController::delete, Role.ADMIN); // Delete customer
             });
@@ -64,6 +75,21 @@ public class Routes {
                 get("/{id}", receiptController::read, Role.USER);  // Get receipt by ID
                 get("/number/{receiptNumber}", receiptController::getByReceiptNumber, Role.USER);  // Get receipt by number
             });
+
+            path("/admin", () -> {
+                get("/metrics", adminController::getMetrics, Role.ADMIN);  // Runtime metrics (pools, queues, timings)
+                post("/customers/onboard", adminController::onboardCustomers, Role.ADMIN);  // Bulk onboarding of serial-linked customers
+                post("/activity-aggregates/rebuild", adminController::rebuildActivityAggregates, Role.ADMIN);  // Recompute activity aggregates
+                post("/activities/search", adminController::searchActivityLogs, Role.ADMIN);  // Activity logs by metadata containment
+                post("/receipts/search", adminController::searchReceipts, Role.ADMIN);  // Receipts by metadata containment
+                get("/sms/{customerId}/reconcile", adminController::reconcileSmsCredits, Role.ADMIN);  // SMS ledger vs balance counter
+                post("/sms/{customerId}/provider-sync", adminController::syncSmsCreditsWithProvider, Role.ADMIN);  // Align SMS credits with provider
+                get("/billing/forecast", adminController::getBillingForecast, Role.ADMIN);  // Subscriptions due per day
+                get("/analytics/mrr", adminController::getMrr, Role.ADMIN);  // MRR/ARR per plan and currency
+                get("/analytics/forecast", adminController::getRevenueForecast, Role.ADMIN);  // Expected renewals (default 90 days)
+                get("/analytics/revenue", adminController::getRevenue, Role.ADMIN);  // Collected revenue per period
+                post("/analytics/payment-summary/rebuild", adminController::rebuildPaymentSummary, Role.ADMIN);  // Recompute payment_daily_summary
+            });
         };
     }
 
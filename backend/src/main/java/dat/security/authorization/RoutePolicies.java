@@ -0,0 +1,88 @@
+package dat.security.authorization;
+
+import dat.security.enums.Role;
+import io.javalin.security.RouteRole;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Route role requirements compiled to bitmasks
+ *
+ * Every route's role set is compiled when the route is registered (see
+ * ApplicationConfig, handlerAdded event). At request time the role set Javalin
+ * hands back for the matched endpoint is resolved by identity, so authorization
+ * is a map lookup plus one bitwise AND with no allocation. A role set instance
+ * that was not seen at build time falls back to a lock-free lookup by value
+ * (compiled once if new); only remembering new instances takes a lock, and at
+ * most MAX_IDENTITIES times.
+ */
+public final class RoutePolicies {
+
+    /** Mask meaning "no authentication required" (no roles, or ANYONE) */
+    public static final int OPEN = 0;
+
+    private static final int MAX_IDENTITIES = 1024;
+    private static final ConcurrentHashMap<Set<RouteRole>, Integer> compiledByValue = new ConcurrentHashMap<>();
+    private static final ReentrantLock publishLock = new ReentrantLock();
+    private static volatile Map<Set<RouteRole>, Integer> compiledByIdentity = new IdentityHashMap<>();
+
+    private RoutePolicies() { }
+
+    /**
+     * Compile the role requirement of a route at router build time
+     */
+    public static void register(Set<RouteRole> routeRoles) {
+        int mask = compile(routeRoles);
+        compiledByValue.put(Set.copyOf(routeRoles), mask);
+        publish(routeRoles, mask);
+    }
+
+    /**
+     * Required role mask for the matched route ({@link #OPEN} if anyone may access it)
+     */
+    public static int requiredMask(Set<RouteRole> routeRoles) {
+        Integer mask = compiledByIdentity.get(routeRoles);
+        if (mask != null) {
+            return mask;
+        }
+        return resolveByValue(routeRoles);
+    }
+
+    private static int resolveByValue(Set<RouteRole> routeRoles) {
+        Integer mask = compiledByValue.get(routeRoles);
+        if (mask == null) {
+            mask = compile(routeRoles);
+            compiledByValue.putIfAbsent(Set.copyOf(routeRoles), mask);
+        }
+        // Remember this instance only for a bounded number of endpoints
+        if (compiledByIdentity.size() < MAX_IDENTITIES) {
+            publish(routeRoles, mask);
+        }
+        return mask;
+    }
+
+    private static void publish(Set<RouteRole> routeRoles, int mask) {
+        publishLock.lock();
+        try {
+            if (compiledByIdentity.containsKey(routeRoles) || compiledByIdentity.size() >= MAX_IDENTITIES) {
+                return;
+            }
+            Map<Set<RouteRole>, Integer> copy = new IdentityHashMap<>(compiledByIdentity);
+            copy.put(routeRoles, mask);
+            compiledByIdentity = copy;
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private static int compile(Set<RouteRole> routeRoles) {
+        if (routeRoles.isEmpty() || routeRoles.contains(Role.ANYONE)) {
+            return OPEN;
+        }
+        return Role.mask(routeRoles);
+    }
+}
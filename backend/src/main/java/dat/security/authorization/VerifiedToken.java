@@ -0,0 +1,13 @@
+package dat.security.authorization;
+
+import dat.security.dtos.UserDTO;
+
+/**
+ * Result of verifying a JWT once: the user, its roles as a bitmask and when the token expires
+ */
+public record VerifiedToken(UserDTO user, int roleMask, long expiresAtMillis) {
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,74 @@
+package dat.security.authorization;
+
+import dat.utils.Metrics;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of verified JWTs, so the HMAC check and claim parsing run once per token
+ * instead of once per request. Entries expire with the token itself and are
+ * invalidated on logout. The map is bounded: when it is full, expired entries
+ * are purged and, if that is not enough, the cache is cleared (tokens are simply
+ * verified again on the next request).
+ *
+ * Entries belong to the secret key they were verified with. Looking up or adding
+ * a token under another key (SECRET_KEY rotated by a config reload) starts an
+ * empty cache, so a token signed with the old key is verified again, and fails,
+ * on its next request.
+ */
+public class VerifiedTokenCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private record Generation(String secretKey, ConcurrentHashMap<String, VerifiedToken> entries) { }
+
+    private volatile Generation generation = new Generation(null, new ConcurrentHashMap<>());
+
+    public VerifiedTokenCache() {
+        Metrics.gauge("auth.token.cache.size", () -> generation.entries().size());
+    }
+
+    /**
+     * Cached verification for a token under the given secret key, or null if absent or expired
+     */
+    public VerifiedToken get(String secretKey, String token) {
+        Generation current = generation;
+        if (!Objects.equals(current.secretKey(), secretKey)) {
+            return null;
+        }
+        VerifiedToken verified = current.entries().get(token);
+        if (verified == null) {
+            return null;
+        }
+        if (verified.isExpired(System.currentTimeMillis())) {
+            current.entries().remove(token, verified);
+            return null;
+        }
+        return verified;
+    }
+
+    /**
+     * Remember a token verified with the given secret key
+     */
+    public void put(String secretKey, String token, VerifiedToken verified) {
+        Generation current = generation;
+        if (!Objects.equals(current.secretKey(), secretKey)) {
+            current = new Generation(secretKey, new ConcurrentHashMap<>());
+            generation = current;
+        }
+        ConcurrentHashMap<String, VerifiedToken> entries = current.entries();
+        if (entries.size() >= MAX_ENTRIES) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.isExpired(now));
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+        }
+        entries.put(token, verified);
+    }
+
+    public void invalidate(String token) {
+        generation.entries().remove(token);
+    }
+}
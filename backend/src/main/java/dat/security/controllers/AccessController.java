@@ -1,12 +1,10 @@
 package dat.security.controllers;
 
-import dat.security.dtos.UserDTO;
-import dat.security.enums.Role;
+import dat.security.authorization.RoutePolicies;
+import dat.security.authorization.VerifiedToken;
 import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
 import io.javalin.http.UnauthorizedResponse;
-import io.javalin.security.RouteRole;
-
-import java.util.Set;
 
 /**
  * Purpose: To handle security in the API at the route level
@@ -19,29 +17,36 @@ public class AccessController implements IAccessController {
 
     /**
      * This method checks if the user has the necessary roles to access the route.
+     * Route roles are compiled to a bitmask once (RoutePolicies) and the user's roles
+     * come as a bitmask from the verified token cache, so the check is a single AND.
      * @param ctx
      */
     public void accessHandler(Context ctx) {
 
         // If no roles are specified on the endpoint, then anyone can access the route
-        if (ctx.routeRoles().isEmpty() || ctx.routeRoles().contains(Role.ANYONE)){
+        int requiredMask = RoutePolicies.requiredMask(ctx.routeRoles());
+        if (requiredMask == RoutePolicies.OPEN) {
            return;
         }
 
+        // This is a preflight request => OK
+        if (ctx.method() == HandlerType.OPTIONS) {
+            return;
+        }
+
         // Check if the user is authenticated
+        VerifiedToken verified;
         try {
-            securityController.authenticate().handle(ctx);
+            verified = securityController.authenticateRequest(ctx);
         } catch (UnauthorizedResponse e) {
-            throw new UnauthorizedResponse(e.getMessage());
+            throw e;
         } catch (Exception e) {
             throw new UnauthorizedResponse("You need to log in, dude! Or you token is invalid.");
         }
 
         // Check if the user has the necessary roles to access the route
-        UserDTO user = ctx.attribute("user");
-        Set<RouteRole> allowedRoles = ctx.routeRoles(); // roles allowed for the current route
-        if (!securityController.authorize(user, allowedRoles)) {
-            throw new UnauthorizedResponse("Unauthorized with roles: " + user.getRoles() + ". Needed roles are: " + allowedRoles);
+        if ((verified.roleMask() & requiredMask) == 0) {
+            throw new UnauthorizedResponse("Unauthorized with roles: " + verified.user().getRoles() + ". Needed roles are: " + ctx.routeRoles());
         }
     }
 }
@@ -10,25 +10,31 @@ import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
 import dat.config.HibernateConfig;
 import dat.daos.impl.*;
 import dat.dtos.RegisterRequest;
 import dat.entities.*;
 import dat.enums.ActivityLogStatus;
 import dat.enums.ActivityLogType;
-import dat.enums.AnchorPolicy;
-import dat.enums.SubscriptionStatus;
 import dat.security.daos.ISecurityDAO;
+import dat.security.authorization.RoutePolicies;
+import dat.security.authorization.VerifiedToken;
+import dat.security.authorization.VerifiedTokenCache;
 import dat.security.daos.SecurityDAO;
 import dat.security.dtos.UserDTO;
-import dat.security.entities.User;
+import dat.security.enums.Role;
 import dat.security.exceptions.ApiException;
 import dat.security.exceptions.ValidationException;
-import dat.services.SerialLinkVerificationService;
+import dat.services.ActivityLogWriter;
+import dat.services.RegistrationService;
+import dat.services.SessionActivityTracker;
 import dat.utils.DateTimeUtil;
-import dat.utils.Utils;
 import dat.utils.ValidationUtil;
+import io.javalin.http.Context;
 import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
 import io.javalin.http.HttpStatus;
 import io.javalin.http.UnauthorizedResponse;
 import io.javalin.security.RouteRole;
@@ -55,12 +61,20 @@ public class SecurityController implements ISecurityController {
     private static SecurityController instance;
     private static Logger logger = LoggerFactory.getLogger(SecurityController.class);
     
-    private SerialLinkVerificationService serialLinkService;
+    private RegistrationService registrationService;
     private SessionDAO sessionDAO;
     private CustomerDAO customerDAO;
-    private ActivityLogDAO activityLogDAO;
-    private SubscriptionDAO subscriptionDAO;
-    private SmsBalanceDAO smsBalanceDAO;
+    private ActivityLogWriter activityLogWriter;
+    private SessionActivityTracker sessionActivityTracker;
+    private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache();
+    private final Handler authenticateHandler = ctx -> {
+        // This is a preflight request => OK
+        if (ctx.method() == HandlerType.OPTIONS) {
+            ctx.status(200);
+            return;
+        }
+        authenticateRequest(ctx);
+    };
 
     private SecurityController() { }
 
@@ -69,12 +83,11 @@ public class SecurityController implements ISecurityController {
             instance = new SecurityController();
         }
         securityDAO = new SecurityDAO(HibernateConfig.getEntityManagerFactory());
-        instance.serialLinkService = SerialLinkVerificationService.getInstance(HibernateConfig.getEntityManagerFactory());
+        instance.registrationService = RegistrationService.getInstance(HibernateConfig.getEntityManagerFactory());
         instance.sessionDAO = SessionDAO.getInstance(HibernateConfig.getEntityManagerFactory());
         instance.customerDAO = CustomerDAO.getInstance(HibernateConfig.getEntityManagerFactory());
-        instance.activityLogDAO = ActivityLogDAO.getInstance(HibernateConfig.getEntityManagerFactory());
-        instance.subscriptionDAO = SubscriptionDAO.getInstance(HibernateConfig.getEntityManagerFactory());
-        instance.smsBalanceDAO = SmsBalanceDAO.getInstance(HibernateConfig.getEntityManagerFactory());
+        instance.activityLogWriter = ActivityLogWriter.getInstance(HibernateConfig.getEntityManagerFactory());
+        instance.sessionActivityTracker = SessionActivityTracker.getInstance(HibernateConfig.getEntityManagerFactory());
         return instance;
     }
 
@@ -112,7 +125,7 @@ public class SecurityController implements ISecurityController {
                         ActivityLogStatus.SUCCESS,
                         metadata
                 );
-                activityLogDAO.create(activityLog);
+                activityLogWriter.submit(activityLog);
                 ctx.status(200).json(returnObject
                         .put("token", token)
                         .put("email", verifiedUser.getEmail())
@@ -150,88 +163,35 @@ public class SecurityController implements ISecurityController {
                     return;
                 }
 
-                // Verify serial number and email match
-                boolean isValid = serialLinkService.verifySerialNumberAndEmail(registerRequest.serialNumber,registerRequest.email);
-                if (!isValid) {
-                    ctx.status(HttpStatus.FORBIDDEN);
-                    ctx.json(returnObject.put("msg", "Serial number and email do not match"));
-                    logger.warn("Registration failed: Invalid serial number {}", registerRequest.serialNumber);
-                    return;
-                }
-                
-                SerialLink serialLink = serialLinkService.getSerialLink(registerRequest.serialNumber);
-
-                // Create User
-                User user = securityDAO.createUser(registerRequest.email, registerRequest.password);
-                logger.info("User created: {}", user.getEmail());
-                
-                // Create Customer (with external_customer_id from SerialLink)
-                Customer customer = customerDAO.createCustomer(
-                    user, 
-                    registerRequest.companyName, 
-                    registerRequest.serialNumber
-                );
-                logger.info("Customer created: {} with ID: {}", customer.getCompanyName(), customer.getId());
-                
-                // Get Plan for subscription
-                Plan plan = serialLinkService.getPlanForSerialNumber(registerRequest.serialNumber);
-                
-                // Create Subscription with ACTIVE status (customer already subscribed in external system)
-                Subscription subscription = new Subscription(
-                    customer,
-                    plan,
-                    SubscriptionStatus.ACTIVE,
-                    DateTimeUtil.now(),
-                    serialLink.getNextPaymentDate(),
-                    AnchorPolicy.ANNIVERSARY
-                );
-                subscriptionDAO.create(subscription);
-                logger.info("Subscription created: {} for {} with next payment on {}", 
-                    plan.getName(), customer.getCompanyName(), serialLink.getNextPaymentDate());
-                
-                // Create SmsBalance linked via external_customer_id
-                SmsBalance smsBalance = new SmsBalance(
-                    customer.getExternalCustomerId(), 
-                    serialLink.getInitialSmsBalance()
-                );
-                smsBalanceDAO.create(smsBalance);
-                logger.info("SMS Balance created: {} credits for external ID: {}", 
-                    serialLink.getInitialSmsBalance(), customer.getExternalCustomerId());
-                
-                // Create JWT token
-                String token = createToken(new UserDTO(user.getEmail(), Set.of("USER")));
-                
-                // Create Session for activity logging
-                java.time.OffsetDateTime expiresAt = DateTimeUtil.nowPlusHours(24);
-                String ip = ctx.ip();
+                // Create JWT token (needed for the session, no DB access)
+                String token = createToken(new UserDTO(registerRequest.email, Set.of("USER")));
                 String userAgent = ctx.header("User-Agent");
                 if (userAgent == null) {
                     userAgent = "unknown";
                 }
-                Session session = new Session(customer, token, expiresAt, ip, userAgent);
-                sessionDAO.create(session);
-                
-                // Log subscription creation activity
-                Map<String, Object> subscriptionMetadata = new HashMap<>();
-                subscriptionMetadata.put("subscriptionId", subscription.getId());
-                subscriptionMetadata.put("planId", plan.getId());
-                subscriptionMetadata.put("planName", plan.getName());
-                subscriptionMetadata.put("startDate", subscription.getStartDate().toString());
-                subscriptionMetadata.put("nextBillingDate", subscription.getNextBillingDate().toString());
-                
-                ActivityLog subscriptionLog = new ActivityLog(
-                    customer,
-                    session,
-                    ActivityLogType.SUBSCRIPTION_CREATED,
-                    ActivityLogStatus.SUCCESS,
-                    subscriptionMetadata
-                );
-                activityLogDAO.create(subscriptionLog);
-                
+
+                // User, Customer, Subscription, SmsBalance, Session and ActivityLog in one transaction
+                RegistrationService.RegistrationResult result;
+                try {
+                    result = registrationService.register(
+                            registerRequest, token, DateTimeUtil.nowPlusHours(24), ctx.ip(), userAgent);
+                } catch (RegistrationService.RegistrationException e) {
+                    ctx.status(HttpStatus.FORBIDDEN);
+                    ctx.json(returnObject.put("msg", e.getMessage()));
+                    logger.warn("Registration failed: Invalid serial number {}", registerRequest.serialNumber);
+                    return;
+                }
+                Customer customer = result.customer();
+                Subscription subscription = result.subscription();
+                Plan plan = result.plan();
+                SerialLink serialLink = result.serialLink();
+                logger.info("Customer registered: {} with ID: {}, subscription {} next payment on {}",
+                    customer.getCompanyName(), customer.getId(), plan.getName(), serialLink.getNextPaymentDate());
+
                 // Return success response
                 ctx.status(HttpStatus.CREATED).json(objectMapper.createObjectNode()
                         .put("token", token)
-                        .put("email", user.getEmail())
+                        .put("email", registerRequest.email)
                         .put("customerId", customer.getId())
                         .put("subscriptionId", subscription.getId())
                         .put("planId", plan.getId())
@@ -243,6 +203,8 @@ public class SecurityController implements ISecurityController {
                 ctx.status(HttpStatus.UNPROCESSABLE_CONTENT);
                 ctx.json(returnObject.put("msg", "User with this email already exists"));
                 logger.warn("Registration failed: User already exists");
+            } catch (ApiException e) {
+                throw e; // e.g. 503 when the password hashing pool is saturated
             } catch (Exception e) {
                 ctx.status(HttpStatus.INTERNAL_SERVER_ERROR);
                 ctx.json(returnObject.put("msg", "Registration failed: " + e.getMessage()));
@@ -253,31 +215,58 @@ public class SecurityController implements ISecurityController {
 
     @Override
     public Handler authenticate() throws UnauthorizedResponse {
-        return (ctx) -> {
-            // This is a preflight request => OK
-            if (ctx.method().toString().equals("OPTIONS")) {
-                ctx.status(200);
-                return;
-            }
-            String header = ctx.header("Authorization");
-            if (header == null) {
-                throw new UnauthorizedResponse("Authorization header missing");
-            }
+        return authenticateHandler;
+    }
 
-            String[] headerParts = header.split(" ");
-            if (headerParts.length != 2) {
-                throw new UnauthorizedResponse("Authorization header malformed");
-            }
+    /**
+     * Verify the bearer token of a request and attach the user to the context
+     * Verified tokens are cached until they expire, so the signature check and
+     * claim parsing run once per token rather than on every request.
+     * @return The verified token (user and role mask)
+     */
+    public VerifiedToken authenticateRequest(Context ctx) {
+        String header = ctx.header("Authorization");
+        if (header == null) {
+            throw new UnauthorizedResponse("Authorization header missing");
+        }
+
+        int separator = header.indexOf(' ');
+        if (separator < 0 || header.indexOf(' ', separator + 1) >= 0) {
+            throw new UnauthorizedResponse("Authorization header malformed");
+        }
+        String token = header.substring(separator + 1);
 
-            String token = headerParts[1];
-            UserDTO verifiedTokenUser = verifyToken(token);
+        // One read of the secret for lookup, verification and caching, so a rotated key never mixes in
+        String secretKey = ConfigManager.current().getSecretKey();
+        VerifiedToken verified = verifiedTokenCache.get(secretKey, token);
+        if (verified == null) {
+            verified = verifyAndCache(secretKey, token);
+        }
+        ctx.attribute("user", verified.user());
+        sessionActivityTracker.touch(token);
+        return verified;
+    }
 
-            if (verifiedTokenUser == null) {
-                throw new UnauthorizedResponse("Invalid User or Token");
-            }
-            logger.info("User verified: " + verifiedTokenUser);
-            ctx.attribute("user", verifiedTokenUser);
-        };
+    private VerifiedToken verifyAndCache(String secretKey, String token) {
+        UserDTO verifiedTokenUser = verifyToken(token, secretKey);
+        if (verifiedTokenUser == null) {
+            throw new UnauthorizedResponse("Invalid User or Token");
+        }
+        logger.debug("User verified: {}", verifiedTokenUser);
+        VerifiedToken verified = new VerifiedToken(
+                verifiedTokenUser,
+                Role.maskOfNames(verifiedTokenUser.getRoles()),
+                tokenExpiresAtMillis(token));
+        verifiedTokenCache.put(secretKey, token, verified);
+        return verified;
+    }
+
+    private long tokenExpiresAtMillis(String token) {
+        try {
+            return SignedJWT.parse(token).getJWTClaimsSet().getExpirationTime().getTime();
+        } catch (ParseException e) {
+            return System.currentTimeMillis();
+        }
     }
 
     @Override
@@ -286,39 +275,21 @@ public class SecurityController implements ISecurityController {
         if (user == null) {
             throw new UnauthorizedResponse("You need to log in, dude!");
         }
-        Set<String> roleNames = allowedRoles.stream()
-                   .map(RouteRole::toString)  // Convert RouteRoles to  Set of Strings
-                   .collect(Collectors.toSet());
-        return user.getRoles().stream()
-                   .map(String::toUpperCase)
-                   .anyMatch(roleNames::contains);
-        }
+        return (Role.maskOfNames(user.getRoles()) & RoutePolicies.requiredMask(allowedRoles)) != 0;
+    }
 
     @Override
     public String createToken(UserDTO user) {
         try {
-            String ISSUER;
-            String TOKEN_EXPIRE_TIME;
-            String SECRET_KEY;
-
-            if (System.getenv("DEPLOYED") != null) {
-                ISSUER = System.getenv("ISSUER");
-                TOKEN_EXPIRE_TIME = System.getenv("TOKEN_EXPIRE_TIME");
-                SECRET_KEY = System.getenv("SECRET_KEY");
-            } else {
-                ISSUER = Utils.getPropertyValue("ISSUER", "config.properties");
-                TOKEN_EXPIRE_TIME = Utils.getPropertyValue("TOKEN_EXPIRE_TIME", "config.properties");
-                SECRET_KEY = Utils.getPropertyValue("SECRET_KEY", "config.properties");
-            }
-            
-            JWSSigner signer = new MACSigner(SECRET_KEY);
+            ConfigSnapshot config = ConfigManager.current();
+            JWSSigner signer = new MACSigner(config.getSecretKey());
             
             JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
                     .subject(user.getEmail())
-                    .issuer(ISSUER)
+                    .issuer(config.getIssuer())
                     .claim("email", user.getEmail())
                     .claim("roles", String.join(",", user.getRoles()))
-                    .expirationTime(new Date(new Date().getTime() + Long.parseLong(TOKEN_EXPIRE_TIME)))
+                    .expirationTime(new Date(new Date().getTime() + config.getTokenExpireTimeMillis()))
                     .build();
             
             SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claimsSet);
@@ -333,9 +304,10 @@ public class SecurityController implements ISecurityController {
 
     @Override
     public UserDTO verifyToken(String token) {
-        boolean IS_DEPLOYED = (System.getenv("DEPLOYED") != null);
-        String SECRET = IS_DEPLOYED ? System.getenv("SECRET_KEY") : Utils.getPropertyValue("SECRET_KEY", "config.properties");
+        return verifyToken(token, ConfigManager.current().getSecretKey());
+    }
 
+    private UserDTO verifyToken(String token, String SECRET) {
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
             
@@ -491,6 +463,7 @@ public class SecurityController implements ISecurityController {
                 }
 
                 String token = header.substring(7);
+                verifiedTokenCache.invalidate(token);
 
                 // Find session by token
                 Optional<Session> sessionOpt = sessionDAO.findByToken(token);
@@ -514,7 +487,7 @@ public class SecurityController implements ISecurityController {
                         ActivityLogStatus.SUCCESS,
                         Map.of("ip", ctx.ip())
                 );
-                activityLogDAO.create(activityLog);
+                activityLogWriter.submit(activityLog);
 
                 ctx.status(200).json(returnObject.put("msg", "Logged out successfully"));
 
@@ -6,10 +6,14 @@ import dat.security.entities.Role;
 import dat.security.entities.User;
 import dat.security.exceptions.ApiException;
 import dat.security.exceptions.ValidationException;
+import dat.security.services.PasswordHashingService;
+import dat.utils.Metrics;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.stream.Collectors;
 
@@ -20,8 +24,10 @@ import java.util.stream.Collectors;
  */
 public class SecurityDAO implements ISecurityDAO {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityDAO.class);
     private static ISecurityDAO instance;
     private static EntityManagerFactory emf;
+    private final PasswordHashingService passwordHashingService = PasswordHashingService.getInstance();
 
     public SecurityDAO(EntityManagerFactory _emf) {
         emf = _emf;
@@ -38,27 +44,43 @@ public class SecurityDAO implements ISecurityDAO {
             if (user == null)
                 throw new EntityNotFoundException("No user found with email: " + email); //RuntimeException
             user.getRoles().size(); // force roles to be fetched from db
-            System.out.println("DEBUG LOGIN: Email: " + email);
-            System.out.println("DEBUG LOGIN: Provided password: " + password);
-            System.out.println("DEBUG LOGIN: Stored password hash length: " + user.getPassword().length());
-            System.out.println("DEBUG LOGIN: Stored password starts with $2a: " + user.getPassword().startsWith("$2a"));
-            System.out.println("DEBUG LOGIN: First 10 chars of hash: " + user.getPassword().substring(0, Math.min(10, user.getPassword().length())));
-            if (!user.verifyPassword(password))
+            if (!passwordHashingService.verify(password, user.getPassword()))
                 throw new ValidationException("Wrong password");
+            upgradePasswordHashIfNeeded(em, user, password);
             return new UserDTO(user.getEmail(), user.getRoles().stream().map(r -> r.getRoleName()).collect(Collectors.toSet()));
         }
     }
 
+    /**
+     * Rehash the password when it was stored with a lower cost than configured
+     * A failure here never fails the login; the upgrade is retried next time
+     */
+    private void upgradePasswordHashIfNeeded(EntityManager em, User user, String password) {
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            String upgradedHash = passwordHashingService.hash(password);
+            em.getTransaction().begin();
+            user.updatePasswordHash(upgradedHash);
+            em.getTransaction().commit();
+            Metrics.increment("bcrypt.rehash");
+            logger.info("Upgraded password hash cost for user {}", user.getEmail());
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            logger.warn("Could not upgrade password hash for user {}: {}", user.getEmail(), e.getMessage());
+        }
+    }
+
     @Override
     public User createUser(String email, String password) {
         try (EntityManager em = getEntityManager()) {
             User userEntity = em.find(User.class, email);
             if (userEntity != null)
                 throw new EntityExistsException("User with email: " + email + " already exists");
-            userEntity = new User(email, password);
-            System.out.println("DEBUG: Creating user with email: " + email);
-            System.out.println("DEBUG: Password length before persist: " + userEntity.getPassword().length());
-            System.out.println("DEBUG: Password starts with $2a (BCrypt): " + userEntity.getPassword().startsWith("$2a"));
+            userEntity = User.withPasswordHash(email, passwordHashingService.hash(password));
             em.getTransaction().begin();
             Role userRole = em.find(Role.class, "user");
             if (userRole == null)
@@ -67,9 +89,10 @@ public class SecurityDAO implements ISecurityDAO {
             userEntity.addRole(userRole);
             em.persist(userEntity);
             em.getTransaction().commit();
-            System.out.println("DEBUG: User persisted successfully");
             return userEntity;
-        }catch (Exception e){
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e){
             e.printStackTrace();
             throw new ApiException(400, e.getMessage());
         }
@@ -56,6 +56,24 @@ public class User implements Serializable, ISecurityUser {
         this.password = BCrypt.hashpw(userPass, BCrypt.gensalt());
     }
 
+    /**
+     * Create a user from an already computed password hash
+     * Used when hashing has been done off the request thread (see PasswordHashingService)
+     */
+    public static User withPasswordHash(String email, String passwordHash) {
+        User user = new User();
+        user.email = email;
+        user.password = passwordHash;
+        return user;
+    }
+
+    /**
+     * Replace the stored hash, e.g. when upgrading to a higher BCrypt cost
+     */
+    public void updatePasswordHash(String passwordHash) {
+        this.password = passwordHash;
+    }
+
     public User(String email, Set<Role> roleEntityList) {
         this.email = email;
         this.roles = roleEntityList;
@@ -2,6 +2,47 @@ package dat.security.enums;
 
 import io.javalin.security.RouteRole;
 
+import java.util.Collection;
+
 public enum Role implements RouteRole {
     ANYONE, USER, ADMIN, SUPERMAN;
+
+    private final int bit = 1 << ordinal();
+
+    /**
+     * Single-bit mask for this role
+     */
+    public int bit() {
+        return bit;
+    }
+
+    /**
+     * Bitmask of route roles (roles that are not a {@link Role} are ignored)
+     */
+    public static int mask(Collection<? extends RouteRole> roles) {
+        int mask = 0;
+        for (RouteRole role : roles) {
+            if (role instanceof Role r) {
+                mask |= r.bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Bitmask of role names as stored on users/tokens, e.g. "user", "admin" (case-insensitive)
+     * Unknown names are ignored
+     */
+    public static int maskOfNames(Collection<String> roleNames) {
+        int mask = 0;
+        for (String name : roleNames) {
+            for (Role role : values()) {
+                if (role.name().equalsIgnoreCase(name.trim())) {
+                    mask |= role.bit;
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
 }
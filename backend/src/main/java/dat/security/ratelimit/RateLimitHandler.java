@@ -0,0 +1,114 @@
+package dat.security.ratelimit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dat.security.dtos.UserDTO;
+import dat.security.enums.Role;
+import dat.security.exceptions.ApiException;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.security.RouteRole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Rate limiting at the route level
+ *
+ * Registered around the access handler in ApplicationConfig.startServer:
+ * - {@link #beforeAccess(Context)} runs before authentication and limits per IP
+ *   (login, register and anonymous routes are protected before BCrypt runs)
+ * - {@link #afterAccess(Context)} runs once the user is known and limits per
+ *   user email and per customer (payments, customer-scoped routes)
+ *
+ * Rejected requests get 429 with a Retry-After header (seconds).
+ */
+public class RateLimitHandler {
+
+    private final RateLimiter rateLimiter = RateLimiter.getInstance();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public void beforeAccess(Context ctx) {
+        if (ctx.method() == HandlerType.OPTIONS) {
+            return;
+        }
+        String ip = ctx.ip();
+        String path = ctx.path();
+
+        if (ctx.method() == HandlerType.POST && path.endsWith("/auth/login")) {
+            check(ctx, RateLimitRule.LOGIN, "ip:" + ip);
+            String email = bodyField(ctx, "email");
+            if (email != null) {
+                check(ctx, RateLimitRule.LOGIN, "email:" + email.toLowerCase());
+            }
+            return;
+        }
+        if (ctx.method() == HandlerType.POST && path.endsWith("/auth/register")) {
+            check(ctx, RateLimitRule.REGISTER, "ip:" + ip);
+            return;
+        }
+        check(ctx, ruleFor(ctx.routeRoles()), "ip:" + ip);
+    }
+
+    public void afterAccess(Context ctx) {
+        UserDTO user = ctx.attribute("user");
+        if (user == null) {
+            return;
+        }
+        String path = ctx.path();
+
+        if (ctx.method() == HandlerType.POST && path.endsWith("/payments")) {
+            check(ctx, RateLimitRule.PAYMENT, "email:" + user.getEmail());
+            String customerId = bodyField(ctx, "customerId");
+            if (customerId != null) {
+                check(ctx, RateLimitRule.PAYMENT, "customer:" + customerId);
+            }
+            return;
+        }
+
+        RateLimitRule rule = ruleFor(ctx.routeRoles());
+        check(ctx, rule, "email:" + user.getEmail());
+        String customerId = customerIdFromPath(ctx);
+        if (customerId != null) {
+            check(ctx, rule, "customer:" + customerId);
+        }
+    }
+
+    private void check(Context ctx, RateLimitRule rule, String key) {
+        long waitNanos = rateLimiter.tryAcquire(rule, key);
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+            ctx.header("Retry-After", String.valueOf(retryAfterSeconds));
+            throw new ApiException(429, "Too many requests. Retry in " + retryAfterSeconds + " seconds");
+        }
+    }
+
+    private static RateLimitRule ruleFor(Set<RouteRole> routeRoles) {
+        if (routeRoles.isEmpty() || routeRoles.contains(Role.ANYONE)) {
+            return RateLimitRule.ANYONE;
+        }
+        if (routeRoles.contains(Role.USER)) {
+            return RateLimitRule.USER;
+        }
+        return RateLimitRule.ADMIN;
+    }
+
+    private static String customerIdFromPath(Context ctx) {
+        if (ctx.pathParamMap().containsKey("customerId")) {
+            return ctx.pathParam("customerId");
+        }
+        if (ctx.path().contains("/customers/") && ctx.pathParamMap().containsKey("id")) {
+            return ctx.pathParam("id");
+        }
+        return null;
+    }
+
+    private String bodyField(Context ctx, String field) {
+        try {
+            JsonNode node = objectMapper.readTree(ctx.body()).get(field);
+            return node == null || node.isNull() ? null : node.asText();
+        } catch (Exception e) {
+            return null; // malformed body is rejected by the endpoint itself
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dat.security.ratelimit;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+
+/**
+ * Rate limits per endpoint group / route role
+ *
+ * Defaults can be overridden in config.properties, e.g.
+ * RATE_LIMIT_LOGIN_CAPACITY=10 and RATE_LIMIT_LOGIN_PER_MINUTE=10.
+ * Values are read from the current config snapshot, so changes apply on reload.
+ */
+public enum RateLimitRule {
+    LOGIN(10, 10),
+    REGISTER(5, 5),
+    PAYMENT(10, 20),
+    ANYONE(60, 120),
+    USER(120, 300),
+    ADMIN(300, 600);
+
+    private final long defaultCapacity;
+    private final long defaultPerMinute;
+    private final String capacityKey;
+    private final String perMinuteKey;
+
+    RateLimitRule(long defaultCapacity, long defaultPerMinute) {
+        this.defaultCapacity = defaultCapacity;
+        this.defaultPerMinute = defaultPerMinute;
+        this.capacityKey = "RATE_LIMIT_" + name() + "_CAPACITY";
+        this.perMinuteKey = "RATE_LIMIT_" + name() + "_PER_MINUTE";
+    }
+
+    /**
+     * Maximum burst size
+     */
+    public long capacity() {
+        return Math.max(1, ConfigManager.current().getLong(capacityKey, defaultCapacity));
+    }
+
+    /**
+     * Sustained rate in tokens per second
+     */
+    public double refillPerSecond() {
+        ConfigSnapshot config = ConfigManager.current();
+        return config.getLong(perMinuteKey, defaultPerMinute) / 60.0;
+    }
+}
@@ -0,0 +1,79 @@
+package dat.security.ratelimit;
+
+import dat.utils.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyed token buckets (per IP, per user email, per customer)
+ *
+ * Buckets live in a ConcurrentHashMap, so lookups are lock-free and creation
+ * only contends within one hash bin. Buckets unused for 10 minutes are
+ * evicted every minute; with the default limits they have refilled long
+ * before that, so dropping them does not change any client's allowance.
+ */
+public class RateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+    private static final long EVICT_AFTER_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static RateLimiter instance;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    private RateLimiter() {
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+        Metrics.gauge("ratelimit.buckets", buckets::size);
+    }
+
+    public static synchronized RateLimiter getInstance() {
+        if (instance == null) {
+            instance = new RateLimiter();
+        }
+        return instance;
+    }
+
+    /**
+     * Take one token from the bucket for a key under the given rule
+     *
+     * @param key Identity being limited, e.g. "ip:10.0.0.1" or "customer:42"
+     * @return 0 if allowed, otherwise nanoseconds until the next token
+     */
+    public long tryAcquire(RateLimitRule rule, String key) {
+        long now = System.nanoTime();
+        long capacity = rule.capacity();
+        TokenBucket bucket = buckets.computeIfAbsent(rule.name() + "|" + key, k -> new TokenBucket(capacity, now));
+        long waitNanos = bucket.tryAcquire(capacity, rule.refillPerSecond(), now);
+        if (waitNanos > 0) {
+            Metrics.increment("ratelimit.rejected." + rule.name().toLowerCase());
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Drop buckets that have been idle long enough to be full again
+     */
+    public int evictIdle() {
+        long cutoff = System.nanoTime() - EVICT_AFTER_NANOS;
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.getLastUsedNanos() < cutoff);
+        int evicted = before - buckets.size();
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+        return Math.max(evicted, 0);
+    }
+
+    public void shutdown() {
+        evictor.shutdownNow();
+    }
+}
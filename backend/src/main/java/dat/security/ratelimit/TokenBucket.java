@@ -0,0 +1,52 @@
+package dat.security.ratelimit;
+
+/**
+ * A single token bucket with lazy refill
+ *
+ * Tokens are not topped up by a timer; each acquire first credits the tokens
+ * earned since the previous call. Capacity and refill rate are passed on every
+ * call so limits changed in config.properties apply to existing buckets.
+ * Each bucket guards only its own state, so contention is limited to requests
+ * sharing the same key.
+ */
+public class TokenBucket {
+
+    private double tokens;
+    private long lastRefillNanos;
+    private volatile long lastUsedNanos;
+
+    public TokenBucket(long capacity, long nowNanos) {
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+        this.lastUsedNanos = nowNanos;
+    }
+
+    /**
+     * Try to take one token
+     *
+     * @param capacity Maximum burst size
+     * @param refillPerSecond Tokens added per second
+     * @param nowNanos Current time from System.nanoTime()
+     * @return 0 if a token was taken, otherwise nanoseconds until one is available
+     */
+    public synchronized long tryAcquire(long capacity, double refillPerSecond, long nowNanos) {
+        lastUsedNanos = nowNanos;
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerSecond / 1_000_000_000.0);
+            lastRefillNanos = nowNanos;
+        }
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        if (refillPerSecond <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.ceil((1.0 - tokens) / refillPerSecond * 1_000_000_000.0);
+    }
+
+    public long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+}
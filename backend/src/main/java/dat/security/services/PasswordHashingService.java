@@ -0,0 +1,221 @@
+package dat.security.services;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.security.exceptions.ApiException;
+import dat.utils.Metrics;
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated, bounded thread pool
+ *
+ * BCrypt is deliberately CPU-expensive. Running it on the Jetty request threads
+ * lets a burst of logins pin every core and starve unrelated endpoints, so all
+ * password work is handed to a fixed pool sized to a core budget. When the pool
+ * and its queue are full the request fails fast with 503 instead of piling up.
+ *
+ * Configuration (config.properties / environment):
+ * - BCRYPT_THREADS: worker threads (default: half the available cores, min 1)
+ * - BCRYPT_QUEUE_CAPACITY: pending jobs before rejecting (default: 64)
+ * - BCRYPT_TIMEOUT_MS: max time a caller waits for a result (default: 10000)
+ * - BCRYPT_BULK_PARALLELISM: max concurrent jobs for {@link #hashAll} (default: half the threads)
+ * - BCRYPT_COST: log2 work factor for new hashes (default: 10, read on every hash
+ *   so it can be tuned at runtime; stored hashes below it are upgraded on login)
+ */
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+    private static final int DEFAULT_COST = 10;
+    private static PasswordHashingService instance;
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final int bulkParallelism;
+
+    private PasswordHashingService() {
+        ConfigSnapshot config = ConfigManager.current();
+        int threads = Math.max(1, config.getInt("BCRYPT_THREADS",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+        int queueCapacity = Math.max(1, config.getInt("BCRYPT_QUEUE_CAPACITY", 64));
+        this.timeoutMillis = config.getLong("BCRYPT_TIMEOUT_MS", 10_000L);
+        // Bulk jobs leave the rest of the pool free for interactive logins
+        this.bulkParallelism = Math.max(1, config.getInt("BCRYPT_BULK_PARALLELISM", Math.max(1, threads / 2)));
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Metrics.gauge("bcrypt.queue.depth", () -> executor.getQueue().size());
+        Metrics.gauge("bcrypt.active", executor::getActiveCount);
+        logger.info("Password hashing pool started with {} threads and queue capacity {}", threads, queueCapacity);
+    }
+
+    public static synchronized PasswordHashingService getInstance() {
+        if (instance == null) {
+            instance = new PasswordHashingService();
+        }
+        return instance;
+    }
+
+    /**
+     * Hash a plaintext password with the configured cost
+     * @throws ApiException 503 if the hashing pool is saturated
+     */
+    public String hash(String plainPassword) {
+        int cost = getConfiguredCost();
+        Metrics.increment("bcrypt.hashed");
+        return submit("bcrypt.hash.time", () -> BCrypt.hashpw(plainPassword, BCrypt.gensalt(cost)));
+    }
+
+    /**
+     * Check a plaintext password against a stored BCrypt hash
+     * @throws ApiException 503 if the hashing pool is saturated
+     */
+    public boolean verify(String plainPassword, String storedHash) {
+        return submit("bcrypt.verify.time", () -> BCrypt.checkpw(plainPassword, storedHash));
+    }
+
+    /**
+     * Hash many passwords in parallel, e.g. for bulk onboarding
+     *
+     * At most BCRYPT_BULK_PARALLELISM (default half the pool) jobs are in flight
+     * at a time, so a large batch never fills the queue and interactive logins
+     * keep getting served. Blocks until every password has been hashed.
+     *
+     * @return Hashes in the same order as the input
+     */
+    public List<String> hashAll(List<String> plainPasswords) throws InterruptedException {
+        int cost = getConfiguredCost();
+        Semaphore inFlight = new Semaphore(bulkParallelism);
+        List<Future<String>> futures = new ArrayList<>(plainPasswords.size());
+        long startedAt = System.nanoTime();
+
+        for (String plainPassword : plainPasswords) {
+            inFlight.acquire();
+            try {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(cost));
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                futures.forEach(f -> f.cancel(true));
+                Metrics.increment("bcrypt.rejected");
+                throw new ApiException(503, "Server is busy, please try again shortly");
+            }
+        }
+
+        List<String> hashes = new ArrayList<>(futures.size());
+        try {
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new ApiException(500, "Password hashing failed: " + e.getCause().getMessage());
+        }
+        Metrics.recordNanos("bcrypt.bulk.time", System.nanoTime() - startedAt);
+        Metrics.add("bcrypt.bulk.hashed", hashes.size());
+        return hashes;
+    }
+
+    /**
+     * Whether a stored hash was produced with a lower cost than the configured one
+     */
+    public boolean needsRehash(String storedHash) {
+        int storedCost = parseCost(storedHash);
+        return storedCost >= 0 && storedCost < getConfiguredCost();
+    }
+
+    public int getConfiguredCost() {
+        return ConfigManager.current().getInt("BCRYPT_COST", DEFAULT_COST);
+    }
+
+    /**
+     * Extract the cost from a hash of the form $2a$NN$...
+     * @return The cost, or -1 if the hash is not in BCrypt format
+     */
+    static int parseCost(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$' || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = hash.charAt(4);
+        char ones = hash.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(ones)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    /**
+     * Stop accepting work and let queued jobs finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Password hashing pool stopped");
+    }
+
+    private <T> T submit(String timerName, Callable<T> work) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                Metrics.recordNanos("bcrypt.queue.wait", startedAt - enqueuedAt);
+                try {
+                    return work.call();
+                } finally {
+                    Metrics.recordNanos(timerName, System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Metrics.increment("bcrypt.rejected");
+            logger.warn("Password hashing pool saturated (queue depth {})", executor.getQueue().size());
+            throw new ApiException(503, "Server is busy, please try again shortly");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            Metrics.increment("bcrypt.timeout");
+            throw new ApiException(503, "Server is busy, please try again shortly");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ApiException(503, "Password check was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException iae) {
+                // BCrypt throws this for malformed stored hashes
+                throw iae;
+            }
+            throw new ApiException(500, "Password hashing failed: " + cause.getMessage());
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.daos.impl.ActivityAggregateDAO;
+import dat.dtos.ActivitySummaryDTO;
+import dat.entities.ActivityDailyAggregate;
+import dat.entities.ActivityLog;
+import dat.enums.ActivityLogType;
+import dat.utils.DateTimeUtil;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incrementally maintained activity counts per customer, day, type and status
+ *
+ * Every committed ActivityLog insert (async writer, payments, registration...)
+ * is picked up by a Hibernate post-commit insert listener and counted in an
+ * in-memory LongAdder, so recording costs no I/O and no lock. Every
+ * ACTIVITY_AGGREGATE_FLUSH_SECONDS (default 10) the accumulated deltas are added
+ * to activity_daily_aggregate with one batched INSERT ... ON CONFLICT DO UPDATE.
+ * Summaries therefore lag behind activitylog by at most one flush interval.
+ *
+ * Days are calendar days in Europe/Copenhagen, like the rest of the app.
+ *
+ * {@link #rebuild(LocalDate, LocalDate)} recomputes days from activitylog
+ * (backfill or repair). It runs automatically on start when the aggregate
+ * table is still empty. Pending counts of the rebuilt days are dropped (the
+ * rebuild counts those logs itself) and logs of those days committed during the
+ * rebuild are held aside by id; afterwards only the ones the rebuild's snapshot
+ * did not see are counted. Days whose logs were archived
+ * (ActivityArchiveService) or dropped by partition retention
+ * (ActivityLogPartitionService) are never rebuilt: their aggregates are the
+ * only counts left.
+ *
+ * @author NotionPay Team
+ */
+public class ActivityAggregateService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityAggregateService.class);
+    private static ActivityAggregateService instance;
+
+    private final EntityManagerFactory emf;
+    private final ActivityAggregateDAO activityAggregateDAO;
+    private final PendingActivityCounts pending = new PendingActivityCounts();
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock flushLock = new ReentrantLock();  // held across JDBC: a monitor would pin virtual threads
+    private final ReentrantReadWriteLock recordLock = new ReentrantReadWriteLock();  // write: switching to/from a rebuild
+    private RebuildWatch rebuildWatch;  // guarded by recordLock, non-null while a rebuild runs
+
+    /**
+     * Logs of the days [from, to] (nulls = open) recorded while a rebuild runs, by activity log id
+     */
+    private record RebuildWatch(LocalDate from, LocalDate to, Map<Long, ActivityDailyAggregate.Key> logs) {
+        boolean covers(LocalDate day) {
+            return (from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to));
+        }
+    }
+
+    private ActivityAggregateService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.activityAggregateDAO = ActivityAggregateDAO.getInstance(emf);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "activity-aggregates");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.gauge("activity.aggregate.pending", pending::size);
+    }
+
+    public static synchronized ActivityAggregateService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new ActivityAggregateService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Listen for committed activity logs, start the periodic flush and backfill if needed
+     */
+    public void start() {
+        emf.unwrap(SessionFactoryImplementor.class)
+                .getEventListenerRegistry()
+                .appendListeners(EventType.POST_COMMIT_INSERT, new CommittedActivityLogListener());
+
+        long intervalSeconds = Math.max(1, ConfigManager.current().getLong("ACTIVITY_AGGREGATE_FLUSH_SECONDS", 10));
+        scheduler.execute(() -> {
+            try {
+                if (activityAggregateDAO.isEmpty()) {
+                    rebuild(null, null);
+                }
+            } catch (Exception e) {
+                logger.error("Activity aggregate backfill failed", e);
+            }
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error("Activity aggregate flush failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Activity aggregates started (flush every {}s)", intervalSeconds);
+    }
+
+    /**
+     * Count one committed activity log (memory only)
+     */
+    public void record(ActivityLog activityLog) {
+        ActivityDailyAggregate.Key key = PendingActivityCounts.keyOf(activityLog);
+        if (key == null) {
+            return;
+        }
+        recordLock.readLock().lock();
+        try {
+            if (rebuildWatch != null && rebuildWatch.covers(key.getDay())) {
+                rebuildWatch.logs().put(activityLog.getId(), key);
+            } else {
+                pending.add(key, 1);
+            }
+        } finally {
+            recordLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write accumulated deltas with one batched upsert
+     * Deltas are put back if the write fails, so nothing is lost.
+     * @return Number of aggregate rows touched
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Recompute aggregates for [from, to] from activitylog (nulls = all days)
+     * An open from starts at the first day still complete in activitylog.
+     * @return Number of aggregate rows written
+     * @throws IllegalArgumentException if from is before that day
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        LocalDate firstComplete = firstCompleteDay();
+        if (firstComplete != null) {
+            if (from != null && from.isBefore(firstComplete)) {
+                throw new IllegalArgumentException("Activity logs before " + firstComplete
+                        + " are archived or past retention, rebuild from " + firstComplete + " or later");
+            }
+            if (from == null) {
+                logger.info("Activity aggregate rebuild starts at {}, older days are archived or past retention", firstComplete);
+                from = firstComplete;
+                if (to != null && to.isBefore(from)) {
+                    return 0;
+                }
+            }
+        }
+
+        flushLock.lock();
+        try {
+            RebuildWatch watch = new RebuildWatch(from, to, new ConcurrentHashMap<>());
+            List<ActivityDailyAggregate> earlier;
+            recordLock.writeLock().lock();
+            try {
+                earlier = pending.take(watch::covers);  // committed before the rebuild's snapshot, so counted by it
+                rebuildWatch = watch;
+            } finally {
+                recordLock.writeLock().unlock();
+            }
+
+            long startedAt = System.nanoTime();
+            ActivityAggregateDAO.Rebuild rebuild;
+            try {
+                rebuild = activityAggregateDAO.rebuild(from, to, () -> {
+                    stopWatching();
+                    return watch.logs().keySet();
+                });
+            } catch (RuntimeException e) {
+                stopWatching();
+                pending.restore(earlier);
+                watch.logs().values().forEach(key -> pending.add(key, 1));
+                throw e;
+            }
+            // Committed during the rebuild: keep only what its snapshot did not count
+            watch.logs().forEach((activityLogId, key) -> {
+                if (!rebuild.countedActivityLogIds().contains(activityLogId)) {
+                    pending.add(key, 1);
+                }
+            });
+            logger.info("Activity aggregates rebuilt for {} .. {}: {} rows in {} ms",
+                    from == null ? "start" : from, to == null ? "now" : to, rebuild.rows(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            return rebuild.rows();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * First day whose activity logs are all still in activitylog
+     * @return null if no logs were removed by archiving or partition retention
+     */
+    private LocalDate firstCompleteDay() {
+        boolean partitioned;
+        try (EntityManager em = emf.createEntityManager()) {
+            partitioned = ActivityLogPartitionService.isPartitioned(em);
+        }
+        return firstCompleteDay(ConfigManager.current(), partitioned, DateTimeUtil.now());
+    }
+
+    /**
+     * First Europe/Copenhagen day starting at or after both the archive cutoff
+     * (if ACTIVITY_ARCHIVE_ENABLED) and the retention cutoff (if activitylog is partitioned)
+     */
+    static LocalDate firstCompleteDay(ConfigSnapshot config, boolean partitioned, OffsetDateTime now) {
+        Instant cutoff = null;
+        if (config.getBoolean("ACTIVITY_ARCHIVE_ENABLED", false)) {
+            cutoff = ActivityArchiveService.archiveCutoff(config, now).toInstant();
+        }
+        YearMonth retention = partitioned
+                ? ActivityLogPartitionService.retentionCutoff(config, YearMonth.from(now.atZoneSameInstant(ZoneOffset.UTC)))
+                : null;
+        if (retention != null) {
+            // Partitions are UTC months, so the first Copenhagen day of the month is partly gone
+            Instant retentionStart = retention.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+            if (cutoff == null || retentionStart.isAfter(cutoff)) {
+                cutoff = retentionStart;
+            }
+        }
+        if (cutoff == null) {
+            return null;
+        }
+        LocalDate day = cutoff.atZone(DateTimeUtil.DANISH_ZONE).toLocalDate();
+        return day.atStartOfDay(DateTimeUtil.DANISH_ZONE).toInstant().isBefore(cutoff) ? day.plusDays(1) : day;
+    }
+
+    private void stopWatching() {
+        recordLock.writeLock().lock();
+        try {
+            rebuildWatch = null;
+        } finally {
+            recordLock.writeLock().unlock();
+        }
+    }
+
+    private int flushPending() {
+        List<ActivityDailyAggregate> deltas = pending.drain(DateTimeUtil.now().toLocalDate().minusDays(1));
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            activityAggregateDAO.addCounts(deltas);
+            Metrics.add("activity.aggregate.flushed", deltas.size());
+            return deltas.size();
+        } catch (RuntimeException e) {
+            pending.restore(deltas);
+            throw e;
+        } finally {
+            Metrics.recordNanos("activity.aggregate.flush.time", System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Activity counts for a customer within [from, to] (inclusive days)
+     * @param monthly Bucket per month instead of per day
+     */
+    public ActivitySummaryDTO getSummary(Long customerId, LocalDate from, LocalDate to, boolean monthly) {
+        return summarize(customerId, from, to, monthly, activityAggregateDAO.getByCustomerBetween(customerId, from, to));
+    }
+
+    /**
+     * Bucket aggregate rows per day or month, type and status, and total them per type
+     * @param rows Aggregate rows ordered by day
+     */
+    static ActivitySummaryDTO summarize(Long customerId, LocalDate from, LocalDate to, boolean monthly,
+                                        List<ActivityDailyAggregate> rows) {
+        Map<String, ActivitySummaryDTO.Bucket> buckets = new LinkedHashMap<>();
+        Map<ActivityLogType, Long> totals = new EnumMap<>(ActivityLogType.class);
+
+        for (ActivityDailyAggregate row : rows) {
+            ActivityDailyAggregate.Key key = row.getId();
+            String period = monthly ? YearMonth.from(key.getDay()).toString() : key.getDay().toString();
+            buckets.computeIfAbsent(period + "|" + key.getType() + "|" + key.getStatus(),
+                    k -> new ActivitySummaryDTO.Bucket(period, key.getType(), key.getStatus(), 0)).count += row.getCount();
+            totals.merge(key.getType(), row.getCount(), Long::sum);
+        }
+
+        ActivitySummaryDTO summary = new ActivitySummaryDTO();
+        summary.customerId = customerId;
+        summary.from = from;
+        summary.to = to;
+        summary.granularity = monthly ? "month" : "day";
+        summary.buckets = new ArrayList<>(buckets.values());
+        summary.totals = totals;
+        return summary;
+    }
+
+    /**
+     * Stop the flusher and write what is still pending
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Final activity aggregate flush failed", e);
+        }
+        logger.info("ActivityAggregateService shutdown");
+    }
+
+    /**
+     * Called by Hibernate after the transaction that inserted an entity committed
+     */
+    private class CommittedActivityLogListener implements PostCommitInsertEventListener {
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof ActivityLog activityLog) {
+                record(activityLog);
+            }
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            // Rolled back, nothing to count
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return ActivityLog.class.equals(persister.getMappedClass());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package dat.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dat.archive.ActivityArchive;
+import dat.archive.ActivitySegmentWriter;
+import dat.archive.ArchivedActivity;
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.dtos.ActivityLogDTO;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import dat.utils.DateTimeUtil;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves old activity logs out of PostgreSQL into columnar archive segments
+ *
+ * Opt-in via ACTIVITY_ARCHIVE_ENABLED=true. Once a day, rows older than
+ * ACTIVITY_ARCHIVE_AFTER_MONTHS (default 12, counted from the start of the
+ * current month) are archived in batches of ACTIVITY_ARCHIVE_SEGMENT_ROWS
+ * (default 100000). Each batch is one transaction: DELETE ... RETURNING the
+ * rows, write and fsync a segment in ACTIVITY_ARCHIVE_DIR, then commit. If the
+ * segment cannot be written the delete is rolled back; if the commit fails
+ * after the segment was written, the rows are archived again next run and the
+ * reader returns them once.
+ *
+ * Archived rows stay queryable per customer and period through
+ * {@link #findArchived(Long, OffsetDateTime, OffsetDateTime)}, which reads the
+ * memory-mapped segments only and never touches the database.
+ *
+ * @author NotionPay Team
+ */
+public class ActivityArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityArchiveService.class);
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+    private static ActivityArchiveService instance;
+
+    private static final String ARCHIVE_BATCH_SQL =
+            "DELETE FROM activitylog WHERE activity_log_id IN (" +
+            "SELECT activity_log_id FROM activitylog WHERE timestamp < ? " +
+            "ORDER BY customer_id, timestamp, activity_log_id LIMIT ?) " +
+            "RETURNING activity_log_id, customer_id, session_id, type, status, timestamp, CAST(metadata AS TEXT)";
+
+    private final EntityManagerFactory emf;
+    private final ActivityArchive archive;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler;
+
+    private ActivityArchiveService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.archive = new ActivityArchive(Paths.get(ConfigManager.current().get("ACTIVITY_ARCHIVE_DIR", "archive/activity")));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "activitylog-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized ActivityArchiveService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new ActivityArchiveService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Archive a minute after start and then once a day (no-op unless ACTIVITY_ARCHIVE_ENABLED)
+     */
+    public void startPeriodicArchiving() {
+        if (!ConfigManager.current().getBoolean("ACTIVITY_ARCHIVE_ENABLED", false)) {
+            logger.info("Activity log archiving disabled");
+            return;
+        }
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                runArchiving();
+            } catch (Exception e) {
+                logger.error("Activity log archiving failed", e);
+            }
+        }, 1, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+        logger.info("Activity log archiving scheduled (daily)");
+    }
+
+    /**
+     * Archive every activity log older than the configured age
+     * @return Number of rows moved to segments
+     */
+    public synchronized int runArchiving() throws IOException {
+        ConfigSnapshot config = ConfigManager.current();
+        int segmentRows = Math.max(1, config.getInt("ACTIVITY_ARCHIVE_SEGMENT_ROWS", 100_000));
+        OffsetDateTime cutoff = archiveCutoff(config, DateTimeUtil.now());
+
+        int total = 0;
+        int archived;
+        do {
+            archived = archiveBatch(cutoff, segmentRows);
+            total += archived;
+        } while (archived == segmentRows);
+
+        logger.info("Archived {} activity logs older than {}", total, cutoff);
+        return total;
+    }
+
+    /**
+     * Activity logs before this instant are archived (start of the month ACTIVITY_ARCHIVE_AFTER_MONTHS back)
+     */
+    static OffsetDateTime archiveCutoff(ConfigSnapshot config, OffsetDateTime now) {
+        int afterMonths = Math.max(1, config.getInt("ACTIVITY_ARCHIVE_AFTER_MONTHS", 12));
+        return now.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1).minusMonths(afterMonths);
+    }
+
+    private int archiveBatch(OffsetDateTime cutoff, int segmentRows) throws IOException {
+        long startedAt = System.nanoTime();
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                List<ArchivedActivity> rows = new ArrayList<>();
+                em.unwrap(org.hibernate.Session.class).doWork(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(ARCHIVE_BATCH_SQL)) {
+                        ps.setObject(1, cutoff);
+                        ps.setInt(2, segmentRows);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                long sessionId = rs.getLong(3);
+                                Long nullableSessionId = rs.wasNull() ? null : sessionId;
+                                rows.add(new ArchivedActivity(
+                                        rs.getLong(1),
+                                        rs.getLong(2),
+                                        nullableSessionId,
+                                        rs.getString(4),
+                                        rs.getString(5),
+                                        toMicros(rs.getObject(6, OffsetDateTime.class).toInstant()),
+                                        rs.getString(7)));
+                            }
+                        }
+                    }
+                    if (!rows.isEmpty()) {
+                        try {
+                            ActivitySegmentWriter.write(archive.nextSegmentPath(), rows);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+                em.getTransaction().commit();
+                Metrics.add("activitylog.archived", rows.size());
+                return rows.size();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                if (e instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw e;
+            } finally {
+                Metrics.recordNanos("activitylog.archive.batch.time", System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    /**
+     * Archived activity logs of a customer within [from, to), newest first
+     */
+    public List<ActivityLogDTO> findArchived(Long customerId, OffsetDateTime from, OffsetDateTime to) throws IOException {
+        List<ActivityLogDTO> result = new ArrayList<>();
+        for (ArchivedActivity activity : archive.find(customerId, toMicros(from.toInstant()), toMicros(to.toInstant()))) {
+            Instant timestamp = Instant.EPOCH.plus(activity.timestampMicros(), ChronoUnit.MICROS);
+            result.add(new ActivityLogDTO(
+                    activity.id(),
+                    activity.customerId(),
+                    activity.sessionId(),
+                    ActivityLogType.valueOf(activity.type()),
+                    ActivityLogStatus.valueOf(activity.status()),
+                    timestamp.atZone(DateTimeUtil.DANISH_ZONE).toOffsetDateTime(),
+                    parseMetadata(activity.metadataJson())));
+        }
+        return result;
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            archive.close();
+        } catch (IOException e) {
+            logger.warn("Closing activity archive failed: {}", e.getMessage());
+        }
+        logger.info("ActivityArchiveService shutdown");
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            logger.warn("Unreadable archived metadata: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+}
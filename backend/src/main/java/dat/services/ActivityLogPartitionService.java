@@ -0,0 +1,238 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the monthly partitions of the activitylog table
+ *
+ * Only active when activitylog is range-partitioned on timestamp (see
+ * ActivityLogPartitionMigration, ACTIVITY_LOG_PARTITIONING_ENABLED). Once a day:
+ * - creates partitions for the current month and ACTIVITY_LOG_PARTITIONS_AHEAD
+ *   months ahead (default 3), so inserts never hit a missing range
+ * - applies retention: partitions entirely older than ACTIVITY_LOG_RETENTION_MONTHS
+ *   (default 24) are detached and then dropped (ACTIVITY_LOG_RETENTION_MODE=DROP)
+ *   or moved to the activity_archive schema (ARCHIVE, default)
+ *
+ * Detaching a partition is a metadata operation, so retention costs the same
+ * regardless of how many rows the month holds (no DELETE, no vacuum debt).
+ *
+ * Partitions are named activitylog_pYYYYMM and cover [first of month, first of next month) UTC.
+ * Rows outside every monthly range (e.g. a timestamp far in the future) land in
+ * the DEFAULT partition activitylog_default instead of failing the insert; when
+ * their month's partition is created later, they are moved into it.
+ *
+ * @author NotionPay Team
+ */
+public class ActivityLogPartitionService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogPartitionService.class);
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String ARCHIVE_SCHEMA = "activity_archive";
+    public static final String DEFAULT_PARTITION = "activitylog_default";
+    private static ActivityLogPartitionService instance;
+
+    private final EntityManagerFactory emf;
+    private final ScheduledExecutorService scheduler;
+
+    public enum RetentionMode { DROP, ARCHIVE }
+
+    private ActivityLogPartitionService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "activitylog-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized ActivityLogPartitionService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new ActivityLogPartitionService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Run maintenance now and then once a day
+     */
+    public void startPeriodicMaintenance() {
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                runMaintenance();
+            } catch (Exception e) {
+                logger.error("Activity log partition maintenance failed", e);
+            }
+        }, 0, 1, TimeUnit.DAYS);
+        logger.info("Activity log partition maintenance scheduled (daily)");
+    }
+
+    /**
+     * Create upcoming partitions and apply retention
+     */
+    public void runMaintenance() {
+        try (EntityManager em = emf.createEntityManager()) {
+            if (!isPartitioned(em)) {
+                logger.debug("activitylog is not partitioned, skipping maintenance");
+                return;
+            }
+            ConfigSnapshot config = ConfigManager.current();
+            int monthsAhead = Math.max(1, config.getInt("ACTIVITY_LOG_PARTITIONS_AHEAD", 3));
+            RetentionMode mode = RetentionMode.valueOf(
+                    config.get("ACTIVITY_LOG_RETENTION_MODE", RetentionMode.ARCHIVE.name()).toUpperCase());
+
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            int created = 0;
+            em.getTransaction().begin();
+            for (int i = 0; i <= monthsAhead; i++) {
+                if (createMonthlyPartition(em, current.plusMonths(i))) {
+                    created++;
+                }
+            }
+            createDefaultPartition(em);  // tables partitioned before activitylog_default existed
+            em.getTransaction().commit();
+
+            YearMonth cutoff = retentionCutoff(config, current);
+            int removed = cutoff != null ? applyRetention(em, cutoff, mode) : 0;
+            logger.info("Activity log partitions: {} created, {} past retention ({})", created, removed, mode);
+        }
+    }
+
+    /**
+     * Oldest month kept in activitylog: partitions of earlier months are removed
+     * @return null if retention is off (ACTIVITY_LOG_RETENTION_MONTHS <= 0)
+     */
+    static YearMonth retentionCutoff(ConfigSnapshot config, YearMonth current) {
+        int retentionMonths = config.getInt("ACTIVITY_LOG_RETENTION_MONTHS", 24);
+        return retentionMonths > 0 ? current.minusMonths(retentionMonths) : null;
+    }
+
+    /**
+     * Detach and drop/archive every partition that ends on or before the cutoff month
+     * @return Number of partitions removed from activitylog
+     */
+    int applyRetention(EntityManager em, YearMonth cutoff, RetentionMode mode) {
+        int removed = 0;
+        for (String partition : listPartitions(em)) {
+            YearMonth month = parseMonth(partition);
+            if (month == null || !month.isBefore(cutoff)) {
+                continue;
+            }
+            em.getTransaction().begin();
+            em.createNativeQuery("ALTER TABLE activitylog DETACH PARTITION " + partition).executeUpdate();
+            if (mode == RetentionMode.DROP) {
+                em.createNativeQuery("DROP TABLE " + partition).executeUpdate();
+            } else {
+                em.createNativeQuery("CREATE SCHEMA IF NOT EXISTS " + ARCHIVE_SCHEMA).executeUpdate();
+                em.createNativeQuery("ALTER TABLE " + partition + " SET SCHEMA " + ARCHIVE_SCHEMA).executeUpdate();
+            }
+            em.getTransaction().commit();
+            logger.info("Activity log partition {} {}", partition, mode == RetentionMode.DROP ? "dropped" : "archived");
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Create the partition for a month if it does not exist yet (caller manages the transaction)
+     * @return true if a partition was created
+     */
+    public static boolean createMonthlyPartition(EntityManager em, YearMonth month) {
+        String name = partitionName(month);
+        if (tableExists(em, name)) {
+            return false;
+        }
+        String from = month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC).toString();
+        String to = month.plusMonths(1).atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC).toString();
+        String bounds = "FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        String inRange = "timestamp >= '" + from + "' AND timestamp < '" + to + "'";
+
+        boolean defaultHasRows = tableExists(em, DEFAULT_PARTITION) && (Boolean) em.createNativeQuery(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE " + inRange + ")", Boolean.class)
+                .getSingleResult();
+        if (!defaultHasRows) {
+            em.createNativeQuery("CREATE TABLE " + name + " PARTITION OF activitylog " + bounds).executeUpdate();
+            return true;
+        }
+
+        // PostgreSQL refuses a partition whose range has rows in the DEFAULT partition: move them first
+        em.createNativeQuery("CREATE TABLE " + name + " (LIKE activitylog INCLUDING DEFAULTS INCLUDING CONSTRAINTS)")
+                .executeUpdate();
+        int moved = em.createNativeQuery("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + inRange +
+                " RETURNING *) INSERT INTO " + name + " SELECT * FROM moved").executeUpdate();
+        em.createNativeQuery("ALTER TABLE activitylog ATTACH PARTITION " + name + " " + bounds).executeUpdate();
+        logger.info("Activity log partition {} created with {} rows moved from {}", name, moved, DEFAULT_PARTITION);
+        return true;
+    }
+
+    /**
+     * Create the DEFAULT partition if it does not exist yet (caller manages the transaction)
+     * @return true if the partition was created
+     */
+    public static boolean createDefaultPartition(EntityManager em) {
+        if (tableExists(em, DEFAULT_PARTITION)) {
+            return false;
+        }
+        em.createNativeQuery("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF activitylog DEFAULT").executeUpdate();
+        return true;
+    }
+
+    /**
+     * Whether activitylog is a partitioned table (relkind 'p')
+     */
+    public static boolean isPartitioned(EntityManager em) {
+        List<?> kinds = em.createNativeQuery(
+                "SELECT CAST(relkind AS VARCHAR) FROM pg_class WHERE relname = 'activitylog' AND relnamespace = current_schema()::regnamespace")
+                .getResultList();
+        return !kinds.isEmpty() && "p".equals(String.valueOf(kinds.get(0)));
+    }
+
+    private static boolean tableExists(EntityManager em, String name) {
+        return ((Number) em.createNativeQuery(
+                "SELECT COUNT(*) FROM pg_class WHERE relname = :name AND relnamespace = current_schema()::regnamespace")
+                .setParameter("name", name)
+                .getSingleResult()).intValue() > 0;
+    }
+
+    public static String partitionName(YearMonth month) {
+        return "activitylog_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> listPartitions(EntityManager em) {
+        return em.createNativeQuery(
+                "SELECT CAST(c.relname AS VARCHAR) FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'activitylog' AND p.relnamespace = current_schema()::regnamespace " +
+                "ORDER BY c.relname")
+                .getResultList();
+    }
+
+    private static YearMonth parseMonth(String partitionName) {
+        if (!partitionName.startsWith("activitylog_p") || partitionName.length() != "activitylog_p".length() + 6) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring("activitylog_p".length()), PARTITION_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        logger.info("ActivityLogPartitionService shutdown");
+    }
+}
@@ -0,0 +1,178 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.daos.impl.ActivityLogDAO;
+import dat.entities.ActivityLog;
+import dat.utils.BoundedRingBuffer;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, batched writer for activity logs
+ *
+ * Request threads hand ActivityLog events to {@link #submit(ActivityLog)},
+ * which only places them in a bounded lock-free ring buffer. A single writer
+ * thread drains the buffer and persists up to ACTIVITY_LOG_BATCH_SIZE events per
+ * transaction (group commit, JDBC batch inserts), at least every
+ * ACTIVITY_LOG_FLUSH_INTERVAL_MS. Login and friends no longer wait for an audit
+ * insert.
+ *
+ * When the buffer is full, ACTIVITY_LOG_BACKPRESSURE decides what happens:
+ * - SYNC (default): persist the event on the calling thread, nothing is lost
+ * - BLOCK: wait for room (up to one second, then fall back to SYNC)
+ * - DROP: discard the event and count it (activitylog.dropped)
+ *
+ * {@link #shutdown()} is called from Main's shutdown hook and drains everything
+ * still buffered before the process exits.
+ *
+ * @author NotionPay Team
+ */
+public class ActivityLogWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogWriter.class);
+    private static final long BLOCK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static ActivityLogWriter instance;
+
+    public enum BackpressurePolicy { BLOCK, DROP, SYNC }
+
+    private final ActivityLogDAO activityLogDAO;
+    private final BoundedRingBuffer<ActivityLog> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BackpressurePolicy backpressurePolicy;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private ActivityLogWriter(EntityManagerFactory emf) {
+        ConfigSnapshot config = ConfigManager.current();
+        this.activityLogDAO = ActivityLogDAO.getInstance(emf);
+        this.buffer = new BoundedRingBuffer<>(Math.max(2, config.getInt("ACTIVITY_LOG_BUFFER_SIZE", 8192)));
+        this.batchSize = Math.max(1, config.getInt("ACTIVITY_LOG_BATCH_SIZE", 500));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getLong("ACTIVITY_LOG_FLUSH_INTERVAL_MS", 200)));
+        this.backpressurePolicy = BackpressurePolicy.valueOf(
+                config.get("ACTIVITY_LOG_BACKPRESSURE", BackpressurePolicy.SYNC.name()).toUpperCase());
+
+        this.writerThread = new Thread(this::writeLoop, "activity-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        Metrics.gauge("activitylog.buffer.depth", buffer::size);
+        logger.info("ActivityLogWriter started (buffer {}, batch {}, flush {} ms, backpressure {})",
+                buffer.capacity(), batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos), backpressurePolicy);
+    }
+
+    public static synchronized ActivityLogWriter getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new ActivityLogWriter(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Queue an activity log for asynchronous persistence
+     * Customer and Session must already be persisted.
+     */
+    public void submit(ActivityLog activityLog) {
+        if (!running) {
+            writeSync(activityLog);
+            return;
+        }
+        if (buffer.offer(activityLog)) {
+            Metrics.increment("activitylog.enqueued");
+            if (buffer.size() >= batchSize) {
+                LockSupport.unpark(writerThread);
+            }
+            return;
+        }
+
+        switch (backpressurePolicy) {
+            case DROP -> {
+                Metrics.increment("activitylog.dropped");
+                logger.warn("Activity log buffer full, dropped {} event for customer {}",
+                        activityLog.getType(), activityLog.getCustomer().getId());
+            }
+            case BLOCK -> {
+                long deadline = System.nanoTime() + BLOCK_TIMEOUT_NANOS;
+                LockSupport.unpark(writerThread);
+                while (!buffer.offer(activityLog)) {
+                    if (System.nanoTime() > deadline || !running) {
+                        writeSync(activityLog);
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                }
+                Metrics.increment("activitylog.enqueued");
+                Metrics.increment("activitylog.blocked");
+            }
+            case SYNC -> writeSync(activityLog);
+        }
+    }
+
+    /**
+     * Stop the writer and persist everything still buffered
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything the writer did not get to (e.g. join timed out)
+        List<ActivityLog> remaining = new ArrayList<>();
+        while (buffer.drainTo(remaining, batchSize) > 0) {
+            persist(remaining);
+            remaining.clear();
+        }
+        logger.info("ActivityLogWriter shutdown");
+    }
+
+    private void writeLoop() {
+        List<ActivityLog> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            buffer.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+                continue;
+            }
+            persist(batch);
+            batch.clear();
+        }
+    }
+
+    private void persist(List<ActivityLog> batch) {
+        long startedAt = System.nanoTime();
+        try {
+            activityLogDAO.createBatch(batch);
+            Metrics.add("activitylog.written", batch.size());
+        } catch (Exception e) {
+            // Isolate the bad row(s) instead of losing the whole batch
+            logger.error("Activity log batch of {} failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (ActivityLog activityLog : batch) {
+                activityLog.setId(null);
+                writeSync(activityLog);
+            }
+        } finally {
+            Metrics.recordNanos("activitylog.batch.time", System.nanoTime() - startedAt);
+        }
+    }
+
+    private void writeSync(ActivityLog activityLog) {
+        try {
+            activityLogDAO.create(activityLog);
+            Metrics.increment("activitylog.written");
+            Metrics.increment("activitylog.sync");
+        } catch (Exception e) {
+            Metrics.increment("activitylog.failed");
+            logger.error("Failed to persist {} activity log: {}", activityLog.getType(), e.getMessage());
+        }
+    }
+}
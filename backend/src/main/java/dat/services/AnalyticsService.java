@@ -0,0 +1,420 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.daos.impl.AnalyticsDAO;
+import dat.dtos.MrrReportDTO;
+import dat.dtos.RevenueReportDTO;
+import dat.entities.Payment;
+import dat.entities.PaymentDailySummary;
+import dat.enums.Currency;
+import dat.enums.PaymentStatus;
+import dat.enums.Period;
+import dat.enums.SubscriptionStatus;
+import dat.utils.DateTimeUtil;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Revenue analytics for finance: MRR/ARR, renewal forecast and collected revenue
+ *
+ * All figures are aggregated in SQL (see AnalyticsDAO), and every report is
+ * cached for ANALYTICS_CACHE_SECONDS (default 60, 0 = no cache), so dashboards
+ * polling the same report hit the database once per interval.
+ *
+ * Collected revenue is read from payment_daily_summary, which is kept up to date
+ * like the activity aggregates: committed payments are counted in memory by a
+ * Hibernate post-commit listener and added to the summary every
+ * ANALYTICS_SUMMARY_FLUSH_SECONDS (default 10). The summary is backfilled from
+ * the payment table when empty. During a rebuild, pending totals (payments the
+ * rebuild counts) are dropped and committed payments are held aside by id; after
+ * the rebuild only those its snapshot did not see are added. With
+ * ANALYTICS_PAYMENT_SUMMARY_ENABLED=false revenue is aggregated from the payment
+ * table instead (fine for small installs).
+ *
+ * @author NotionPay Team
+ */
+public class AnalyticsService {
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsService.class);
+    private static AnalyticsService instance;
+
+    private static final Set<String> GRANULARITIES = Set.of("day", "week", "month");
+    private static final int MAX_CACHED_REPORTS = 256;
+
+    private final EntityManagerFactory emf;
+    private final AnalyticsDAO analyticsDAO;
+    private final ConcurrentHashMap<PaymentDailySummary.Key, PendingTotals> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CachedReport> cache = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock flushLock = new ReentrantLock();  // held across JDBC: a monitor would pin virtual threads
+    private final ReentrantReadWriteLock recordLock = new ReentrantReadWriteLock();  // write: switching to/from a rebuild
+    private Map<Long, PaymentDailySummary> rebuildWatch;  // guarded by recordLock, non-null while a rebuild runs
+
+    private record CachedReport(long expiresAtMillis, Object report) {
+    }
+
+    private record PendingTotals(LongAdder payments, LongAdder amountCents) {
+    }
+
+    private AnalyticsService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.analyticsDAO = AnalyticsDAO.getInstance(emf);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.gauge("analytics.cache.size", cache::size);
+    }
+
+    public static synchronized AnalyticsService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new AnalyticsService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Listen for committed payments, start the periodic flush and backfill if needed
+     */
+    public void start() {
+        if (!isSummaryEnabled()) {
+            logger.info("Payment summary disabled, revenue is aggregated from payments");
+            return;
+        }
+        emf.unwrap(SessionFactoryImplementor.class)
+                .getEventListenerRegistry()
+                .appendListeners(EventType.POST_COMMIT_INSERT, new CommittedPaymentListener());
+
+        long intervalSeconds = Math.max(1, ConfigManager.current().getLong("ANALYTICS_SUMMARY_FLUSH_SECONDS", 10));
+        scheduler.execute(() -> {
+            try {
+                if (analyticsDAO.isPaymentSummaryEmpty()) {
+                    rebuildPaymentSummary();
+                }
+            } catch (Exception e) {
+                logger.error("Payment summary backfill failed", e);
+            }
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error("Payment summary flush failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Payment summary started (flush every {}s)", intervalSeconds);
+    }
+
+    /**
+     * Count one committed payment (memory only)
+     */
+    public void record(Payment payment) {
+        if (payment.getStatus() != PaymentStatus.COMPLETED || payment.getCreatedAt() == null) {
+            return;
+        }
+        LocalDate day = payment.getCreatedAt().atZoneSameInstant(DateTimeUtil.DANISH_ZONE).toLocalDate();
+        Long planId = payment.getSubscription() != null ? payment.getSubscription().getPlan().getId() : 0L;
+        PaymentDailySummary delta = new PaymentDailySummary(day, planId, payment.getCurrency(), 1, payment.getPriceCents());
+        recordLock.readLock().lock();
+        try {
+            if (rebuildWatch != null) {
+                rebuildWatch.put(payment.getId(), delta);
+            } else {
+                addPending(delta);
+            }
+        } finally {
+            recordLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add accumulated payment totals to payment_daily_summary with one batched upsert
+     * Totals are put back if the write fails, so nothing is lost.
+     * @return Number of summary rows touched
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Recompute payment_daily_summary from the payment table
+     * @return Number of summary rows written
+     */
+    public int rebuildPaymentSummary() {
+        flushLock.lock();
+        try {
+            Map<Long, PaymentDailySummary> watched = new ConcurrentHashMap<>();
+            List<PaymentDailySummary> earlier;
+            recordLock.writeLock().lock();
+            try {
+                earlier = drainPending();  // committed before the rebuild's snapshot, so counted by it
+                rebuildWatch = watched;
+            } finally {
+                recordLock.writeLock().unlock();
+            }
+
+            long startedAt = System.nanoTime();
+            AnalyticsDAO.Rebuild rebuild;
+            try {
+                rebuild = analyticsDAO.rebuildPaymentSummary(() -> {
+                    stopWatching();
+                    return watched.keySet();
+                });
+            } catch (RuntimeException e) {
+                stopWatching();
+                earlier.forEach(this::addPending);
+                watched.values().forEach(this::addPending);
+                throw e;
+            }
+            // Committed during the rebuild: keep only what its snapshot did not count
+            watched.forEach((paymentId, delta) -> {
+                if (!rebuild.countedPaymentIds().contains(paymentId)) {
+                    addPending(delta);
+                }
+            });
+            cache.clear();
+            logger.info("Payment summary rebuilt: {} rows in {} ms", rebuild.rows(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            return rebuild.rows();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void stopWatching() {
+        recordLock.writeLock().lock();
+        try {
+            rebuildWatch = null;
+        } finally {
+            recordLock.writeLock().unlock();
+        }
+    }
+
+    private void addPending(PaymentDailySummary delta) {
+        PendingTotals totals = pending.computeIfAbsent(delta.getId(),
+                key -> new PendingTotals(new LongAdder(), new LongAdder()));
+        totals.payments().add(delta.getPaymentCount());
+        totals.amountCents().add(delta.getAmountCents());
+    }
+
+    // Caller holds the write lock of recordLock
+    private List<PaymentDailySummary> drainPending() {
+        List<PaymentDailySummary> drained = new ArrayList<>();
+        for (Map.Entry<PaymentDailySummary.Key, PendingTotals> entry : pending.entrySet()) {
+            PaymentDailySummary.Key key = entry.getKey();
+            long payments = entry.getValue().payments().sumThenReset();
+            long amountCents = entry.getValue().amountCents().sumThenReset();
+            if (payments != 0 || amountCents != 0) {
+                drained.add(new PaymentDailySummary(key.getDay(), key.getPlanId(), key.getCurrency(), payments, amountCents));
+            }
+        }
+        return drained;
+    }
+
+    private int flushPending() {
+        List<PaymentDailySummary> deltas = new ArrayList<>();
+        LocalDate evictBefore = DateTimeUtil.now().toLocalDate().minusDays(1);
+        for (Map.Entry<PaymentDailySummary.Key, PendingTotals> entry : pending.entrySet()) {
+            PaymentDailySummary.Key key = entry.getKey();
+            PendingTotals totals = entry.getValue();
+            // A payment recorded in between may land its count now and its amount next flush
+            long payments = totals.payments().sumThenReset();
+            long amountCents = totals.amountCents().sumThenReset();
+            if (payments == 0 && amountCents == 0 && key.getDay().isBefore(evictBefore)) {
+                // Past days receive no new payments; drop idle keys so the map stays small
+                pending.remove(key, totals);
+                payments = totals.payments().sumThenReset();
+                amountCents = totals.amountCents().sumThenReset();
+            }
+            if (payments != 0 || amountCents != 0) {
+                deltas.add(new PaymentDailySummary(key.getDay(), key.getPlanId(), key.getCurrency(), payments, amountCents));
+            }
+        }
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            analyticsDAO.addPaymentTotals(deltas);
+            Metrics.add("analytics.summary.flushed", deltas.size());
+            return deltas.size();
+        } catch (RuntimeException e) {
+            deltas.forEach(this::addPending);
+            throw e;
+        } finally {
+            Metrics.recordNanos("analytics.summary.flush.time", System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * MRR and ARR per plan and currency, from current ACTIVE and PAST_DUE subscriptions
+     */
+    public MrrReportDTO getMrr() {
+        return cached("mrr", () -> {
+            Map<Long, MrrReportDTO.PlanRevenue> plans = new LinkedHashMap<>();
+            for (Object[] row : analyticsDAO.getSubscriptionCountsByPlan()) {
+                Period period = (Period) row[2];
+                Currency currency = (Currency) row[3];
+                SubscriptionStatus status = (SubscriptionStatus) row[4];
+                long subscriptions = ((Number) row[5]).longValue();
+                double priceCents = ((Number) row[6]).doubleValue();
+                long monthlyCents = Math.round(subscriptions * (period == Period.YEARLY ? priceCents / 12 : priceCents));
+
+                MrrReportDTO.PlanRevenue plan = plans.computeIfAbsent((Long) row[0],
+                        id -> new MrrReportDTO.PlanRevenue(id, (String) row[1], period, currency));
+                if (status == SubscriptionStatus.ACTIVE) {
+                    plan.activeSubscriptions += subscriptions;
+                    plan.mrrCents += monthlyCents;
+                    plan.arrCents = plan.mrrCents * 12;
+                } else {
+                    plan.pastDueSubscriptions += subscriptions;
+                    plan.atRiskMrrCents += monthlyCents;
+                }
+            }
+
+            Map<Currency, MrrReportDTO.Totals> totals = new EnumMap<>(Currency.class);
+            for (MrrReportDTO.PlanRevenue plan : plans.values()) {
+                MrrReportDTO.Totals total = totals.computeIfAbsent(plan.currency, c -> new MrrReportDTO.Totals());
+                total.activeSubscriptions += plan.activeSubscriptions;
+                total.mrrCents += plan.mrrCents;
+                total.arrCents += plan.arrCents;
+                total.atRiskMrrCents += plan.atRiskMrrCents;
+            }
+            return new MrrReportDTO(DateTimeUtil.now(), new ArrayList<>(plans.values()), totals);
+        });
+    }
+
+    /**
+     * Expected renewals per period, plan and currency for the next days
+     * @param days Days ahead, starting today (1 - ANALYTICS_FORECAST_MAX_DAYS)
+     */
+    public RevenueReportDTO getForecast(int days, String granularity) {
+        int maxDays = Math.max(1, ConfigManager.current().getInt("ANALYTICS_FORECAST_MAX_DAYS", 366));
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("days must be between 1 and " + maxDays);
+        }
+        String bucket = validGranularity(granularity);
+        LocalDate today = DateTimeUtil.now().toLocalDate();
+        return cached("forecast|" + today + "|" + days + "|" + bucket, () -> {
+            OffsetDateTime from = today.atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime();
+            OffsetDateTime to = today.plusDays(days).atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime();
+            return new RevenueReportDTO(today, today.plusDays(days - 1), bucket, "forecast",
+                    analyticsDAO.getRenewalForecast(from, to, bucket));
+        });
+    }
+
+    /**
+     * Collected revenue (completed payments) per period, plan and currency within [from, to]
+     */
+    public RevenueReportDTO getRevenue(LocalDate from, LocalDate to, String granularity) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        String bucket = validGranularity(granularity);
+        if (!isSummaryEnabled()) {
+            return cached("revenue|payments|" + from + "|" + to + "|" + bucket, () ->
+                    new RevenueReportDTO(from, to, bucket, "payments", analyticsDAO.getRevenueFromPayments(from, to, bucket)));
+        }
+        return cached("revenue|summary|" + from + "|" + to + "|" + bucket, () ->
+                new RevenueReportDTO(from, to, bucket, "summary", analyticsDAO.getRevenueFromSummary(from, to, bucket)));
+    }
+
+    /**
+     * Stop the flusher and write what is still pending
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Final payment summary flush failed", e);
+        }
+        logger.info("AnalyticsService shutdown");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> query) {
+        long ttlMillis = ConfigManager.current().getLong("ANALYTICS_CACHE_SECONDS", 60) * 1000;
+        long now = System.currentTimeMillis();
+        CachedReport hit = cache.get(key);
+        if (hit != null && hit.expiresAtMillis() > now) {
+            Metrics.increment("analytics.cache.hits");
+            return (T) hit.report();
+        }
+
+        long startedAt = System.nanoTime();
+        T report = query.get();
+        Metrics.recordNanos("analytics.query.time", System.nanoTime() - startedAt);
+        if (ttlMillis > 0) {
+            if (cache.size() >= MAX_CACHED_REPORTS) {
+                cache.clear();
+            }
+            cache.put(key, new CachedReport(now + ttlMillis, report));
+        }
+        return report;
+    }
+
+    private static String validGranularity(String granularity) {
+        String bucket = granularity == null ? "day" : granularity.toLowerCase();
+        if (!GRANULARITIES.contains(bucket)) {
+            throw new IllegalArgumentException("granularity must be day, week or month");
+        }
+        return bucket;
+    }
+
+    private static boolean isSummaryEnabled() {
+        return ConfigManager.current().getBoolean("ANALYTICS_PAYMENT_SUMMARY_ENABLED", true);
+    }
+
+    /**
+     * Called by Hibernate after the transaction that inserted an entity committed
+     */
+    private class CommittedPaymentListener implements PostCommitInsertEventListener {
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Payment payment) {
+                record(payment);
+            }
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            // Rolled back, nothing to count
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return Payment.class.equals(persister.getMappedClass());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package dat.services;
+
+import dat.billing.BillingCalendar;
+import dat.config.ConfigManager;
+import dat.daos.impl.SubscriptionDAO;
+import dat.dtos.BillingForecastDTO;
+import dat.entities.Subscription;
+import dat.enums.SubscriptionStatus;
+import dat.utils.DateTimeUtil;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory billing calendar
+ *
+ * Keeps the next billing date of every active subscription due within the next
+ * BILLING_CALENDAR_HORIZON_DAYS (default 7) in minute buckets (see BillingCalendar),
+ * so the billing engine can take what is due this minute without querying the
+ * database, and capacity planning can read a per-day forecast.
+ *
+ * PaymentService (step 7) and SubscriptionService report every change after it
+ * is persisted. Every BILLING_CALENDAR_RELOAD_MINUTES (default 15) the calendar is
+ * reloaded with one indexed query, which moves the horizon forward and picks up
+ * subscriptions changed outside this node.
+ *
+ * @author NotionPay Team
+ */
+public class BillingCalendarService {
+    private static final Logger logger = LoggerFactory.getLogger(BillingCalendarService.class);
+    private static BillingCalendarService instance;
+
+    private final SubscriptionDAO subscriptionDAO;
+    private final BillingCalendar calendar;
+    private final ScheduledExecutorService scheduler;
+
+    private BillingCalendarService(EntityManagerFactory emf) {
+        this.subscriptionDAO = SubscriptionDAO.getInstance(emf);
+        this.calendar = new BillingCalendar(horizonFrom(DateTimeUtil.now()).toInstant());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "billing-calendar");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.gauge("billing.calendar.size", calendar::size);
+    }
+
+    public static synchronized BillingCalendarService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new BillingCalendarService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Load the calendar and reload it periodically
+     */
+    public void start() {
+        long interval = Math.max(1, ConfigManager.current().getLong("BILLING_CALENDAR_RELOAD_MINUTES", 15));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (Exception e) {
+                logger.error("Billing calendar reload failed", e);
+            }
+        }, 0, interval, TimeUnit.MINUTES);
+        logger.info("Billing calendar started (horizon {} days, reload every {} min)", horizonDays(), interval);
+    }
+
+    /**
+     * Rebuild the calendar from the database up to a new horizon
+     * @return Number of subscriptions in the calendar
+     */
+    public int reload() {
+        long start = System.nanoTime();
+        OffsetDateTime horizon = horizonFrom(DateTimeUtil.now());
+
+        calendar.beginReload();
+        Map<Long, Instant> loaded = new LinkedHashMap<>();
+        subscriptionDAO.getBillingDatesBefore(horizon)
+                .forEach((subscriptionId, dueAt) -> loaded.put(subscriptionId, dueAt.toInstant()));
+        calendar.finishReload(loaded, horizon.toInstant());
+
+        Metrics.recordNanos("billing.calendar.reload", System.nanoTime() - start);
+        logger.debug("Billing calendar reloaded: {} subscriptions due before {}", calendar.size(), horizon);
+        return calendar.size();
+    }
+
+    /**
+     * Reflect a persisted subscription change (renewal, cancellation, status change)
+     * Only active subscriptions with a billing date are scheduled.
+     */
+    public void onSubscriptionChanged(Subscription subscription) {
+        if (subscription == null || subscription.getId() == null) {
+            return;
+        }
+        if (subscription.getStatus() == SubscriptionStatus.ACTIVE && subscription.getNextBillingDate() != null) {
+            calendar.schedule(subscription.getId(), subscription.getNextBillingDate().toInstant());
+        } else {
+            calendar.remove(subscription.getId());
+        }
+    }
+
+    /**
+     * Take the subscriptions due now (including overdue ones) off the calendar
+     * The caller bills them; a successful payment schedules the next period again.
+     * @return Subscription ids, earliest billing date first
+     */
+    public List<Long> takeDue() {
+        List<Long> due = calendar.takeDue(Instant.now());
+        Metrics.add("billing.calendar.taken", due.size());
+        return due;
+    }
+
+    /**
+     * Subscriptions due now, left on the calendar
+     */
+    public List<Long> peekDue() {
+        return calendar.peekDue(Instant.now());
+    }
+
+    /**
+     * Subscriptions due per day for the coming days (Danish time)
+     * @param days Number of days, capped at the calendar horizon
+     */
+    public BillingForecastDTO forecast(int days) {
+        int capped = Math.max(1, Math.min(days, horizonDays()));
+        Map<LocalDate, Integer> histogram = calendar.forecast(Instant.now(), capped, DateTimeUtil.DANISH_ZONE);
+        return new BillingForecastDTO(histogram, calendar.getHorizon().atZone(DateTimeUtil.DANISH_ZONE).toOffsetDateTime());
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        logger.info("Billing calendar stopped");
+    }
+
+    private static int horizonDays() {
+        return Math.max(1, ConfigManager.current().getInt("BILLING_CALENDAR_HORIZON_DAYS", 7));
+    }
+
+    private static OffsetDateTime horizonFrom(OffsetDateTime now) {
+        return now.plusDays(horizonDays());
+    }
+}
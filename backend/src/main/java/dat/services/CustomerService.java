@@ -2,6 +2,7 @@ package dat.services;
 
 import dat.daos.impl.CustomerDAO;
 import dat.daos.impl.SmsBalanceDAO;
+import dat.daos.impl.SmsCreditLeaseDAO;
 import dat.daos.impl.SubscriptionDAO;
 import dat.entities.Customer;
 import dat.entities.Plan;
@@ -31,7 +32,9 @@ public class CustomerService {
     
     private final CustomerDAO customerDAO;
     private final SmsBalanceDAO smsBalanceDAO;
+    private final SmsCreditLeaseDAO smsCreditLeaseDAO;
     private final SubscriptionDAO subscriptionDAO;
+    private final SubscriptionService subscriptionService;
     private final SerialLinkVerificationService serialLinkService;
     private final ISecurityDAO securityDAO;
 
@@ -45,7 +48,9 @@ public class CustomerService {
     private CustomerService(EntityManagerFactory emf) {
         this.customerDAO = CustomerDAO.getInstance(emf);
         this.smsBalanceDAO = SmsBalanceDAO.getInstance(emf);
+        this.smsCreditLeaseDAO = SmsCreditLeaseDAO.getInstance(emf);
         this.subscriptionDAO = SubscriptionDAO.getInstance(emf);
+        this.subscriptionService = SubscriptionService.getInstance(emf);
         this.serialLinkService = SerialLinkVerificationService.getInstance(emf);
         this.securityDAO = new SecurityDAO(emf);
         logger.info("CustomerService initialized");
@@ -67,12 +72,20 @@ public class CustomerService {
 
     /**
      * Get SMS balance for a customer
+     * With SMS reservations enabled, credits leased by nodes but not yet settled as
+     * used are counted as remaining (usage since the last settlement is not yet included)
      */
     public Optional<SmsBalance> getSmsBalance(Long customerId) throws CustomerServiceException {
         Customer customer = customerDAO.getById(customerId)
                 .orElseThrow(() -> new CustomerServiceException("Customer not found: " + customerId));
         
-        return smsBalanceDAO.getByExternalCustomerId(customer.getExternalCustomerId());
+        Optional<SmsBalance> balance = smsBalanceDAO.getByExternalCustomerId(customer.getExternalCustomerId());
+        if (balance.isPresent() && SmsCreditReservationService.isEnabled()) {
+            SmsBalance smsBalance = balance.get();  // detached, not written back
+            smsBalance.setRemainingSms(smsBalance.getRemainingSms()
+                    + smsCreditLeaseDAO.getReservedCredits(customer.getExternalCustomerId()));
+        }
+        return balance;
     }
 
     /**
@@ -139,6 +152,7 @@ public class CustomerService {
                 AnchorPolicy.ANNIVERSARY
             );
             subscriptionDAO.create(subscription);
+            subscriptionService.onSubscriptionChanged(subscription);
             
             // Create SmsBalance (from external SMS provider)
             SmsBalance smsBalance = new SmsBalance(
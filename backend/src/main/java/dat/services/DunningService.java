@@ -0,0 +1,271 @@
+package dat.services;
+
+import dat.billing.DunningBackoff;
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.daos.impl.DunningDAO;
+import dat.daos.impl.PaymentMethodDAO;
+import dat.entities.ActivityLog;
+import dat.entities.Customer;
+import dat.entities.PaymentMethod;
+import dat.entities.Plan;
+import dat.entities.Subscription;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import dat.enums.SubscriptionStatus;
+import dat.services.PaymentService.PaymentProcessingException;
+import dat.utils.DateTimeUtil;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dunning: retries of failed subscription renewals
+ *
+ * When the processor declines a renewal (a subscription payment made on or after
+ * its nextBillingDate), PaymentService reports it here. Charges that are still
+ * processing or waiting for the customer are not declines and start nothing; a
+ * retry that ends up pending is postponed by the base delay without counting. The
+ * failure is counted in subscription_dunning, the subscription moves ACTIVE ->
+ * PAST_DUE (which also takes it off the billing calendar) and the next attempt is
+ * scheduled with exponential backoff and jitter (see DunningBackoff). After
+ * DUNNING_MAX_ATTEMPTS failures the subscription is CANCELED. Any successful
+ * payment for the subscription ends dunning, and step 7 of the payment makes it
+ * ACTIVE again.
+ *
+ * Every DUNNING_POLL_SECONDS one batch of due retries is claimed (at most
+ * DUNNING_BATCH_SIZE, oldest first, skipping rows other nodes hold) and charged
+ * on virtual threads, at most DUNNING_CONCURRENCY at a time, against the
+ * customer's default payment method.
+ *
+ * @author NotionPay Team
+ */
+public class DunningService {
+    private static final Logger logger = LoggerFactory.getLogger(DunningService.class);
+    private static DunningService instance;
+
+    private final EntityManagerFactory emf;
+    private final DunningDAO dunningDAO;
+    private final PaymentMethodDAO paymentMethodDAO;
+    private final SubscriptionService subscriptionService;
+    private final ActivityLogWriter activityLogWriter;
+    private final ScheduledExecutorService scheduler;
+
+    private DunningService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.dunningDAO = DunningDAO.getInstance(emf);
+        this.paymentMethodDAO = PaymentMethodDAO.getInstance(emf);
+        this.subscriptionService = SubscriptionService.getInstance(emf);
+        this.activityLogWriter = ActivityLogWriter.getInstance(emf);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dunning");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized DunningService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new DunningService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Run due retries periodically
+     */
+    public void start() {
+        long interval = Math.max(5, ConfigManager.current().getLong("DUNNING_POLL_SECONDS", 60));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runDueRetries();
+            } catch (Exception e) {
+                logger.error("Dunning run failed", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        logger.info("Dunning scheduled (every {} s)", interval);
+    }
+
+    /**
+     * Claim one batch of due retries and charge them
+     * @return Number of retries attempted
+     */
+    public int runDueRetries() {
+        ConfigSnapshot config = ConfigManager.current();
+        int batchSize = Math.max(1, config.getInt("DUNNING_BATCH_SIZE", 50));
+        int concurrency = Math.max(1, config.getInt("DUNNING_CONCURRENCY", 8));
+        long claimSeconds = Math.max(60, config.getLong("DUNNING_CLAIM_SECONDS", 600));
+
+        List<Long> due = dunningDAO.claimDue(batchSize, claimSeconds);
+        if (due.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Long subscriptionId : due) {
+                inFlight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        retry(subscriptionId);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }  // close() waits for the batch
+        Metrics.add("dunning.retries", due.size());
+        Metrics.recordNanos("dunning.batch.time", System.nanoTime() - start);
+        logger.info("Dunning: retried {} renewals", due.size());
+        return due.size();
+    }
+
+    /**
+     * A renewal charge failed (called by PaymentService before it throws)
+     * Ignored unless the subscription is active or past due and its billing date has come.
+     */
+    public void onRenewalFailed(Subscription subscription, String reason) {
+        if (subscription == null || !isDue(subscription)) {
+            return;
+        }
+        try {
+            recordFailure(subscription, reason);
+        } catch (RuntimeException e) {
+            // Never hide the payment error from the caller; the next failure is counted instead
+            logger.error("Could not record failed renewal of subscription {}", subscription.getId(), e);
+        }
+    }
+
+    /**
+     * A payment for the subscription succeeded (called by PaymentService after commit)
+     */
+    public void onRenewalPaid(Subscription subscription) {
+        if (subscription == null) {
+            return;
+        }
+        try {
+            if (dunningDAO.delete(subscription.getId())) {
+                Metrics.increment("dunning.recovered");
+                logger.info("Subscription {} recovered from dunning", subscription.getId());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not end dunning for subscription {}", subscription.getId(), e);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        logger.info("Dunning stopped");
+    }
+
+    private void retry(Long subscriptionId) {
+        try {
+            Optional<Subscription> found = subscriptionService.getById(subscriptionId);
+            if (found.isEmpty() || !isDue(found.get())) {
+                dunningDAO.delete(subscriptionId);  // paid, canceled or removed meanwhile
+                return;
+            }
+            Subscription subscription = found.get();
+            Customer customer = subscription.getCustomer();
+            Optional<PaymentMethod> paymentMethod = paymentMethodDAO.getDefaultByCustomer(customer);
+            if (paymentMethod.isEmpty()) {
+                recordFailure(subscription, "No default payment method");
+                return;
+            }
+
+            Plan plan = subscription.getPlan();
+            PaymentService.PaymentRequest request = new PaymentService.PaymentRequest(
+                    customer.getId(),
+                    paymentMethod.get().getId().toString(),
+                    (int) Math.round(plan.getPriceCents()),
+                    plan.getCurrency().name(),
+                    "Renewal retry: " + plan.getName(),
+                    subscriptionId,
+                    null,
+                    null
+            );
+            try {
+                // Looked up here: PaymentService itself depends on this service
+                PaymentService.getInstance(emf).processPayment(request);
+            } catch (PaymentProcessingException e) {
+                if (e.isPending()) {
+                    dunningDAO.postpone(subscriptionId, delaySeconds(1));
+                } else if (!e.isChargeFailed()) {
+                    recordFailure(subscription, e.getMessage());  // declines were already counted by PaymentService
+                }
+            }
+        } catch (Exception e) {
+            // Retried again once the claim runs out
+            logger.error("Dunning retry of subscription {} failed", subscriptionId, e);
+        }
+    }
+
+    private void recordFailure(Subscription subscription, String reason) {
+        Long subscriptionId = subscription.getId();
+        int maxAttempts = Math.max(1, ConfigManager.current().getInt("DUNNING_MAX_ATTEMPTS", 4));
+        int attempts = dunningDAO.recordFailure(subscriptionId, reason, this::delaySeconds);
+        Metrics.increment("dunning.failures");
+
+        if (attempts >= maxAttempts) {
+            cancelForNonPayment(subscription, attempts, reason);
+            return;
+        }
+        if (subscription.getStatus() == SubscriptionStatus.ACTIVE) {
+            subscriptionService.changeStatus(subscriptionId, SubscriptionStatus.PAST_DUE);
+        }
+        logger.info("Renewal of subscription {} failed (attempt {} of {}): {}",
+                subscriptionId, attempts, maxAttempts, reason);
+    }
+
+    private void cancelForNonPayment(Subscription subscription, int attempts, String reason) {
+        Long subscriptionId = subscription.getId();
+        dunningDAO.delete(subscriptionId);
+        subscriptionService.changeStatus(subscriptionId, SubscriptionStatus.CANCELED).ifPresent(canceled -> {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("subscriptionId", subscriptionId);
+            metadata.put("planId", canceled.getPlan().getId());
+            metadata.put("planName", canceled.getPlan().getName());
+            metadata.put("canceledAt", canceled.getEndDate().toString());
+            metadata.put("reason", "payment_failed");
+            metadata.put("attempts", attempts);
+            metadata.put("lastError", reason);
+            activityLogWriter.submit(new ActivityLog(
+                    canceled.getCustomer(),
+                    null,
+                    ActivityLogType.SUBSCRIPTION_CANCELLED,
+                    ActivityLogStatus.SUCCESS,
+                    metadata
+            ));
+            Metrics.increment("dunning.canceled");
+            logger.warn("Subscription {} canceled after {} failed renewal attempts", subscriptionId, attempts);
+        });
+    }
+
+    private long delaySeconds(int attempt) {
+        ConfigSnapshot config = ConfigManager.current();
+        long base = Math.max(1, config.getLong("DUNNING_BASE_DELAY_MINUTES", 1440)) * 60;
+        long max = Math.max(1, config.getLong("DUNNING_MAX_DELAY_HOURS", 168)) * 3600;
+        int jitter = config.getInt("DUNNING_JITTER_PERCENT", 25);
+        return DunningBackoff.delaySeconds(attempt, base, max, jitter, ThreadLocalRandom.current());
+    }
+
+    // Renewal territory: still billable and the billing date has come
+    private static boolean isDue(Subscription subscription) {
+        SubscriptionStatus status = subscription.getStatus();
+        return (status == SubscriptionStatus.ACTIVE || status == SubscriptionStatus.PAST_DUE)
+                && subscription.getNextBillingDate() != null
+                && !subscription.getNextBillingDate().isAfter(DateTimeUtil.now());
+    }
+}
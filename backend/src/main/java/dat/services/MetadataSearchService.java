@@ -0,0 +1,81 @@
+package dat.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dat.daos.impl.ActivityLogDAO;
+import dat.daos.impl.ReceiptDAO;
+import dat.dtos.ActivityLogDTO;
+import dat.dtos.ReceiptDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Containment search over jsonb metadata (activity logs and receipts)
+ *
+ * A filter is a JSON object; a row matches when its metadata contains every
+ * key/value of the filter (PostgreSQL @>), e.g. {"paymentId": 123} finds all
+ * activity touching payment 123. Backed by GIN indexes (MetadataIndexMigration).
+ *
+ * @author NotionPay Team
+ */
+public class MetadataSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(MetadataSearchService.class);
+    private static MetadataSearchService instance;
+
+    private final ActivityLogDAO activityLogDAO;
+    private final ReceiptDAO receiptDAO;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static synchronized MetadataSearchService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new MetadataSearchService(emf);
+        }
+        return instance;
+    }
+
+    private MetadataSearchService(EntityManagerFactory emf) {
+        this.activityLogDAO = ActivityLogDAO.getInstance(emf);
+        this.receiptDAO = ReceiptDAO.getInstance(emf);
+    }
+
+    /**
+     * Activity logs whose metadata contains the filter, newest first
+     * @throws IllegalArgumentException if the filter is empty
+     */
+    public List<ActivityLogDTO> searchActivityLogs(Map<String, Object> filter, int limit) {
+        String json = toFilterJson(filter);
+        List<ActivityLogDTO> results = activityLogDAO.findByMetadataContaining(json, limit);
+        logger.debug("Activity log metadata search {} matched {} rows", json, results.size());
+        return results;
+    }
+
+    /**
+     * Receipts whose metadata contains the filter, newest first
+     * @throws IllegalArgumentException if the filter is empty
+     */
+    public List<ReceiptDTO> searchReceipts(Map<String, Object> filter, int limit) {
+        String json = toFilterJson(filter);
+        List<ReceiptDTO> results = receiptDAO.findByMetadataContaining(json, limit).stream()
+                .map(ReceiptDTO::fromEntity)
+                .collect(Collectors.toList());
+        logger.debug("Receipt metadata search {} matched {} rows", json, results.size());
+        return results;
+    }
+
+    private String toFilterJson(Map<String, Object> filter) {
+        if (filter == null || filter.isEmpty()) {
+            // An empty object is contained in every row's metadata
+            throw new IllegalArgumentException("Metadata filter must contain at least one key");
+        }
+        try {
+            return objectMapper.writeValueAsString(filter);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata filter is not valid JSON", e);
+        }
+    }
+}
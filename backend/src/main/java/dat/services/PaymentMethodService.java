@@ -2,7 +2,6 @@ package dat.services;
 
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentMethod;
-import dat.daos.impl.ActivityLogDAO;
 import dat.daos.impl.CustomerDAO;
 import dat.daos.impl.PaymentMethodDAO;
 import dat.entities.ActivityLog;
@@ -32,7 +31,7 @@ public class PaymentMethodService {
     
     private final PaymentMethodDAO paymentMethodDAO;
     private final CustomerDAO customerDAO;
-    private final ActivityLogDAO activityLogDAO;
+    private final ActivityLogWriter activityLogWriter;
     private final StripePaymentService stripeService;
 
     public static PaymentMethodService getInstance(EntityManagerFactory emf) {
@@ -45,7 +44,7 @@ public class PaymentMethodService {
     private PaymentMethodService(EntityManagerFactory emf) {
         this.paymentMethodDAO = PaymentMethodDAO.getInstance(emf);
         this.customerDAO = CustomerDAO.getInstance(emf);
-        this.activityLogDAO = ActivityLogDAO.getInstance(emf);
+        this.activityLogWriter = ActivityLogWriter.getInstance(emf);
         this.stripeService = StripePaymentService.getInstance();
         logger.info("PaymentMethodService initialized");
     }
@@ -126,7 +125,7 @@ public class PaymentMethodService {
                     ActivityLogStatus.SUCCESS,
                     metadata
                 );
-                activityLogDAO.create(activityLog);
+                activityLogWriter.submit(activityLog);
             }
 
             return savedPaymentMethod;
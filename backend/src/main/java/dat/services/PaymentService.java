@@ -5,6 +5,8 @@ import com.stripe.model.PaymentIntent;
 import dat.daos.impl.*;
 import dat.entities.*;
 import dat.enums.*;
+import dat.events.CustomerEvent;
+import dat.events.CustomerEventBus;
 import dat.utils.DateTimeUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
@@ -44,6 +46,8 @@ public class PaymentService {
     private final SmsBalanceDAO smsBalanceDAO;
     private final StripePaymentService stripeService;
     private final SubscriptionService subscriptionService;
+    private final DunningService dunningService;
+    private final CustomerEventBus eventBus;
 
     public static PaymentService getInstance(EntityManagerFactory emf) {
         if (instance == null) {
@@ -64,6 +68,8 @@ public class PaymentService {
         this.smsBalanceDAO = SmsBalanceDAO.getInstance(emf);
         this.stripeService = StripePaymentService.getInstance();
         this.subscriptionService = SubscriptionService.getInstance(emf);
+        this.dunningService = DunningService.getInstance(emf);
+        this.eventBus = CustomerEventBus.getInstance();
         logger.info("PaymentService initialized with ACID transaction support");
     }
 
@@ -145,7 +151,11 @@ public class PaymentService {
                 );
             } catch (StripeException e) {
                 logger.error("Stripe payment failed: {}", e.getMessage());
-                throw new PaymentProcessingException("Stripe payment failed: " + stripeService.getErrorMessage(e), e);
+                String message = "Stripe payment failed: " + stripeService.getErrorMessage(e);
+                if (stripeService.isDeclined(e)) {
+                    dunningService.onRenewalFailed(subscription, message);
+                }
+                throw new PaymentProcessingException(message, e, true);
             }
             
             // Check payment status
@@ -153,7 +163,15 @@ public class PaymentService {
                     PaymentStatus.COMPLETED : PaymentStatus.PENDING;
             
             if (status != PaymentStatus.COMPLETED) {
-                throw new PaymentProcessingException("Payment not completed. Status: " + paymentIntent.getStatus());
+                String message = "Payment not completed. Status: " + paymentIntent.getStatus();
+                if (stripeService.isDeclined(paymentIntent)) {
+                    dunningService.onRenewalFailed(subscription, message);
+                    throw new PaymentProcessingException(message, null, true);
+                }
+                // processing / requires_action may still succeed: no dunning, and no new charge meanwhile
+                logger.warn("PaymentIntent {} is {}; left for the processor to complete", 
+                    paymentIntent.getId(), paymentIntent.getStatus());
+                throw new PaymentProcessingException(message, null, true, true);
             }
             
             // ========== STEP 3: Start database transaction (ALL OR NOTHING) ==========
@@ -185,21 +203,17 @@ public class PaymentService {
             logger.debug("Receipt generated: {}", receipt.getReceiptNumber());
             
             // ========== STEP 6: Update SMS balance (if applicable) ==========
+            Integer remainingSmsAfterPayment = null;
+            boolean renewed = false;
             if (product != null && product.getSmsCount() != null) {
                 logger.debug("Step 6: Updating SMS balance");
                 String externalCustomerId = customer.getExternalCustomerId();
                 int smsCredits = product.getSmsCount();
                 
-                // Recharge SMS credits within the same transaction
-                SmsBalance smsBalance = em.createQuery(
-                    "SELECT s FROM SmsBalance s WHERE s.externalCustomerId = :externalId",
-                    SmsBalance.class
-                )
-                .setParameter("externalId", externalCustomerId)
-                .getSingleResult();
-                
-                smsBalance.recharge(smsCredits);
-                em.merge(smsBalance);
+                // Recharge SMS credits within the same transaction (atomic UPDATE + PURCHASE ledger entry)
+                remainingSmsAfterPayment = smsBalanceDAO.adjustSmsCredits(em, externalCustomerId, smsCredits,
+                                SmsLedgerReason.PURCHASE, "payment:" + payment.getId())
+                        .orElseThrow(() -> new IllegalStateException("SMS balance not found for customer: " + externalCustomerId));
                 logger.debug("SMS balance updated: added {} credits to customer {}", smsCredits, externalCustomerId);
                 
                 // Log SMS purchase activity
@@ -230,15 +244,21 @@ public class PaymentService {
                 OffsetDateTime oldBillingDate = subscription.getNextBillingDate();
                 OffsetDateTime newBillingDate = subscriptionService.calculateNextBillingDate(subscription);
                 
-                subscription.setNextBillingDate(newBillingDate);
-                subscription.setStatus(SubscriptionStatus.ACTIVE);
-                em.merge(subscription);
-                
-                logger.debug("Subscription {} updated: nextBillingDate changed from {} to {}", 
-                    subscription.getId(), oldBillingDate, newBillingDate);
+                // Conditional UPDATE: a subscription canceled since step 1 stays canceled
+                renewed = subscriptionDAO.renew(em, subscription.getId(), newBillingDate);
+                if (renewed) {
+                    subscription.setNextBillingDate(newBillingDate);
+                    subscription.setStatus(SubscriptionStatus.ACTIVE);
+                    logger.debug("Subscription {} updated: nextBillingDate changed from {} to {}", 
+                        subscription.getId(), oldBillingDate, newBillingDate);
+                } else {
+                    // The charge went through; keep the payment and receipt, but do not revive the subscription
+                    logger.warn("Subscription {} was canceled or ended during payment {}; not renewed (consider a refund)",
+                        subscription.getId(), paymentIntent.getId());
+                }
                 
                 // Log subscription renewal
-                if (request.session != null) {
+                if (renewed && request.session != null) {
                     Map<String, Object> renewalMetadata = new HashMap<>();
                     renewalMetadata.put("subscriptionId", subscription.getId());
                     renewalMetadata.put("planId", subscription.getPlan().getId());
@@ -290,13 +310,22 @@ public class PaymentService {
             logger.info("Payment processing completed successfully. Payment ID: {}, Receipt: {}", 
                 payment.getId(), receipt.getReceiptNumber());
             
+            // Notify live dashboards (after commit, so nothing is announced that could roll back)
+            publishPaymentEvents(customer.getId(), payment, remainingSmsAfterPayment);
+            if (renewed) {
+                subscriptionService.onSubscriptionChanged(subscription);  // fresh view, next period on the calendar
+            }
+            dunningService.onRenewalPaid(subscription);
+            
             // Return success result
             return new PaymentResult(
                 true,
                 payment,
                 receipt,
                 subscription,
-                "Payment processed successfully"
+                subscription == null || renewed
+                    ? "Payment processed successfully"
+                    : "Payment processed, but the subscription is no longer active and was not renewed"
             );
             
         } catch (PaymentProcessingException e) {
@@ -323,6 +352,18 @@ public class PaymentService {
         }
     }
 
+    private void publishPaymentEvents(Long customerId, Payment payment, Integer remainingSms) {
+        Map<String, Object> paymentEvent = new HashMap<>();
+        paymentEvent.put("paymentId", payment.getId());
+        paymentEvent.put("amountCents", payment.getPriceCents());
+        paymentEvent.put("currency", payment.getCurrency());
+        paymentEvent.put("status", payment.getStatus());
+        eventBus.publish(customerId, CustomerEvent.PAYMENT, paymentEvent);
+        if (remainingSms != null) {
+            eventBus.publish(customerId, CustomerEvent.SMS_BALANCE, Map.of("remainingSms", remainingSms));
+        }
+    }
+
     /**
      * Generate receipt for a payment
      */
@@ -453,12 +494,41 @@ public class PaymentService {
      * Custom exception for payment processing errors
      */
     public static class PaymentProcessingException extends Exception {
+        private final boolean chargeFailed;
+        private final boolean pending;
+
         public PaymentProcessingException(String message) {
-            super(message);
+            this(message, null, false);
         }
 
         public PaymentProcessingException(String message, Throwable cause) {
+            this(message, cause, false);
+        }
+
+        public PaymentProcessingException(String message, Throwable cause, boolean chargeFailed) {
+            this(message, cause, chargeFailed, false);
+        }
+
+        public PaymentProcessingException(String message, Throwable cause, boolean chargeFailed, boolean pending) {
             super(message, cause);
+            this.chargeFailed = chargeFailed;
+            this.pending = pending;
+        }
+
+        /**
+         * True if the processor declined or did not complete the charge
+         * (as opposed to invalid input or a database error)
+         */
+        public boolean isChargeFailed() {
+            return chargeFailed;
+        }
+
+        /**
+         * True if the charge was neither completed nor declined (processing,
+         * requires_action) and may still succeed; charging again risks a double charge
+         */
+        public boolean isPending() {
+            return pending;
         }
     }
 }
@@ -0,0 +1,104 @@
+package dat.services;
+
+import dat.entities.ActivityDailyAggregate;
+import dat.entities.ActivityLog;
+import dat.utils.DateTimeUtil;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Activity counts recorded since the last flush, per customer, day, type and status
+ *
+ * Recording only increments a LongAdder, so concurrent committers never wait on
+ * each other. Draining swaps every counter to 0 and returns the deltas; increments
+ * racing a drain land in the next one. Used by ActivityAggregateService.
+ */
+final class PendingActivityCounts {
+
+    private final ConcurrentHashMap<ActivityDailyAggregate.Key, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Add to the count of a key (one committed activity log adds 1)
+     */
+    void add(ActivityDailyAggregate.Key key, long count) {
+        pending.computeIfAbsent(key, k -> new LongAdder()).add(count);
+    }
+
+    /**
+     * Aggregate key of an activity log: customer, Europe/Copenhagen day, type and status
+     * @return null if the log has no customer or timestamp
+     */
+    static ActivityDailyAggregate.Key keyOf(ActivityLog activityLog) {
+        if (activityLog.getCustomer() == null || activityLog.getTimestamp() == null) {
+            return null;
+        }
+        LocalDate day = activityLog.getTimestamp().atZoneSameInstant(DateTimeUtil.DANISH_ZONE).toLocalDate();
+        return new ActivityDailyAggregate.Key(
+                activityLog.getCustomer().getId(), day, activityLog.getType(), activityLog.getStatus());
+    }
+
+    /**
+     * Take the counts recorded since the last drain
+     * @param evictBefore Idle keys of days before this one are removed
+     * @return One delta per key with a non-zero count
+     */
+    List<ActivityDailyAggregate> drain(LocalDate evictBefore) {
+        List<ActivityDailyAggregate> deltas = new ArrayList<>();
+        for (Map.Entry<ActivityDailyAggregate.Key, LongAdder> entry : pending.entrySet()) {
+            // sumThenReset swaps each cell to 0 atomically, concurrent increments land in the next drain
+            long delta = entry.getValue().sumThenReset();
+            if (delta == 0 && entry.getKey().getDay().isBefore(evictBefore)) {
+                // Past days receive no new events; drop idle keys so the map stays small
+                pending.remove(entry.getKey(), entry.getValue());
+                delta = entry.getValue().sumThenReset();
+            }
+            if (delta != 0) {
+                ActivityDailyAggregate.Key key = entry.getKey();
+                deltas.add(new ActivityDailyAggregate(key.getCustomerId(), key.getDay(), key.getType(), key.getStatus(), delta));
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Take the counts of the matching days and leave the others pending
+     * Callers must keep add() out while this runs (see ActivityAggregateService.rebuild).
+     * @return One delta per matching key with a non-zero count
+     */
+    List<ActivityDailyAggregate> take(Predicate<LocalDate> days) {
+        List<ActivityDailyAggregate> taken = new ArrayList<>();
+        for (Map.Entry<ActivityDailyAggregate.Key, LongAdder> entry : pending.entrySet()) {
+            ActivityDailyAggregate.Key key = entry.getKey();
+            if (days.test(key.getDay())) {
+                long count = entry.getValue().sumThenReset();
+                if (count != 0) {
+                    taken.add(new ActivityDailyAggregate(key.getCustomerId(), key.getDay(), key.getType(), key.getStatus(), count));
+                }
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Put drained deltas back, e.g. after the write failed
+     */
+    void restore(Collection<ActivityDailyAggregate> deltas) {
+        for (ActivityDailyAggregate delta : deltas) {
+            add(delta.getId(), delta.getCount());
+        }
+    }
+
+    /**
+     * Number of keys currently tracked
+     */
+    int size() {
+        return pending.size();
+    }
+}
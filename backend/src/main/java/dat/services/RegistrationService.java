@@ -0,0 +1,410 @@
+package dat.services;
+
+import dat.dtos.OnboardingResultDTO;
+import dat.dtos.RegisterRequest;
+import dat.entities.*;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import dat.enums.AnchorPolicy;
+import dat.enums.SmsLedgerReason;
+import dat.enums.SubscriptionStatus;
+import dat.security.entities.Role;
+import dat.security.entities.User;
+import dat.security.services.PasswordHashingService;
+import dat.utils.DateTimeUtil;
+import dat.utils.ValidationUtil;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Service for registering customers
+ *
+ * A registration creates User, Customer, Subscription, SmsBalance and (for
+ * interactive sign-up) Session + ActivityLog. All of it happens in a single
+ * transaction, so a failure midway leaves nothing behind. The SerialLink and its
+ * Plan are fetched with one query, the password is hashed before the
+ * transaction starts, and the inserts are flushed together as JDBC batches.
+ * The serial number and email are checked before hashing, so a rejected
+ * registration never costs a BCrypt hash; the transaction checks them again.
+ *
+ * Bulk onboarding registers many serial-linked customers at once: rows are
+ * checked against serial links and existing users first, the passwords of the
+ * accepted rows are hashed in parallel on the BCrypt pool and rows are inserted
+ * in chunks of ONBOARD_CHUNK_SIZE per transaction.
+ *
+ * @author NotionPay Team
+ */
+public class RegistrationService {
+    private static RegistrationService instance;
+    private static final Logger logger = LoggerFactory.getLogger(RegistrationService.class);
+    private static final int ONBOARD_CHUNK_SIZE = 500;
+
+    private final EntityManagerFactory emf;
+    private final PasswordHashingService passwordHashingService;
+    private final SubscriptionService subscriptionService;
+
+    public static RegistrationService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new RegistrationService(emf);
+        }
+        return instance;
+    }
+
+    private RegistrationService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.passwordHashingService = PasswordHashingService.getInstance();
+        this.subscriptionService = SubscriptionService.getInstance(emf);
+        logger.info("RegistrationService initialized");
+    }
+
+    /**
+     * Register a customer in one unit of work
+     *
+     * @param request Validated registration request
+     * @param token JWT issued for the new user (stored as the session token)
+     * @param sessionExpiresAt Session expiry
+     * @param ip Client IP
+     * @param userAgent Client user agent
+     * @return Everything that was created
+     * @throws RegistrationException if the serial number and email do not match
+     * @throws EntityExistsException if the user already exists
+     */
+    public RegistrationResult register(RegisterRequest request, String token, OffsetDateTime sessionExpiresAt,
+                                       String ip, String userAgent) throws RegistrationException {
+        // Cheap checks first: a bad serial number or a taken email is rejected without hashing
+        try (EntityManager em = emf.createEntityManager()) {
+            checkRegistration(em, request);
+        }
+
+        // BCrypt runs before the transaction so no connection is held while hashing
+        String passwordHash = passwordHashingService.hash(request.password);
+
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+
+                // Checked again: the user may have been created while the password was hashed
+                SerialLinkWithPlan link = checkRegistration(em, request);
+
+                NewCustomer created = persistCustomerGraph(em, findOrCreateUserRole(em), request, passwordHash, link);
+                Customer customer = created.customer();
+                Subscription subscription = created.subscription();
+
+                Session session = new Session(customer, token, sessionExpiresAt, ip, userAgent);
+                em.persist(session);
+
+                Map<String, Object> subscriptionMetadata = new HashMap<>();
+                subscriptionMetadata.put("subscriptionId", subscription.getId());
+                subscriptionMetadata.put("planId", link.plan().getId());
+                subscriptionMetadata.put("planName", link.plan().getName());
+                subscriptionMetadata.put("startDate", subscription.getStartDate().toString());
+                subscriptionMetadata.put("nextBillingDate", subscription.getNextBillingDate().toString());
+
+                ActivityLog subscriptionLog = new ActivityLog(
+                        customer,
+                        session,
+                        ActivityLogType.SUBSCRIPTION_CREATED,
+                        ActivityLogStatus.SUCCESS,
+                        subscriptionMetadata
+                );
+                em.persist(subscriptionLog);
+
+                em.getTransaction().commit();
+                subscriptionService.onSubscriptionChanged(subscription);
+                logger.info("Registered {} ({}) on plan {}", customer.getCompanyName(), request.email, link.plan().getName());
+
+                return new RegistrationResult(customer, subscription, link.plan(), link.serialLink(), session);
+
+            } catch (RuntimeException | RegistrationException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Register many serial-linked customers at once (admin bulk onboarding)
+     *
+     * No session or activity log is created for onboarded rows; customers get a
+     * session on their first login. Each row is reported individually, so bad
+     * rows never block the rest of the batch.
+     *
+     * @return One result per input row, in input order
+     */
+    public List<OnboardingResultDTO> onboard(List<RegisterRequest> requests) throws InterruptedException {
+        long startedAt = System.currentTimeMillis();
+        OnboardingResultDTO[] results = new OnboardingResultDTO[requests.size()];
+
+        // Step 1: Validate rows and drop duplicates inside the batch
+        List<Integer> validRows = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+        Set<Integer> seenSerials = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            RegisterRequest request = requests.get(i);
+            try {
+                ValidationUtil.isValidEmail(request.email);
+                ValidationUtil.isValidCompanyName(request.companyName);
+                ValidationUtil.isStrongPassword(request.password);
+                if (request.serialNumber == null) {
+                    throw new IllegalArgumentException("Serial number cannot be empty");
+                }
+            } catch (IllegalArgumentException | NullPointerException e) {
+                results[i] = OnboardingResultDTO.failed(request, e.getMessage());
+                continue;
+            }
+            if (!seenEmails.add(request.email) || !seenSerials.add(request.serialNumber)) {
+                results[i] = OnboardingResultDTO.failed(request, "Duplicate email or serial number in batch");
+                continue;
+            }
+            validRows.add(i);
+        }
+
+        // Step 2: Check serial links and existing users, so rejected rows are never hashed
+        validRows = checkedRows(requests, validRows, results);
+
+        // Step 3: Hash the accepted passwords in parallel, outside any transaction
+        List<String> passwords = validRows.stream().map(i -> requests.get(i).password).toList();
+        List<String> hashes = passwordHashingService.hashAll(passwords);
+        Map<Integer, String> hashByRow = new HashMap<>();
+        for (int j = 0; j < validRows.size(); j++) {
+            hashByRow.put(validRows.get(j), hashes.get(j));
+        }
+
+        // Step 4: Insert in chunks, one transaction per chunk
+        for (int from = 0; from < validRows.size(); from += ONBOARD_CHUNK_SIZE) {
+            List<Integer> chunk = validRows.subList(from, Math.min(from + ONBOARD_CHUNK_SIZE, validRows.size()));
+            try {
+                onboardChunk(requests, chunk, hashByRow, results);
+            } catch (RuntimeException e) {
+                // A constraint violation aborts the whole chunk; retry its rows one by one
+                logger.warn("Onboarding chunk failed ({}), retrying {} rows individually", e.getMessage(), chunk.size());
+                for (Integer row : chunk) {
+                    try {
+                        onboardChunk(requests, List.of(row), hashByRow, results);
+                    } catch (RuntimeException rowError) {
+                        results[row] = OnboardingResultDTO.failed(requests.get(row), rootMessage(rowError));
+                    }
+                }
+            }
+        }
+
+        long created = Arrays.stream(results).filter(r -> r.success).count();
+        logger.info("Onboarded {}/{} customers in {} ms", created, requests.size(), System.currentTimeMillis() - startedAt);
+        return Arrays.asList(results);
+    }
+
+    private void onboardChunk(List<RegisterRequest> requests, List<Integer> rows,
+                              Map<Integer, String> hashByRow, OnboardingResultDTO[] results) {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+
+                // Checked again inside the transaction; rows may have been registered since step 2
+                OnboardingLookup lookup = lookup(em, requests, rows);
+                Role userRole = findOrCreateUserRole(em);
+
+                Map<Integer, NewCustomer> created = new LinkedHashMap<>();
+                for (Integer row : rows) {
+                    RegisterRequest request = requests.get(row);
+                    String rejection = lookup.rejection(request);
+                    if (rejection != null) {
+                        results[row] = OnboardingResultDTO.failed(request, rejection);
+                    } else {
+                        created.put(row, persistCustomerGraph(em, userRole, request, hashByRow.get(row),
+                                lookup.links().get(request.serialNumber)));
+                    }
+                }
+
+                em.getTransaction().commit();
+                created.forEach((row, newCustomer) -> {
+                    results[row] = OnboardingResultDTO.created(requests.get(row), newCustomer.customer().getId());
+                    subscriptionService.onSubscriptionChanged(newCustomer.subscription());
+                });
+
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Rows whose serial link matches and whose email and serial number are not taken yet;
+     * the others get their failed result here
+     */
+    private List<Integer> checkedRows(List<RegisterRequest> requests, List<Integer> rows, OnboardingResultDTO[] results) {
+        List<Integer> accepted = new ArrayList<>(rows.size());
+        try (EntityManager em = emf.createEntityManager()) {
+            for (int from = 0; from < rows.size(); from += ONBOARD_CHUNK_SIZE) {
+                List<Integer> chunk = rows.subList(from, Math.min(from + ONBOARD_CHUNK_SIZE, rows.size()));
+                OnboardingLookup lookup = lookup(em, requests, chunk);
+                for (Integer row : chunk) {
+                    String rejection = lookup.rejection(requests.get(row));
+                    if (rejection != null) {
+                        results[row] = OnboardingResultDTO.failed(requests.get(row), rejection);
+                    } else {
+                        accepted.add(row);
+                    }
+                }
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Serial links, existing users and registered serial numbers for a set of rows
+     */
+    private OnboardingLookup lookup(EntityManager em, List<RegisterRequest> requests, List<Integer> rows) {
+        List<Integer> serialNumbers = rows.stream().map(i -> requests.get(i).serialNumber).toList();
+        List<String> emails = rows.stream().map(i -> requests.get(i).email).toList();
+
+        Map<Integer, SerialLinkWithPlan> links = findSerialLinksWithPlans(em, serialNumbers);
+        Set<String> existingEmails = new HashSet<>(em.createQuery(
+                "SELECT u.email FROM User u WHERE u.email IN :emails", String.class)
+                .setParameter("emails", emails)
+                .getResultList());
+        Set<Integer> usedSerials = new HashSet<>(em.createQuery(
+                "SELECT c.serialNumber FROM Customer c WHERE c.serialNumber IN :serials", Integer.class)
+                .setParameter("serials", serialNumbers)
+                .getResultList());
+        return new OnboardingLookup(links, existingEmails, usedSerials);
+    }
+
+    /**
+     * SerialLink + Plan for a registration whose serial number and email match and whose user does not exist
+     * @throws RegistrationException if the serial number and email do not match
+     * @throws EntityExistsException if the user already exists
+     */
+    private SerialLinkWithPlan checkRegistration(EntityManager em, RegisterRequest request) throws RegistrationException {
+        SerialLinkWithPlan link = findSerialLinkWithPlan(em, request.serialNumber);
+        if (link == null || !link.serialLink().getExpectedEmail().equals(request.email)) {
+            throw new RegistrationException("Serial number and email do not match");
+        }
+        if (em.find(User.class, request.email) != null) {
+            throw new EntityExistsException("User with email: " + request.email + " already exists");
+        }
+        return link;
+    }
+
+    /**
+     * Persist User, Customer, Subscription and SmsBalance for one registration
+     */
+    private NewCustomer persistCustomerGraph(EntityManager em, Role userRole, RegisterRequest request,
+                                          String passwordHash, SerialLinkWithPlan link) {
+        User user = User.withPasswordHash(request.email, passwordHash);
+        user.addRole(userRole);
+        em.persist(user);
+
+        Customer customer = new Customer(
+                user,
+                request.companyName,
+                request.serialNumber,
+                link.serialLink().getExternalCustomerId(),
+                DateTimeUtil.now()
+        );
+        em.persist(customer);
+
+        // Customer already subscribed in external system → ACTIVE from day one
+        Subscription subscription = new Subscription(
+                customer,
+                link.plan(),
+                SubscriptionStatus.ACTIVE,
+                DateTimeUtil.now(),
+                link.serialLink().getNextPaymentDate(),
+                AnchorPolicy.ANNIVERSARY
+        );
+        em.persist(subscription);
+
+        em.persist(new SmsBalance(customer.getExternalCustomerId(), link.serialLink().getInitialSmsBalance()));
+        em.persist(new SmsLedgerEntry(customer.getExternalCustomerId(), link.serialLink().getInitialSmsBalance(),
+                SmsLedgerReason.OPENING, null));
+        return new NewCustomer(customer, subscription);
+    }
+
+    private Role findOrCreateUserRole(EntityManager em) {
+        Role userRole = em.find(Role.class, "user");
+        if (userRole == null) {
+            userRole = new Role("user");
+            em.persist(userRole);
+        }
+        return userRole;
+    }
+
+    private SerialLinkWithPlan findSerialLinkWithPlan(EntityManager em, Integer serialNumber) {
+        return findSerialLinksWithPlans(em, List.of(serialNumber)).get(serialNumber);
+    }
+
+    /**
+     * SerialLink + Plan for each serial number, in a single query
+     */
+    private Map<Integer, SerialLinkWithPlan> findSerialLinksWithPlans(EntityManager em, Collection<Integer> serialNumbers) {
+        List<Object[]> rows = em.createQuery(
+                "SELECT s, p FROM SerialLink s JOIN Plan p ON p.name = s.planName WHERE s.serialNumber IN :serialNumbers",
+                Object[].class)
+                .setParameter("serialNumbers", serialNumbers)
+                .getResultList();
+        Map<Integer, SerialLinkWithPlan> links = new HashMap<>();
+        for (Object[] row : rows) {
+            SerialLink serialLink = (SerialLink) row[0];
+            links.put(serialLink.getSerialNumber(), new SerialLinkWithPlan(serialLink, (Plan) row[1]));
+        }
+        return links;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private record SerialLinkWithPlan(SerialLink serialLink, Plan plan) { }
+
+    private record NewCustomer(Customer customer, Subscription subscription) { }
+
+    private record OnboardingLookup(Map<Integer, SerialLinkWithPlan> links, Set<String> existingEmails,
+                                    Set<Integer> usedSerials) {
+        /**
+         * Why a row cannot be onboarded, or null if it can
+         */
+        String rejection(RegisterRequest request) {
+            SerialLinkWithPlan link = links.get(request.serialNumber);
+            if (link == null || !link.serialLink().getExpectedEmail().equals(request.email)) {
+                return "Serial number and email do not match";
+            }
+            if (existingEmails.contains(request.email)) {
+                return "User with this email already exists";
+            }
+            if (usedSerials.contains(request.serialNumber)) {
+                return "Serial number is already registered";
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Entities created by a registration
+     */
+    public record RegistrationResult(Customer customer, Subscription subscription, Plan plan,
+                                     SerialLink serialLink, Session session) { }
+
+    /**
+     * Custom exception for registration operations
+     */
+    public static class RegistrationException extends Exception {
+        public RegistrationException(String message) {
+            super(message);
+        }
+    }
+}
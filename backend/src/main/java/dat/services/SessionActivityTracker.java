@@ -0,0 +1,121 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.daos.impl.SessionDAO;
+import dat.utils.Metrics;
+import dat.utils.TokenDigest;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records when sessions were last used without writing on every request
+ *
+ * Authenticated requests call {@link #touch(String)}, which only updates an
+ * in-memory map keyed by the token digest (one entry per session, latest
+ * timestamp wins), so raw bearer tokens are not kept around. A background
+ * flusher drains the map every SESSION_TOUCH_FLUSH_SECONDS (default 5) and
+ * writes all pending last_seen_at values in one batched UPDATE, so N requests
+ * on the same session cost at most one write per interval.
+ *
+ * @author NotionPay Team
+ */
+public class SessionActivityTracker {
+    private static final Logger logger = LoggerFactory.getLogger(SessionActivityTracker.class);
+    private static SessionActivityTracker instance;
+
+    private final SessionDAO sessionDAO;
+    private final ConcurrentHashMap<String, Instant> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private SessionActivityTracker(EntityManagerFactory emf) {
+        this.sessionDAO = SessionDAO.getInstance(emf);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-touch-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.gauge("session.touch.pending", pending::size);
+    }
+
+    public static synchronized SessionActivityTracker getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new SessionActivityTracker(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Record that a session token was just used (hot path, memory only)
+     */
+    public void touch(String token) {
+        if (token == null) {
+            return;
+        }
+        pending.put(TokenDigest.hex(TokenDigest.sha256(token)), Instant.now());
+    }
+
+    /**
+     * Start the periodic flusher
+     */
+    public void start() {
+        long intervalSeconds = Math.max(1, ConfigManager.current().getLong("SESSION_TOUCH_FLUSH_SECONDS", 5));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error("Session touch flush failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Session activity tracking started (flush every {}s)", intervalSeconds);
+    }
+
+    /**
+     * Write all pending last-seen times to the database
+     * Entries touched again while the flush is running stay in the map for the next round
+     * @return Number of sessions updated
+     */
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<String, Instant> batch = new HashMap<>();
+        for (Map.Entry<String, Instant> entry : pending.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+        }
+        // Only remove the exact values we are writing, so concurrent touches are not lost
+        batch.forEach(pending::remove);
+
+        try {
+            int updated = sessionDAO.updateLastSeen(batch);
+            Metrics.add("session.touch.flushed", updated);
+            logger.debug("Flushed last-seen for {} sessions ({} rows updated)", batch.size(), updated);
+            return updated;
+        } catch (RuntimeException e) {
+            // Put the batch back unless a newer touch has arrived in the meantime
+            batch.forEach((token, seenAt) -> pending.merge(token, seenAt, (current, old) -> current.isAfter(old) ? current : old));
+            throw e;
+        }
+    }
+
+    /**
+     * Stop the flusher and write whatever is still pending
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Final session touch flush failed", e);
+        }
+        logger.info("SessionActivityTracker shutdown");
+    }
+}
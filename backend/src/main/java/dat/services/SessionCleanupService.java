@@ -1,20 +1,20 @@
 package dat.services;
 
+import dat.config.ConfigManager;
 import dat.daos.impl.SessionDAO;
-import dat.entities.Session;
+import dat.utils.DateTimeUtil;
 import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.OffsetDateTime;
-import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Service for cleaning up expired sessions
- * Runs periodically to deactivate old sessions
+ * Runs periodically to deactivate expired and idle sessions
  * 
  * Security improvement: Prevents session table from growing indefinitely
  * and ensures expired sessions cannot be used
@@ -26,9 +26,11 @@ public class SessionCleanupService {
     private static SessionCleanupService instance;
     private final ScheduledExecutorService scheduler;
     private final SessionDAO sessionDAO;
+    private final SessionActivityTracker activityTracker;
     
     private SessionCleanupService(EntityManagerFactory emf) {
         this.sessionDAO = SessionDAO.getInstance(emf);
+        this.activityTracker = SessionActivityTracker.getInstance(emf);
         this.scheduler = Executors.newScheduledThreadPool(1);
         logger.info("SessionCleanupService initialized");
     }
@@ -41,41 +43,43 @@ public class SessionCleanupService {
     }
     
     /**
-     * Start periodic cleanup (runs every hour)
+     * Start periodic cleanup (every SESSION_CLEANUP_INTERVAL_MINUTES, default 5)
      */
     public void startPeriodicCleanup() {
+        long intervalMinutes = Math.max(1, ConfigManager.current().getLong("SESSION_CLEANUP_INTERVAL_MINUTES", 5));
         scheduler.scheduleAtFixedRate(() -> {
             try {
                 cleanupExpiredSessions();
             } catch (Exception e) {
                 logger.error("Session cleanup failed", e);
             }
-        }, 1, 60, TimeUnit.MINUTES); // Run every hour
+        }, 1, intervalMinutes, TimeUnit.MINUTES);
         
-        logger.info("Periodic session cleanup started (every 60 minutes)");
+        logger.info("Periodic session cleanup started (every {} minutes)", intervalMinutes);
     }
     
     /**
-     * Clean up expired sessions
-     * Deactivates sessions that have expired
+     * Clean up expired and idle sessions
+     * Deactivates sessions past their expiry time, and sessions with no request
+     * for SESSION_IDLE_TIMEOUT_MINUTES (default 30, 0 disables idle expiry).
+     * Both are single bulk UPDATEs, so the cost does not grow with the table.
      */
     public int cleanupExpiredSessions() {
         logger.info("Starting session cleanup...");
+        OffsetDateTime now = DateTimeUtil.now();
         
-        Set<Session> allSessions = sessionDAO.getAll();
-        OffsetDateTime now = OffsetDateTime.now();
-        int deactivatedCount = 0;
+        int expiredCount = sessionDAO.deactivateExpired(now);
         
-        for (Session session : allSessions) {
-            if (session.getActive() && session.getExpiresAt().isBefore(now)) {
-                session.setActive(false);
-                sessionDAO.update(session);
-                deactivatedCount++;
-            }
+        int idleCount = 0;
+        long idleTimeoutMinutes = ConfigManager.current().getLong("SESSION_IDLE_TIMEOUT_MINUTES", 30);
+        if (idleTimeoutMinutes > 0) {
+            // Persist recent touches first so sessions in use are not expired
+            activityTracker.flush();
+            idleCount = sessionDAO.deactivateIdle(now.minusMinutes(idleTimeoutMinutes));
         }
         
-        logger.info(" Session cleanup completed: {} sessions deactivated", deactivatedCount);
-        return deactivatedCount;
+        logger.info(" Session cleanup completed: {} expired and {} idle sessions deactivated", expiredCount, idleCount);
+        return expiredCount + idleCount;
     }
     
     /**
@@ -0,0 +1,183 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.daos.impl.CustomerDAO;
+import dat.daos.impl.SmsAlertDAO;
+import dat.daos.impl.SmsBalanceDAO;
+import dat.entities.ActivityLog;
+import dat.entities.Customer;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import dat.services.SmsCreditService.SmsCreditException;
+import dat.sms.SmsAlertNotifier;
+import dat.sms.SmsAlertNotifiers;
+import dat.sms.SmsBalanceAlert;
+import dat.sms.SmsThresholds;
+import dat.utils.DateTimeUtil;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Low SMS balance alerts, evaluated incrementally on every balance change
+ *
+ * SmsBalanceDAO (and SmsCreditLeaseDAO for settled lease usage) report each
+ * committed change as (previous balance, new balance, customer thresholds) from
+ * the statement that made it, so evaluating costs no query and no table scan:
+ * SmsThresholds.crossings compares two numbers per threshold. Only an actual
+ * crossing does I/O, on a background thread:
+ * - falling to/below a threshold disarms it in sms_alert_state; whoever disarms
+ *   it (one node, one change) writes an SMS_LOW_BALANCE activity log and calls
+ *   the SmsAlertNotifier
+ * - climbing back above threshold + hysteresis re-arms it
+ *
+ * Thresholds are per customer (sms_balance.alert_thresholds), defaulting to
+ * SMS_ALERT_THRESHOLDS (default "100,0"). Hysteresis is
+ * max(SMS_ALERT_HYSTERESIS_MIN, threshold * SMS_ALERT_HYSTERESIS_PERCENT / 100),
+ * defaults 10 credits and 20%.
+ *
+ * @author NotionPay Team
+ */
+public class SmsBalanceAlertService {
+    private static final Logger logger = LoggerFactory.getLogger(SmsBalanceAlertService.class);
+    private static final int MAX_THRESHOLDS = 10;
+    private static SmsBalanceAlertService instance;
+
+    private final EntityManagerFactory emf;
+    private final CustomerDAO customerDAO;
+    private final SmsBalanceDAO smsBalanceDAO;
+    private final SmsAlertDAO alertDAO;
+    private final SmsAlertNotifier notifier;
+    private final ConcurrentHashMap<String, int[]> parsedThresholds = new ConcurrentHashMap<>();
+    private final ExecutorService alertExecutor;
+
+    private SmsBalanceAlertService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.customerDAO = CustomerDAO.getInstance(emf);
+        this.smsBalanceDAO = SmsBalanceDAO.getInstance(emf);
+        this.alertDAO = SmsAlertDAO.getInstance(emf);
+        this.notifier = SmsAlertNotifiers.fromConfig(ConfigManager.current());
+        this.alertExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sms-balance-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized SmsBalanceAlertService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new SmsBalanceAlertService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Start evaluating balance changes
+     */
+    public void register() {
+        SmsBalanceDAO.addBalanceListener(this::onBalanceChanged);
+        logger.info("SMS balance alerts registered (default thresholds {})", defaultThresholds());
+    }
+
+    /**
+     * Runs on the thread that committed the change: compare only, hand crossings off
+     */
+    void onBalanceChanged(String externalCustomerId, int previousBalance, int balance, String alertThresholds) {
+        try {
+            ConfigSnapshot config = ConfigManager.current();
+            int[] thresholds = thresholds(alertThresholds == null ? defaultThresholds() : alertThresholds);
+            List<SmsThresholds.Crossing> crossings = SmsThresholds.crossings(previousBalance, balance, thresholds,
+                    config.getInt("SMS_ALERT_HYSTERESIS_PERCENT", 20), config.getInt("SMS_ALERT_HYSTERESIS_MIN", 10));
+            if (!crossings.isEmpty()) {
+                alertExecutor.execute(() -> handle(externalCustomerId, balance, crossings));
+            }
+        } catch (Exception e) {
+            logger.error("Could not evaluate SMS alert thresholds for {}: {}", externalCustomerId, e.getMessage());
+        }
+    }
+
+    private void handle(String externalCustomerId, int balance, List<SmsThresholds.Crossing> crossings) {
+        for (SmsThresholds.Crossing crossing : crossings) {
+            try {
+                if (crossing.direction() == SmsThresholds.Direction.RECOVERED) {
+                    if (alertDAO.rearm(externalCustomerId, crossing.threshold())) {
+                        logger.debug("SMS alert threshold {} re-armed for {}", crossing.threshold(), externalCustomerId);
+                    }
+                } else if (alertDAO.trigger(externalCustomerId, crossing.threshold())) {
+                    alert(externalCustomerId, crossing.threshold(), balance);
+                } else {
+                    Metrics.increment("sms.alerts.suppressed");
+                }
+            } catch (Exception e) {
+                logger.error("SMS alert for {} (threshold {}) failed: {}",
+                        externalCustomerId, crossing.threshold(), e.getMessage());
+            }
+        }
+    }
+
+    private void alert(String externalCustomerId, int threshold, int balance) {
+        Customer customer = customerDAO.getByExternalCustomerId(externalCustomerId).orElse(null);
+        if (customer == null) {
+            logger.warn("SMS balance alert for unknown customer {}", externalCustomerId);
+            return;
+        }
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("threshold", threshold);
+        metadata.put("remainingSms", balance);
+        ActivityLogWriter.getInstance(emf).submit(
+                new ActivityLog(customer, null, ActivityLogType.SMS_LOW_BALANCE, ActivityLogStatus.SUCCESS, metadata));
+
+        notifier.notify(new SmsBalanceAlert(customer.getId(), externalCustomerId, threshold, balance, DateTimeUtil.now()));
+        Metrics.increment("sms.alerts.sent");
+    }
+
+    /**
+     * Set a customer's alert thresholds (empty list = use the defaults)
+     * @return The thresholds now in effect, ascending
+     */
+    public int[] setThresholds(Long customerId, List<Integer> thresholds) throws SmsCreditException {
+        if (thresholds.size() > MAX_THRESHOLDS) {
+            throw new IllegalArgumentException("At most " + MAX_THRESHOLDS + " thresholds are allowed");
+        }
+        int[] parsed = SmsThresholds.parse(String.join(",", thresholds.stream().map(String::valueOf).toList()));
+        String externalCustomerId = customerDAO.getById(customerId)
+                .map(Customer::getExternalCustomerId)
+                .orElseThrow(() -> new SmsCreditException(SmsCreditException.Reason.CUSTOMER_NOT_FOUND,
+                        "Customer not found: " + customerId, null));
+        String value = parsed.length == 0 ? null : SmsThresholds.format(parsed);
+        if (externalCustomerId == null || !smsBalanceDAO.updateAlertThresholds(externalCustomerId, value)) {
+            throw new SmsCreditException(SmsCreditException.Reason.NO_BALANCE,
+                    "SMS balance not found for customer: " + customerId, null);
+        }
+        logger.info("SMS alert thresholds of customer {} set to {}", customerId, value == null ? "defaults" : value);
+        return value == null ? thresholds(defaultThresholds()) : parsed;
+    }
+
+    public void shutdown() {
+        alertExecutor.shutdown();
+        try {
+            alertExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("SmsBalanceAlertService shutdown");
+    }
+
+    private int[] thresholds(String value) {
+        return parsedThresholds.computeIfAbsent(value, SmsThresholds::parse);
+    }
+
+    private static String defaultThresholds() {
+        return ConfigManager.current().get("SMS_ALERT_THRESHOLDS", "100,0");
+    }
+}
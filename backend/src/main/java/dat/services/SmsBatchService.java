@@ -0,0 +1,228 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.daos.impl.CustomerDAO;
+import dat.entities.ActivityLog;
+import dat.entities.Session;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import dat.sms.SmsGateway;
+import dat.sms.SmsGateways;
+import dat.sms.SmsSendResult;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Sends SMS campaigns (one message to many recipients)
+ *
+ * A batch is accounted as a whole:
+ * - recipients are validated (E.164) and de-duplicated up front; rejected ones are never charged
+ * - the credits for all valid recipients are debited once (SmsCreditService.debit), so an
+ *   insufficient balance rejects the batch before anything is sent
+ * - sends go through the configured SmsGateway on virtual threads, at most
+ *   SMS_BATCH_CONCURRENCY (default 64) in flight
+ * - credits for sends the gateway rejected are refunded once at the end
+ * - one SMS_SENT activity log with the counts is written per batch, not per SMS
+ *
+ * Per-recipient results are handed to the caller's consumer on the calling
+ * thread, in completion order, as they arrive.
+ *
+ * @author NotionPay Team
+ */
+public class SmsBatchService {
+    private static final Logger logger = LoggerFactory.getLogger(SmsBatchService.class);
+    private static final Pattern E164 = Pattern.compile("^\\+[1-9]\\d{6,14}$");
+    private static SmsBatchService instance;
+
+    private final EntityManagerFactory emf;
+    private final CustomerDAO customerDAO;
+    private final SmsCreditService smsCreditService;
+    private final SmsGateway gateway;
+
+    public static synchronized SmsBatchService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new SmsBatchService(emf);
+        }
+        return instance;
+    }
+
+    private SmsBatchService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.customerDAO = CustomerDAO.getInstance(emf);
+        this.smsCreditService = SmsCreditService.getInstance(emf);
+        this.gateway = SmsGateways.fromConfig(ConfigManager.current());
+        logger.info("SmsBatchService initialized (gateway {})", gateway.name());
+    }
+
+    /**
+     * Totals of a finished batch (last NDJSON line of a send-batch response)
+     */
+    public record BatchSummary(String batchId, int requested, int sent, int failed, int rejected, int refunded,
+                               long durationMs) {
+    }
+
+    /**
+     * Send one message to every recipient
+     * @param session Session of the caller, for the activity log (nullable: logged without a session)
+     * @param onResult Receives every recipient's result on the calling thread; if it throws
+     *                 (e.g. the client went away) sending continues without further results
+     * @throws SmsCreditService.SmsCreditException if the balance cannot cover the valid recipients (nothing sent)
+     */
+    public BatchSummary sendBatch(Long customerId, List<String> recipients, String message, Session session,
+                                  Consumer<SmsSendResult> onResult) throws SmsCreditService.SmsCreditException {
+        long startedAt = System.nanoTime();
+        String batchId = UUID.randomUUID().toString();
+
+        Set<String> valid = new LinkedHashSet<>();
+        List<SmsSendResult> rejected = new ArrayList<>();
+        for (String recipient : recipients) {
+            String normalized = recipient == null ? "" : recipient.replace(" ", "");
+            if (!E164.matcher(normalized).matches()) {
+                rejected.add(SmsSendResult.failed(recipient, "Invalid phone number (E.164 expected)"));
+            } else if (!valid.add(normalized)) {
+                rejected.add(SmsSendResult.failed(recipient, "Duplicate recipient"));
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            smsCreditService.debit(customerId, valid.size(), "sms-batch:" + batchId);
+        }
+
+        ResultSink sink = new ResultSink(onResult);
+        rejected.forEach(sink::accept);
+
+        int sent = valid.isEmpty() ? 0 : dispatch(batchId, valid, message, sink);
+        int failed = valid.size() - sent;
+        int refunded = 0;
+        if (failed > 0) {
+            try {
+                smsCreditService.refund(customerId, failed, "sms-batch:" + batchId);
+                refunded = failed;
+            } catch (Exception e) {
+                logger.error("Could not refund {} SMS credits for batch {} (customer {}): {}",
+                        failed, batchId, customerId, e.getMessage());
+            }
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        BatchSummary summary = new BatchSummary(batchId, recipients.size(), sent, failed, rejected.size(), refunded, durationMs);
+        Metrics.add("sms.sent", sent);
+        Metrics.add("sms.send.failed", failed);
+        Metrics.recordNanos("sms.batch.time", System.nanoTime() - startedAt);
+        logActivity(customerId, session, summary);
+        logger.info("SMS batch {} for customer {}: {} sent, {} failed, {} rejected in {} ms",
+                batchId, customerId, sent, failed, rejected.size(), durationMs);
+        return summary;
+    }
+
+    /**
+     * @return Number of recipients the gateway accepted
+     */
+    private int dispatch(String batchId, Set<String> recipients, String message, ResultSink sink) {
+        int concurrency = Math.max(1, ConfigManager.current().getInt("SMS_BATCH_CONCURRENCY", 64));
+        Semaphore inFlight = new Semaphore(concurrency);
+        LinkedBlockingQueue<SmsSendResult> results = new LinkedBlockingQueue<>();
+        int sent = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Submitting blocks on the semaphore, so it runs apart from the thread streaming results
+            Thread.ofVirtual().name("sms-batch-" + batchId).start(() -> {
+                for (String recipient : recipients) {
+                    inFlight.acquireUninterruptibly();
+                    executor.execute(() -> {
+                        try {
+                            results.add(sendOne(recipient, message));
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            });
+
+            for (int received = 0; received < recipients.size(); received++) {
+                SmsSendResult result = results.take();
+                if (result.sent()) {
+                    sent++;
+                }
+                sink.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending SMS batch " + batchId, e);
+        }
+        return sent;
+    }
+
+    private SmsSendResult sendOne(String recipient, String message) {
+        try {
+            SmsSendResult result = gateway.send(recipient, message);
+            return result != null ? result : SmsSendResult.failed(recipient, "No result from gateway");
+        } catch (Exception e) {
+            return SmsSendResult.failed(recipient, e.getMessage());
+        }
+    }
+
+    // Logged with a null session when the caller has none
+    private void logActivity(Long customerId, Session session, BatchSummary summary) {
+        try {
+            customerDAO.getById(customerId).ifPresent(customer -> {
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("batchId", summary.batchId());
+                metadata.put("gateway", gateway.name());
+                metadata.put("requested", summary.requested());
+                metadata.put("sent", summary.sent());
+                metadata.put("failed", summary.failed());
+                metadata.put("rejected", summary.rejected());
+                metadata.put("refunded", summary.refunded());
+                metadata.put("durationMs", summary.durationMs());
+                ActivityLogStatus status = summary.sent() > 0 ? ActivityLogStatus.SUCCESS : ActivityLogStatus.FAILURE;
+                ActivityLogWriter.getInstance(emf).submit(
+                        new ActivityLog(customer, session, ActivityLogType.SMS_SENT, status, metadata));
+            });
+        } catch (Exception e) {
+            logger.warn("Could not log SMS batch {}: {}", summary.batchId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Forwards results to the caller until it fails once
+     */
+    private static final class ResultSink {
+        private final Consumer<SmsSendResult> consumer;
+        private boolean closed;
+
+        ResultSink(Consumer<SmsSendResult> consumer) {
+            this.consumer = consumer;
+        }
+
+        void accept(SmsSendResult result) {
+            if (closed) {
+                return;
+            }
+            try {
+                consumer.accept(result);
+            } catch (Exception e) {
+                closed = true;
+                logger.debug("Result stream closed, continuing batch without results: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.config.ConfigSnapshot;
+import dat.daos.impl.SmsCreditLeaseDAO;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory SMS credit reservations (opt-in via SMS_RESERVATIONS_ENABLED)
+ *
+ * Instead of one UPDATE per SMS, this node leases blocks of SMS_LEASE_BLOCK_SIZE
+ * credits (default 100) per customer from sms_balance (SmsCreditLeaseDAO.grant)
+ * and debits them from an in-memory AtomicInteger with a CAS loop: no lock and
+ * no database round-trip until the block runs out.
+ *
+ * Overspending across nodes is impossible because leased credits leave
+ * sms_balance when the lease is granted. Every SMS_LEASE_SETTLE_SECONDS
+ * (default 5) the node settles what it used into its lease rows and extends them
+ * by SMS_LEASE_TTL_SECONDS (default 120). Leases idle for SMS_LEASE_IDLE_SECONDS
+ * and all leases at shutdown are released, returning the unused credits.
+ *
+ * If a node dies its leases expire, and the next settle run on any node
+ * reclaims them. The dead node may have spent part of the reserved credits
+ * since its last settlement, so they are not returned but held in suspense
+ * (SmsCreditSuspense) until a provider sync (SmsLedgerService.syncWithProvider)
+ * sets the balance to the provider's. A node that finds its own lease reclaimed
+ * resolves the suspense itself: its unsettled usage is recorded and the rest
+ * returned. A node stops debiting a lease locally a fifth of the TTL before its
+ * database expiry, so it never spends credits that another node may already
+ * have reclaimed. Keep the settle interval short to keep suspense small.
+ *
+ * @author NotionPay Team
+ */
+public class SmsCreditReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(SmsCreditReservationService.class);
+    private static final int CLOSED = Integer.MIN_VALUE;
+    private static SmsCreditReservationService instance;
+
+    private final SmsCreditLeaseDAO leaseDAO;
+    private final String nodeId;
+    private final boolean stableNodeId;
+    private final ConcurrentHashMap<String, LocalLease> leases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ReentrantLock> refillLocks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private SmsCreditReservationService(EntityManagerFactory emf) {
+        String configuredNodeId = ConfigManager.current().get("SMS_NODE_ID", null);
+        this.leaseDAO = SmsCreditLeaseDAO.getInstance(emf);
+        this.stableNodeId = configuredNodeId != null && !configuredNodeId.isBlank();
+        this.nodeId = stableNodeId ? configuredNodeId : UUID.randomUUID().toString();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sms-credit-settlement");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized SmsCreditReservationService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new SmsCreditReservationService(emf);
+        }
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return ConfigManager.current().getBoolean("SMS_RESERVATIONS_ENABLED", false);
+    }
+
+    /**
+     * Recover leases left behind by crashed nodes (and by this node's previous run,
+     * when SMS_NODE_ID is set) and start periodic settlement
+     */
+    public void start() {
+        if (stableNodeId) {
+            int recovered = leaseDAO.reclaimNode(nodeId);
+            if (recovered > 0) {
+                logger.warn("Credits of {} leases from a previous run of node {} held in suspense until a provider sync",
+                        recovered, nodeId);
+            }
+        }
+        reclaimExpired();
+        long interval = Math.max(1, ConfigManager.current().getLong("SMS_LEASE_SETTLE_SECONDS", 5));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                settleAll();
+            } catch (Exception e) {
+                logger.error("SMS credit settlement failed", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        Metrics.gauge("sms.leases.active", leases::size);
+        logger.info("SMS credit reservations started (node {}, settle every {} s)", nodeId, interval);
+    }
+
+    /**
+     * Debit credits from this node's lease, leasing a new block when it runs out
+     * @return false if the customer's balance cannot cover the debit
+     */
+    public boolean tryDebit(String externalCustomerId, int count) {
+        LocalLease lease = leases.get(externalCustomerId);
+        if (lease != null && lease.isUsable(System.nanoTime()) && lease.tryTake(count)) {
+            Metrics.increment("sms.lease.hit");
+            return true;
+        }
+        return debitWithRefill(externalCustomerId, count);
+    }
+
+    private boolean debitWithRefill(String externalCustomerId, int count) {
+        ReentrantLock lock = refillLocks.computeIfAbsent(externalCustomerId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            LocalLease lease = leases.get(externalCustomerId);
+            if (lease != null && !lease.isUsable(System.nanoTime())) {
+                settle(lease);
+                lease = leases.get(externalCustomerId);
+            }
+            if (lease != null && lease.tryTake(count)) {
+                return true;
+            }
+
+            ConfigSnapshot config = ConfigManager.current();
+            int ttlSeconds = ttlSeconds(config);
+            int blockSize = Math.max(1, config.getInt("SMS_LEASE_BLOCK_SIZE", 100));
+            int missing = lease == null ? count : Math.max(1, count - Math.max(0, lease.available.get()));
+            int requested = Math.max(blockSize, missing);
+            long requestedAt = System.nanoTime();
+            SmsCreditLeaseDAO.Grant grant = leaseDAO.grant(nodeId, externalCustomerId, requested, ttlSeconds);
+            Metrics.increment("sms.lease.granted");
+            if (grant == null) {
+                return false;
+            }
+
+            if (lease != null && lease.id == grant.leaseId()) {
+                lease.granted += grant.granted();
+                lease.available.addAndGet(grant.granted());
+                lease.renew(requestedAt, ttlSeconds);
+            } else {
+                lease = new LocalLease(grant.leaseId(), externalCustomerId, grant.reserved());
+                lease.renew(requestedAt, ttlSeconds);
+                leases.put(externalCustomerId, lease);
+            }
+            if (lease.tryTake(count)) {
+                return true;
+            }
+            if (grant.granted() < requested) {
+                // The balance ran dry: hand the partial block back now instead of at the idle release
+                try {
+                    release(lease);
+                } catch (RuntimeException e) {
+                    logger.error("Releasing SMS lease {} failed, credits return on expiry: {}", lease.id, e.getMessage());
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Settle usage of every local lease, release idle ones and reclaim expired leases of other nodes
+     */
+    public void settleAll() {
+        long idleNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ConfigManager.current().getLong("SMS_LEASE_IDLE_SECONDS", 60)));
+        long now = System.nanoTime();
+        for (LocalLease lease : leases.values()) {
+            ReentrantLock lock = refillLocks.computeIfAbsent(lease.externalCustomerId, id -> new ReentrantLock());
+            lock.lock();
+            try {
+                if (now - lease.lastUsedNanos > idleNanos) {
+                    release(lease);
+                } else {
+                    settle(lease);
+                }
+            } catch (Exception e) {
+                logger.error("Settling SMS lease {} failed: {}", lease.id, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+        reclaimExpired();
+    }
+
+    /**
+     * Release every lease, returning unused credits (called from Main's shutdown hook)
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        for (LocalLease lease : leases.values()) {
+            ReentrantLock lock = refillLocks.computeIfAbsent(lease.externalCustomerId, id -> new ReentrantLock());
+            lock.lock();
+            try {
+                release(lease);
+            } catch (Exception e) {
+                logger.error("Releasing SMS lease {} failed, credits return on expiry: {}", lease.id, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+        logger.info("SmsCreditReservationService shutdown");
+    }
+
+    // Caller holds the customer's refill lock
+    private void settle(LocalLease lease) {
+        int remaining = lease.available.get();
+        if (remaining == CLOSED) {
+            return;
+        }
+        // Debits after this read are counted by the next settlement
+        int used = lease.unsettled(remaining);
+        long requestedAt = System.nanoTime();
+        int ttlSeconds = ttlSeconds(ConfigManager.current());
+        OptionalInt reserved = leaseDAO.settle(lease.id, used, ttlSeconds);
+        if (reserved.isPresent()) {
+            lease.settled += used;
+            lease.renew(requestedAt, ttlSeconds);
+            Metrics.add("sms.lease.settled", used);
+            return;
+        }
+        // Reclaimed while we were not looking: its credits (including `used`) are in suspense
+        int unsettled = lease.close();
+        leases.remove(lease.externalCustomerId, lease);
+        resolveReclaimed(lease, unsettled);
+    }
+
+    // Caller holds the customer's refill lock
+    private void release(LocalLease lease) {
+        if (lease.available.get() == CLOSED) {
+            return;
+        }
+        int used = lease.close();
+        leases.remove(lease.externalCustomerId, lease);
+        OptionalInt returned = leaseDAO.release(lease.id, used);
+        if (returned.isPresent()) {
+            Metrics.add("sms.lease.returned", returned.getAsInt());
+            logger.debug("Released SMS lease {} ({} credits returned)", lease.id, returned.getAsInt());
+        } else {
+            resolveReclaimed(lease, used);
+        }
+    }
+
+    // This node still knows how many of the suspended credits it spent
+    private void resolveReclaimed(LocalLease lease, int used) {
+        OptionalInt returned = leaseDAO.resolveSuspense(lease.id, used);
+        if (returned.isPresent()) {
+            Metrics.add("sms.lease.returned", returned.getAsInt());
+            logger.warn("SMS lease {} was reclaimed before {} used credits were settled; recorded them and returned {} credits",
+                    lease.id, used, returned.getAsInt());
+        } else {
+            logger.warn("SMS lease {} was reclaimed and a provider sync already settled its credits ({} used since the last settle)",
+                    lease.id, used);
+        }
+    }
+
+    private void reclaimExpired() {
+        int reclaimed = leaseDAO.reclaimExpired();
+        if (reclaimed > 0) {
+            Metrics.add("sms.lease.reclaimed", reclaimed);
+            logger.warn("Credits of {} expired SMS leases held in suspense until a provider sync", reclaimed);
+        }
+    }
+
+    private static int ttlSeconds(ConfigSnapshot config) {
+        return Math.max(5, config.getInt("SMS_LEASE_TTL_SECONDS", 120));
+    }
+
+    /**
+     * This node's share of one customer's lease
+     * available: credits not yet debited locally (CLOSED once released)
+     * granted, settled: credits leased to and settled by this node, guarded by the refill lock
+     *
+     * Usage is derived from available (granted - available - settled) instead of
+     * being counted separately, so a debit is either in the value a release swaps
+     * out or fails against CLOSED; it can never be both settled and retried.
+     */
+    static final class LocalLease {
+        final long id;
+        final String externalCustomerId;
+        final AtomicInteger available;
+        int granted;
+        int settled;
+        volatile long usableUntilNanos;
+        volatile long lastUsedNanos = System.nanoTime();
+
+        LocalLease(long id, String externalCustomerId, int available) {
+            this.id = id;
+            this.externalCustomerId = externalCustomerId;
+            this.available = new AtomicInteger(available);
+            this.granted = available;
+        }
+
+        /**
+         * Lock-free debit
+         */
+        boolean tryTake(int count) {
+            while (true) {
+                int current = available.get();
+                if (current < count) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - count)) {
+                    lastUsedNanos = System.nanoTime();
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Credits debited since the last settlement, given the credits still available
+         */
+        int unsettled(int remaining) {
+            return granted - remaining - settled;
+        }
+
+        /**
+         * Stop local debits
+         * @return Credits debited since the last settlement
+         */
+        int close() {
+            return unsettled(available.getAndSet(CLOSED));
+        }
+
+        boolean isUsable(long nowNanos) {
+            return nowNanos - usableUntilNanos < 0;
+        }
+
+        /**
+         * The database expiry is at least requestedAt + ttl; stop using the lease a fifth of the TTL earlier
+         */
+        void renew(long requestedAtNanos, int ttlSeconds) {
+            usableUntilNanos = requestedAtNanos + TimeUnit.SECONDS.toNanos(ttlSeconds) * 4 / 5;
+        }
+    }
+}
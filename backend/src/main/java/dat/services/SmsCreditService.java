@@ -0,0 +1,175 @@
+package dat.services;
+
+import dat.daos.impl.CustomerDAO;
+import dat.daos.impl.SmsBalanceDAO;
+import dat.entities.Customer;
+import dat.entities.SmsBalance;
+import dat.enums.SmsLedgerReason;
+import dat.events.CustomerEvent;
+import dat.events.CustomerEventBus;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Debits SMS credits when customers send SMS (our highest-frequency write)
+ *
+ * A debit is one conditional UPDATE ... RETURNING (SmsBalanceDAO.debitSmsCredits):
+ * no entity is loaded and the row lock is held for a single statement, so
+ * concurrent senders on the same customer queue only briefly and never
+ * overdraw. The customer → external customer id mapping never changes and is
+ * cached, so the hot path is exactly one statement.
+ *
+ * With SMS_RESERVATIONS_ENABLED the debit is taken from this node's leased
+ * credits instead (SmsCreditReservationService): no database round-trip until
+ * the lease runs out, and the remaining balance is not known per debit.
+ *
+ * @author NotionPay Team
+ */
+public class SmsCreditService {
+    private static final Logger logger = LoggerFactory.getLogger(SmsCreditService.class);
+    private static SmsCreditService instance;
+
+    private final CustomerDAO customerDAO;
+    private final SmsBalanceDAO smsBalanceDAO;
+    private final CustomerEventBus eventBus;
+    private final SmsCreditReservationService reservationService;
+    private final ConcurrentHashMap<Long, String> externalIdByCustomerId = new ConcurrentHashMap<>();
+
+    public static synchronized SmsCreditService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new SmsCreditService(emf);
+        }
+        return instance;
+    }
+
+    private SmsCreditService(EntityManagerFactory emf) {
+        this.customerDAO = CustomerDAO.getInstance(emf);
+        this.smsBalanceDAO = SmsBalanceDAO.getInstance(emf);
+        this.eventBus = CustomerEventBus.getInstance();
+        this.reservationService = SmsCreditReservationService.isEnabled()
+                ? SmsCreditReservationService.getInstance(emf)
+                : null;
+    }
+
+    /**
+     * Debit SMS credits for a customer
+     * @return Remaining credits after the debit, or null when debited from leased credits (reservations)
+     * @throws SmsCreditException if the customer/balance does not exist or has too few credits
+     */
+    public Integer debit(Long customerId, int count) throws SmsCreditException {
+        return debit(customerId, count, null);
+    }
+
+    /**
+     * @param reference Recorded on the ledger entry (e.g. the SMS batch), nullable
+     */
+    public Integer debit(Long customerId, int count, String reference) throws SmsCreditException {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        String externalCustomerId = resolveExternalCustomerId(customerId);
+
+        if (reservationService != null) {
+            return debitReserved(customerId, externalCustomerId, count);
+        }
+
+        long startedAt = System.nanoTime();
+        OptionalInt remaining = smsBalanceDAO.debitSmsCredits(externalCustomerId, count, SmsLedgerReason.DEBIT, reference);
+        Metrics.recordNanos("sms.debit.time", System.nanoTime() - startedAt);
+
+        if (remaining.isEmpty()) {
+            Metrics.increment("sms.debit.rejected");
+            SmsBalance balance = smsBalanceDAO.getByExternalCustomerId(externalCustomerId)
+                    .orElseThrow(() -> new SmsCreditException(SmsCreditException.Reason.NO_BALANCE,
+                            "SMS balance not found for customer: " + customerId, null));
+            throw new SmsCreditException(SmsCreditException.Reason.INSUFFICIENT_CREDITS,
+                    "Insufficient SMS credits: " + count + " requested, " + balance.getRemainingSms() + " remaining",
+                    balance.getRemainingSms());
+        }
+
+        Metrics.add("sms.debited", count);
+        eventBus.publish(customerId, CustomerEvent.SMS_BALANCE, Map.of("remainingSms", remaining.getAsInt()));
+        logger.debug("Debited {} SMS credits for customer {}, {} remaining", count, customerId, remaining.getAsInt());
+        return remaining.getAsInt();
+    }
+
+    /**
+     * Give back credits that were debited but not used (e.g. SMS the gateway rejected)
+     * @return Remaining credits after the refund
+     */
+    public int refund(Long customerId, int count, String reference) throws SmsCreditException {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        String externalCustomerId = resolveExternalCustomerId(customerId);
+        OptionalInt remaining = smsBalanceDAO.creditSmsCredits(externalCustomerId, count, SmsLedgerReason.REFUND, reference);
+        if (remaining.isEmpty()) {
+            throw new SmsCreditException(SmsCreditException.Reason.NO_BALANCE,
+                    "SMS balance not found for customer: " + customerId, null);
+        }
+        Metrics.add("sms.refunded", count);
+        eventBus.publish(customerId, CustomerEvent.SMS_BALANCE, Map.of("remainingSms", remaining.getAsInt()));
+        return remaining.getAsInt();
+    }
+
+    private Integer debitReserved(Long customerId, String externalCustomerId, int count) throws SmsCreditException {
+        long startedAt = System.nanoTime();
+        boolean debited = reservationService.tryDebit(externalCustomerId, count);
+        Metrics.recordNanos("sms.debit.time", System.nanoTime() - startedAt);
+
+        if (!debited) {
+            Metrics.increment("sms.debit.rejected");
+            SmsBalance balance = smsBalanceDAO.getByExternalCustomerId(externalCustomerId)
+                    .orElseThrow(() -> new SmsCreditException(SmsCreditException.Reason.NO_BALANCE,
+                            "SMS balance not found for customer: " + customerId, null));
+            throw new SmsCreditException(SmsCreditException.Reason.INSUFFICIENT_CREDITS,
+                    "Insufficient SMS credits: " + count + " requested, " + balance.getRemainingSms() + " unreserved",
+                    balance.getRemainingSms());
+        }
+        Metrics.add("sms.debited", count);
+        return null;
+    }
+
+    private String resolveExternalCustomerId(Long customerId) throws SmsCreditException {
+        String cached = externalIdByCustomerId.get(customerId);
+        if (cached != null) {
+            return cached;
+        }
+        Customer customer = customerDAO.getById(customerId)
+                .orElseThrow(() -> new SmsCreditException(SmsCreditException.Reason.CUSTOMER_NOT_FOUND,
+                        "Customer not found: " + customerId, null));
+        if (customer.getExternalCustomerId() == null) {
+            throw new SmsCreditException(SmsCreditException.Reason.NO_BALANCE,
+                    "Customer has no SMS account: " + customerId, null);
+        }
+        externalIdByCustomerId.put(customerId, customer.getExternalCustomerId());
+        return customer.getExternalCustomerId();
+    }
+
+    public static class SmsCreditException extends Exception {
+        public enum Reason { CUSTOMER_NOT_FOUND, NO_BALANCE, INSUFFICIENT_CREDITS }
+
+        private final Reason reason;
+        private final Integer remainingSms;
+
+        public SmsCreditException(Reason reason, String message, Integer remainingSms) {
+            super(message);
+            this.reason = reason;
+            this.remainingSms = remainingSms;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        public Integer getRemainingSms() {
+            return remainingSms;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dat.services;
+
+import dat.config.ConfigManager;
+import dat.daos.impl.CustomerDAO;
+import dat.daos.impl.SmsBalanceDAO;
+import dat.daos.impl.SmsCreditLeaseDAO;
+import dat.daos.impl.SmsLedgerDAO;
+import dat.dtos.SmsLedgerDTO;
+import dat.dtos.SmsReconciliationDTO;
+import dat.entities.Customer;
+import dat.enums.SmsLedgerReason;
+import dat.services.SmsCreditService.SmsCreditException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SMS credit ledger: history, snapshots and reconciliation
+ *
+ * Every credit movement (purchase, debit, refund, settled lease usage, lease
+ * suspense, provider sync) is an append-only sms_credit_ledger entry written by the statement
+ * that changes sms_balance. sms_balance stays the counter that debits check
+ * against (it is what prevents overdrafts); the ledger is the history it must
+ * agree with.
+ *
+ * Every SMS_LEDGER_SNAPSHOT_SECONDS (default 300) the per-customer snapshots are
+ * rolled forward to the oldest transaction still running (see
+ * SmsLedgerDAO.rollSnapshots), so a ledger balance is one snapshot row plus the
+ * few entries since.
+ *
+ * @author NotionPay Team
+ */
+public class SmsLedgerService {
+    private static final Logger logger = LoggerFactory.getLogger(SmsLedgerService.class);
+    private static SmsLedgerService instance;
+
+    private final EntityManagerFactory emf;
+    private final CustomerDAO customerDAO;
+    private final SmsBalanceDAO smsBalanceDAO;
+    private final SmsCreditLeaseDAO leaseDAO;
+    private final SmsLedgerDAO ledgerDAO;
+    private final ScheduledExecutorService scheduler;
+
+    private SmsLedgerService(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.customerDAO = CustomerDAO.getInstance(emf);
+        this.smsBalanceDAO = SmsBalanceDAO.getInstance(emf);
+        this.leaseDAO = SmsCreditLeaseDAO.getInstance(emf);
+        this.ledgerDAO = SmsLedgerDAO.getInstance(emf);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sms-ledger-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized SmsLedgerService getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new SmsLedgerService(emf);
+        }
+        return instance;
+    }
+
+    /**
+     * Roll snapshots forward periodically
+     */
+    public void startPeriodicSnapshots() {
+        long interval = Math.max(10, ConfigManager.current().getLong("SMS_LEDGER_SNAPSHOT_SECONDS", 300));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rollSnapshots();
+            } catch (Exception e) {
+                logger.error("SMS ledger snapshot failed", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        logger.info("SMS ledger snapshots scheduled (every {} s)", interval);
+    }
+
+    public int rollSnapshots() {
+        int rolled = ledgerDAO.rollSnapshots();
+        logger.debug("SMS ledger snapshots rolled forward for {} customers", rolled);
+        return rolled;
+    }
+
+    /**
+     * Ledger balance and the latest entries of a customer
+     */
+    public SmsLedgerDTO getLedger(Long customerId, int limit) throws SmsCreditException {
+        String externalCustomerId = resolveExternalCustomerId(customerId);
+        List<SmsLedgerDTO.Entry> entries = ledgerDAO.getEntries(externalCustomerId, limit).stream()
+                .map(SmsLedgerDTO.Entry::fromEntity)
+                .toList();
+        return new SmsLedgerDTO(customerId, ledgerDAO.getBalance(externalCustomerId), entries);
+    }
+
+    /**
+     * Compare the ledger with the balance counter
+     */
+    public SmsReconciliationDTO reconcile(Long customerId) throws SmsCreditException {
+        String externalCustomerId = resolveExternalCustomerId(customerId);
+        int remaining = smsBalanceDAO.getByExternalCustomerId(externalCustomerId)
+                .orElseThrow(() -> noBalance(customerId))
+                .getRemainingSms();
+        return new SmsReconciliationDTO(customerId, externalCustomerId, ledgerDAO.getBalance(externalCustomerId),
+                remaining, leaseDAO.getReservedCredits(externalCustomerId), leaseDAO.getSuspendedCredits(externalCustomerId));
+    }
+
+    /**
+     * Align a customer's credits with the balance reported by the SMS provider
+     * Appends one PROVIDER_SYNC entry for the difference and applies it to the counter.
+     * The balance row is locked while the ledger balance is read, so no debit,
+     * purchase or lease reclaim slips in between. Credits in suspense (reclaimed
+     * leases) are settled by the sync: the provider's balance already reflects
+     * what was spent of them.
+     * @return Reconciliation after the sync
+     */
+    public SmsReconciliationDTO syncWithProvider(Long customerId, long providerBalance) throws SmsCreditException {
+        String externalCustomerId = resolveExternalCustomerId(customerId);
+        long delta;
+        int suspended;
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                boolean exists = !em.createNativeQuery(
+                        "SELECT id FROM sms_balance WHERE external_customer_id = :externalId FOR UPDATE")
+                        .setParameter("externalId", externalCustomerId)
+                        .getResultList()
+                        .isEmpty();
+                if (!exists) {
+                    em.getTransaction().rollback();
+                    throw noBalance(customerId);
+                }
+                suspended = leaseDAO.clearSuspense(em, externalCustomerId);
+                delta = providerBalance - ledgerDAO.getBalance(em, externalCustomerId);
+                if (delta != 0) {
+                    smsBalanceDAO.adjustSmsCredits(em, externalCustomerId, Math.toIntExact(delta),
+                            SmsLedgerReason.PROVIDER_SYNC, "provider");
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+        logger.info("SMS credits of customer {} synced with provider balance {} (adjusted by {}, {} credits out of suspense)",
+                customerId, providerBalance, delta, suspended);
+        return reconcile(customerId);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        logger.info("SmsLedgerService shutdown");
+    }
+
+    private String resolveExternalCustomerId(Long customerId) throws SmsCreditException {
+        Customer customer = customerDAO.getById(customerId)
+                .orElseThrow(() -> new SmsCreditException(SmsCreditException.Reason.CUSTOMER_NOT_FOUND,
+                        "Customer not found: " + customerId, null));
+        if (customer.getExternalCustomerId() == null) {
+            throw noBalance(customerId);
+        }
+        return customer.getExternalCustomerId();
+    }
+
+    private static SmsCreditException noBalance(Long customerId) {
+        return new SmsCreditException(SmsCreditException.Reason.NO_BALANCE,
+                "SMS balance not found for customer: " + customerId, null);
+    }
+}
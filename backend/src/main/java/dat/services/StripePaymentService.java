@@ -1,12 +1,13 @@
 package dat.services;
 
 import com.stripe.Stripe;
+import com.stripe.exception.CardException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.PaymentMethod;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.PaymentMethodCreateParams;
-import dat.utils.Utils;
+import dat.config.ConfigManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,25 +40,23 @@ public class StripePaymentService {
 
     /**
      * Initialize Stripe with secret key from config
-     * Only runs once during application lifetime
+     * Only runs once during application lifetime; later key rotations in
+     * config.properties are picked up through the ConfigManager listener
      */
     private void initializeStripe() {
         if (!initialized) {
             try {
-                String secretKey;
-                if (System.getenv("DEPLOYED") != null) {
-                    secretKey = System.getenv("STRIPE_SECRET_KEY");
-                } else {
-                    secretKey = Utils.getPropertyValue("STRIPE_SECRET_KEY", "config.properties");
-                }
-                
-                if (secretKey == null || secretKey.isEmpty()) {
-                    throw new IllegalStateException("STRIPE_SECRET_KEY not found in configuration");
-                }
-                
-                Stripe.apiKey = secretKey;
+                Stripe.apiKey = ConfigManager.current().require("STRIPE_SECRET_KEY");
                 initialized = true;
                 logger.info("Stripe API initialized successfully");
+
+                ConfigManager.getInstance().addListener(config -> {
+                    String rotatedKey = config.getStripeSecretKey();
+                    if (rotatedKey != null && !rotatedKey.isEmpty() && !rotatedKey.equals(Stripe.apiKey)) {
+                        Stripe.apiKey = rotatedKey;
+                        logger.info("Stripe API key rotated");
+                    }
+                });
                 
             } catch (Exception e) {
                 logger.error("Failed to initialize Stripe API", e);
@@ -232,6 +231,29 @@ public class StripePaymentService {
         return "succeeded".equals(paymentIntent.getStatus());
     }
 
+    /**
+     * Check if a PaymentIntent was declined for good (as opposed to still
+     * processing or waiting for the customer, which may yet succeed)
+     * 
+     * @param paymentIntent The PaymentIntent to check
+     * @return true if the charge failed, false otherwise
+     */
+    public boolean isDeclined(PaymentIntent paymentIntent) {
+        return "requires_payment_method".equals(paymentIntent.getStatus())
+                || "canceled".equals(paymentIntent.getStatus());
+    }
+
+    /**
+     * Check if a StripeException is a card decline (as opposed to a network,
+     * rate limit or API error)
+     * 
+     * @param e StripeException
+     * @return true if the card was declined, false otherwise
+     */
+    public boolean isDeclined(StripeException e) {
+        return e instanceof CardException;
+    }
+
     /**
      * Check if a PaymentIntent requires further action (e.g., 3D Secure)
      * 
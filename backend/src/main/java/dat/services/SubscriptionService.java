@@ -1,7 +1,8 @@
 package dat.services;
 
-import dat.daos.impl.ActivityLogDAO;
+import dat.config.ConfigManager;
 import dat.daos.impl.SubscriptionDAO;
+import dat.dtos.SubscriptionDTO;
 import dat.entities.ActivityLog;
 import dat.entities.Payment;
 import dat.entities.Session;
@@ -11,6 +12,7 @@ import dat.enums.ActivityLogType;
 import dat.enums.Period;
 import dat.enums.SubscriptionStatus;
 import dat.utils.DateTimeUtil;
+import dat.utils.Metrics;
 import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,7 +23,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Service for handling subscription billing logic
@@ -34,8 +35,9 @@ public class SubscriptionService {
     private static final Logger logger = LoggerFactory.getLogger(SubscriptionService.class);
     
     private final SubscriptionDAO subscriptionDAO;
-    private final ActivityLogDAO activityLogDAO;
-
+    private final ActivityLogWriter activityLogWriter;
+    private final BillingCalendarService billingCalendar;
+    private final SubscriptionViewCache viewCache;
 
     public static SubscriptionService getInstance(EntityManagerFactory emf) {
         if (instance == null) {
@@ -46,7 +48,10 @@ public class SubscriptionService {
 
     private SubscriptionService(EntityManagerFactory emf) {
         this.subscriptionDAO = SubscriptionDAO.getInstance(emf);
-        this.activityLogDAO = ActivityLogDAO.getInstance(emf);
+        this.activityLogWriter = ActivityLogWriter.getInstance(emf);
+        this.billingCalendar = BillingCalendarService.getInstance(emf);
+        this.viewCache = new SubscriptionViewCache(ConfigManager.current().getInt("SUBSCRIPTION_VIEW_CACHE_MAX_ENTRIES", 50_000));
+        Metrics.gauge("subscription.view.cache.size", viewCache::size);
         logger.info("SubscriptionService initialized");
     }
 
@@ -161,6 +166,7 @@ public class SubscriptionService {
             
             // Persist changes
             subscriptionDAO.update(subscription);
+            onSubscriptionChanged(subscription);
             
             logger.info("Subscription {} updated: nextBillingDate changed from {} to {}", 
                 subscription.getId(), oldBillingDate, newBillingDate);
@@ -183,13 +189,7 @@ public class SubscriptionService {
         try {
             OffsetDateTime now = DateTimeUtil.now();
             
-            // Get all active subscriptions
-            List<Subscription> dueSubscriptions = subscriptionDAO.getAll().stream()
-                .filter(sub -> sub.getStatus() == SubscriptionStatus.ACTIVE)
-                .filter(sub -> sub.getNextBillingDate() != null)
-                .filter(sub -> sub.getNextBillingDate().isBefore(now) || 
-                              sub.getNextBillingDate().isEqual(now))
-                .collect(Collectors.toList());
+            List<Subscription> dueSubscriptions = subscriptionDAO.getDueBefore(now);
             
             logger.info("Found {} subscriptions due for billing", dueSubscriptions.size());
             return dueSubscriptions;
@@ -222,6 +222,35 @@ public class SubscriptionService {
         return subscriptionDAO.getActiveSubscriptionForCustomer(customerId);
     }
 
+    /**
+     * Current (ACTIVE or PAST_DUE) subscription of a customer as shown on the dashboard,
+     * cached per customer for SUBSCRIPTION_VIEW_CACHE_SECONDS (default 60, 0 = no cache)
+     * 
+     * @param customerId The customer ID
+     * @return Optional containing the current subscription if found
+     */
+    public Optional<SubscriptionDTO> getActiveSubscriptionView(Long customerId) {
+        long ttlMillis = ConfigManager.current().getLong("SUBSCRIPTION_VIEW_CACHE_SECONDS", 60) * 1000;
+        return viewCache.get(customerId, ttlMillis, id ->
+                subscriptionDAO.getCurrentSubscriptionForCustomer(id).map(SubscriptionDTO::fromEntity));
+    }
+
+    /**
+     * A subscription was created or changed and committed: drop the customer's
+     * cached view and update the billing calendar
+     * 
+     * @param subscription The subscription (ignored if null)
+     */
+    public void onSubscriptionChanged(Subscription subscription) {
+        if (subscription == null) {
+            return;
+        }
+        if (subscription.getCustomer() != null && subscription.getCustomer().getId() != null) {
+            viewCache.invalidate(subscription.getCustomer().getId());
+        }
+        billingCalendar.onSubscriptionChanged(subscription);
+    }
+
     /**
      * Get subscription by ID
      * 
@@ -251,6 +280,7 @@ public class SubscriptionService {
             subscription.setStatus(SubscriptionStatus.CANCELED);
             subscription.setEndDate(DateTimeUtil.now());
             subscriptionDAO.update(subscription);
+            onSubscriptionChanged(subscription);  // off the billing calendar
             
             // Log activity
             if (session != null) {
@@ -267,7 +297,7 @@ public class SubscriptionService {
                     ActivityLogStatus.SUCCESS,
                     metadata
                 );
-                activityLogDAO.create(activityLog);
+                activityLogWriter.submit(activityLog);
             }
             
             logger.info("Subscription canceled successfully: {}", subscriptionId);
@@ -279,6 +309,36 @@ public class SubscriptionService {
         }
     }
 
+    /**
+     * Move a subscription to another status, if its lifecycle allows it
+     * (see SubscriptionStatus.canTransitionTo). CANCELED and EXPIRED also set endDate.
+     * 
+     * @param subscriptionId The subscription ID
+     * @param status The new status
+     * @return The updated subscription, or empty if not found, not allowed or changed concurrently
+     */
+    public Optional<Subscription> changeStatus(Long subscriptionId, SubscriptionStatus status) {
+        Optional<Subscription> found = subscriptionDAO.getById(subscriptionId);
+        if (found.isEmpty() || !found.get().getStatus().canTransitionTo(status)) {
+            return Optional.empty();
+        }
+        Subscription subscription = found.get();
+        SubscriptionStatus previous = subscription.getStatus();
+        OffsetDateTime endDate = status == SubscriptionStatus.CANCELED || status == SubscriptionStatus.EXPIRED
+                ? DateTimeUtil.now()
+                : subscription.getEndDate();
+        // Conditional on the status we read, so a renewal committed meanwhile is not overwritten
+        if (!subscriptionDAO.updateStatus(subscriptionId, previous, status, endDate)) {
+            return Optional.empty();
+        }
+        subscription.setStatus(status);
+        subscription.setEndDate(endDate);
+        onSubscriptionChanged(subscription);
+        
+        logger.info("Subscription {} status changed from {} to {}", subscriptionId, previous, status);
+        return Optional.of(subscription);
+    }
+
     /**
      * Custom exception for subscription service operations
      */
@@ -0,0 +1,92 @@
+package dat.services;
+
+import dat.dtos.SubscriptionDTO;
+import dat.utils.Metrics;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Cache of each customer's active subscription, as served to the dashboard
+ *
+ * Customers without an active subscription are cached too (empty view). Entries
+ * are invalidated when a subscription changes on this node and expire after the
+ * TTL, which bounds staleness from changes made on other nodes.
+ *
+ * A miss loads without holding any lock, so a slow query neither blocks other
+ * customers nor pins a virtual thread. Stale results are kept out by versions
+ * from one counter: a load remembers the version when it started, invalidate
+ * leaves a marker with a newer version, and the load publishes only if the
+ * entry is not newer than its start. A view read before a commit therefore
+ * never outlives the invalidation that follows the commit. The map is bounded:
+ * when it is full, expired entries and markers are purged and, if that is not
+ * enough, it is cleared; loads that started before a purge do not publish.
+ */
+public class SubscriptionViewCache {
+
+    private final ConcurrentHashMap<Long, CachedView> entries = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final int maxEntries;
+    private volatile long purgedAt;
+
+    // view == null marks an invalidation
+    private record CachedView(long version, long expiresAtMillis, Optional<SubscriptionDTO> view) {
+        boolean isExpired(long now) {
+            return expiresAtMillis <= now;
+        }
+    }
+
+    public SubscriptionViewCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Cached view for a customer, loading it on a miss
+     * The view is shared between callers and must not be modified.
+     * @param ttlMillis Time to keep a loaded view, 0 = do not cache
+     */
+    public Optional<SubscriptionDTO> get(long customerId, long ttlMillis, LongFunction<Optional<SubscriptionDTO>> loader) {
+        long now = System.currentTimeMillis();
+        CachedView hit = entries.get(customerId);
+        if (hit != null && hit.view() != null && !hit.isExpired(now)) {
+            Metrics.increment("subscription.view.cache.hits");
+            return hit.view();
+        }
+        Metrics.increment("subscription.view.cache.misses");
+        if (ttlMillis <= 0) {
+            return loader.apply(customerId);
+        }
+        if (hit == null && entries.size() >= maxEntries) {
+            purgedAt = versions.incrementAndGet();
+            entries.values().removeIf(entry -> entry.isExpired(now));
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+
+        long started = versions.get();
+        Optional<SubscriptionDTO> view = loader.apply(customerId);
+        CachedView loaded = new CachedView(started, now + ttlMillis, view);
+        entries.compute(customerId, (id, current) ->
+                started < purgedAt || (current != null && current.version() > started) ? current : loaded);
+        return view;
+    }
+
+    public void invalidate(long customerId) {
+        entries.put(customerId, new CachedView(versions.incrementAndGet(), 0, null));
+    }
+
+    public void clear() {
+        purgedAt = versions.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Number of entries, including invalidation markers not yet replaced or purged
+     */
+    public int size() {
+        return entries.size();
+    }
+}
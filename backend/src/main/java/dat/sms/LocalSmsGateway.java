@@ -0,0 +1,44 @@
+package dat.sms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in gateway for development and tests: nothing leaves the process
+ *
+ * Every SMS is accepted after an optional simulated provider latency
+ * (SMS_GATEWAY_LOCAL_LATENCY_MS), so batch concurrency behaves like it would
+ * against a real provider. Messages are only logged at debug level.
+ */
+public class LocalSmsGateway implements SmsGateway {
+    private static final Logger logger = LoggerFactory.getLogger(LocalSmsGateway.class);
+
+    private final long latencyMillis;
+
+    public LocalSmsGateway(long latencyMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+    }
+
+    @Override
+    public SmsSendResult send(String recipient, String message) {
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return SmsSendResult.failed(recipient, "Interrupted");
+            }
+        }
+        String messageId = "local_" + UUID.randomUUID();
+        logger.debug("SMS {} to {} ({} chars)", messageId, recipient, message.length());
+        return SmsSendResult.sent(recipient, messageId);
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+}
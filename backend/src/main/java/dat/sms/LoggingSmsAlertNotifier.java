@@ -0,0 +1,17 @@
+package dat.sms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default notifier: writes the alert to the application log
+ */
+public class LoggingSmsAlertNotifier implements SmsAlertNotifier {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingSmsAlertNotifier.class);
+
+    @Override
+    public void notify(SmsBalanceAlert alert) {
+        logger.warn("SMS balance of customer {} is {} (threshold {})",
+                alert.customerId(), alert.balance(), alert.threshold());
+    }
+}
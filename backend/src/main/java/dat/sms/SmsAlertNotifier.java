@@ -0,0 +1,12 @@
+package dat.sms;
+
+/**
+ * Delivers low-balance alerts to customers (email, webhook, ...)
+ *
+ * Called once per alert from SmsBalanceAlertService's alert thread; alerts are
+ * already deduplicated. Selected with SMS_ALERT_NOTIFIER (see SmsAlertNotifiers).
+ */
+public interface SmsAlertNotifier {
+
+    void notify(SmsBalanceAlert alert);
+}
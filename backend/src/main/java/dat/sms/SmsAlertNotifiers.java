@@ -0,0 +1,21 @@
+package dat.sms;
+
+import dat.config.ConfigSnapshot;
+
+/**
+ * Creates the alert notifier configured by SMS_ALERT_NOTIFIER (default: log)
+ * Register new notifiers here.
+ */
+public final class SmsAlertNotifiers {
+
+    private SmsAlertNotifiers() {
+    }
+
+    public static SmsAlertNotifier fromConfig(ConfigSnapshot config) {
+        String notifier = config.get("SMS_ALERT_NOTIFIER", "log").trim().toLowerCase();
+        return switch (notifier) {
+            case "log" -> new LoggingSmsAlertNotifier();
+            default -> throw new IllegalStateException("Unknown SMS_ALERT_NOTIFIER: " + notifier);
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package dat.sms;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A customer's SMS credits fell to or below one of their thresholds
+ */
+public record SmsBalanceAlert(Long customerId, String externalCustomerId, int threshold, int balance,
+                              OffsetDateTime at) {
+}
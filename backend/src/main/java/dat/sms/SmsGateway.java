@@ -0,0 +1,19 @@
+package dat.sms;
+
+/**
+ * Delivers a single SMS to a provider
+ *
+ * Implementations are called concurrently by SmsBatchService (up to
+ * SMS_BATCH_CONCURRENCY sends in flight) and must be thread-safe. A send that
+ * fails returns a failed result instead of throwing; exceptions are treated the
+ * same way. Selected with SMS_GATEWAY (see SmsGateways).
+ */
+public interface SmsGateway {
+
+    SmsSendResult send(String recipient, String message);
+
+    /**
+     * Name used in logs and batch metadata
+     */
+    String name();
+}
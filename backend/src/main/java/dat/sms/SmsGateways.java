@@ -0,0 +1,21 @@
+package dat.sms;
+
+import dat.config.ConfigSnapshot;
+
+/**
+ * Creates the SMS gateway configured by SMS_GATEWAY (default: local)
+ * Register new providers here.
+ */
+public final class SmsGateways {
+
+    private SmsGateways() {
+    }
+
+    public static SmsGateway fromConfig(ConfigSnapshot config) {
+        String gateway = config.get("SMS_GATEWAY", "local").trim().toLowerCase();
+        return switch (gateway) {
+            case "local" -> new LocalSmsGateway(config.getLong("SMS_GATEWAY_LOCAL_LATENCY_MS", 0));
+            default -> throw new IllegalStateException("Unknown SMS_GATEWAY: " + gateway);
+        };
+    }
+}
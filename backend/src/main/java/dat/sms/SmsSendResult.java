@@ -0,0 +1,18 @@
+package dat.sms;
+
+/**
+ * Outcome of sending one SMS (one NDJSON line of a send-batch response)
+ *
+ * @param providerMessageId Id assigned by the gateway (null when not sent)
+ * @param error Why the SMS was not sent (null when sent)
+ */
+public record SmsSendResult(String recipient, boolean sent, String providerMessageId, String error) {
+
+    public static SmsSendResult sent(String recipient, String providerMessageId) {
+        return new SmsSendResult(recipient, true, providerMessageId, null);
+    }
+
+    public static SmsSendResult failed(String recipient, String error) {
+        return new SmsSendResult(recipient, false, null, error);
+    }
+}
@@ -0,0 +1,68 @@
+package dat.sms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Threshold crossing logic for SMS balance alerts (pure, no I/O)
+ *
+ * A threshold t fires when the balance falls from above t to t or below. It
+ * re-arms when the balance climbs from below t + hysteresis to at least that
+ * level, where hysteresis = max(minimum, t * percent / 100). Between the two
+ * levels nothing happens, so a balance oscillating around t produces one alert.
+ * Only the previous and new balance are compared: O(number of thresholds).
+ */
+public final class SmsThresholds {
+
+    public enum Direction { FELL_BELOW, RECOVERED }
+
+    public record Crossing(int threshold, Direction direction) {
+    }
+
+    private SmsThresholds() {
+    }
+
+    public static List<Crossing> crossings(int previousBalance, int balance, int[] thresholds,
+                                           int hysteresisPercent, int minimumHysteresis) {
+        List<Crossing> crossings = new ArrayList<>(1);
+        for (int threshold : thresholds) {
+            if (previousBalance > threshold && balance <= threshold) {
+                crossings.add(new Crossing(threshold, Direction.FELL_BELOW));
+                continue;
+            }
+            int rearmAt = threshold + Math.max(minimumHysteresis, threshold * hysteresisPercent / 100);
+            if (previousBalance < rearmAt && balance >= rearmAt) {
+                crossings.add(new Crossing(threshold, Direction.RECOVERED));
+            }
+        }
+        return crossings;
+    }
+
+    /**
+     * Parse "500,100,0" (blank or null → empty)
+     * @throws IllegalArgumentException if a value is not a non-negative integer
+     */
+    public static int[] parse(String thresholds) {
+        if (thresholds == null || thresholds.isBlank()) {
+            return new int[0];
+        }
+        return Arrays.stream(thresholds.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .mapToInt(value -> {
+                    int threshold = Integer.parseInt(value);
+                    if (threshold < 0) {
+                        throw new IllegalArgumentException("Thresholds must not be negative: " + value);
+                    }
+                    return threshold;
+                })
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    public static String format(int[] thresholds) {
+        return String.join(",", Arrays.stream(thresholds).mapToObj(String::valueOf).toList());
+    }
+}
@@ -0,0 +1,40 @@
+package dat.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in an activity feed: the (timestamp, id) of the last item returned
+ *
+ * Encoded as an opaque URL-safe string so clients just pass nextCursor back.
+ * The next page continues strictly after this position in
+ * (timestamp DESC, activity_log_id DESC) order.
+ */
+public record ActivityFeedCursor(OffsetDateTime timestamp, long id) {
+
+    public String encode() {
+        String raw = timestamp.toInstant() + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static ActivityFeedCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Instant instant = Instant.parse(raw.substring(0, comma));
+            return new ActivityFeedCursor(instant.atOffset(ZoneOffset.UTC), Long.parseLong(raw.substring(comma + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dat.utils;
+
+import dat.config.ConfigManager;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional GET helpers: strong ETags, 304 Not Modified and pre-compressed JSON
+ *
+ * A Representation is a JSON body serialized once, with its ETag (a truncated
+ * SHA-256 of the body) and, above HTTP_COMPRESSION_MIN_BYTES, a gzip copy made
+ * once as well. The gzip variant is tagged "<etag>-gzip" so each encoding keeps
+ * its own strong validator; If-None-Match accepts either.
+ * Brotli is not offered: it needs a native library.
+ */
+public final class HttpCache {
+
+    private static final String GZIP_SUFFIX = "-gzip";
+
+    private HttpCache() { }
+
+    /**
+     * JSON body (identity and optionally gzip) with its strong ETag
+     */
+    public record Representation(byte[] body, byte[] gzipped, String etag) { }
+
+    /**
+     * A representation kept for a fixed time, so conditional GETs are answered
+     * without a query and full GETs without serializing again
+     */
+    public static final class CachedJson {
+        private record Entry(long expiresAtMillis, Representation representation) { }
+
+        private volatile Entry entry;
+
+        /**
+         * Current representation, loading and serializing it again once expired
+         */
+        public Representation get(Context ctx, long ttlMillis, Supplier<?> load) {
+            Entry current = entry;
+            long now = System.currentTimeMillis();
+            if (current == null || current.expiresAtMillis() <= now) {
+                // Concurrent refreshes may both load; the catalog is small and the result the same
+                current = new Entry(now + ttlMillis, json(ctx, load.get()));
+                entry = current;
+            }
+            return current.representation();
+        }
+    }
+
+    /**
+     * Serialize a value the way ctx.json would and tag it
+     */
+    public static Representation json(Context ctx, Object value) {
+        String json = ctx.jsonMapper().toJsonString(value, value.getClass());
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        int minBytes = ConfigManager.current().getInt("HTTP_COMPRESSION_MIN_BYTES", 1024);
+        return new Representation(body, body.length >= minBytes ? gzip(body) : null, etag(body));
+    }
+
+    /**
+     * Strong ETag for a body: quoted, URL-safe Base64 of the first 16 bytes of its SHA-256
+     */
+    public static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Whether an If-None-Match header value matches the ETag (weak comparison, as RFC 9110 requires)
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.endsWith(GZIP_SUFFIX + "\"")) {
+                tag = tag.substring(0, tag.length() - GZIP_SUFFIX.length() - 1) + "\"";
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Answer 304 if the request's If-None-Match matches the representation
+     * @return true if the response was completed as 304 Not Modified
+     */
+    public static boolean notModified(Context ctx, Representation representation, String cacheControl) {
+        if (!matches(ctx.header(Header.IF_NONE_MATCH), representation.etag())) {
+            return false;
+        }
+        ctx.status(HttpStatus.NOT_MODIFIED);
+        ctx.header(Header.ETAG, sendsGzip(ctx, representation) ? gzipETag(representation.etag()) : representation.etag());
+        ctx.header(Header.CACHE_CONTROL, cacheControl);
+        ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+        Metrics.increment("http.cache.not_modified");
+        return true;
+    }
+
+    /**
+     * Send a representation as 200, gzip-encoded if it has a gzip copy and the client accepts gzip
+     */
+    public static void send(Context ctx, Representation representation, String cacheControl) {
+        ctx.status(HttpStatus.OK);
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        ctx.header(Header.CACHE_CONTROL, cacheControl);
+        ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+        if (sendsGzip(ctx, representation)) {
+            // Content-Encoding set here, so Javalin does not compress the body again
+            ctx.header(Header.CONTENT_ENCODING, "gzip");
+            ctx.header(Header.ETAG, gzipETag(representation.etag()));
+            ctx.result(representation.gzipped());
+        } else {
+            ctx.header(Header.ETAG, representation.etag());
+            ctx.result(representation.body());
+        }
+        Metrics.increment("http.cache.sent");
+    }
+
+    private static boolean sendsGzip(Context ctx, Representation representation) {
+        return representation.gzipped() != null && acceptsGzip(ctx.header(Header.ACCEPT_ENCODING));
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    static String gzipETag(String etag) {
+        return etag.substring(0, etag.length() - 1) + GZIP_SUFFIX + "\"";
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
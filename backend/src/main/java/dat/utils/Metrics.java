@@ -0,0 +1,98 @@
+package dat.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Minimal in-process metrics registry
+ * Counters and timers are backed by LongAdder so recording from many request
+ * threads does not contend; gauges are sampled lazily when a snapshot is taken.
+ * Exposed to admins through GET /api/admin/metrics
+ */
+public final class Metrics {
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() { }
+
+    /**
+     * Increment a counter by one
+     */
+    public static void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * Add a value to a counter
+     */
+    public static void add(String name, long delta) {
+        counter(name).add(delta);
+    }
+
+    /**
+     * Record a duration for a timer
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public static void recordNanos(String name, long nanos) {
+        timers.computeIfAbsent(name, k -> new Timer()).record(nanos);
+    }
+
+    /**
+     * Register a gauge whose value is read when metrics are snapshotted
+     */
+    public static void gauge(String name, Supplier<Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Current value of a counter (0 if never incremented)
+     */
+    public static long count(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Point-in-time view of all metrics, sorted by name
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        counters.forEach((name, adder) -> result.put(name, adder.sum()));
+        gauges.forEach((name, supplier) -> result.put(name, supplier.get()));
+        timers.forEach((name, timer) -> result.put(name, timer.toMap()));
+        return result;
+    }
+
+    private static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> map = new TreeMap<>();
+            map.put("count", n);
+            map.put("avgMs", n == 0 ? 0.0 : total / (double) n / 1_000_000.0);
+            map.put("maxMs", maxNanos.get() / 1_000_000.0);
+            map.put("totalMs", total / 1_000_000.0);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package dat.utils;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier thread
+ *
+ * On JDK 21 a virtual thread that blocks inside a synchronized block (or a
+ * native frame) cannot unmount and holds its carrier; enough of those and
+ * requests queue behind a handful of carriers. The monitor streams the JFR
+ * event jdk.VirtualThreadPinned in-process, counts pinned blocks in Metrics
+ * (server.vthread.pinned, server.vthread.pinned.time) and logs each pinning
+ * site once, with the first frames of its stack. The site is the first frame
+ * outside the JDK, e.g. a JDBC driver, pool or Hibernate class.
+ *
+ * For a full stack trace of every pinned block, start the JVM with
+ * -Djdk.tracePinnedThreads=full instead.
+ */
+public final class PinnedThreadMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_SITES = 200;
+    private static final int LOGGED_FRAMES = 8;
+
+    private static final ConcurrentHashMap<String, LongAdder> sites = new ConcurrentHashMap<>();
+    private static RecordingStream stream;
+
+    private PinnedThreadMonitor() { }
+
+    /**
+     * Start streaming pinned events that last at least the threshold (no-op if running)
+     */
+    public static synchronized void start(Duration threshold) {
+        if (stream != null) {
+            return;
+        }
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(EVENT).withThreshold(threshold).withStackTrace();
+            recording.onEvent(EVENT, PinnedThreadMonitor::onPinned);
+            recording.startAsync();
+            stream = recording;
+            Metrics.gauge("server.vthread.pinned.sites", sites::size);
+            logger.info("Pinned virtual thread monitor started (threshold {} ms)", threshold.toMillis());
+        } catch (RuntimeException e) {
+            // JFR can be unavailable (e.g. disabled in the JVM); serving requests matters more
+            logger.warn("Pinned virtual thread monitor not started: {}", e.getMessage());
+        }
+    }
+
+    public static synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+            logger.info("Pinned virtual thread monitor stopped");
+        }
+    }
+
+    private static void onPinned(RecordedEvent event) {
+        Metrics.increment("server.vthread.pinned");
+        Metrics.recordNanos("server.vthread.pinned.time", event.getDuration().toNanos());
+
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String site = frames.stream()
+                .map(PinnedThreadMonitor::describe)
+                .filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk.") && !frame.startsWith("sun."))
+                .findFirst()
+                .orElse("unknown");
+        if (sites.size() >= MAX_SITES && !sites.containsKey(site)) {
+            return;
+        }
+        LongAdder created = new LongAdder();
+        LongAdder existing = sites.putIfAbsent(site, created);
+        (existing == null ? created : existing).increment();
+        if (existing == null) {
+            StringBuilder stack = new StringBuilder();
+            frames.stream().limit(LOGGED_FRAMES).forEach(frame -> stack.append("\n\tat ").append(describe(frame)));
+            logger.warn("Virtual thread pinned for {} ms at {}{}", event.getDuration().toMillis(), site, stack);
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
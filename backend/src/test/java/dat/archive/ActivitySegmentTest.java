@@ -0,0 +1,84 @@
+package dat.archive;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the activity archive segment format
+ * Tests write/read roundtrip, customer and time range lookups, and de-duplication across segments
+ */
+class ActivitySegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Roundtrip - every column survives writing and memory-mapped reading")
+    void testRoundtrip() throws Exception {
+        List<ArchivedActivity> rows = List.of(
+                new ArchivedActivity(12, 7, 3L, "PAYMENT", "SUCCESS", 2_000_000, "{\"amount\": 9900}"),
+                new ArchivedActivity(10, 7, null, "LOGIN", "FAILURE", 1_000_000, null),
+                new ArchivedActivity(11, 5, 4L, "LOGOUT", "SUCCESS", 1_500_000, "{\"ip\": \"æøå\"}")
+        );
+        Path segment = directory.resolve("activity-000001.seg");
+        ActivitySegmentWriter.write(segment, rows);
+
+        try (ActivitySegmentReader reader = new ActivitySegmentReader(segment)) {
+            assertEquals(3, reader.rowCount());
+            assertEquals(2, reader.customerCount());
+
+            List<ArchivedActivity> customer7 = reader.find(7, 0, Long.MAX_VALUE);
+            assertEquals(List.of(rows.get(1), rows.get(0)), customer7);
+            assertEquals(List.of(rows.get(2)), reader.find(5, 0, Long.MAX_VALUE));
+            assertTrue(reader.find(6, 0, Long.MAX_VALUE).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Time range - only rows within [from, to) are returned")
+    void testTimeRange() throws Exception {
+        List<ArchivedActivity> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new ArchivedActivity(i, i % 10, (long) i, i % 2 == 0 ? "LOGIN" : "PAYMENT", "SUCCESS",
+                    1_700_000_000_000_000L + i * 1_000_000L, i % 3 == 0 ? null : "{\"n\": " + i + "}"));
+        }
+        Path segment = directory.resolve("activity-000001.seg");
+        ActivitySegmentWriter.write(segment, rows);
+
+        try (ActivitySegmentReader reader = new ActivitySegmentReader(segment)) {
+            long from = 1_700_000_000_000_000L + 100 * 1_000_000L;
+            long to = 1_700_000_000_000_000L + 200 * 1_000_000L;
+            List<ArchivedActivity> found = reader.find(3, from, to);
+
+            assertEquals(10, found.size());
+            for (ArchivedActivity activity : found) {
+                ArchivedActivity expected = rows.get((int) activity.id());
+                assertEquals(expected, activity);
+                assertTrue(activity.timestampMicros() >= from && activity.timestampMicros() < to);
+            }
+            assertFalse(reader.overlaps(0, 1_000));
+        }
+    }
+
+    @Test
+    @DisplayName("Archive - rows present in two segments are returned once, newest first")
+    void testArchiveDeduplicates() throws Exception {
+        ArchivedActivity older = new ArchivedActivity(1, 42, 1L, "LOGIN", "SUCCESS", 1_000, null);
+        ArchivedActivity newer = new ArchivedActivity(2, 42, 1L, "LOGOUT", "SUCCESS", 2_000, null);
+
+        try (ActivityArchive archive = new ActivityArchive(directory)) {
+            ActivitySegmentWriter.write(archive.nextSegmentPath(), List.of(older, newer));
+            ActivitySegmentWriter.write(archive.nextSegmentPath(), List.of(newer));
+
+            assertEquals(2, archive.listSegments().size());
+            assertEquals(List.of(newer, older), archive.find(42, 0, 10_000));
+        }
+    }
+}
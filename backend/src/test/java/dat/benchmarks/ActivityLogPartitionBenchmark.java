@@ -0,0 +1,140 @@
+package dat.benchmarks;
+
+import java.sql.*;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmark: plain vs monthly-partitioned activity log
+ *
+ * Not a unit test (run manually against a scratch PostgreSQL database):
+ *   java -cp target/test-classes:target/classes:<deps> dat.benchmarks.ActivityLogPartitionBenchmark \
+ *        jdbc:postgresql://localhost:5432/notionpay_bench postgres postgres 50000000
+ *
+ * Builds two tables with the same synthetic data (default 50M rows spread over
+ * 24 months and 100k customers), then compares:
+ * - a customer's activities in the last 30 days (time-bounded, partition-pruned)
+ * - counting one activity type in a single month
+ * - retention of the oldest month: DELETE vs DETACH + DROP PARTITION
+ */
+public class ActivityLogPartitionBenchmark {
+
+    private static final int MONTHS = 24;
+    private static final int CUSTOMERS = 100_000;
+    private static final int QUERY_RUNS = 25;
+    private static final long INSERT_CHUNK = 5_000_000;
+
+    public static void main(String[] args) throws SQLException {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/notionpay_bench";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "postgres";
+        long rows = args.length > 3 ? Long.parseLong(args[3]) : 50_000_000L;
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(true);
+            YearMonth firstMonth = YearMonth.now(ZoneOffset.UTC).minusMonths(MONTHS - 1);
+
+            System.out.println("Creating tables...");
+            createTables(connection, firstMonth);
+
+            System.out.printf("Generating %,d rows per table...%n", rows);
+            populate(connection, "bench_activity_plain", rows, firstMonth);
+            populate(connection, "bench_activity_part", rows, firstMonth);
+            execute(connection, "ANALYZE bench_activity_plain");
+            execute(connection, "ANALYZE bench_activity_part");
+
+            String customerQuery = "SELECT * FROM %s WHERE customer_id = ? " +
+                    "AND timestamp >= now() - interval '30 days' AND timestamp < now() ORDER BY timestamp DESC";
+            String typeQuery = "SELECT COUNT(*) FROM %s WHERE type = 'PAYMENT' " +
+                    "AND timestamp >= date_trunc('month', now()) - interval '6 months' " +
+                    "AND timestamp < date_trunc('month', now()) - interval '5 months'";
+
+            System.out.println();
+            System.out.printf("%-40s %15s %15s%n", "Query (median of " + QUERY_RUNS + ")", "plain ms", "partitioned ms");
+            System.out.printf("%-40s %15.2f %15.2f%n", "Customer, last 30 days",
+                    medianMillis(connection, customerQuery.formatted("bench_activity_plain"), true),
+                    medianMillis(connection, customerQuery.formatted("bench_activity_part"), true));
+            System.out.printf("%-40s %15.2f %15.2f%n", "Type count, one month",
+                    medianMillis(connection, typeQuery.formatted("bench_activity_plain"), false),
+                    medianMillis(connection, typeQuery.formatted("bench_activity_part"), false));
+
+            String oldest = "bench_activity_part_p" + firstMonth.toString().replace("-", "");
+            long start = System.nanoTime();
+            execute(connection, "DELETE FROM bench_activity_plain WHERE timestamp < '" +
+                    firstMonth.plusMonths(1).atDay(1) + "'");
+            double deleteMillis = (System.nanoTime() - start) / 1_000_000.0;
+            start = System.nanoTime();
+            execute(connection, "ALTER TABLE bench_activity_part DETACH PARTITION " + oldest);
+            execute(connection, "DROP TABLE " + oldest);
+            double detachMillis = (System.nanoTime() - start) / 1_000_000.0;
+            System.out.printf("%-40s %15.2f %15.2f%n", "Retention of oldest month", deleteMillis, detachMillis);
+        }
+    }
+
+    private static void createTables(Connection connection, YearMonth firstMonth) throws SQLException {
+        execute(connection, "DROP TABLE IF EXISTS bench_activity_plain");
+        execute(connection, "DROP TABLE IF EXISTS bench_activity_part");
+        String columns = "(activity_log_id BIGINT NOT NULL, customer_id BIGINT NOT NULL, session_id BIGINT, " +
+                "type VARCHAR(32) NOT NULL, status VARCHAR(16) NOT NULL, timestamp TIMESTAMPTZ NOT NULL, metadata JSONB)";
+
+        execute(connection, "CREATE TABLE bench_activity_plain " + columns);
+        execute(connection, "ALTER TABLE bench_activity_plain ADD PRIMARY KEY (activity_log_id)");
+
+        execute(connection, "CREATE TABLE bench_activity_part " + columns + " PARTITION BY RANGE (timestamp)");
+        execute(connection, "ALTER TABLE bench_activity_part ADD PRIMARY KEY (activity_log_id, timestamp)");
+        for (int i = 0; i <= MONTHS; i++) {
+            YearMonth month = firstMonth.plusMonths(i);
+            execute(connection, "CREATE TABLE bench_activity_part_p" + month.toString().replace("-", "") +
+                    " PARTITION OF bench_activity_part FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" +
+                    month.plusMonths(1).atDay(1) + "')");
+        }
+        // Index creation is deferred until after loading (see populate)
+    }
+
+    private static void populate(Connection connection, String table, long rows, YearMonth firstMonth) throws SQLException {
+        String start = firstMonth.atDay(1).toString();
+        for (long from = 1; from <= rows; from += INSERT_CHUNK) {
+            long to = Math.min(rows, from + INSERT_CHUNK - 1);
+            long started = System.nanoTime();
+            execute(connection, "INSERT INTO " + table + " " +
+                    "SELECT g, 1 + (g * 7919) % " + CUSTOMERS + ", NULL, " +
+                    "(ARRAY['LOGIN','LOGOUT','PAYMENT','ADD_CARD','SMS_SENT'])[1 + g % 5], 'SUCCESS', " +
+                    "timestamptz '" + start + "' + (g::float8 / " + rows + ") * " +
+                    "(now() - timestamptz '" + start + "'), " +
+                    "jsonb_build_object('ip', '10.0.' || (g % 255) || '.1') " +
+                    "FROM generate_series(" + from + ", " + to + ") g");
+            System.out.printf("  %s: %,d rows (%.1f s)%n", table, to, (System.nanoTime() - started) / 1e9);
+        }
+        execute(connection, "CREATE INDEX ON " + table + " (customer_id, timestamp DESC)");
+    }
+
+    private static double medianMillis(Connection connection, String sql, boolean withCustomer) throws SQLException {
+        List<Double> timings = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < QUERY_RUNS; i++) {
+                if (withCustomer) {
+                    statement.setLong(1, 1 + ThreadLocalRandom.current().nextInt(CUSTOMERS));
+                }
+                long started = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        // consume rows
+                    }
+                }
+                timings.add((System.nanoTime() - started) / 1_000_000.0);
+            }
+        }
+        Collections.sort(timings);
+        return timings.get(timings.size() / 2);
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package dat.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark: platform vs virtual request threads under concurrent load
+ *
+ * Not a unit test (run manually against a running server):
+ *   java -cp target/test-classes:target/classes:<deps> dat.benchmarks.RequestExecutionBenchmark \
+ *        http://localhost:7070/api alice@company-a.com <password> 400 30 <paymentMethodId>
+ *
+ * Start the server with SERVER_EXECUTION_MODE=platform, run the benchmark, then
+ * restart with SERVER_EXECUTION_MODE=virtual and run it again. For a fair run,
+ * raise RATE_LIMIT_* for the test user (throttled requests are counted as 429)
+ * and use a Stripe test key (payments call Stripe). Without a paymentMethodId
+ * the payment scenario is skipped.
+ *
+ * Each scenario keeps `concurrency` requests in flight for `seconds`:
+ * - login: POST /auth/login (BCrypt, session insert)
+ * - dashboard: subscription, SMS balance and receipts of the customer
+ * - payment: POST /payments of 1.00 DKK with the saved card
+ *
+ * Prints throughput, latency percentiles and failures per scenario. In virtual
+ * mode, also check server.vthread.pinned in GET /admin/metrics.
+ */
+public class RequestExecutionBenchmark {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    interface Scenario {
+        List<HttpRequest> requests();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:7070/api";
+        String email = args.length > 1 ? args[1] : "alice@company-a.com";
+        String password = args.length > 2 ? args[2] : "password123";
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 400;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+        String paymentMethodId = args.length > 5 ? args[5] : null;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        String loginBody = mapper.createObjectNode().put("email", email).put("password", password).toString();
+        HttpResponse<String> login = client.send(post(baseUrl + "/auth/login", null, loginBody),
+                HttpResponse.BodyHandlers.ofString());
+        if (login.statusCode() != 200) {
+            throw new IllegalStateException("Login failed (" + login.statusCode() + "): " + login.body());
+        }
+        JsonNode session = mapper.readTree(login.body());
+        String token = session.get("token").asText();
+        long customerId = session.get("customerId").asLong();
+
+        System.out.printf("%s: %d in flight for %d s per scenario%n%n", baseUrl, concurrency, seconds);
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %8s %8s%n",
+                "Scenario", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "429", "failed");
+
+        run(client, "login", concurrency, seconds, () -> List.of(post(baseUrl + "/auth/login", null, loginBody)));
+
+        String customer = baseUrl + "/customers/" + customerId;
+        run(client, "dashboard", concurrency, seconds, () -> List.of(
+                get(customer + "/subscription", token),
+                get(customer + "/sms-balance", token),
+                get(customer + "/receipts", token)));
+
+        if (paymentMethodId != null) {
+            String paymentBody = mapper.createObjectNode()
+                    .put("customerId", customerId)
+                    .put("paymentMethodId", paymentMethodId)
+                    .put("amount", 100)
+                    .put("currency", "DKK")
+                    .put("description", "Load test")
+                    .toString();
+            run(client, "payment", concurrency, seconds, () -> List.of(post(baseUrl + "/payments", token, paymentBody)));
+        }
+    }
+
+    private static void run(HttpClient client, String name, int concurrency, int seconds, Scenario scenario)
+            throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong throttled = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<Future<long[]>> workers = new ArrayList<>();
+
+        long startedAt = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        for (HttpRequest request : scenario.requests()) {
+                            long sent = System.nanoTime();
+                            try {
+                                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                                if (status == 429) {
+                                    throttled.incrementAndGet();
+                                } else if (status >= 400) {
+                                    failed.incrementAndGet();
+                                }
+                            } catch (Exception e) {
+                                failed.incrementAndGet();
+                            }
+                            if (count == latencies.length) {
+                                latencies = Arrays.copyOf(latencies, count * 2);
+                            }
+                            latencies[count++] = System.nanoTime() - sent;
+                        }
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }  // close() waits for the workers
+        double elapsed = (System.nanoTime() - startedAt) / 1e9;
+
+        long[] all = workers.stream().map(RequestExecutionBenchmark::join).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-10s %10.0f %10.1f %10.1f %10.1f %10.1f %8d %8d%n",
+                name, all.length / elapsed, millis(all, 0.50), millis(all, 0.95), millis(all, 0.99),
+                millis(all, 1.0), throttled.get(), failed.get());
+    }
+
+    private static HttpRequest get(String url, String token) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    private static HttpRequest post(String url, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static long[] join(Future<long[]> worker) {
+        try {
+            return worker.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double millis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+}
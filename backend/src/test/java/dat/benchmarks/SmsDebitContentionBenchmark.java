@@ -0,0 +1,163 @@
+package dat.benchmarks;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark: many threads debiting SMS credits from the same customer
+ *
+ * Not a unit test (run manually against a scratch PostgreSQL database):
+ *   java -cp target/test-classes:target/classes:<deps> dat.benchmarks.SmsDebitContentionBenchmark \
+ *        jdbc:postgresql://localhost:5432/notionpay_bench postgres postgres 32 2000
+ *
+ * Compares three ways to debit one credit, each thread with its own connection:
+ * - read-modify-write without locking (the old useSmsCredits): fast, but loses updates
+ * - SELECT ... FOR UPDATE then UPDATE: correct, but the row lock spans two round trips
+ * - conditional UPDATE ... WHERE remaining_sms >= n RETURNING (SmsBalanceDAO.debitSmsCredits)
+ *
+ * For each strategy it prints throughput and whether the final balance matches
+ * the number of successful debits (lost updates show up as a mismatch).
+ */
+public class SmsDebitContentionBenchmark {
+
+    private static final String EXTERNAL_ID = "bench-customer";
+
+    interface Debit {
+        boolean debit(Connection connection) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/notionpay_bench";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "postgres";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        int debitsPerThread = args.length > 4 ? Integer.parseInt(args[4]) : 2000;
+
+        try (Connection admin = DriverManager.getConnection(url, user, password)) {
+            execute(admin, "DROP TABLE IF EXISTS bench_sms_balance");
+            execute(admin, "CREATE TABLE bench_sms_balance (id BIGSERIAL PRIMARY KEY, " +
+                    "external_customer_id VARCHAR(255) NOT NULL UNIQUE, remaining_sms INTEGER NOT NULL)");
+        }
+
+        System.out.printf("%d threads x %d debits of 1 credit on one customer%n%n", threads, debitsPerThread);
+        System.out.printf("%-28s %12s %12s %12s %10s%n", "Strategy", "debits/s", "successful", "final", "correct");
+
+        run(url, user, password, threads, debitsPerThread, "read-modify-write (no lock)", connection -> {
+            int remaining;
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT remaining_sms FROM bench_sms_balance WHERE external_customer_id = ?")) {
+                select.setString(1, EXTERNAL_ID);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) < 1) {
+                        return false;
+                    }
+                    remaining = rs.getInt(1);
+                }
+            }
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE bench_sms_balance SET remaining_sms = ? WHERE external_customer_id = ?")) {
+                update.setInt(1, remaining - 1);
+                update.setString(2, EXTERNAL_ID);
+                update.executeUpdate();
+            }
+            return true;
+        });
+
+        run(url, user, password, threads, debitsPerThread, "SELECT FOR UPDATE + UPDATE", connection -> {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT remaining_sms FROM bench_sms_balance WHERE external_customer_id = ? FOR UPDATE")) {
+                    select.setString(1, EXTERNAL_ID);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (!rs.next() || rs.getInt(1) < 1) {
+                            connection.rollback();
+                            return false;
+                        }
+                    }
+                }
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE bench_sms_balance SET remaining_sms = remaining_sms - 1 WHERE external_customer_id = ?")) {
+                    update.setString(1, EXTERNAL_ID);
+                    update.executeUpdate();
+                }
+                connection.commit();
+                return true;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+
+        run(url, user, password, threads, debitsPerThread, "conditional UPDATE RETURNING", connection -> {
+            try (PreparedStatement debit = connection.prepareStatement(
+                    "UPDATE bench_sms_balance SET remaining_sms = remaining_sms - ? " +
+                    "WHERE external_customer_id = ? AND remaining_sms >= ? RETURNING remaining_sms")) {
+                debit.setInt(1, 1);
+                debit.setString(2, EXTERNAL_ID);
+                debit.setInt(3, 1);
+                try (ResultSet rs = debit.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
+    }
+
+    private static void run(String url, String user, String password, int threads, int debitsPerThread,
+                            String name, Debit strategy) throws Exception {
+        int initial = threads * debitsPerThread;
+        try (Connection admin = DriverManager.getConnection(url, user, password)) {
+            execute(admin, "DELETE FROM bench_sms_balance");
+            execute(admin, "INSERT INTO bench_sms_balance (external_customer_id, remaining_sms) VALUES ('" +
+                    EXTERNAL_ID + "', " + initial + ")");
+        }
+
+        AtomicLong successful = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                try (Connection connection = DriverManager.getConnection(url, user, password)) {
+                    start.await();
+                    for (int i = 0; i < debitsPerThread; i++) {
+                        if (strategy.debit(connection)) {
+                            successful.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        pool.shutdown();
+
+        int remaining;
+        try (Connection admin = DriverManager.getConnection(url, user, password);
+             Statement statement = admin.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT remaining_sms FROM bench_sms_balance")) {
+            rs.next();
+            remaining = rs.getInt(1);
+        }
+        boolean correct = remaining == initial - successful.get() && remaining >= 0;
+        System.out.printf("%-28s %12.0f %12d %12d %10s%n",
+                name, successful.get() / seconds, successful.get(), remaining, correct ? "yes" : "NO");
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
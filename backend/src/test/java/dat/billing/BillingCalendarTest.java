@@ -0,0 +1,109 @@
+package dat.billing;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for BillingCalendar
+ * Tests minute buckets, taking due subscriptions, forecasts and reloads
+ */
+class BillingCalendarTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-10T12:00:30Z");
+    private static final Instant HORIZON = NOW.plusSeconds(7 * 24 * 3600);
+
+    @Test
+    @DisplayName("takeDue - returns overdue and current-minute subscriptions once")
+    void testTakeDue() {
+        BillingCalendar calendar = new BillingCalendar(HORIZON);
+        calendar.schedule(1, NOW.minusSeconds(3600));
+        calendar.schedule(2, NOW.plusSeconds(20));   // same minute
+        calendar.schedule(3, NOW.plusSeconds(60));   // next minute
+
+        assertEquals(List.of(1L, 2L), calendar.takeDue(NOW));
+        assertTrue(calendar.takeDue(NOW).isEmpty());
+        assertEquals(List.of(3L), calendar.peekDue(NOW.plusSeconds(60)));
+        assertEquals(1, calendar.size());
+    }
+
+    @Test
+    @DisplayName("schedule/remove - rescheduling moves a subscription, past the horizon drops it")
+    void testRescheduleAndRemove() {
+        BillingCalendar calendar = new BillingCalendar(HORIZON);
+        calendar.schedule(1, NOW);
+        calendar.schedule(1, NOW.plusSeconds(3600));
+        assertTrue(calendar.peekDue(NOW).isEmpty());
+
+        calendar.schedule(1, HORIZON.plusSeconds(1));
+        assertEquals(0, calendar.size());
+
+        calendar.schedule(2, NOW);
+        assertTrue(calendar.remove(2));
+        assertFalse(calendar.remove(2));
+    }
+
+    @Test
+    @DisplayName("forecast - counts per day, overdue on day 0, nothing past the window")
+    void testForecast() {
+        BillingCalendar calendar = new BillingCalendar(HORIZON);
+        calendar.schedule(1, NOW.minusSeconds(2 * 24 * 3600));
+        calendar.schedule(2, NOW);
+        calendar.schedule(3, NOW.plusSeconds(24 * 3600));
+        calendar.schedule(4, NOW.plusSeconds(5 * 24 * 3600));
+
+        Map<LocalDate, Integer> forecast = calendar.forecast(NOW, 3, ZoneOffset.UTC);
+
+        assertEquals(List.of(2, 1, 0), List.copyOf(forecast.values()));
+        assertEquals(LocalDate.of(2025, 3, 10), forecast.keySet().iterator().next());
+    }
+
+    @Test
+    @DisplayName("forecast - days follow the given zone")
+    void testForecastZone() {
+        BillingCalendar calendar = new BillingCalendar(HORIZON);
+        calendar.schedule(1, Instant.parse("2025-03-10T23:30:00Z"));  // 00:30 on the 11th in Copenhagen
+
+        Map<LocalDate, Integer> forecast = calendar.forecast(NOW, 2, ZoneId.of("Europe/Copenhagen"));
+
+        assertEquals(1, forecast.get(LocalDate.of(2025, 3, 11)));
+    }
+
+    @Test
+    @DisplayName("Reload - live updates made during the load win over loaded dates")
+    void testReloadKeepsLiveUpdates() {
+        BillingCalendar calendar = new BillingCalendar(HORIZON);
+        calendar.schedule(1, NOW);
+        calendar.schedule(2, NOW);
+
+        calendar.beginReload();
+        calendar.remove(1);                              // canceled while loading
+        calendar.schedule(2, NOW.plusSeconds(3600));     // renewed while loading
+        calendar.finishReload(Map.of(1L, NOW, 2L, NOW, 3L, NOW), HORIZON.plusSeconds(3600));
+
+        assertEquals(List.of(3L), calendar.peekDue(NOW));
+        assertEquals(2, calendar.size());
+        assertEquals(HORIZON.plusSeconds(3600), calendar.getHorizon());
+    }
+
+    @Test
+    @DisplayName("Reload - subscriptions taken during the load are not put back")
+    void testReloadAfterTake() {
+        BillingCalendar calendar = new BillingCalendar(HORIZON);
+        calendar.schedule(1, NOW);
+
+        calendar.beginReload();
+        assertEquals(List.of(1L), calendar.takeDue(NOW));
+        calendar.finishReload(Map.of(1L, NOW), HORIZON);
+
+        assertEquals(0, calendar.size());
+    }
+}
@@ -0,0 +1,53 @@
+package dat.billing;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for DunningBackoff
+ * Tests exponential growth, the cap and the jitter range of renewal retry delays
+ */
+class DunningBackoffTest {
+
+    private static final long BASE = 3600;
+    private static final long MAX = 24 * 3600;
+
+    // nextDouble() = 0 -> no jitter taken off
+    private static final RandomGenerator NO_JITTER = () -> 0L;
+
+    @Test
+    @DisplayName("Delay doubles per attempt up to the cap")
+    void testExponentialWithCap() {
+        assertEquals(BASE, DunningBackoff.delaySeconds(1, BASE, MAX, 25, NO_JITTER));
+        assertEquals(2 * BASE, DunningBackoff.delaySeconds(2, BASE, MAX, 25, NO_JITTER));
+        assertEquals(8 * BASE, DunningBackoff.delaySeconds(4, BASE, MAX, 25, NO_JITTER));
+        assertEquals(MAX, DunningBackoff.delaySeconds(6, BASE, MAX, 25, NO_JITTER));
+        assertEquals(MAX, DunningBackoff.delaySeconds(500, BASE, MAX, 25, NO_JITTER));
+    }
+
+    @Test
+    @DisplayName("Jitter stays within the configured fraction and spreads retries")
+    void testJitterRange() {
+        Random random = new Random(42);
+        Set<Long> distinct = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            long delay = DunningBackoff.delaySeconds(2, BASE, MAX, 25, random);
+            assertTrue(delay >= 2 * BASE * 3 / 4 && delay <= 2 * BASE, "delay out of range: " + delay);
+            distinct.add(delay);
+        }
+        assertTrue(distinct.size() > 100, "retries should not bunch up");
+    }
+
+    @Test
+    @DisplayName("Zero jitter gives the exact delay")
+    void testNoJitterConfigured() {
+        assertEquals(4 * BASE, DunningBackoff.delaySeconds(3, BASE, MAX, 0, new Random(1)));
+    }
+}
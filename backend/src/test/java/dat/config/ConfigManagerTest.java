@@ -0,0 +1,84 @@
+package dat.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for ConfigManager
+ * Tests that a reload swaps in a new snapshot and notifies listeners,
+ * that a failing listener affects neither the swap nor other listeners,
+ * and that an external CONFIG_FILE overrides the classpath values
+ */
+class ConfigManagerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("reload - new snapshot becomes current, old snapshots stay unchanged")
+    void testReloadSwapsSnapshot() {
+        ConfigManager manager = ConfigManager.getInstance();
+        ConfigSnapshot before = ConfigManager.current();
+
+        ConfigSnapshot after = manager.reload();
+
+        assertNotSame(before, after);
+        assertSame(after, ConfigManager.current());
+        assertFalse(after.getLoadedAt().isBefore(before.getLoadedAt()));
+        assertEquals(before.getDbName(), after.getDbName());  // same file, same values
+    }
+
+    @Test
+    @DisplayName("reload - listeners get the new snapshot, even after one fails")
+    void testListeners() {
+        ConfigManager manager = ConfigManager.getInstance();
+        List<ConfigSnapshot> notified = new ArrayList<>();
+        manager.addListener(snapshot -> {
+            throw new IllegalStateException("listener failure");
+        });
+        manager.addListener(notified::add);
+
+        ConfigSnapshot after = manager.reload();
+
+        assertEquals(1, notified.size());
+        assertSame(after, notified.get(0));
+        assertSame(after, ConfigManager.current());
+    }
+
+    @Test
+    @DisplayName("CONFIG_FILE - overrides the classpath file, changes are picked up on reload")
+    void testExternalFile() throws IOException {
+        Path file = directory.resolve("override.properties");
+        Files.writeString(file, "DB_NAME=external_db\nCONFIG_MANAGER_TEST=1\n");
+        ConfigManager manager = new ConfigManager(file);
+
+        ConfigSnapshot before = manager.reload();
+        assertEquals("external_db", before.getDbName());
+        assertEquals(1, before.getInt("CONFIG_MANAGER_TEST", 0));
+
+        Files.writeString(file, "DB_NAME=external_db\nCONFIG_MANAGER_TEST=2\n");
+        ConfigSnapshot after = manager.reload();
+        assertEquals(2, after.getInt("CONFIG_MANAGER_TEST", 0));
+        assertEquals(1, before.getInt("CONFIG_MANAGER_TEST", 0));
+    }
+
+    @Test
+    @DisplayName("CONFIG_FILE - a missing file falls back to the classpath values")
+    void testMissingExternalFile() {
+        ConfigManager manager = new ConfigManager(directory.resolve("missing.properties"));
+
+        ConfigSnapshot snapshot = manager.reload();
+
+        assertEquals(ConfigManager.current().getDbName(), snapshot.getDbName());
+        assertNull(snapshot.get("CONFIG_MANAGER_TEST"));
+    }
+}
@@ -0,0 +1,67 @@
+package dat.config;
+
+import dat.security.exceptions.ApiException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for ConfigSnapshot
+ * Tests source precedence, typed accessors and failing fast on missing required values
+ */
+class ConfigSnapshotTest {
+
+    @Test
+    @DisplayName("Precedence - file wins locally, environment wins when DEPLOYED is set")
+    void testPrecedence() {
+        Properties file = properties("DB_NAME", "from_file", "ISSUER", "file-issuer");
+
+        ConfigSnapshot local = ConfigSnapshot.of(file, Map.of("DB_NAME", "from_env", "DB_USERNAME", "env-user"));
+        assertEquals("from_file", local.getDbName());
+        assertEquals("env-user", local.getDbUsername());  // environment still fills the gaps
+        assertFalse(local.isDeployed());
+
+        ConfigSnapshot deployed = ConfigSnapshot.of(file, Map.of("DEPLOYED", "true", "DB_NAME", "from_env"));
+        assertEquals("from_env", deployed.getDbName());
+        assertEquals("file-issuer", deployed.getIssuer());
+        assertTrue(deployed.isDeployed());
+    }
+
+    @Test
+    @DisplayName("Typed accessors - trimmed values, defaults for missing or empty ones")
+    void testTypedAccessors() {
+        ConfigSnapshot config = ConfigSnapshot.of(
+                properties("DB_POOL_SIZE", " 32 ", "ENABLED", "true", "EMPTY", ""), Map.of());
+
+        assertEquals(32, config.getInt("DB_POOL_SIZE", 20));
+        assertEquals(20, config.getInt("MISSING", 20));
+        assertEquals(7L, config.getLong("EMPTY", 7L));
+        assertTrue(config.getBoolean("ENABLED", false));
+        assertEquals("fallback", config.get("EMPTY", "fallback"));
+        assertEquals(1_800_000L, config.getTokenExpireTimeMillis());
+    }
+
+    @Test
+    @DisplayName("Fail fast - missing SECRET_KEY, missing required keys and bad numbers")
+    void testFailFast() {
+        ConfigSnapshot config = ConfigSnapshot.of(properties("DB_POOL_SIZE", "many"), Map.of());
+
+        ApiException missingSecret = assertThrows(ApiException.class, config::getSecretKey);
+        assertEquals(500, missingSecret.getCode());
+        assertThrows(IllegalStateException.class, () -> config.require("STRIPE_SECRET_KEY"));
+        assertThrows(IllegalStateException.class, () -> config.getInt("DB_POOL_SIZE", 20));
+        assertEquals("secret", ConfigSnapshot.of(properties("SECRET_KEY", "secret"), Map.of()).getSecretKey());
+    }
+
+    private static Properties properties(String... keyValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+}
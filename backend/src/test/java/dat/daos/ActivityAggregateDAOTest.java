@@ -0,0 +1,128 @@
+package dat.daos;
+
+import dat.config.HibernateConfig;
+import dat.daos.impl.ActivityAggregateDAO;
+import dat.entities.ActivityDailyAggregate;
+import dat.entities.ActivityLog;
+import dat.entities.Customer;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import dat.security.entities.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for ActivityAggregateDAO
+ * Tests that a rebuild only replaces the requested Europe/Copenhagen days
+ * and reports which activity logs its snapshot counted
+ */
+class ActivityAggregateDAOTest {
+
+    private static final LocalDate FEB_1 = LocalDate.of(2025, 2, 1);
+
+    private static EntityManagerFactory emf;
+    private static ActivityAggregateDAO activityAggregateDAO;
+
+    private Customer customer;
+
+    @BeforeAll
+    static void setUpAll() {
+        HibernateConfig.setTest(true);
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        activityAggregateDAO = ActivityAggregateDAO.getInstance(emf);
+    }
+
+    @BeforeEach
+    void setUp() {
+        cleanDatabase();
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            User user = new User("aggregates@company.com", "password123");
+            em.persist(user);
+            customer = new Customer(user, "Aggregate Company", 4242, "EXT-AGG-1", OffsetDateTime.now());
+            em.persist(customer);
+            em.getTransaction().commit();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanDatabase();
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Rebuild - only the requested Copenhagen days are recounted")
+    void testRebuildDayBounds() {
+        persistLog(OffsetDateTime.parse("2025-01-31T22:30:00Z"));  // 23:30 on Jan 31 in Copenhagen
+        persistLog(OffsetDateTime.parse("2025-01-31T23:30:00Z"));  // 00:30 on Feb 1
+        persistLog(OffsetDateTime.parse("2025-02-01T22:59:00Z"));  // 23:59 on Feb 1
+        persistLog(OffsetDateTime.parse("2025-02-01T23:00:00Z"));  // midnight, Feb 2
+        activityAggregateDAO.addCounts(List.of(new ActivityDailyAggregate(customer.getId(), FEB_1.minusDays(1),
+                ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, 5)));
+
+        activityAggregateDAO.rebuild(FEB_1, FEB_1, List::of);
+
+        List<ActivityDailyAggregate> rows = activityAggregateDAO.getByCustomerBetween(
+                customer.getId(), FEB_1.minusDays(1), FEB_1.plusDays(1));
+        assertEquals(2, rows.size());
+        assertEquals(5, rows.get(0).getCount());  // Jan 31 untouched
+        assertEquals(FEB_1, rows.get(1).getId().getDay());
+        assertEquals(2, rows.get(1).getCount());
+    }
+
+    @Test
+    @DisplayName("Rebuild - reports which activity logs its snapshot counted")
+    void testRebuildReportsCountedLogs() {
+        Long before = persistLog(OffsetDateTime.parse("2025-02-01T10:00:00Z"));
+        Long[] during = new Long[1];
+
+        ActivityAggregateDAO.Rebuild rebuild = activityAggregateDAO.rebuild(FEB_1, FEB_1, () -> {
+            // Committed while the rebuild's transaction is open
+            during[0] = persistLog(OffsetDateTime.parse("2025-02-01T11:00:00Z"));
+            return List.of(before, during[0]);
+        });
+
+        assertEquals(Set.of(before), rebuild.countedActivityLogIds());
+        assertEquals(1, activityAggregateDAO.getByCustomerBetween(customer.getId(), FEB_1, FEB_1).get(0).getCount());
+    }
+
+    private Long persistLog(OffsetDateTime timestamp) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            ActivityLog activityLog = new ActivityLog(em.find(Customer.class, customer.getId()), null,
+                    ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, null);
+            activityLog.setTimestamp(timestamp);
+            em.persist(activityLog);
+            em.getTransaction().commit();
+            return activityLog.getId();
+        }
+    }
+
+    private void cleanDatabase() {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM ActivityDailyAggregate").executeUpdate();
+            em.createQuery("DELETE FROM ActivityLog").executeUpdate();
+            em.createQuery("DELETE FROM Customer").executeUpdate();
+            em.createQuery("DELETE FROM User").executeUpdate();
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            // Ignore errors during cleanup
+        }
+    }
+}
@@ -4,6 +4,7 @@ import dat.config.HibernateConfig;
 import dat.daos.impl.ActivityLogDAO;
 import dat.daos.impl.CustomerDAO;
 import dat.daos.impl.SessionDAO;
+import dat.dtos.ActivityLogDTO;
 import dat.entities.ActivityLog;
 import dat.entities.Customer;
 import dat.entities.Session;
@@ -11,12 +12,14 @@ import dat.enums.ActivityLogStatus;
 import dat.enums.ActivityLogType;
 import dat.security.entities.Role;
 import dat.security.entities.User;
+import dat.utils.ActivityFeedCursor;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.*;
 
 import java.time.OffsetDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -315,6 +318,42 @@ class ActivityLogDAOTest {
         assertNotNull(retrievedMetadata.get("planDetails"));
     }
 
+    /**
+     * Test the getFeed() method
+     * Verifies keyset paging walks the feed newest first without gaps or duplicates
+     */
+    @Test
+    @DisplayName("Get feed - should page newest first and filter by type")
+    void testGetFeed() {
+        // Arrange: 5 logs one minute apart, alternating LOGIN/PAYMENT
+        OffsetDateTime base = OffsetDateTime.now().minusHours(1);
+        for (int i = 0; i < 5; i++) {
+            ActivityLog log = new ActivityLog(
+                testCustomer, testSession, i % 2 == 0 ? ActivityLogType.LOGIN : ActivityLogType.PAYMENT,
+                ActivityLogStatus.SUCCESS, new HashMap<>()
+            );
+            log.setTimestamp(base.plusMinutes(i));
+            activityLogDAO.create(log);
+        }
+
+        // Act
+        List<ActivityLogDTO> firstPage = activityLogDAO.getFeed(testCustomer.getId(), null, null, null, null, 2);
+        ActivityLogDTO last = firstPage.get(firstPage.size() - 1);
+        List<ActivityLogDTO> secondPage = activityLogDAO.getFeed(testCustomer.getId(), null, null, null,
+                new ActivityFeedCursor(last.timestamp, last.id), 10);
+        List<ActivityLogDTO> payments = activityLogDAO.getFeed(testCustomer.getId(),
+                List.of(ActivityLogType.PAYMENT), null, null, null, 10);
+
+        // Assert
+        assertEquals(2, firstPage.size());
+        assertEquals(3, secondPage.size());
+        assertTrue(firstPage.get(0).timestamp.isAfter(firstPage.get(1).timestamp));
+        assertTrue(last.timestamp.isAfter(secondPage.get(0).timestamp));
+        assertEquals(testSession.getId(), secondPage.get(0).sessionId);
+        assertEquals(2, payments.size());
+        assertTrue(payments.stream().allMatch(dto -> dto.type == ActivityLogType.PAYMENT));
+    }
+
     // ==================== Helper Methods ====================
 
     private void setupTestData() {
@@ -0,0 +1,210 @@
+package dat.daos;
+
+import dat.config.HibernateConfig;
+import dat.daos.impl.AnalyticsDAO;
+import dat.dtos.RevenueReportDTO;
+import dat.entities.*;
+import dat.enums.*;
+import dat.security.entities.Role;
+import dat.security.entities.User;
+import dat.utils.DateTimeUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for AnalyticsDAO
+ * Tests the SQL aggregations behind MRR, the renewal forecast and the payment summary,
+ * including which payments a summary rebuild counted
+ */
+class AnalyticsDAOTest {
+
+    private static EntityManagerFactory emf;
+    private static AnalyticsDAO analyticsDAO;
+
+    private Plan monthlyPlan;
+    private Plan yearlyPlan;
+
+    @BeforeAll
+    static void setUpAll() {
+        HibernateConfig.setTest(true);
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        analyticsDAO = AnalyticsDAO.getInstance(emf);
+    }
+
+    @BeforeEach
+    void setUp() {
+        cleanDatabase();
+        setupTestData();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanDatabase();
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Subscription counts - grouped per plan and status, canceled ones left out")
+    void testSubscriptionCountsByPlan() {
+        List<Object[]> rows = analyticsDAO.getSubscriptionCountsByPlan();
+
+        assertEquals(3, rows.size());
+        assertEquals(2L, count(rows, monthlyPlan, SubscriptionStatus.ACTIVE));
+        assertEquals(1L, count(rows, monthlyPlan, SubscriptionStatus.PAST_DUE));
+        assertEquals(1L, count(rows, yearlyPlan, SubscriptionStatus.ACTIVE));
+    }
+
+    @Test
+    @DisplayName("Forecast - monthly plans renew every month, yearly once, only ACTIVE subscriptions")
+    void testRenewalForecast() {
+        LocalDate today = DateTimeUtil.now().toLocalDate();
+        OffsetDateTime from = today.atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime();
+        OffsetDateTime to = today.plusDays(90).atStartOfDay(DateTimeUtil.DANISH_ZONE).toOffsetDateTime();
+
+        List<RevenueReportDTO.Bucket> buckets = analyticsDAO.getRenewalForecast(from, to, "day");
+
+        long monthlyRenewals = renewals(buckets, monthlyPlan);
+        assertTrue(monthlyRenewals >= 2 * 2 && monthlyRenewals <= 2 * 3, "2 subscriptions x 2-3 months: " + monthlyRenewals);
+        assertEquals(1, renewals(buckets, yearlyPlan));
+        assertEquals(today.plusDays(10), buckets.stream()
+                .filter(b -> b.planId.equals(yearlyPlan.getId())).findFirst().orElseThrow().period);
+    }
+
+    @Test
+    @DisplayName("Payment summary - rebuilt summary matches aggregating the payment table")
+    void testSummaryMatchesPayments() {
+        LocalDate today = DateTimeUtil.now().toLocalDate();
+        analyticsDAO.rebuildPaymentSummary();
+
+        RevenueReportDTO fromPayments = new RevenueReportDTO(today, today, "day", "payments",
+                analyticsDAO.getRevenueFromPayments(today, today, "day"));
+        RevenueReportDTO fromSummary = new RevenueReportDTO(today, today, "day", "summary",
+                analyticsDAO.getRevenueFromSummary(today, today, "day"));
+
+        assertEquals(9900L + 9900L + 4900L, fromPayments.totals.get(Currency.DKK));  // PENDING left out
+        assertEquals(fromPayments.totals, fromSummary.totals);
+        assertEquals(fromPayments.buckets.size(), fromSummary.buckets.size());
+    }
+
+    @Test
+    @DisplayName("Payment summary - deltas are added to existing rows")
+    void testAddPaymentTotals() {
+        LocalDate today = DateTimeUtil.now().toLocalDate();
+        analyticsDAO.rebuildPaymentSummary();
+
+        analyticsDAO.addPaymentTotals(List.of(new PaymentDailySummary(today, 0L, Currency.DKK, 2, 1000)));
+
+        RevenueReportDTO.Bucket oneOff = analyticsDAO.getRevenueFromSummary(today, today, "day").stream()
+                .filter(b -> b.planId == 0L).findFirst().orElseThrow();
+        assertEquals(3, oneOff.count);
+        assertEquals(4900 + 1000, oneOff.amountCents);
+    }
+
+    @Test
+    @DisplayName("Payment summary - rebuild reports which payments its snapshot counted")
+    void testRebuildReportsCountedPayments() {
+        Long before;
+        try (EntityManager em = emf.createEntityManager()) {
+            before = em.createQuery("SELECT p.id FROM Payment p WHERE p.priceCents = 4900", Long.class).getSingleResult();
+        }
+        Long[] during = new Long[1];
+
+        AnalyticsDAO.Rebuild rebuild = analyticsDAO.rebuildPaymentSummary(() -> {
+            // Committed while the rebuild's transaction is open
+            try (EntityManager em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                Customer customer = em.createQuery("SELECT c FROM Customer c", Customer.class).getSingleResult();
+                Payment payment = new Payment(customer, null, null, null, PaymentStatus.COMPLETED, 100, Currency.DKK, "pi_an_5");
+                em.persist(payment);
+                em.getTransaction().commit();
+                during[0] = payment.getId();
+            }
+            return List.of(before, during[0]);
+        });
+
+        assertEquals(Set.of(before), rebuild.countedPaymentIds());
+    }
+
+    private static long count(List<Object[]> rows, Plan plan, SubscriptionStatus status) {
+        return rows.stream()
+                .filter(row -> row[0].equals(plan.getId()) && row[4] == status)
+                .mapToLong(row -> ((Number) row[5]).longValue())
+                .sum();
+    }
+
+    private static long renewals(List<RevenueReportDTO.Bucket> buckets, Plan plan) {
+        return buckets.stream().filter(b -> b.planId.equals(plan.getId())).mapToLong(b -> b.count).sum();
+    }
+
+    private void setupTestData() {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+
+            Role userRole = new Role("USER");
+            em.persist(userRole);
+            User user = new User("analytics@example.com", "password123");
+            user.addRole(userRole);
+            em.persist(user);
+            Customer customer = new Customer(user, "Analytics Company", 22222, "EXT-ANALYTICS-001", OffsetDateTime.now());
+            em.persist(customer);
+
+            monthlyPlan = new Plan("Monthly", Period.MONTHLY, 9900, Currency.DKK, "Monthly plan", true);
+            yearlyPlan = new Plan("Yearly", Period.YEARLY, 99000, Currency.DKK, "Yearly plan", true);
+            em.persist(monthlyPlan);
+            em.persist(yearlyPlan);
+
+            OffsetDateTime now = DateTimeUtil.now();
+            Subscription monthlyA = subscription(em, customer, monthlyPlan, SubscriptionStatus.ACTIVE, now.plusDays(1));
+            subscription(em, customer, monthlyPlan, SubscriptionStatus.ACTIVE, now.plusDays(1));
+            subscription(em, customer, monthlyPlan, SubscriptionStatus.PAST_DUE, now.minusDays(3));
+            subscription(em, customer, monthlyPlan, SubscriptionStatus.CANCELED, now.plusDays(1));
+            subscription(em, customer, yearlyPlan, SubscriptionStatus.ACTIVE, now.plusDays(10));
+
+            em.persist(new Payment(customer, null, monthlyA, null, PaymentStatus.COMPLETED, 9900, Currency.DKK, "pi_an_1"));
+            em.persist(new Payment(customer, null, monthlyA, null, PaymentStatus.COMPLETED, 9900, Currency.DKK, "pi_an_2"));
+            em.persist(new Payment(customer, null, null, null, PaymentStatus.COMPLETED, 4900, Currency.DKK, "pi_an_3"));
+            em.persist(new Payment(customer, null, null, null, PaymentStatus.PENDING, 7000, Currency.DKK, "pi_an_4"));
+
+            em.getTransaction().commit();
+        }
+    }
+
+    private static Subscription subscription(EntityManager em, Customer customer, Plan plan,
+                                             SubscriptionStatus status, OffsetDateTime nextBillingDate) {
+        Subscription subscription = new Subscription(customer, plan, status, DateTimeUtil.now().minusMonths(1),
+                nextBillingDate, AnchorPolicy.ANNIVERSARY);
+        em.persist(subscription);
+        return subscription;
+    }
+
+    private void cleanDatabase() {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM PaymentDailySummary").executeUpdate();
+            em.createQuery("DELETE FROM Receipt").executeUpdate();
+            em.createQuery("DELETE FROM Payment").executeUpdate();
+            em.createQuery("DELETE FROM Subscription").executeUpdate();
+            em.createQuery("DELETE FROM Customer").executeUpdate();
+            em.createQuery("DELETE FROM Plan").executeUpdate();
+            em.createQuery("DELETE FROM User").executeUpdate();
+            em.createQuery("DELETE FROM Role").executeUpdate();
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            // Ignore errors during cleanup
+        }
+    }
+}
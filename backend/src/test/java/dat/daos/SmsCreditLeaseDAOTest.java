@@ -0,0 +1,115 @@
+package dat.daos;
+
+import dat.config.HibernateConfig;
+import dat.daos.impl.SmsBalanceDAO;
+import dat.daos.impl.SmsCreditLeaseDAO;
+import dat.daos.impl.SmsLedgerDAO;
+import dat.entities.SmsBalance;
+import dat.entities.SmsLedgerEntry;
+import dat.enums.SmsLedgerReason;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for SmsCreditLeaseDAO
+ * Tests that a reclaimed lease's credits are held in suspense instead of being
+ * returned, and that the suspense is resolved once, by the lease's node or by a
+ * provider sync, with the ledger matching the counter throughout
+ */
+class SmsCreditLeaseDAOTest {
+
+    private static EntityManagerFactory emf;
+    private static SmsBalanceDAO smsBalanceDAO;
+    private static SmsCreditLeaseDAO leaseDAO;
+    private static SmsLedgerDAO ledgerDAO;
+    private String externalCustomerId;
+    private String nodeId;
+
+    @BeforeAll
+    static void setUpAll() {
+        HibernateConfig.setTest(true);
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        smsBalanceDAO = SmsBalanceDAO.getInstance(emf);
+        leaseDAO = SmsCreditLeaseDAO.getInstance(emf);
+        ledgerDAO = SmsLedgerDAO.getInstance(emf);
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        externalCustomerId = "cus_lease_" + UUID.randomUUID();
+        nodeId = "node_" + UUID.randomUUID();
+        smsBalanceDAO.create(new SmsBalance(externalCustomerId, 100));
+    }
+
+    @Test
+    @DisplayName("Reclaim - reserved credits go into suspense, not back to the balance")
+    void testReclaimHoldsCreditsInSuspense() {
+        SmsCreditLeaseDAO.Grant grant = leaseDAO.grant(nodeId, externalCustomerId, 30, 60);
+        assertEquals(OptionalInt.of(20), leaseDAO.settle(grant.leaseId(), 10, 60));
+
+        assertEquals(1, leaseDAO.reclaimNode(nodeId));
+
+        assertEquals(70, remaining());
+        assertEquals(0, leaseDAO.getReservedCredits(externalCustomerId));
+        assertEquals(20, leaseDAO.getSuspendedCredits(externalCustomerId));
+        assertEquals(70, ledgerDAO.getBalance(externalCustomerId));
+        SmsLedgerEntry suspense = ledgerDAO.getEntries(externalCustomerId, 1).get(0);
+        assertEquals(SmsLedgerReason.SUSPENSE, suspense.getReason());
+        assertEquals(-20, suspense.getDelta());
+        assertEquals("lease:" + grant.leaseId(), suspense.getReference());
+    }
+
+    @Test
+    @DisplayName("Resolve - the node's unsettled usage is recorded and the rest returned, once")
+    void testResolveSuspense() {
+        SmsCreditLeaseDAO.Grant grant = leaseDAO.grant(nodeId, externalCustomerId, 30, 60);
+        leaseDAO.reclaimNode(nodeId);
+
+        assertEquals(OptionalInt.of(25), leaseDAO.resolveSuspense(grant.leaseId(), 5));
+        assertTrue(leaseDAO.resolveSuspense(grant.leaseId(), 5).isEmpty());
+
+        assertEquals(95, remaining());
+        assertEquals(0, leaseDAO.getSuspendedCredits(externalCustomerId));
+        assertEquals(95, ledgerDAO.getBalance(externalCustomerId));
+        // Both entries come from one statement, in no particular order
+        Map<SmsLedgerReason, Integer> entries = ledgerDAO.getEntries(externalCustomerId, 2).stream()
+                .collect(Collectors.toMap(SmsLedgerEntry::getReason, SmsLedgerEntry::getDelta));
+        assertEquals(Map.of(SmsLedgerReason.SUSPENSE_RELEASE, 30, SmsLedgerReason.USAGE, -5), entries);
+    }
+
+    @Test
+    @DisplayName("Clear - a provider sync takes over the suspense, the node can no longer return it")
+    void testClearSuspense() {
+        SmsCreditLeaseDAO.Grant grant = leaseDAO.grant(nodeId, externalCustomerId, 30, 60);
+        leaseDAO.reclaimNode(nodeId);
+
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            assertEquals(30, leaseDAO.clearSuspense(em, externalCustomerId));
+            em.getTransaction().commit();
+        }
+
+        assertTrue(leaseDAO.resolveSuspense(grant.leaseId(), 5).isEmpty());
+        assertEquals(70, remaining());
+        assertEquals(70, ledgerDAO.getBalance(externalCustomerId));
+    }
+
+    private int remaining() {
+        return smsBalanceDAO.getByExternalCustomerId(externalCustomerId).orElseThrow().getRemainingSms();
+    }
+}
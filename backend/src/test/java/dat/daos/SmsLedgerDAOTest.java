@@ -0,0 +1,147 @@
+package dat.daos;
+
+import dat.config.HibernateConfig;
+import dat.daos.impl.SmsBalanceDAO;
+import dat.daos.impl.SmsLedgerDAO;
+import dat.entities.SmsBalance;
+import dat.entities.SmsLedgerEntry;
+import dat.enums.SmsLedgerReason;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for the SMS credit ledger
+ * Tests that balance changes are appended to the ledger and that
+ * snapshot + later entries always give the same balance as the counter,
+ * also when an entry commits after a snapshot passed newer entries
+ * and when two rolls overlap
+ */
+class SmsLedgerDAOTest {
+
+    private static EntityManagerFactory emf;
+    private static SmsBalanceDAO smsBalanceDAO;
+    private static SmsLedgerDAO ledgerDAO;
+    private String externalCustomerId;
+
+    @BeforeAll
+    static void setUpAll() {
+        HibernateConfig.setTest(true);
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        smsBalanceDAO = SmsBalanceDAO.getInstance(emf);
+        ledgerDAO = SmsLedgerDAO.getInstance(emf);
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        externalCustomerId = "cus_ledger_" + UUID.randomUUID();
+        smsBalanceDAO.create(new SmsBalance(externalCustomerId, 100));
+    }
+
+    @Test
+    @DisplayName("Debit/credit - every change is appended to the ledger")
+    void testMovementsAreRecorded() {
+        smsBalanceDAO.debitSmsCredits(externalCustomerId, 30, SmsLedgerReason.DEBIT, "test");
+        smsBalanceDAO.creditSmsCredits(externalCustomerId, 5, SmsLedgerReason.REFUND, "test");
+        assertTrue(smsBalanceDAO.debitSmsCredits(externalCustomerId, 500).isEmpty());  // rejected, not recorded
+
+        List<SmsLedgerEntry> entries = ledgerDAO.getEntries(externalCustomerId, 10);
+        assertEquals(3, entries.size());
+        assertEquals(SmsLedgerReason.REFUND, entries.get(0).getReason());
+        assertEquals(-30, entries.get(1).getDelta());
+        assertEquals(SmsLedgerReason.OPENING, entries.get(2).getReason());
+        assertEquals(75, ledgerDAO.getBalance(externalCustomerId));
+    }
+
+    @Test
+    @DisplayName("Snapshots - balance is the same before and after rolling snapshots")
+    void testSnapshotPlusDeltas() {
+        smsBalanceDAO.debitSmsCredits(externalCustomerId, 10);
+        ledgerDAO.rollSnapshots();
+        assertEquals(90, ledgerDAO.getBalance(externalCustomerId));
+
+        smsBalanceDAO.debitSmsCredits(externalCustomerId, 15);
+        smsBalanceDAO.creditSmsCredits(externalCustomerId, 40);
+        assertEquals(115, ledgerDAO.getBalance(externalCustomerId));
+
+        ledgerDAO.rollSnapshots();
+        assertEquals(115, ledgerDAO.getBalance(externalCustomerId));
+        assertEquals(115, smsBalanceDAO.getByExternalCustomerId(externalCustomerId).orElseThrow().getRemainingSms());
+    }
+
+    @Test
+    @DisplayName("Snapshots - an entry uncommitted during the roll is not skipped")
+    void testUncommittedEntryDuringRoll() {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.persist(new SmsLedgerEntry(externalCustomerId, 7, SmsLedgerReason.REFUND, "slow transaction"));
+            em.flush();  // lower id, not yet committed
+
+            smsBalanceDAO.debitSmsCredits(externalCustomerId, 10);  // higher id, committed
+            ledgerDAO.rollSnapshots();
+            assertEquals(90, ledgerDAO.getBalance(externalCustomerId));
+
+            em.getTransaction().commit();
+        }
+
+        assertEquals(97, ledgerDAO.getBalance(externalCustomerId));
+        ledgerDAO.rollSnapshots();
+        assertEquals(97, ledgerDAO.getBalance(externalCustomerId));
+    }
+
+    @Test
+    @DisplayName("Snapshots - overlapping rolls fold each entry once")
+    void testConcurrentRolls() throws Exception {
+        ledgerDAO.rollSnapshots();
+        smsBalanceDAO.debitSmsCredits(externalCustomerId, 10);
+        smsBalanceDAO.creditSmsCredits(externalCustomerId, 4);
+
+        List<Thread> rolls = new ArrayList<>();
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            // Row lock on the snapshot: both rolls start and wait behind it
+            em.createNativeQuery("SELECT balance FROM sms_credit_snapshot WHERE external_customer_id = :externalId FOR UPDATE")
+                    .setParameter("externalId", externalCustomerId)
+                    .getResultList();
+
+            for (int i = 0; i < 2; i++) {
+                rolls.add(Thread.ofPlatform().start(ledgerDAO::rollSnapshots));
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (waitingOnLocks() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, waitingOnLocks());
+
+            em.getTransaction().commit();
+        }
+        for (Thread roll : rolls) {
+            roll.join();
+        }
+
+        assertEquals(94, ledgerDAO.getBalance(externalCustomerId));
+        assertEquals(94, smsBalanceDAO.getByExternalCustomerId(externalCustomerId).orElseThrow().getRemainingSms());
+    }
+
+    private long waitingOnLocks() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return ((Number) em.createNativeQuery(
+                    "SELECT COUNT(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock' " +
+                    "AND query LIKE '%sms_credit_snapshot%' AND pid <> pg_backend_pid()")
+                    .getSingleResult()).longValue();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package dat.events;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for CustomerEventBus
+ * Tests per-customer delivery and slow-consumer disconnection
+ */
+class CustomerEventBusTest {
+
+    private final CustomerEventBus eventBus = CustomerEventBus.getInstance();
+
+    @Test
+    @DisplayName("Publish - only the customer's own subscribers receive the event")
+    void testPerCustomerDelivery() throws InterruptedException {
+        CustomerEventSubscription mine = eventBus.subscribe(1001L);
+        CustomerEventSubscription other = eventBus.subscribe(1002L);
+        try {
+            eventBus.publish(1001L, CustomerEvent.SMS_BALANCE, Map.of("remainingSms", 42));
+
+            CustomerEvent event = mine.poll(1, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(CustomerEvent.SMS_BALANCE, event.type());
+            assertEquals(1001L, event.customerId());
+            assertNull(other.poll(10, TimeUnit.MILLISECONDS));
+        } finally {
+            eventBus.unsubscribe(mine);
+            eventBus.unsubscribe(other);
+        }
+    }
+
+    @Test
+    @DisplayName("Slow consumer - a full buffer closes the subscription instead of blocking the publisher")
+    void testSlowConsumerIsDisconnected() {
+        CustomerEventSubscription slow = eventBus.subscribe(2001L);
+        try {
+            for (int i = 0; i < 10_000 && !slow.isClosed(); i++) {
+                eventBus.publish(2001L, CustomerEvent.ACTIVITY, Map.of("n", i));
+            }
+
+            assertTrue(slow.isClosed());
+            assertTrue(slow.isOverflowed());
+        } finally {
+            eventBus.unsubscribe(slow);
+        }
+    }
+}
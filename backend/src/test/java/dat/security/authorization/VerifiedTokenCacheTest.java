@@ -0,0 +1,43 @@
+package dat.security.authorization;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for VerifiedTokenCache
+ * Tests hits, expiry, logout and that a rotated secret key drops earlier verifications
+ */
+class VerifiedTokenCacheTest {
+
+    private static final long LATER = System.currentTimeMillis() + 60_000;
+
+    @Test
+    @DisplayName("get - hit until the token expires or is invalidated")
+    void testHitExpiryAndInvalidate() {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        VerifiedToken verified = new VerifiedToken(null, 1, LATER);
+        cache.put("secret", "token", verified);
+        cache.put("secret", "expired", new VerifiedToken(null, 1, System.currentTimeMillis() - 1));
+
+        assertSame(verified, cache.get("secret", "token"));
+        assertNull(cache.get("secret", "expired"));
+
+        cache.invalidate("token");
+        assertNull(cache.get("secret", "token"));
+    }
+
+    @Test
+    @DisplayName("Key rotation - tokens verified with the old key are not served")
+    void testSecretRotation() {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        cache.put("old-secret", "token", new VerifiedToken(null, 1, LATER));
+
+        assertNull(cache.get("new-secret", "token"));
+
+        cache.put("new-secret", "other", new VerifiedToken(null, 1, LATER));
+        assertNull(cache.get("new-secret", "token"));
+        assertNotNull(cache.get("new-secret", "other"));
+    }
+}
@@ -0,0 +1,60 @@
+package dat.security.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for TokenBucket
+ * Tests burst capacity, lazy refill and retry-after calculation
+ */
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("Allows a full burst, then rejects")
+    void testBurstCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 0);
+
+        assertEquals(0, bucket.tryAcquire(3, 1.0, 0));
+        assertEquals(0, bucket.tryAcquire(3, 1.0, 0));
+        assertEquals(0, bucket.tryAcquire(3, 1.0, 0));
+        assertTrue(bucket.tryAcquire(3, 1.0, 0) > 0);
+    }
+
+    @Test
+    @DisplayName("Refills lazily based on elapsed time")
+    void testLazyRefill() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+        assertEquals(0, bucket.tryAcquire(1, 2.0, 0));
+        assertTrue(bucket.tryAcquire(1, 2.0, 0) > 0);
+
+        // 2 tokens per second → one token after half a second
+        assertEquals(0, bucket.tryAcquire(1, 2.0, SECOND / 2));
+    }
+
+    @Test
+    @DisplayName("Never refills above capacity")
+    void testCapacityCap() {
+        TokenBucket bucket = new TokenBucket(2, 0);
+
+        long later = 100 * SECOND;
+        assertEquals(0, bucket.tryAcquire(2, 1.0, later));
+        assertEquals(0, bucket.tryAcquire(2, 1.0, later));
+        assertTrue(bucket.tryAcquire(2, 1.0, later) > 0);
+    }
+
+    @Test
+    @DisplayName("Reports time until next token when empty")
+    void testRetryAfter() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+        bucket.tryAcquire(1, 0.5, 0);
+
+        long wait = bucket.tryAcquire(1, 0.5, 0);
+        assertEquals(2 * SECOND, wait, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,100 @@
+package dat.services;
+
+import dat.config.ConfigSnapshot;
+import dat.dtos.ActivitySummaryDTO;
+import dat.entities.ActivityDailyAggregate;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for ActivityAggregateService
+ * Tests bucketing of aggregate rows per day or month, the per-type totals and
+ * the first day a rebuild may start at
+ */
+class ActivityAggregateServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 30);
+    private static final LocalDate TO = LocalDate.of(2025, 2, 2);
+
+    private static final List<ActivityDailyAggregate> ROWS = List.of(
+            row(LocalDate.of(2025, 1, 30), ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, 3),
+            row(LocalDate.of(2025, 1, 30), ActivityLogType.LOGIN, ActivityLogStatus.FAILURE, 1),
+            row(LocalDate.of(2025, 1, 31), ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, 2),
+            row(LocalDate.of(2025, 2, 1), ActivityLogType.PAYMENT, ActivityLogStatus.SUCCESS, 4),
+            row(LocalDate.of(2025, 2, 2), ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, 5));
+
+    @Test
+    @DisplayName("Summary per day - one bucket per day, type and status")
+    void testDaily() {
+        ActivitySummaryDTO summary = ActivityAggregateService.summarize(7L, FROM, TO, false, ROWS);
+
+        assertEquals("day", summary.granularity);
+        assertEquals(7L, summary.customerId);
+        assertEquals(5, summary.buckets.size());
+        assertEquals("2025-01-30", summary.buckets.get(0).period);
+        assertEquals(3, summary.buckets.get(0).count);
+        assertEquals(ActivityLogStatus.FAILURE, summary.buckets.get(1).status);
+    }
+
+    @Test
+    @DisplayName("Summary per month - days of a month are merged, order kept")
+    void testMonthly() {
+        ActivitySummaryDTO summary = ActivityAggregateService.summarize(7L, FROM, TO, true, ROWS);
+
+        assertEquals("month", summary.granularity);
+        assertEquals(4, summary.buckets.size());
+        ActivitySummaryDTO.Bucket january = summary.buckets.get(0);
+        assertEquals("2025-01", january.period);
+        assertEquals(ActivityLogType.LOGIN, january.type);
+        assertEquals(5, january.count);
+        assertEquals("2025-02", summary.buckets.get(2).period);
+    }
+
+    @Test
+    @DisplayName("Totals - summed per type over the whole range; empty range gives no buckets")
+    void testTotals() {
+        ActivitySummaryDTO summary = ActivityAggregateService.summarize(7L, FROM, TO, false, ROWS);
+
+        assertEquals(11L, summary.totals.get(ActivityLogType.LOGIN));
+        assertEquals(4L, summary.totals.get(ActivityLogType.PAYMENT));
+        assertFalse(summary.totals.containsKey(ActivityLogType.SMS_SENT));
+
+        ActivitySummaryDTO empty = ActivityAggregateService.summarize(7L, FROM, TO, true, List.of());
+        assertTrue(empty.buckets.isEmpty());
+        assertTrue(empty.totals.isEmpty());
+    }
+
+    @Test
+    @DisplayName("First complete day - after the archive and retention cutoffs, in Copenhagen days")
+    void testFirstCompleteDay() {
+        OffsetDateTime now = OffsetDateTime.of(2025, 7, 15, 10, 0, 0, 0, ZoneOffset.ofHours(2));
+
+        assertNull(ActivityAggregateService.firstCompleteDay(ConfigSnapshot.of(new Properties(), Map.of()), false, now));
+        assertNull(ActivityAggregateService.firstCompleteDay(
+                ConfigSnapshot.of(new Properties(), Map.of("ACTIVITY_LOG_RETENTION_MONTHS", "0")), true, now));
+
+        // Retention drops UTC months: 2023-07-01T00:00Z is 02:00 in Copenhagen, so July 1st is incomplete
+        assertEquals(LocalDate.of(2023, 7, 2), ActivityAggregateService.firstCompleteDay(
+                ConfigSnapshot.of(new Properties(), Map.of()), true, now));
+
+        ConfigSnapshot archiving = ConfigSnapshot.of(new Properties(),
+                Map.of("ACTIVITY_ARCHIVE_ENABLED", "true", "ACTIVITY_ARCHIVE_AFTER_MONTHS", "6"));
+        assertEquals(LocalDate.of(2025, 1, 1), ActivityAggregateService.firstCompleteDay(archiving, false, now));
+        assertEquals(LocalDate.of(2025, 1, 1), ActivityAggregateService.firstCompleteDay(archiving, true, now));
+    }
+
+    private static ActivityDailyAggregate row(LocalDate day, ActivityLogType type, ActivityLogStatus status, long count) {
+        return new ActivityDailyAggregate(7L, day, type, status, count);
+    }
+}
@@ -0,0 +1,160 @@
+package dat.services;
+
+import dat.entities.ActivityDailyAggregate;
+import dat.entities.ActivityLog;
+import dat.entities.Customer;
+import dat.enums.ActivityLogStatus;
+import dat.enums.ActivityLogType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for PendingActivityCounts
+ * Tests grouping per customer/day/type/status, Copenhagen days, drain, take and
+ * restore, eviction of idle past days and concurrent recording
+ */
+class PendingActivityCountsTest {
+
+    private static final OffsetDateTime NOON = OffsetDateTime.parse("2025-03-10T12:00:00+01:00");
+    private static final LocalDate EVICT_NOTHING = LocalDate.of(2000, 1, 1);
+
+    @Test
+    @DisplayName("drain - one delta per key, counters reset after the drain")
+    void testDrain() {
+        PendingActivityCounts counts = new PendingActivityCounts();
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON));
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON.plusHours(1)));
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.FAILURE, NOON));
+        record(counts, log(2L, ActivityLogType.PAYMENT, ActivityLogStatus.SUCCESS, NOON));
+
+        List<ActivityDailyAggregate> deltas = counts.drain(EVICT_NOTHING);
+
+        assertEquals(3, deltas.size());
+        assertEquals(2, count(deltas, 1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS));
+        assertEquals(1, count(deltas, 1L, ActivityLogType.LOGIN, ActivityLogStatus.FAILURE));
+        assertEquals(1, count(deltas, 2L, ActivityLogType.PAYMENT, ActivityLogStatus.SUCCESS));
+        assertTrue(counts.drain(EVICT_NOTHING).isEmpty());
+    }
+
+    @Test
+    @DisplayName("keyOf - days are Europe/Copenhagen calendar days")
+    void testCopenhagenDay() {
+        PendingActivityCounts counts = new PendingActivityCounts();
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS,
+                OffsetDateTime.parse("2025-01-31T23:30:00Z")));
+
+        List<ActivityDailyAggregate> deltas = counts.drain(EVICT_NOTHING);
+
+        assertEquals(LocalDate.of(2025, 2, 1), deltas.get(0).getId().getDay());
+    }
+
+    @Test
+    @DisplayName("keyOf - logs without customer or timestamp are not counted")
+    void testSkipped() {
+        assertNull(PendingActivityCounts.keyOf(log(null, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON)));
+        assertNull(PendingActivityCounts.keyOf(log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, null)));
+    }
+
+    @Test
+    @DisplayName("restore - failed deltas are added to counts recorded since")
+    void testRestore() {
+        PendingActivityCounts counts = new PendingActivityCounts();
+        record(counts, log(1L, ActivityLogType.SMS_SENT, ActivityLogStatus.SUCCESS, NOON));
+        record(counts, log(1L, ActivityLogType.SMS_SENT, ActivityLogStatus.SUCCESS, NOON));
+        List<ActivityDailyAggregate> failed = counts.drain(EVICT_NOTHING);
+
+        record(counts, log(1L, ActivityLogType.SMS_SENT, ActivityLogStatus.SUCCESS, NOON));
+        counts.restore(failed);
+
+        assertEquals(3, count(counts.drain(EVICT_NOTHING), 1L, ActivityLogType.SMS_SENT, ActivityLogStatus.SUCCESS));
+    }
+
+    @Test
+    @DisplayName("drain - idle keys of past days are evicted, recent ones kept")
+    void testEviction() {
+        PendingActivityCounts counts = new PendingActivityCounts();
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON.minusDays(5)));
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON));
+        LocalDate evictBefore = NOON.toLocalDate().minusDays(1);
+
+        assertEquals(2, counts.drain(evictBefore).size());  // counted before they are idle
+        assertEquals(2, counts.size());
+
+        assertTrue(counts.drain(evictBefore).isEmpty());
+        assertEquals(1, counts.size());
+    }
+
+    @Test
+    @DisplayName("take - counts of matching days are taken, other days stay pending")
+    void testTake() {
+        PendingActivityCounts counts = new PendingActivityCounts();
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON.minusDays(1)));
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON));
+        record(counts, log(1L, ActivityLogType.LOGIN, ActivityLogStatus.SUCCESS, NOON));
+
+        List<ActivityDailyAggregate> taken = counts.take(day -> day.equals(NOON.toLocalDate()));
+
+        assertEquals(1, taken.size());
+        assertEquals(2, taken.get(0).getCount());
+        List<ActivityDailyAggregate> left = counts.drain(EVICT_NOTHING);
+        assertEquals(1, left.size());
+        assertEquals(NOON.toLocalDate().minusDays(1), left.get(0).getId().getDay());
+    }
+
+    @Test
+    @DisplayName("Concurrent recording - no increments lost")
+    void testConcurrentRecord() throws InterruptedException {
+        PendingActivityCounts counts = new PendingActivityCounts();
+        int threads = 8;
+        int perThread = 10_000;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    record(counts, log(1L, ActivityLogType.SMS_SENT, ActivityLogStatus.SUCCESS, NOON));
+                }
+            }));
+        }
+        long drained = 0;
+        for (Thread worker : workers) {
+            drained += counts.drain(EVICT_NOTHING).stream().mapToLong(ActivityDailyAggregate::getCount).sum();
+            worker.join();
+        }
+        drained += counts.drain(EVICT_NOTHING).stream().mapToLong(ActivityDailyAggregate::getCount).sum();
+
+        assertEquals((long) threads * perThread, drained);
+    }
+
+    private static void record(PendingActivityCounts counts, ActivityLog activityLog) {
+        counts.add(PendingActivityCounts.keyOf(activityLog), 1);
+    }
+
+    private static ActivityLog log(Long customerId, ActivityLogType type, ActivityLogStatus status,
+                                   OffsetDateTime timestamp) {
+        Customer customer = null;
+        if (customerId != null) {
+            customer = new Customer();
+            customer.setId(customerId);
+        }
+        ActivityLog activityLog = new ActivityLog(customer, null, type, status, null);
+        activityLog.setTimestamp(timestamp);
+        return activityLog;
+    }
+
+    private static long count(List<ActivityDailyAggregate> deltas, Long customerId,
+                              ActivityLogType type, ActivityLogStatus status) {
+        return deltas.stream()
+                .filter(d -> d.getId().getCustomerId().equals(customerId)
+                        && d.getId().getType() == type && d.getId().getStatus() == status)
+                .mapToLong(ActivityDailyAggregate::getCount)
+                .sum();
+    }
+}
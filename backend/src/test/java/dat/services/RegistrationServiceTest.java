@@ -0,0 +1,166 @@
+package dat.services;
+
+import dat.config.HibernateConfig;
+import dat.dtos.OnboardingResultDTO;
+import dat.dtos.RegisterRequest;
+import dat.entities.Plan;
+import dat.entities.SerialLink;
+import dat.enums.Currency;
+import dat.enums.Period;
+import dat.security.entities.User;
+import dat.utils.Metrics;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for RegistrationService
+ * Tests that serial number and email are checked before the password is hashed,
+ * for single registrations and for bulk onboarding
+ */
+class RegistrationServiceTest {
+
+    private static EntityManagerFactory emf;
+    private static RegistrationService registrationService;
+
+    @BeforeAll
+    static void setUpAll() {
+        HibernateConfig.setTest(true);
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        registrationService = RegistrationService.getInstance(emf);
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        cleanDatabase();
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.persist(new Plan("BASIC", Period.MONTHLY, 9900, Currency.DKK, "Basic plan", true));
+            em.persist(new SerialLink(1001, "EXT-REG-1", "first@company.com", "BASIC", 100,
+                    OffsetDateTime.now().plusDays(30)));
+            em.persist(new SerialLink(1002, "EXT-REG-2", "second@company.com", "BASIC", 100,
+                    OffsetDateTime.now().plusDays(30)));
+            em.persist(new SerialLink(1003, "EXT-REG-3", "taken@company.com", "BASIC", 100,
+                    OffsetDateTime.now().plusDays(30)));
+            em.persist(new User("taken@company.com", "password123"));
+            em.getTransaction().commit();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanDatabase();
+    }
+
+    @Test
+    @DisplayName("register - serial number and email mismatch is rejected without hashing")
+    void testMismatchNotHashed() {
+        long hashedBefore = Metrics.count("bcrypt.hashed");
+
+        assertThrows(RegistrationService.RegistrationException.class,
+                () -> register(request("intruder@company.com", 1001)));
+        assertThrows(RegistrationService.RegistrationException.class,
+                () -> register(request("first@company.com", 9999)));
+
+        assertEquals(hashedBefore, Metrics.count("bcrypt.hashed"));
+        assertEquals(0L, countCustomers());
+    }
+
+    @Test
+    @DisplayName("register - existing user is rejected without hashing")
+    void testExistingUserNotHashed() {
+        long hashedBefore = Metrics.count("bcrypt.hashed");
+
+        assertThrows(EntityExistsException.class, () -> register(request("taken@company.com", 1003)));
+
+        assertEquals(hashedBefore, Metrics.count("bcrypt.hashed"));
+    }
+
+    @Test
+    @DisplayName("register - accepted registration is hashed once and persisted")
+    void testAcceptedHashedOnce() throws Exception {
+        long hashedBefore = Metrics.count("bcrypt.hashed");
+
+        RegistrationService.RegistrationResult result = register(request("first@company.com", 1001));
+
+        assertEquals(hashedBefore + 1, Metrics.count("bcrypt.hashed"));
+        assertNotNull(result.customer().getId());
+        assertEquals("BASIC", result.plan().getName());
+        assertEquals(1L, countCustomers());
+    }
+
+    @Test
+    @DisplayName("onboard - only rows that pass the serial and user checks are hashed")
+    void testOnboardHashesAcceptedRows() throws InterruptedException {
+        long hashedBefore = Metrics.count("bcrypt.bulk.hashed");
+
+        List<OnboardingResultDTO> results = registrationService.onboard(List.of(
+                request("first@company.com", 1001),
+                request("second@company.com", 1001),   // serial belongs to another email
+                request("taken@company.com", 1003),    // user already exists
+                request("nobody@company.com", 9999))); // unknown serial
+
+        assertEquals(hashedBefore + 1, Metrics.count("bcrypt.bulk.hashed"));
+        assertTrue(results.get(0).success);
+        assertEquals("Serial number and email do not match", results.get(1).error);
+        assertEquals("User with this email already exists", results.get(2).error);
+        assertEquals("Serial number and email do not match", results.get(3).error);
+        assertEquals(1L, countCustomers());
+    }
+
+    private RegistrationService.RegistrationResult register(RegisterRequest request)
+            throws RegistrationService.RegistrationException {
+        return registrationService.register(request, "token-" + request.email,
+                OffsetDateTime.now().plusHours(24), "127.0.0.1", "junit");
+    }
+
+    private static RegisterRequest request(String email, Integer serialNumber) {
+        RegisterRequest request = new RegisterRequest();
+        request.email = email;
+        request.password = "password123";
+        request.companyName = "Company " + serialNumber;
+        request.serialNumber = serialNumber;
+        return request;
+    }
+
+    private long countCustomers() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(c) FROM Customer c", Long.class).getSingleResult();
+        }
+    }
+
+    private void cleanDatabase() {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+
+            // Delete in order to respect foreign key constraints
+            em.createQuery("DELETE FROM ActivityLog").executeUpdate();
+            em.createQuery("DELETE FROM Session").executeUpdate();
+            em.createQuery("DELETE FROM SmsLedgerEntry").executeUpdate();
+            em.createQuery("DELETE FROM SmsBalance").executeUpdate();
+            em.createQuery("DELETE FROM Subscription").executeUpdate();
+            em.createQuery("DELETE FROM Customer").executeUpdate();
+            em.createQuery("DELETE FROM SerialLink").executeUpdate();
+            em.createQuery("DELETE FROM Plan").executeUpdate();
+            em.createQuery("DELETE FROM User").executeUpdate();
+            em.createQuery("DELETE FROM Role").executeUpdate();
+
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            // Ignore errors during cleanup
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package dat.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for SmsCreditReservationService.LocalLease
+ * Tests that concurrent in-memory debits never exceed the leased credits
+ * and that closing a lease counts every debit that got in exactly once
+ */
+class SmsCreditLeaseTest {
+
+    @Test
+    @DisplayName("tryTake - concurrent debits spend exactly the leased credits")
+    void testConcurrentDebitsNeverOverspend() throws InterruptedException {
+        SmsCreditReservationService.LocalLease lease = new SmsCreditReservationService.LocalLease(1L, "cus_test", 1000);
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 500; j++) {
+                    if (lease.tryTake(1)) {
+                        succeeded.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1000, succeeded.get());
+        assertEquals(0, lease.available.get());
+        assertEquals(1000, lease.unsettled(lease.available.get()));
+    }
+
+    @Test
+    @DisplayName("tryTake - a debit larger than the remaining credits changes nothing")
+    void testInsufficientCredits() {
+        SmsCreditReservationService.LocalLease lease = new SmsCreditReservationService.LocalLease(1L, "cus_test", 3);
+
+        assertFalse(lease.tryTake(5));
+        assertEquals(3, lease.available.get());
+        assertEquals(0, lease.unsettled(lease.available.get()));
+        assertTrue(lease.tryTake(3));
+        assertEquals(0, lease.available.get());
+    }
+
+    @Test
+    @DisplayName("close - usage is counted from the settled point, later debits fail")
+    void testCloseAfterSettle() {
+        SmsCreditReservationService.LocalLease lease = new SmsCreditReservationService.LocalLease(1L, "cus_test", 10);
+        assertTrue(lease.tryTake(4));
+        lease.settled += lease.unsettled(lease.available.get());
+        assertTrue(lease.tryTake(2));
+
+        assertEquals(2, lease.close());
+        assertFalse(lease.tryTake(1));
+    }
+
+    @Test
+    @DisplayName("close - debits racing the close are either counted or fail")
+    void testCloseRacingDebits() throws InterruptedException {
+        SmsCreditReservationService.LocalLease lease = new SmsCreditReservationService.LocalLease(1L, "cus_test", 1_000_000);
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 50_000; j++) {
+                    if (lease.tryTake(1)) {
+                        succeeded.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        Thread.sleep(1);
+        int used = lease.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(succeeded.get(), used);
+    }
+}
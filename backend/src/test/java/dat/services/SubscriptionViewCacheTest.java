@@ -0,0 +1,119 @@
+package dat.services;
+
+import dat.dtos.SubscriptionDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for SubscriptionViewCache
+ * Tests hits, cached misses, invalidation, invalidation racing a load
+ * and that loads run outside any lock
+ */
+class SubscriptionViewCacheTest {
+
+    private static final long TTL = 60_000;
+
+    @Test
+    @DisplayName("get - loads once, empty views are cached too")
+    void testLoadsOnce() {
+        SubscriptionViewCache cache = new SubscriptionViewCache(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, TTL, id -> { loads.incrementAndGet(); return Optional.of(view(id)); });
+        cache.get(1, TTL, id -> { loads.incrementAndGet(); return Optional.of(view(id)); });
+        cache.get(2, TTL, id -> { loads.incrementAndGet(); return Optional.empty(); });
+        Optional<SubscriptionDTO> none = cache.get(2, TTL, id -> { loads.incrementAndGet(); return Optional.of(view(id)); });
+
+        assertEquals(2, loads.get());
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    @DisplayName("invalidate - next get loads again; TTL 0 never caches")
+    void testInvalidate() {
+        SubscriptionViewCache cache = new SubscriptionViewCache(100);
+        cache.get(1, TTL, id -> Optional.empty());
+
+        cache.invalidate(1);
+
+        assertTrue(cache.get(1, TTL, id -> Optional.of(view(id))).isPresent());
+        cache.get(3, 0, id -> Optional.of(view(id)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Bounded - a full cache is cleared before a new customer is added")
+    void testBounded() {
+        SubscriptionViewCache cache = new SubscriptionViewCache(2);
+        cache.get(1, TTL, id -> Optional.of(view(id)));
+        cache.get(2, TTL, id -> Optional.of(view(id)));
+        cache.get(3, TTL, id -> Optional.of(view(id)));
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Invalidation during a load keeps the view that load read out of the cache")
+    void testInvalidateDuringLoad() throws InterruptedException {
+        SubscriptionViewCache cache = new SubscriptionViewCache(100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+
+        Thread reader = Thread.ofPlatform().start(() -> cache.get(1, TTL, id -> {
+            SubscriptionDTO before = view(id);  // read before the writer commits
+            loading.countDown();
+            try {
+                committed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(before);
+        }));
+        loading.await();
+        cache.invalidate(1);  // not blocked by the load in progress
+        committed.countDown();
+        reader.join();
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1, TTL, id -> { loads.incrementAndGet(); return Optional.of(view(id)); });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("A load does not block other customers or invalidation")
+    void testLoadOutsideLock() throws InterruptedException {
+        SubscriptionViewCache cache = new SubscriptionViewCache(100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread slow = Thread.ofPlatform().start(() -> cache.get(1, TTL, id -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(view(id));
+        }));
+        loading.await();
+
+        assertTrue(cache.get(2, TTL, id -> Optional.of(view(id))).isPresent());
+        cache.invalidate(2);
+        release.countDown();
+        slow.join();
+
+        assertTrue(cache.get(1, TTL, id -> Optional.empty()).isPresent());  // published, not reloaded
+    }
+
+    private static SubscriptionDTO view(long customerId) {
+        SubscriptionDTO dto = new SubscriptionDTO();
+        dto.customerId = customerId;
+        return dto;
+    }
+}
@@ -0,0 +1,53 @@
+package dat.sms;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for SmsThresholds
+ * Tests crossing detection and hysteresis for low-balance alerts
+ */
+class SmsThresholdsTest {
+
+    private static final int[] THRESHOLDS = {0, 100};
+
+    @Test
+    @DisplayName("Crossings - falling through a threshold fires once, staying below does not")
+    void testFallingBelow() {
+        List<SmsThresholds.Crossing> crossings = SmsThresholds.crossings(120, 100, THRESHOLDS, 20, 10);
+
+        assertEquals(List.of(new SmsThresholds.Crossing(100, SmsThresholds.Direction.FELL_BELOW)), crossings);
+        assertTrue(SmsThresholds.crossings(100, 80, THRESHOLDS, 20, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Crossings - oscillating around a threshold does not re-arm it")
+    void testHysteresis() {
+        // Re-arm level for 100 is 100 + max(10, 20%) = 120
+        assertTrue(SmsThresholds.crossings(95, 105, THRESHOLDS, 20, 10).isEmpty());
+        assertTrue(SmsThresholds.crossings(105, 119, THRESHOLDS, 20, 10).isEmpty());
+        assertEquals(List.of(new SmsThresholds.Crossing(100, SmsThresholds.Direction.RECOVERED)),
+                SmsThresholds.crossings(119, 120, THRESHOLDS, 20, 10));
+    }
+
+    @Test
+    @DisplayName("Crossings - one large debit can cross several thresholds")
+    void testSeveralThresholds() {
+        List<SmsThresholds.Crossing> crossings = SmsThresholds.crossings(500, 0, THRESHOLDS, 20, 10);
+
+        assertEquals(2, crossings.size());
+        assertTrue(crossings.stream().allMatch(c -> c.direction() == SmsThresholds.Direction.FELL_BELOW));
+    }
+
+    @Test
+    @DisplayName("Parse - sorts, de-duplicates and rejects negative thresholds")
+    void testParse() {
+        assertArrayEquals(new int[]{0, 100, 500}, SmsThresholds.parse("500, 100,0,100"));
+        assertArrayEquals(new int[0], SmsThresholds.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> SmsThresholds.parse("-5"));
+    }
+}
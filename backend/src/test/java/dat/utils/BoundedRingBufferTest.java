@@ -0,0 +1,101 @@
+package dat.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for BoundedRingBuffer
+ * Tests FIFO order, capacity bound, drain and concurrent producers
+ */
+class BoundedRingBufferTest {
+
+    @Test
+    @DisplayName("Capacity is rounded up to a power of two and enforced")
+    void testCapacity() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(5);
+        assertEquals(8, buffer.capacity());
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(99));
+        assertEquals(8, buffer.size());
+    }
+
+    @Test
+    @DisplayName("Elements come out in FIFO order across wrap-around")
+    void testFifoWrapAround() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(lap * 10 + i));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals(lap * 10 + i, buffer.poll());
+            }
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("drainTo respects the maximum")
+    void testDrainTo() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(16);
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+
+        assertEquals(6, buffer.drainTo(drained, 6));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    @DisplayName("No element is lost or duplicated with concurrent producers")
+    void testConcurrentProducers() throws InterruptedException {
+        BoundedRingBuffer<Long> buffer = new BoundedRingBuffer<>(64);
+        int producers = 4;
+        long perProducer = 10_000;
+        AtomicLong consumedSum = new AtomicLong();
+        AtomicLong consumedCount = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (long i = 1; i <= perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        Thread consumer = Thread.ofPlatform().start(() -> {
+            while (consumedCount.get() < producers * perProducer) {
+                Long value = buffer.poll();
+                if (value != null) {
+                    consumedSum.addAndGet(value);
+                    consumedCount.incrementAndGet();
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        consumer.join();
+
+        assertEquals(producers * perProducer, consumedCount.get());
+        assertEquals(producers * perProducer * (perProducer + 1) / 2, consumedSum.get());
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package dat.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for HttpCache
+ * Tests ETag generation, If-None-Match matching and Accept-Encoding parsing
+ */
+class HttpCacheTest {
+
+    private static final byte[] BODY = "[{\"id\":1,\"name\":\"Basic Monthly\"}]".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("etag - strong, quoted and stable for the same body")
+    void testETag() {
+        String etag = HttpCache.etag(BODY);
+
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, HttpCache.etag(BODY.clone()));
+        assertNotEquals(etag, HttpCache.etag("[]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("matches - lists, weak prefix, gzip variant and *")
+    void testMatches() {
+        String etag = HttpCache.etag(BODY);
+
+        assertTrue(HttpCache.matches(etag, etag));
+        assertTrue(HttpCache.matches("\"other\", " + etag, etag));
+        assertTrue(HttpCache.matches("W/" + etag, etag));
+        assertTrue(HttpCache.matches(HttpCache.gzipETag(etag), etag));
+        assertTrue(HttpCache.matches("*", etag));
+        assertFalse(HttpCache.matches("\"other\"", etag));
+        assertFalse(HttpCache.matches(null, etag));
+    }
+
+    @Test
+    @DisplayName("acceptsGzip - honours q=0")
+    void testAcceptsGzip() {
+        assertTrue(HttpCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(HttpCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(HttpCache.acceptsGzip("gzip;q=0"));
+        assertFalse(HttpCache.acceptsGzip("br"));
+        assertFalse(HttpCache.acceptsGzip(null));
+    }
+}